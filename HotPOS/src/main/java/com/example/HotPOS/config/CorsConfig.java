@@ -28,8 +28,12 @@ public class CorsConfig {
             "Content-Type",
             "Accept",
             "Origin",
-            "X-Requested-With"
+            "X-Requested-With",
+            "If-None-Match"
         ));
+
+        // Let terminals read the ETag of delta-sync responses
+        configuration.setExposedHeaders(List.of("ETag"));
         
         // Allow credentials (cookies, authorization headers)
         configuration.setAllowCredentials(true);
@@ -1,8 +1,15 @@
 package com.example.HotPOS.config;
 
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.ApprovalStatus;
 import com.example.HotPOS.enums.Role;
+import com.example.HotPOS.enums.TransferStatus;
 import com.example.HotPOS.repository.*;
+import com.example.HotPOS.service.CategoryService;
+import com.example.HotPOS.service.ReceivingJobService;
+import com.example.HotPOS.service.RefundService;
+import com.example.HotPOS.service.StockService;
+import com.example.HotPOS.service.SupplierStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -17,11 +24,31 @@ public class DataInitializer implements CommandLineRunner {
     private final BranchRepository branchRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final SaleItemRepository saleItemRepository;
+    private final RefundRepository refundRepository;
+    private final RefundService refundService;
+    private final TransferRepository transferRepository;
+    private final InTransitStockRepository inTransitStockRepository;
+    private final StockService stockService;
+    private final PurchaseRepository purchaseRepository;
+    private final SupplierStatsRepository supplierStatsRepository;
+    private final SupplierStatsService supplierStatsService;
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final CategoryService categoryService;
+    private final ReceivingJobRepository receivingJobRepository;
+    private final ReceivingJobService receivingJobService;
 
     @Override
     public void run(String... args) {
         initializeDefaultBranch();
         initializeAdmin();
+        initializeRefundTracking();
+        initializeInTransitStock();
+        initializeSupplierStats();
+        initializeCategoryClosure();
+        initializeCategoryTimestamps();
+        initializeReceivingJobStatuses();
     }
 
     private void initializeDefaultBranch() {
@@ -57,4 +84,54 @@ public class DataInitializer implements CommandLineRunner {
             log.info("Created default admin - Username: admin, Password: admin123");
         }
     }
+
+    // Sale lines started tracking refunded quantities after refunds were already being approved
+    private void initializeRefundTracking() {
+        if (!saleItemRepository.existsByRefundedQuantityGreaterThan(0)
+                && refundRepository.existsBySaleIsNotNullAndStatus(ApprovalStatus.APPROVED)) {
+            int refunds = refundService.backfillSaleRefunds();
+            log.info("Recorded {} approved refunds on their sale lines", refunds);
+        }
+    }
+
+    // Transfers could already be in transit when the aggregate was introduced
+    private void initializeInTransitStock() {
+        if (inTransitStockRepository.count() == 0 && transferRepository.existsByStatus(TransferStatus.IN_TRANSIT)) {
+            int rows = stockService.rebuildInTransitStock();
+            log.info("Recorded {} in-transit route and product positions", rows);
+        }
+    }
+
+    // Supplier totals started being kept after purchases and returns already existed
+    private void initializeSupplierStats() {
+        if (supplierStatsRepository.count() == 0 && purchaseRepository.count() > 0) {
+            int suppliers = supplierStatsService.rebuild();
+            log.info("Built purchase statistics for {} suppliers", suppliers);
+        }
+    }
+
+    // Categories existed before the closure was kept, and a category row missing its own closure
+    // row means the two have drifted apart
+    private void initializeCategoryClosure() {
+        if (categoryClosureRepository.countByDepth(0) != categoryRepository.count()) {
+            int rows = categoryService.rebuildCategoryClosure();
+            log.info("Rebuilt the category closure: {} ancestor rows", rows);
+        }
+    }
+
+    // categories.updated_at was added for delta sync after categories already existed
+    private void initializeCategoryTimestamps() {
+        if (categoryRepository.existsByUpdatedAtIsNull()) {
+            int rows = categoryService.backfillUpdatedAt();
+            log.info("Stamped {} categories with their creation time", rows);
+        }
+    }
+
+    // Receiving jobs could be cancelled only after the table and its status check existed
+    private void initializeReceivingJobStatuses() {
+        if (receivingJobRepository.hasStaleStatusCheck()) {
+            receivingJobService.widenStatusCheck();
+            log.info("Allowed cancelled receiving jobs in the status check");
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.HotPOS.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema for customer and supplier search that ddl-auto cannot express: the pg_trgm extension,
+ * digits-only phone columns generated by the database, and trigram GIN indexes. Every statement
+ * is idempotent, so it runs on each start. Until it has succeeded, searches use the plain LIKE
+ * queries.
+ */
+@Slf4j
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class SearchIndexMigration implements CommandLineRunner {
+
+    private static final List<String> STATEMENTS = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "ALTER TABLE customers ADD COLUMN IF NOT EXISTS phone_digits varchar(50) " +
+                    "GENERATED ALWAYS AS (regexp_replace(coalesce(phone, ''), '[^0-9]', '', 'g')) STORED",
+            "ALTER TABLE suppliers ADD COLUMN IF NOT EXISTS phone_digits varchar(50) " +
+                    "GENERATED ALWAYS AS (regexp_replace(coalesce(phone, ''), '[^0-9]', '', 'g')) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_customers_name_trgm ON customers USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_customers_email_trgm ON customers USING gin (lower(email) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_customers_phone_digits_trgm ON customers USING gin (phone_digits gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_suppliers_name_trgm ON suppliers USING gin (lower(name) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_suppliers_contact_trgm ON suppliers USING gin (lower(contact_person) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_suppliers_phone_digits_trgm ON suppliers USING gin (phone_digits gin_trgm_ops)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean applied;
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            for (String statement : STATEMENTS) {
+                jdbcTemplate.execute(statement);
+            }
+            applied = true;
+        } catch (DataAccessException e) {
+            log.error("Trigram search indexes could not be created; customer and supplier search will scan", e);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CategoryTreeDTO;
+import com.example.HotPOS.service.ChangeFeedWindow;
 import com.example.HotPOS.service.CategoryService;
+import com.example.HotPOS.service.CategoryTree;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -15,6 +23,7 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final ChangeFeedWindow changeFeedWindow;
 
     @GetMapping
     public ResponseEntity<List<CategoryDTO>> getAllCategories() {
@@ -26,6 +35,32 @@ public class CategoryController {
         return ResponseEntity.ok(categoryService.getActiveCategories());
     }
 
+    @GetMapping("/changes")
+    public ResponseEntity<ChangesDTO<CategoryDTO>> getCategoryChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            WebRequest request) {
+        LocalDateTime watermark = categoryService.getCategoriesWatermark();
+        if (!changeFeedWindow.isSettled(watermark)) {
+            return ResponseEntity.ok(categoryService.getCategoryChanges(since));
+        }
+        String etag = "W/\"categories-" + watermark + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(categoryService.getCategoryChanges(since));
+    }
+
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeDTO>> getCategoryTree(WebRequest request) {
+        CategoryTree.Snapshot tree = categoryService.getCategoryTree();
+        // Weak like the change feeds' ETags: it names the tree's watermark, not its bytes
+        String etag = "W/\"category-tree-" + tree.watermark() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(tree.roots());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long id) {
         return ResponseEntity.ok(categoryService.getCategoryById(id));
@@ -43,6 +78,12 @@ public class CategoryController {
         return ResponseEntity.ok(categoryService.updateCategory(id, dto));
     }
 
+    @PutMapping("/{id}/parent")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<CategoryDTO> moveCategory(@PathVariable Long id, @RequestParam(required = false) Long parentId) {
+        return ResponseEntity.ok(categoryService.moveCategory(id, parentId));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<Void> deleteCategory(@PathVariable Long id) {
@@ -1,11 +1,17 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.dto.CustomerDTO;
+import com.example.HotPOS.service.ChangeFeedWindow;
 import com.example.HotPOS.service.CustomerService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -14,6 +20,7 @@ import java.util.List;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ChangeFeedWindow changeFeedWindow;
 
     @GetMapping
     public ResponseEntity<List<CustomerDTO>> getAllCustomers() {
@@ -26,8 +33,24 @@ public class CustomerController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam String q) {
-        return ResponseEntity.ok(customerService.searchCustomers(q));
+    public ResponseEntity<List<CustomerDTO>> searchCustomers(@RequestParam String q,
+                                                    @RequestParam(defaultValue = "20") Integer limit) {
+        return ResponseEntity.ok(customerService.searchCustomers(q, limit));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangesDTO<CustomerDTO>> getCustomerChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            WebRequest request) {
+        LocalDateTime watermark = customerService.getCustomersWatermark();
+        if (!changeFeedWindow.isSettled(watermark)) {
+            return ResponseEntity.ok(customerService.getCustomerChanges(since));
+        }
+        String etag = "W/\"customers-" + watermark + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(customerService.getCustomerChanges(since));
     }
 
     @GetMapping("/{id}")
@@ -1,12 +1,22 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.ProductImportResultDTO;
+import com.example.HotPOS.dto.SkuCacheStatsDTO;
+import com.example.HotPOS.service.ChangeFeedWindow;
+import com.example.HotPOS.service.ProductImportService;
 import com.example.HotPOS.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -15,6 +25,8 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ChangeFeedWindow changeFeedWindow;
 
     @GetMapping
     public ResponseEntity<List<ProductDTO>> getAllProducts() {
@@ -27,13 +39,31 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable Long categoryId) {
-        return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+    public ResponseEntity<List<ProductDTO>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(defaultValue = "false") Boolean includeSubcategories) {
+        return ResponseEntity.ok(productService.getProductsByCategory(categoryId, includeSubcategories));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q) {
-        return ResponseEntity.ok(productService.searchProducts(q));
+    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "50") Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(q, limit));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ChangesDTO<ProductDTO>> getProductChanges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            WebRequest request) {
+        LocalDateTime watermark = productService.getProductsWatermark();
+        if (!changeFeedWindow.isSettled(watermark)) {
+            return ResponseEntity.ok(productService.getProductChanges(since));
+        }
+        String etag = "W/\"products-" + watermark + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(productService.getProductChanges(since));
     }
 
     @GetMapping("/{id}")
@@ -46,12 +76,38 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductBySku(sku));
     }
 
+    @GetMapping("/sku-cache/stats")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<SkuCacheStatsDTO> getSkuCacheStats() {
+        return ResponseEntity.ok(productService.getSkuCacheStats());
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'CASHIER')")
     public ResponseEntity<ProductDTO> createProduct(@RequestBody ProductDTO dto) {
         return ResponseEntity.ok(productService.createProduct(dto));
     }
 
+    /**
+     * Imports products sent as a raw JSON array in the cleaned-products.json format.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @RequestParam(defaultValue = "true") boolean updateExisting,
+            InputStream products) {
+        return ResponseEntity.ok(productImportService.importProducts(products, updateExisting));
+    }
+
+    /**
+     * Imports branch stock sent as a raw JSON array in the stock-seed.json format.
+     */
+    @PostMapping("/import/stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ProductImportResultDTO> importStock(InputStream stock) {
+        return ResponseEntity.ok(productImportService.importStock(stock));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @RequestBody ProductDTO dto) {
@@ -2,17 +2,25 @@ package com.example.HotPOS.controller;
 
 import com.example.HotPOS.dto.CreatePurchaseDTO;
 import com.example.HotPOS.dto.PurchaseDTO;
+import com.example.HotPOS.dto.PurchaseImportResultDTO;
 import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.dto.ReceivingJobDTO;
 import com.example.HotPOS.security.UserPrincipal;
+import com.example.HotPOS.service.PurchaseImportService;
 import com.example.HotPOS.service.PurchaseService;
+import com.example.HotPOS.service.ReceivingJobService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -23,6 +31,8 @@ import java.util.List;
 public class PurchaseController {
 
     private final PurchaseService purchaseService;
+    private final ReceivingJobService receivingJobService;
+    private final PurchaseImportService purchaseImportService;
 
     @GetMapping("/branch/{branchId}")
     public ResponseEntity<List<PurchaseDTO>> getPurchasesByBranch(@PathVariable Long branchId) {
@@ -49,6 +59,25 @@ public class PurchaseController {
         return ResponseEntity.ok(purchaseService.createPurchase(dto, userPrincipal.getId()));
     }
 
+    /**
+     * Imports a supplier invoice sent as the raw request body: JSON when the content type says
+     * so, CSV otherwise.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<PurchaseImportResultDTO> importInvoice(
+            @RequestParam Long branchId,
+            @RequestParam Long supplierId,
+            @RequestParam(defaultValue = "false") boolean receive,
+            @RequestParam(required = false) BigDecimal taxAmount,
+            @RequestParam(required = false) String notes,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream invoice,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        boolean json = contentType != null && contentType.contains("json");
+        return ResponseEntity.ok(purchaseImportService.importInvoice(invoice, json, branchId, supplierId,
+                taxAmount, notes, receive, userPrincipal.getId()));
+    }
+
     @PostMapping("/{id}/receive")
     public ResponseEntity<PurchaseDTO> receivePurchase(
             @PathVariable Long id,
@@ -56,4 +85,33 @@ public class PurchaseController {
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         return ResponseEntity.ok(purchaseService.receivePurchase(id, userPrincipal.getId(), receiveDto));
     }
+
+    @PostMapping("/{id}/receive-async")
+    public ResponseEntity<ReceivingJobDTO> receivePurchaseAsync(
+            @PathVariable Long id,
+            @RequestBody(required = false) ReceivePurchaseDTO receiveDto,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(receivingJobService.start(id, userPrincipal.getId(), receiveDto));
+    }
+
+    @GetMapping("/{id}/receiving-job")
+    public ResponseEntity<ReceivingJobDTO> getReceivingJobForPurchase(@PathVariable Long id) {
+        return ResponseEntity.ok(receivingJobService.getLatestJobForPurchase(id));
+    }
+
+    @GetMapping("/receiving-jobs/{jobId}")
+    public ResponseEntity<ReceivingJobDTO> getReceivingJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(receivingJobService.getJob(jobId));
+    }
+
+    @PostMapping("/receiving-jobs/{jobId}/resume")
+    public ResponseEntity<ReceivingJobDTO> resumeReceivingJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(receivingJobService.resume(jobId));
+    }
+
+    @PostMapping("/receiving-jobs/{jobId}/cancel")
+    public ResponseEntity<ReceivingJobDTO> cancelReceivingJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(receivingJobService.cancel(jobId));
+    }
 }
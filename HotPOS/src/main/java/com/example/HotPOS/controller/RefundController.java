@@ -1,5 +1,7 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.BatchApprovalDTO;
+import com.example.HotPOS.dto.BatchApprovalResultDTO;
 import com.example.HotPOS.dto.CreateRefundDTO;
 import com.example.HotPOS.dto.RefundDTO;
 import com.example.HotPOS.security.UserPrincipal;
@@ -60,6 +62,14 @@ public class RefundController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/approve-batch")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<BatchApprovalResultDTO> approveRefunds(
+            @Valid @RequestBody BatchApprovalDTO dto,
+            @AuthenticationPrincipal UserPrincipal userDetails) {
+        return ResponseEntity.ok(refundService.approveRefunds(dto.getIds(), userDetails.getId()));
+    }
+
     @PostMapping("/{id}/approve")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<RefundDTO> approveRefund(
@@ -1,5 +1,7 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.BatchApprovalDTO;
+import com.example.HotPOS.dto.BatchApprovalResultDTO;
 import com.example.HotPOS.dto.CreateReturnDTO;
 import com.example.HotPOS.dto.ReturnDTO;
 import com.example.HotPOS.security.UserPrincipal;
@@ -60,6 +62,14 @@ public class ReturnController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/approve-batch")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<BatchApprovalResultDTO> approveReturns(
+            @Valid @RequestBody BatchApprovalDTO dto,
+            @AuthenticationPrincipal UserPrincipal userDetails) {
+        return ResponseEntity.ok(returnService.approveReturns(dto.getIds(), userDetails.getId()));
+    }
+
     @PostMapping("/{id}/approve")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<ReturnDTO> approveReturn(
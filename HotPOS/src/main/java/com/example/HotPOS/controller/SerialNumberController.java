@@ -1,142 +1,113 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.SerialEventDTO;
 import com.example.HotPOS.dto.SerialNumberDTO;
-import com.example.HotPOS.entity.SerialNumber;
+import com.example.HotPOS.dto.SerialNumberPageDTO;
+import com.example.HotPOS.dto.SerialRangeDTO;
 import com.example.HotPOS.enums.SerialNumberStatus;
-import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.security.UserPrincipal;
+import com.example.HotPOS.service.SerialEventService;
+import com.example.HotPOS.service.SerialNumberIndex;
+import com.example.HotPOS.service.SerialNumberService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/serial-numbers")
 @RequiredArgsConstructor
 public class SerialNumberController {
 
-    private final SerialNumberRepository serialNumberRepository;
+    private final SerialNumberService serialNumberService;
+    private final SerialEventService serialEventService;
 
     @GetMapping("/branch/{branchId}")
     public ResponseEntity<List<SerialNumberDTO>> getByBranch(@PathVariable Long branchId) {
-        List<SerialNumberDTO> serials = serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.IN_STOCK)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(serials);
+        return ResponseEntity.ok(serialNumberService.getInStockByBranch(branchId));
     }
 
     @GetMapping("/branch/{branchId}/all")
     public ResponseEntity<List<SerialNumberDTO>> getAllByBranch(
             @PathVariable Long branchId,
             @RequestParam(required = false) String status) {
-        List<SerialNumber> serials;
-        if (status != null) {
-            serials = serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.valueOf(status));
-        } else {
-            // Get all statuses by querying each
-            serials = serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.IN_STOCK);
-            serials.addAll(serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.SOLD));
-            serials.addAll(serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.RETURNED));
-            serials.addAll(serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.DEFECTIVE));
-            serials.addAll(serialNumberRepository.findByBranchAndStatus(branchId, SerialNumberStatus.TRANSFERRED));
-        }
-        return ResponseEntity.ok(serials.stream().map(this::toDTO).collect(Collectors.toList()));
+        SerialNumberStatus statusFilter = status != null ? SerialNumberStatus.valueOf(status) : null;
+        return ResponseEntity.ok(serialNumberService.getAllByBranch(branchId, statusFilter));
+    }
+
+    @GetMapping("/branch/{branchId}/page")
+    public ResponseEntity<SerialNumberPageDTO> getPageByBranch(
+            @PathVariable Long branchId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        SerialNumberStatus statusFilter = status != null ? SerialNumberStatus.valueOf(status) : null;
+        return ResponseEntity.ok(serialNumberService.getPageByBranch(branchId, statusFilter, page, size));
+    }
+
+    @GetMapping("/branch/{branchId}/ranges")
+    public ResponseEntity<List<SerialRangeDTO>> getRangesByBranch(@PathVariable Long branchId) {
+        return ResponseEntity.ok(serialNumberService.getRangesByBranch(branchId));
     }
 
     @GetMapping("/available")
     public ResponseEntity<List<SerialNumberDTO>> getAvailable(
             @RequestParam Long productId,
             @RequestParam Long branchId) {
-        List<SerialNumberDTO> serials = serialNumberRepository.findAvailableByProductAndBranch(productId, branchId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(serials);
+        return ResponseEntity.ok(serialNumberService.getAvailable(productId, branchId));
     }
 
     @GetMapping("/lookup/{serialNumber}")
     public ResponseEntity<SerialNumberDTO> lookup(@PathVariable String serialNumber) {
-        return serialNumberRepository.findBySerialNumber(serialNumber)
-                .map(this::toDTO)
+        return serialNumberService.lookup(serialNumber)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/lookup/{serialNumber}/timeline")
+    public ResponseEntity<List<SerialEventDTO>> getTimeline(@PathVariable String serialNumber) {
+        return ResponseEntity.ok(serialEventService.getTimeline(serialNumber));
+    }
+
+    @GetMapping("/branch/{branchId}/search")
+    public ResponseEntity<List<SerialNumberDTO>> search(
+            @PathVariable Long branchId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "ANY") SerialNumberIndex.Mode mode,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(serialNumberService.search(branchId, q, mode, limit));
+    }
+
     @GetMapping("/purchase/{purchaseId}")
     public ResponseEntity<List<SerialNumberDTO>> getByPurchase(@PathVariable Long purchaseId) {
-        List<SerialNumberDTO> serials = serialNumberRepository.findByPurchaseId(purchaseId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(serials);
+        return ResponseEntity.ok(serialNumberService.getByPurchase(purchaseId));
     }
 
     @GetMapping("/sale/{saleId}")
     public ResponseEntity<List<SerialNumberDTO>> getBySale(@PathVariable Long saleId) {
-        List<SerialNumberDTO> serials = serialNumberRepository.findBySaleId(saleId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(serials);
+        return ResponseEntity.ok(serialNumberService.getBySale(saleId));
     }
 
     @GetMapping("/stock-item/{stockItemId}")
     public ResponseEntity<List<SerialNumberDTO>> getByStockItem(@PathVariable Long stockItemId) {
-        List<SerialNumberDTO> serials = serialNumberRepository.findByStockItemId(stockItemId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(serials);
+        return ResponseEntity.ok(serialNumberService.getByStockItem(stockItemId));
     }
 
     @PutMapping("/{id}/status")
     public ResponseEntity<SerialNumberDTO> updateStatus(
             @PathVariable Long id,
             @RequestParam String status,
-            @RequestParam(required = false) String notes) {
-        SerialNumber sn = serialNumberRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Serial number not found"));
-        sn.setStatus(SerialNumberStatus.valueOf(status));
-        if (notes != null) {
-            sn.setNotes(notes);
-        }
-        return ResponseEntity.ok(toDTO(serialNumberRepository.save(sn)));
+            @RequestParam(required = false) String notes,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.ok(serialNumberService.updateStatus(
+                id, SerialNumberStatus.valueOf(status), notes, userPrincipal.getId()));
     }
 
     @GetMapping("/stats/{branchId}")
     public ResponseEntity<Map<String, Object>> getStats(@PathVariable Long branchId) {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("total", serialNumberRepository.countByBranch(branchId));
-        stats.put("inStock", serialNumberRepository.countByBranchAndStatus(branchId, SerialNumberStatus.IN_STOCK));
-        stats.put("sold", serialNumberRepository.countByBranchAndStatus(branchId, SerialNumberStatus.SOLD));
-        stats.put("transferred", serialNumberRepository.countByBranchAndStatus(branchId, SerialNumberStatus.TRANSFERRED));
-        stats.put("returned", serialNumberRepository.countByBranchAndStatus(branchId, SerialNumberStatus.RETURNED));
-        stats.put("defective", serialNumberRepository.countByBranchAndStatus(branchId, SerialNumberStatus.DEFECTIVE));
-        return ResponseEntity.ok(stats);
-    }
-
-    private SerialNumberDTO toDTO(SerialNumber sn) {
-        return SerialNumberDTO.builder()
-                .id(sn.getId())
-                .stockItemId(sn.getStockItem().getId())
-                .productId(sn.getStockItem().getProduct().getId())
-                .productName(sn.getStockItem().getProduct().getName())
-                .productSku(sn.getStockItem().getProduct().getSku())
-                .serialNumber(sn.getSerialNumber())
-                .status(sn.getStatus())
-                .purchaseId(sn.getPurchase() != null ? sn.getPurchase().getId() : null)
-                .purchaseNumber(sn.getPurchase() != null ? sn.getPurchase().getPurchaseNumber() : null)
-                .saleId(sn.getSale() != null ? sn.getSale().getId() : null)
-                .saleNumber(sn.getSale() != null ? sn.getSale().getSaleNumber() : null)
-                .branchId(sn.getStockItem().getBranch().getId())
-                .branchName(sn.getStockItem().getBranch().getName())
-                .notes(sn.getNotes())
-                .createdAt(sn.getCreatedAt())
-                .updatedAt(sn.getUpdatedAt())
-                .build();
+        return ResponseEntity.ok(serialNumberService.getStats(branchId));
     }
 }
@@ -1,13 +1,25 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.ChangesDTO;
+import com.example.HotPOS.dto.InTransitStockDTO;
+import com.example.HotPOS.dto.StockFilterDTO;
 import com.example.HotPOS.dto.StockItemDTO;
+import com.example.HotPOS.dto.StockPageDTO;
+import com.example.HotPOS.dto.StockPositionDTO;
+import com.example.HotPOS.dto.StockShardDTO;
+import com.example.HotPOS.service.ChangeFeedWindow;
 import com.example.HotPOS.service.StockService;
+import com.example.HotPOS.service.StockShardService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -16,17 +28,75 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final StockShardService stockShardService;
+    private final ChangeFeedWindow changeFeedWindow;
 
     @GetMapping("/branch/{branchId}")
     public ResponseEntity<List<StockItemDTO>> getStockByBranch(@PathVariable Long branchId) {
         return ResponseEntity.ok(stockService.getStockByBranch(branchId));
     }
 
+    @GetMapping("/branch/{branchId}/page")
+    public ResponseEntity<StockPageDTO> getStockPage(
+            @PathVariable Long branchId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") Boolean includeSubcategories,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") Boolean lowStockOnly,
+            @RequestParam(required = false) Boolean requiresSerial,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "50") Integer size,
+            @RequestParam(required = false) String cursor) {
+        StockFilterDTO filter = StockFilterDTO.builder()
+                .categoryId(categoryId)
+                .includeSubcategories(includeSubcategories)
+                .search(search)
+                .lowStockOnly(lowStockOnly)
+                .requiresSerial(requiresSerial)
+                .sort(sort)
+                .direction(direction)
+                .size(size)
+                .cursor(cursor)
+                .build();
+        return ResponseEntity.ok(stockService.getStockPage(branchId, filter));
+    }
+
+    @GetMapping("/branch/{branchId}/changes")
+    public ResponseEntity<ChangesDTO<StockItemDTO>> getStockChanges(
+            @PathVariable Long branchId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            WebRequest request) {
+        LocalDateTime watermark = stockService.getStockWatermark(branchId);
+        if (!changeFeedWindow.isSettled(watermark)) {
+            return ResponseEntity.ok(stockService.getStockChanges(branchId, since));
+        }
+        String etag = "W/\"stock-" + branchId + "-" + watermark + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(stockService.getStockChanges(branchId, since));
+    }
+
     @GetMapping("/branch/{branchId}/low")
     public ResponseEntity<List<StockItemDTO>> getLowStock(@PathVariable Long branchId) {
         return ResponseEntity.ok(stockService.getLowStock(branchId));
     }
 
+    @GetMapping("/in-transit")
+    public ResponseEntity<List<InTransitStockDTO>> getInTransitStock(
+            @RequestParam(required = false) Long fromBranchId,
+            @RequestParam(required = false) Long toBranchId) {
+        return ResponseEntity.ok(stockService.getInTransitStock(fromBranchId, toBranchId));
+    }
+
+    @GetMapping("/positions")
+    public ResponseEntity<List<StockPositionDTO>> getStockPositions(
+            @RequestParam(required = false) Long branchId,
+            @RequestParam(required = false) Long productId) {
+        return ResponseEntity.ok(stockService.getStockPositions(branchId, productId));
+    }
+
     @GetMapping("/branch/{branchId}/product/{productId}")
     public ResponseEntity<StockItemDTO> getStockItem(@PathVariable Long branchId, @PathVariable Long productId) {
         return ResponseEntity.ok(stockService.getStockItem(branchId, productId));
@@ -37,6 +107,18 @@ public class StockController {
         return ResponseEntity.ok(stockService.getAvailableQuantity(branchId, productId));
     }
 
+    @GetMapping("/{id}/shards")
+    public ResponseEntity<List<StockShardDTO>> getShards(@PathVariable Long id) {
+        return ResponseEntity.ok(stockShardService.getShards(id));
+    }
+
+    @PutMapping("/shards/product/{productId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<Void> setShardCount(@PathVariable Long productId, @RequestParam Integer shards) {
+        stockShardService.setShardCount(productId, shards);
+        return ResponseEntity.ok().build();
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'STOCK_KEEPER')")
     public ResponseEntity<StockItemDTO> updateStock(@PathVariable Long id, @RequestBody StockItemDTO dto) {
@@ -0,0 +1,63 @@
+package com.example.HotPOS.controller;
+
+import com.example.HotPOS.dto.CreateStockCountDTO;
+import com.example.HotPOS.dto.StockCountDTO;
+import com.example.HotPOS.dto.StockCountScanBatchDTO;
+import com.example.HotPOS.dto.StockCountScanResultDTO;
+import com.example.HotPOS.security.UserPrincipal;
+import com.example.HotPOS.service.StockCountService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stock-counts")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'STOCK_KEEPER')")
+public class StockCountController {
+
+    private final StockCountService stockCountService;
+
+    @GetMapping("/branch/{branchId}")
+    public ResponseEntity<List<StockCountDTO>> getCountsByBranch(@PathVariable Long branchId) {
+        return ResponseEntity.ok(stockCountService.getCountsByBranch(branchId));
+    }
+
+    @PostMapping
+    public ResponseEntity<StockCountDTO> openCount(
+            @Valid @RequestBody CreateStockCountDTO dto,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.ok(stockCountService.openCount(dto, userPrincipal.getId()));
+    }
+
+    @PostMapping("/{id}/scans")
+    public ResponseEntity<StockCountScanResultDTO> addScans(
+            @PathVariable Long id,
+            @Valid @RequestBody StockCountScanBatchDTO batch) {
+        return ResponseEntity.ok(stockCountService.addScans(id, batch));
+    }
+
+    @GetMapping("/{id}/variances")
+    public ResponseEntity<StockCountDTO> getVariances(@PathVariable Long id) {
+        return ResponseEntity.ok(stockCountService.getVariances(id));
+    }
+
+    @PostMapping("/{id}/post")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<StockCountDTO> postCount(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean zeroUncounted,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.ok(stockCountService.postCount(id, userPrincipal.getId(), zeroUncounted));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<StockCountDTO> cancelCount(@PathVariable Long id) {
+        return ResponseEntity.ok(stockCountService.cancelCount(id));
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.HotPOS.controller;
 
 import com.example.HotPOS.dto.SupplierDTO;
+import com.example.HotPOS.dto.SupplierScorecardDTO;
 import com.example.HotPOS.service.SupplierService;
+import com.example.HotPOS.service.SupplierStatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +17,7 @@ import java.util.List;
 public class SupplierController {
 
     private final SupplierService supplierService;
+    private final SupplierStatsService supplierStatsService;
 
     @GetMapping
     public ResponseEntity<List<SupplierDTO>> getAllSuppliers() {
@@ -27,8 +30,9 @@ public class SupplierController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<SupplierDTO>> searchSuppliers(@RequestParam String q) {
-        return ResponseEntity.ok(supplierService.searchSuppliers(q));
+    public ResponseEntity<List<SupplierDTO>> searchSuppliers(@RequestParam String q,
+                                                    @RequestParam(defaultValue = "20") Integer limit) {
+        return ResponseEntity.ok(supplierService.searchSuppliers(q, limit));
     }
 
     @GetMapping("/{id}")
@@ -36,6 +40,18 @@ public class SupplierController {
         return ResponseEntity.ok(supplierService.getSupplierById(id));
     }
 
+    @GetMapping("/scorecards")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<List<SupplierScorecardDTO>> getScorecards() {
+        return ResponseEntity.ok(supplierStatsService.getScorecards());
+    }
+
+    @GetMapping("/{id}/scorecard")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<SupplierScorecardDTO> getScorecard(@PathVariable Long id) {
+        return ResponseEntity.ok(supplierStatsService.getScorecard(id));
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<SupplierDTO> createSupplier(@RequestBody SupplierDTO dto) {
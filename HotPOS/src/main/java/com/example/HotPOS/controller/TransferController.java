@@ -1,5 +1,7 @@
 package com.example.HotPOS.controller;
 
+import com.example.HotPOS.dto.BatchApprovalDTO;
+import com.example.HotPOS.dto.BatchApprovalResultDTO;
 import com.example.HotPOS.dto.CreateTransferDTO;
 import com.example.HotPOS.dto.TransferDTO;
 import com.example.HotPOS.security.UserPrincipal;
@@ -62,6 +64,14 @@ public class TransferController {
         return ResponseEntity.ok(transferService.receiveTransfer(id, userPrincipal.getId()));
     }
 
+    @PostMapping("/approve-batch")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<BatchApprovalResultDTO> approveTransfers(
+            @Valid @RequestBody BatchApprovalDTO dto,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        return ResponseEntity.ok(transferService.approveTransfers(dto.getIds(), userPrincipal.getId()));
+    }
+
     @PostMapping("/{id}/approve")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<TransferDTO> approveTransfer(
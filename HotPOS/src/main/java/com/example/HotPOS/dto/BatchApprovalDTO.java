@@ -0,0 +1,15 @@
+package com.example.HotPOS.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchApprovalDTO {
+    @NotEmpty(message = "At least one document id is required")
+    private List<Long> ids;
+}
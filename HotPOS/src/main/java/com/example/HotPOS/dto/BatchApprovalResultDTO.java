@@ -0,0 +1,26 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchApprovalResultDTO {
+    private Integer approved;
+    private Integer failed;
+    private List<Outcome> outcomes; // One per requested id, in request order
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Outcome {
+        private Long id;
+        private String documentNumber; // Null when the id was not found
+        private Boolean approved;
+        private String message; // Why the document was not approved
+    }
+}
@@ -10,5 +10,6 @@ public class CategoryDTO {
     private Long id;
     private String name;
     private String description;
+    private Long parentId; // Null for a top-level category
     private Boolean isActive;
 }
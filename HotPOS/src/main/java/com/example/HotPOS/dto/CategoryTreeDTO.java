@@ -0,0 +1,20 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryTreeDTO {
+    private Long id;
+    private Long parentId;
+    private String name;
+    private String description;
+    private Integer depth; // 0 for a root category
+    @Builder.Default
+    private List<CategoryTreeDTO> children = new ArrayList<>();
+}
@@ -0,0 +1,16 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangesDTO<T> {
+    private List<T> upserts; // Created or changed since the requested watermark
+    private List<Long> deactivatedIds; // Soft-deleted since the requested watermark
+    private LocalDateTime watermark; // Pass back as ?since= on the next call
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @Builder
@@ -20,4 +21,6 @@ public class CreateRefundItemDTO {
     
     @NotNull(message = "Unit price is required")
     private BigDecimal unitPrice;
+
+    private List<String> serialNumbers; // Optional - serials coming back; picked from the sale if omitted
 }
@@ -0,0 +1,17 @@
+package com.example.HotPOS.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreateStockCountDTO {
+    @NotNull(message = "Branch is required")
+    private Long branchId;
+
+    private Long categoryId; // Optional - limits the count to one category
+
+    private String notes;
+}
@@ -0,0 +1,26 @@
+package com.example.HotPOS.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InTransitStockDTO {
+    private Long fromBranchId;
+    private String fromBranchName;
+    private Long toBranchId;
+    private String toBranchName;
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private Integer quantity;
+    private BigDecimal costValue;
+    private LocalDateTime updatedAt;
+}
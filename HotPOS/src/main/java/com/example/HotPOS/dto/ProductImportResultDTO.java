@@ -0,0 +1,28 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportResultDTO {
+    private Integer itemsRead;
+    private Integer itemsImported; // Inserted or updated
+    private Integer itemsSkipped; // Valid, but the SKU already existed and updates were not asked for
+    private Integer categoriesCreated;
+    private Integer errorCount;
+    private List<ItemError> errors; // Capped; errorCount has the full number
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ItemError {
+        private Integer item; // 1-based position in the uploaded array
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One product of a bulk import, in the format of files/cleaned-products.json. Other fields of
+ * that file (legacyId, taxRate) are ignored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportRowDTO {
+    private String sku;
+    private String name;
+    private String description;
+    private Long categoryId; // Used when categoryName is missing
+    private String categoryName; // Matched case-insensitively; created when no category has it
+    private String unitOfMeasure;
+    private BigDecimal sellingPrice;
+    private Integer reorderLevel;
+    private Boolean requiresSerial;
+    private Boolean isActive;
+}
@@ -0,0 +1,29 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PurchaseImportResultDTO {
+    private PurchaseDTO purchase; // Null when no line could be imported
+    private Integer linesRead;
+    private Integer linesImported;
+    private Integer errorCount;
+    private List<LineError> errors; // Capped; errorCount has the full number
+    private Boolean received;
+    private String receiveError; // Set when the purchase was created but receiving it failed
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LineError {
+        private Integer line;
+        private String sku;
+        private String message;
+    }
+}
@@ -20,5 +20,6 @@ public class ReceivePurchaseDTO {
         private Long productId;
         private BigDecimal sellingPrice; // Optional - if provided, updates the product's selling price
         private List<String> serialNumbers; // Required for products with requiresSerial=true
+        private List<String> serialRanges; // Optional - sequential runs as "START..END", e.g. "IMEI-0001..IMEI-5000"
     }
 }
@@ -0,0 +1,25 @@
+package com.example.HotPOS.dto;
+
+import com.example.HotPOS.enums.ReceivingJobStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReceivingJobDTO {
+    private Long id;
+    private Long purchaseId;
+    private String purchaseNumber;
+    private ReceivingJobStatus status;
+    private Integer totalLines;
+    private Integer processedLines;
+    private Integer percentComplete;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime updatedAt;
+}
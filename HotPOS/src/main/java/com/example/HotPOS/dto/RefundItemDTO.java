@@ -3,6 +3,7 @@ package com.example.HotPOS.dto;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @Builder
@@ -16,4 +17,5 @@ public class RefundItemDTO {
     private Integer quantity;
     private BigDecimal unitPrice;
     private BigDecimal totalPrice;
+    private List<String> serialNumbers;
 }
@@ -18,4 +18,6 @@ public class SaleItemDTO {
     private BigDecimal discount;
     private BigDecimal totalPrice;
     private List<String> serialNumbers;
+    private Integer refundedQuantity;
+    private BigDecimal refundedAmount;
 }
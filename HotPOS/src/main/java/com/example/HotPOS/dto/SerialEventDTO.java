@@ -0,0 +1,22 @@
+package com.example.HotPOS.dto;
+
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SerialEventDTO {
+    private SerialEventType eventType;
+    private SerialNumberStatus status;
+    private Long branchId;
+    private String branchName;
+    private Long refId; // Purchase, transfer, sale, refund or return id depending on eventType
+    private Long userId;
+    private String userName;
+    private LocalDateTime occurredAt;
+}
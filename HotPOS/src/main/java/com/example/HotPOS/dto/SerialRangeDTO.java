@@ -0,0 +1,23 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SerialRangeDTO {
+    private Long id;
+    private Long stockItemId;
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private Long purchaseId;
+    private String purchaseNumber;
+    private String firstSerial;
+    private String lastSerial;
+    private Long count;
+    private LocalDateTime receivedAt;
+}
@@ -0,0 +1,19 @@
+package com.example.HotPOS.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SkuCacheStatsDTO {
+    private Integer size;
+    private Integer capacity;
+    private Long hits;
+    private Long misses;
+    private Long evictions; // Entries pushed out by the size bound, not by invalidation
+    private Double hitRate;
+}
@@ -0,0 +1,28 @@
+package com.example.HotPOS.dto;
+
+import com.example.HotPOS.enums.StockCountStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCountDTO {
+    private Long id;
+    private Long branchId;
+    private String branchName;
+    private Long categoryId;
+    private String categoryName;
+    private Long userId;
+    private String userName;
+    private StockCountStatus status;
+    private LocalDateTime startedAt;
+    private LocalDateTime postedAt;
+    private String notes;
+    private Integer totalProducts;
+    private Integer countedProducts;
+    private List<StockCountItemDTO> items;
+}
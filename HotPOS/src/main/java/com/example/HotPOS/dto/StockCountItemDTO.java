@@ -0,0 +1,19 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCountItemDTO {
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private Integer snapshotQuantity;
+    private Integer soldDuringCount;
+    private Integer otherMovements; // Net receipts, refunds, transfers and corrections since the snapshot
+    private Integer expectedQuantity;
+    private Integer countedQuantity;
+    private Integer variance;
+}
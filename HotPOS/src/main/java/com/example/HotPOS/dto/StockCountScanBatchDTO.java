@@ -0,0 +1,28 @@
+package com.example.HotPOS.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCountScanBatchDTO {
+    @Valid
+    @NotEmpty(message = "Batch must have at least one scan")
+    private List<ScanDTO> scans;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ScanDTO {
+        @NotBlank(message = "Barcode is required")
+        private String sku; // Scanned barcode
+        private Integer quantity; // Optional - defaults to 1 (a single scan)
+    }
+}
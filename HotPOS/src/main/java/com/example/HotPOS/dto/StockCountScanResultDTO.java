@@ -0,0 +1,16 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCountScanResultDTO {
+    private Long stockCountId;
+    private Integer accepted;
+    private List<String> rejectedSkus; // Unknown barcodes, or products outside the session's category
+    private Integer distinctProductsCounted;
+}
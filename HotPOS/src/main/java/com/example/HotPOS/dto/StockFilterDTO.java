@@ -0,0 +1,22 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockFilterDTO {
+    private Long categoryId;
+    private Boolean includeSubcategories; // Also match products of categories below categoryId
+    private String search; // Matches product name or SKU
+    private Boolean lowStockOnly;
+    private Boolean requiresSerial;
+    @Builder.Default
+    private String sort = "name"; // name, sku, quantity
+    @Builder.Default
+    private String direction = "asc";
+    @Builder.Default
+    private Integer size = 50;
+    private String cursor;
+}
@@ -0,0 +1,21 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One stock row of a bulk import, in the format of files/stock-seed.json. The quantity replaces
+ * the branch's current one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockImportRowDTO {
+    private Long branchId;
+    private String productSku;
+    private Integer quantity;
+    private BigDecimal costPrice;
+    private BigDecimal sellingPrice;
+}
@@ -0,0 +1,15 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockPageDTO {
+    private List<StockItemDTO> items;
+    private String nextCursor; // Pass back as ?cursor= to fetch the next page; NULL on the last page
+    private Boolean hasMore;
+}
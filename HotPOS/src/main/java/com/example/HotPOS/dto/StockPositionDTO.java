@@ -0,0 +1,19 @@
+package com.example.HotPOS.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockPositionDTO {
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private Long onHand;
+    private Long inTransit; // Sent and not yet received; for a branch, units on their way to it
+    private Long total;
+}
@@ -0,0 +1,18 @@
+package com.example.HotPOS.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockShardDTO {
+    private Long id;
+    private Long stockItemId;
+    private Integer shardIndex;
+    private Integer allocated;
+    private Integer quantity;
+}
@@ -0,0 +1,19 @@
+package com.example.HotPOS.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SupplierInvoiceLineDTO {
+    private String sku;
+    private Integer quantity;
+    private BigDecimal unitCost;
+    private BigDecimal sellingPrice; // Optional - applied to the branch's stock when the import also receives
+    private List<String> serialNumbers; // Only used when the import also receives
+    private List<String> serialRanges; // Only used when the import also receives, e.g. "IMEI-0001..IMEI-5000"
+}
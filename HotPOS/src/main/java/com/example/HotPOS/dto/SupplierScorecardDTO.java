@@ -0,0 +1,32 @@
+package com.example.HotPOS.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SupplierScorecardDTO {
+    private Long supplierId;
+    private String supplierName;
+    private Boolean isActive;
+    private Long purchaseCount;
+    private BigDecimal purchasedAmount;
+    private Long purchasedUnits;
+    private Long receivedCount;
+    private Long receivedUnits;
+    private BigDecimal averageLeadTimeHours; // Purchase created -> received
+    private Long returnCount;
+    private Long returnedUnits;
+    private BigDecimal returnedAmount;
+    private BigDecimal returnRate; // Percent of received units returned
+    private Long pricedLines;
+    private BigDecimal averagePriceChange; // Percent change against the supplier's previous price per line
+    private LocalDateTime updatedAt;
+}
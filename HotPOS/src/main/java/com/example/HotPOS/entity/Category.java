@@ -3,6 +3,7 @@ package com.example.HotPOS.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -11,7 +12,8 @@ import java.util.List;
 @Entity
 @Table(name = "categories", indexes = {
     @Index(name = "idx_categories_parent", columnList = "parent_id"),
-    @Index(name = "idx_categories_name", columnList = "name")
+    @Index(name = "idx_categories_name", columnList = "name"),
+    @Index(name = "idx_categories_updated_at", columnList = "updated_at")
 })
 @Getter
 @Setter
@@ -49,4 +51,7 @@ public class Category {
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
 }
@@ -0,0 +1,39 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Closure of the category tree: one row for every category and each of its ancestors, and one
+ * of depth 0 for the category itself. Everything under a category is then one indexed lookup
+ * on its ancestor rows instead of a query per level.
+ */
+@Entity
+@Table(name = "category_closure",
+    uniqueConstraints = @UniqueConstraint(name = "unique_category_closure_pair", columnNames = {"ancestor_id", "descendant_id"}),
+    indexes = {
+        @Index(name = "idx_category_closure_descendant", columnList = "descendant_id")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryClosure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ancestor_id", nullable = false)
+    private Category ancestor;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "descendant_id", nullable = false)
+    private Category descendant;
+
+    @Column(nullable = false)
+    private Integer depth;
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 @Table(name = "customers", indexes = {
     @Index(name = "idx_customers_name", columnList = "name"),
     @Index(name = "idx_customers_phone", columnList = "phone"),
-    @Index(name = "idx_customers_active", columnList = "is_active")
+    @Index(name = "idx_customers_active", columnList = "is_active"),
+    @Index(name = "idx_customers_updated_at", columnList = "updated_at")
 })
 @Getter
 @Setter
@@ -0,0 +1,40 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.enums.DocumentType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Next unreserved document sequence per branch and document type. Nodes reserve blocks by
+ * advancing {@code nextValue} atomically, so a value is never handed out twice.
+ */
+@Entity
+@Table(name = "document_counters",
+    uniqueConstraints = @UniqueConstraint(name = "unique_counter_per_branch_type", columnNames = {"branch_id", "document_type"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id", nullable = false)
+    private Branch branch;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 20)
+    private DocumentType documentType;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,55 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Units that have left one branch on a transfer and not yet arrived at another, per route and
+ * product. Sending a transfer adds its lines; receiving or rejecting it takes them off again.
+ */
+@Entity
+@Table(name = "in_transit_stock",
+    uniqueConstraints = @UniqueConstraint(name = "unique_in_transit_route_product", columnNames = {"from_branch_id", "to_branch_id", "product_id"}),
+    indexes = {
+        @Index(name = "idx_in_transit_product", columnList = "product_id"),
+        @Index(name = "idx_in_transit_to_branch", columnList = "to_branch_id")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InTransitStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "from_branch_id", nullable = false)
+    private Branch fromBranch;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "to_branch_id", nullable = false)
+    private Branch toBranch;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer quantity = 0;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal costValue = BigDecimal.ZERO; // Sum of quantity * transfer cost price
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
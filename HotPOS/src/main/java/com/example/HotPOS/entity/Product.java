@@ -15,7 +15,8 @@ import java.util.List;
     @Index(name = "idx_products_sku", columnList = "sku"),
     @Index(name = "idx_products_category", columnList = "category_id"),
     @Index(name = "idx_products_requires_serial", columnList = "requires_serial"),
-    @Index(name = "idx_products_name", columnList = "name")
+    @Index(name = "idx_products_name", columnList = "name"),
+    @Index(name = "idx_products_updated_at", columnList = "updated_at")
 })
 @Getter
 @Setter
@@ -59,6 +60,9 @@ public class Product {
     @Builder.Default
     private Boolean isActive = true;
 
+    @Column
+    private Integer stockShards; // Number of stock sub-counters for hot SKUs; null = not sharded
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     @Builder.Default
     private List<StockItem> stockItems = new ArrayList<>();
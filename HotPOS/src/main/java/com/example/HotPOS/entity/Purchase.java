@@ -70,7 +70,7 @@ public class Purchase {
 
     @Column(nullable = false, length = 20)
     @Builder.Default
-    private String status = "PENDING"; // PENDING, RECEIVED
+    private String status = "PENDING"; // PENDING, RECEIVING, PARTIALLY_RECEIVED, RECEIVED
 
     @Column(columnDefinition = "TEXT")
     private String notes;
@@ -43,6 +43,12 @@ public class PurchaseItem {
     @Column(columnDefinition = "TEXT")
     private String notes;
 
+    // Set when the line is put in stock, so receiving a partially received purchase applies only
+    // the remaining lines
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    @Builder.Default
+    private Boolean received = false;
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,74 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.enums.ReceivingJobStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A purchase being received in the background. Lines are applied in id order, a chunk per
+ * transaction, and {@code processedLines} is committed with each chunk so a failed or
+ * interrupted job resumes after the last committed line.
+ */
+@Entity
+@Table(name = "receiving_jobs", indexes = {
+    @Index(name = "idx_receiving_jobs_purchase", columnList = "purchase_id"),
+    @Index(name = "idx_receiving_jobs_status", columnList = "status, updated_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReceivingJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "purchase_id", nullable = false)
+    private Purchase purchase;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReceivingJobStatus status;
+
+    @Column(nullable = false)
+    private Integer totalLines;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer processedLines = 0;
+
+    // Bumped every time a worker claims the job; a worker only applies chunks while the job is
+    // still RUNNING under the attempt it claimed, so a requeued job is never applied twice
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer attempt = 0;
+
+    // The receive request as JSON, replayed when the job resumes
+    @Column(columnDefinition = "TEXT")
+    private String request;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    // Touched by every committed chunk; a RUNNING job that stops touching it is considered stalled
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
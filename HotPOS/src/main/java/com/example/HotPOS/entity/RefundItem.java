@@ -6,6 +6,8 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "refund_items", indexes = {
@@ -43,6 +45,10 @@ public class RefundItem {
     @Column(columnDefinition = "TEXT")
     private String reason;
 
+    @OneToMany(mappedBy = "refundItem", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<RefundItemSerial> serials = new ArrayList<>();
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,34 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A sold serial number coming back on a refund item, chosen when the refund is created.
+ */
+@Entity
+@Table(name = "refund_item_serials",
+    uniqueConstraints = @UniqueConstraint(name = "unique_serial_per_refund_item", columnNames = {"refund_item_id", "serial_number_id"}),
+    indexes = {
+        @Index(name = "idx_refund_item_serials_serial", columnList = "serial_number_id")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefundItemSerial {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "refund_item_id", nullable = false)
+    private RefundItem refundItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "serial_number_id", nullable = false)
+    private SerialNumber serialNumber;
+}
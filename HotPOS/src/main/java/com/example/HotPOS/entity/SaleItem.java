@@ -43,10 +43,23 @@ public class SaleItem {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal costPrice; // For profit calculation
 
+    // Maintained when refunds against the sale are approved
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer refundedQuantity = 0;
+
+    @Column(nullable = false, precision = 15, scale = 2, columnDefinition = "numeric(15,2) default 0")
+    @Builder.Default
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
+
+    public int getRefundableQuantity() {
+        return quantity - refundedQuantity;
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only serial number history. Rows hold plain ids and smallint codes (no foreign keys,
+ * no strings) so they stay small and can be written in JDBC batches; the reference id points at
+ * the purchase, transfer, sale, refund or return implied by the event type.
+ */
+@Entity
+@Table(name = "serial_events", indexes = {
+    @Index(name = "idx_serial_events_serial", columnList = "serial_number_id,occurred_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SerialEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "serial_number_id", nullable = false)
+    private Long serialNumberId;
+
+    @Convert(converter = SerialEventTypeConverter.class)
+    @Column(nullable = false)
+    private SerialEventType eventType;
+
+    @Convert(converter = SerialNumberStatusCodeConverter.class)
+    @Column(nullable = false)
+    private SerialNumberStatus status; // Status after the event
+
+    @Column
+    private Long branchId;
+
+    @Column
+    private Long refId;
+
+    @Column
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,19 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.enums.SerialEventType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class SerialEventTypeConverter implements AttributeConverter<SerialEventType, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(SerialEventType type) {
+        return type != null ? type.getCode() : null;
+    }
+
+    @Override
+    public SerialEventType convertToEntityAttribute(Short code) {
+        return code != null ? SerialEventType.fromCode(code) : null;
+    }
+}
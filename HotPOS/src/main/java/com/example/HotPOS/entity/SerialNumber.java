@@ -12,13 +12,15 @@ import java.time.LocalDateTime;
 @Table(name = "serial_numbers", indexes = {
     @Index(name = "idx_serial_numbers_serial", columnList = "serial_number"),
     @Index(name = "idx_serial_numbers_stock_item", columnList = "stock_item_id"),
-    @Index(name = "idx_serial_numbers_status", columnList = "status")
+    @Index(name = "idx_serial_numbers_status", columnList = "status"),
+    @Index(name = "idx_serial_numbers_sale", columnList = "sale_id")
 })
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(SerialNumberListener.class)
 public class SerialNumber {
 
     @Id
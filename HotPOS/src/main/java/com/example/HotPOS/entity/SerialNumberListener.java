@@ -0,0 +1,37 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.event.SerialNumberChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class SerialNumberListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onChange(SerialNumber serialNumber) {
+        publish(serialNumber, false);
+    }
+
+    @PostRemove
+    public void onRemove(SerialNumber serialNumber) {
+        publish(serialNumber, true);
+    }
+
+    private void publish(SerialNumber serialNumber, boolean removed) {
+        // stockItem is a lazy proxy; reading its id does not load it
+        eventPublisher.publishEvent(new SerialNumberChangedEvent(
+                serialNumber.getId(),
+                serialNumber.getSerialNumber(),
+                serialNumber.getStockItem() != null ? serialNumber.getStockItem().getId() : null,
+                serialNumber.getStatus(),
+                removed));
+    }
+}
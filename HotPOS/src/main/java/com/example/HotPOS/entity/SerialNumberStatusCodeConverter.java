@@ -0,0 +1,19 @@
+package com.example.HotPOS.entity;
+
+import com.example.HotPOS.enums.SerialNumberStatus;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class SerialNumberStatusCodeConverter implements AttributeConverter<SerialNumberStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(SerialNumberStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public SerialNumberStatus convertToEntityAttribute(Short code) {
+        return code != null ? SerialNumberStatus.fromCode(code) : null;
+    }
+}
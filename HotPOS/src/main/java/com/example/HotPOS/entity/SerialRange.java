@@ -0,0 +1,61 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A contiguous run of unsold serial numbers received together, e.g. IMEI-000001..IMEI-005000.
+ * Every serial in [rangeStart, rangeEnd] is prefix + the value zero-padded to {@code digits}
+ * and is in stock at the range's stock item. A serial only gets its own serial_numbers row
+ * once it is sold, transferred or otherwise picked, at which point the range is split.
+ */
+@Entity
+@Table(name = "serial_ranges", indexes = {
+    @Index(name = "idx_serial_ranges_lookup", columnList = "prefix, digits, range_start"),
+    @Index(name = "idx_serial_ranges_stock_item", columnList = "stock_item_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SerialRange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_item_id", nullable = false)
+    private StockItem stockItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "purchase_id")
+    private Purchase purchase;
+
+    @Column(nullable = false, length = 100)
+    private String prefix;
+
+    @Column(nullable = false)
+    private Integer digits;
+
+    @Column(name = "range_start", nullable = false)
+    private Long rangeStart;
+
+    @Column(name = "range_end", nullable = false)
+    private Long rangeEnd;
+
+    // When the run was received; kept on both halves when a range is split
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public long size() {
+        return rangeEnd - rangeStart + 1;
+    }
+}
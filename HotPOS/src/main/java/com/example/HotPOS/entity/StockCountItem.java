@@ -0,0 +1,46 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "stock_count_items",
+    uniqueConstraints = @UniqueConstraint(name = "unique_product_per_count", columnNames = {"stock_count_id", "product_id"}),
+    indexes = {
+        @Index(name = "idx_stock_count_items_count", columnList = "stock_count_id")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCountItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_count_id", nullable = false)
+    private StockCount stockCount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private Integer snapshotQuantity; // Book quantity when the session was opened
+
+    @Column
+    private Integer countedQuantity; // Accumulated by every scan batch; NULL while the item has not been scanned
+
+    @Column
+    private Integer soldDuringCount;
+
+    @Column
+    private Integer otherMovements; // Net receipts, refunds, transfers and corrections since the snapshot
+
+    @Column
+    private Integer variance; // counted - (snapshot - soldDuringCount + otherMovements)
+}
@@ -15,7 +15,8 @@ import java.util.List;
     uniqueConstraints = @UniqueConstraint(name = "unique_product_per_branch", columnNames = {"product_id", "branch_id"}),
     indexes = {
         @Index(name = "idx_stock_branch", columnList = "branch_id"),
-        @Index(name = "idx_stock_product", columnList = "product_id")
+        @Index(name = "idx_stock_product", columnList = "product_id"),
+        @Index(name = "idx_stock_branch_updated_at", columnList = "branch_id,updated_at")
     }
 )
 @Getter
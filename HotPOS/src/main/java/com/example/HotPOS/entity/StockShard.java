@@ -0,0 +1,47 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sub-counter of a sharded stock item. Each shard holds an allowance carved out of the
+ * consolidated StockItem.quantity; tills decrement shards independently so they do not
+ * serialise on the single stock row. Units sold since the last consolidation are
+ * {@code allocated - quantity}.
+ */
+@Entity
+@Table(name = "stock_shards",
+    uniqueConstraints = @UniqueConstraint(name = "unique_shard_per_stock_item", columnNames = {"stock_item_id", "shard_index"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stock_item_id", nullable = false)
+    private StockItem stockItem;
+
+    @Column(nullable = false)
+    private Integer shardIndex;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer allocated = 0; // Allowance handed to this shard at the last consolidation
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer quantity = 0; // Allowance still available to tills
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,43 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Latest unit cost each supplier has charged for a product, the baseline for the supplier's
+ * price drift on the next purchase of that product.
+ */
+@Entity
+@Table(name = "supplier_product_prices",
+    uniqueConstraints = @UniqueConstraint(name = "unique_price_per_supplier_product", columnNames = {"supplier_id", "product_id"})
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SupplierProductPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "supplier_id", nullable = false)
+    private Supplier supplier;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal firstUnitCost;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal lastUnitCost;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,78 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running totals per supplier, advanced when a purchase is created or received and when a
+ * return is approved, so the scorecard never reads purchase history. Averages and rates are
+ * derived from the totals when read.
+ */
+@Entity
+@Table(name = "supplier_stats",
+    uniqueConstraints = @UniqueConstraint(name = "unique_stats_per_supplier", columnNames = "supplier_id")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SupplierStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "supplier_id", nullable = false)
+    private Supplier supplier;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long purchaseCount = 0L;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    @Builder.Default
+    private BigDecimal purchasedAmount = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long purchasedUnits = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long receivedCount = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long receivedUnits = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long leadTimeSeconds = 0L; // Sum over received purchases of created -> received
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long returnCount = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long returnedUnits = 0L;
+
+    @Column(nullable = false, precision = 17, scale = 2)
+    @Builder.Default
+    private BigDecimal returnedAmount = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long pricedLines = 0L; // Purchase lines with an earlier price from this supplier
+
+    @Column(nullable = false, precision = 19, scale = 6)
+    @Builder.Default
+    private BigDecimal priceChangeTotal = BigDecimal.ZERO; // Sum of (cost - previous cost) / previous cost
+
+    private LocalDateTime updatedAt;
+}
@@ -6,6 +6,8 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "transfer_items", indexes = {
@@ -40,6 +42,10 @@ public class TransferItem {
     @Column(columnDefinition = "TEXT")
     private String notes;
 
+    @OneToMany(mappedBy = "transferItem", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<TransferItemSerial> serials = new ArrayList<>();
+
     @CreationTimestamp
     @Column(updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,34 @@
+package com.example.HotPOS.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A serial number travelling with a transfer item, chosen when the transfer is created.
+ */
+@Entity
+@Table(name = "transfer_item_serials",
+    uniqueConstraints = @UniqueConstraint(name = "unique_serial_per_transfer_item", columnNames = {"transfer_item_id", "serial_number_id"}),
+    indexes = {
+        @Index(name = "idx_transfer_item_serials_serial", columnList = "serial_number_id")
+    }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferItemSerial {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_item_id", nullable = false)
+    private TransferItem transferItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "serial_number_id", nullable = false)
+    private SerialNumber serialNumber;
+}
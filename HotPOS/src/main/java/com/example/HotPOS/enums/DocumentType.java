@@ -0,0 +1,27 @@
+package com.example.HotPOS.enums;
+
+public enum DocumentType {
+    SALE("SL", 5),
+    PURCHASE("PO", 6),
+    TRANSFER("TR", 6),
+    EXPENSE("EXP", 6),
+    REFUND("REF", 6),
+    RETURN("RET", 6);
+
+    private final String prefix;
+    private final int digits;
+
+    DocumentType(String prefix, int digits) {
+        this.prefix = prefix;
+        this.digits = digits;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    // Minimum width of the zero-padded sequence part
+    public int getDigits() {
+        return digits;
+    }
+}
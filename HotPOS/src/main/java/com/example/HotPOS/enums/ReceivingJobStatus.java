@@ -0,0 +1,9 @@
+package com.example.HotPOS.enums;
+
+public enum ReceivingJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,33 @@
+package com.example.HotPOS.enums;
+
+/**
+ * Serial number lifecycle events. Stored as the fixed {@code code}, never the ordinal or name,
+ * so constants can be reordered or renamed without rewriting the log.
+ */
+public enum SerialEventType {
+    RECEIVED(1),
+    TRANSFER_SENT(2),
+    TRANSFER_RECEIVED(3),
+    TRANSFER_REJECTED(4),
+    SOLD(5),
+    REFUNDED(6),
+    RETURNED_TO_SUPPLIER(7),
+    STATUS_CHANGED(8);
+
+    private final short code;
+
+    SerialEventType(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static SerialEventType fromCode(short code) {
+        for (SerialEventType type : values()) {
+            if (type.code == code) return type;
+        }
+        throw new IllegalArgumentException("Unknown serial event code: " + code);
+    }
+}
@@ -1,9 +1,27 @@
 package com.example.HotPOS.enums;
 
 public enum SerialNumberStatus {
-    IN_STOCK,
-    SOLD,
-    TRANSFERRED,
-    RETURNED,
-    DEFECTIVE
+    IN_STOCK(1),
+    SOLD(2),
+    TRANSFERRED(3),
+    RETURNED(4),
+    DEFECTIVE(5);
+
+    // Compact code for the serial event log; serial_numbers itself still stores the name
+    private final short code;
+
+    SerialNumberStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static SerialNumberStatus fromCode(short code) {
+        for (SerialNumberStatus status : values()) {
+            if (status.code == code) return status;
+        }
+        throw new IllegalArgumentException("Unknown serial status code: " + code);
+    }
 }
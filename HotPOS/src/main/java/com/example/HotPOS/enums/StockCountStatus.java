@@ -0,0 +1,7 @@
+package com.example.HotPOS.enums;
+
+public enum StockCountStatus {
+    OPEN,
+    POSTED,
+    CANCELLED
+}
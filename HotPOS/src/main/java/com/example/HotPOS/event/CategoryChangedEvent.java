@@ -0,0 +1,14 @@
+package com.example.HotPOS.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a category is created, renamed, moved or deactivated. Listeners re-read the
+ * categories rather than trusting the event's contents.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    private final Long categoryId;
+}
@@ -0,0 +1,32 @@
+package com.example.HotPOS.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when products are created or changed. Names either one product, every product of
+ * a category (after the category itself changed) or, when both are null, the whole catalog.
+ * Listeners re-read the affected products rather than trusting the event's contents.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Long productId;
+    private final Long categoryId;
+
+    public static ProductChangedEvent product(Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public static ProductChangedEvent category(Long categoryId) {
+        return new ProductChangedEvent(null, categoryId);
+    }
+
+    public static ProductChangedEvent all() {
+        return new ProductChangedEvent(null, null);
+    }
+
+    public boolean isAll() {
+        return productId == null && categoryId == null;
+    }
+}
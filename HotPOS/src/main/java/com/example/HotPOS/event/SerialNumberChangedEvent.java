@@ -0,0 +1,29 @@
+package com.example.HotPOS.event;
+
+import com.example.HotPOS.enums.SerialNumberStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published whenever a serial number row is inserted, updated or deleted through the
+ * persistence context. Listeners interested only in committed state should use
+ * {@code @TransactionalEventListener}. Bulk writes that bypass the persistence context publish
+ * one {@link #bulk} event per stock item instead; listeners must re-read that stock item.
+ */
+@Getter
+@AllArgsConstructor
+public class SerialNumberChangedEvent {
+    private final Long serialNumberId;
+    private final String serialNumber;
+    private final Long stockItemId;
+    private final SerialNumberStatus status;
+    private final boolean removed;
+
+    public static SerialNumberChangedEvent bulk(Long stockItemId) {
+        return new SerialNumberChangedEvent(null, null, stockItemId, null, false);
+    }
+
+    public boolean isBulk() {
+        return serialNumberId == null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.CategoryClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, Long> {
+
+    boolean existsByAncestorIdAndDescendantId(Long ancestorId, Long descendantId);
+
+    long countByDepth(Integer depth);
+
+    // Serialises changes to the shape of the tree (moves, inserts under a parent, rebuilds) until
+    // commit, so each reads the closure as the previous one left it; plain reads are not blocked
+    @Modifying
+    @Query(value = "LOCK TABLE category_closure IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockTree();
+
+    // A new category's own row plus one under each ancestor of its parent (none for a root)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT ancestor_id, :categoryId, depth + 1 FROM category_closure WHERE descendant_id = :parentId " +
+                   "UNION ALL SELECT :categoryId, :categoryId, 0",
+           nativeQuery = true)
+    int insertCategory(@Param("categoryId") Long categoryId, @Param("parentId") Long parentId);
+
+    // Cuts a subtree loose from the ancestors above its root; rows inside the subtree stay
+    @Modifying
+    @Query(value = "DELETE FROM category_closure WHERE descendant_id IN " +
+                   "(SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId) " +
+                   "AND ancestor_id NOT IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId)",
+           nativeQuery = true)
+    int detachSubtree(@Param("categoryId") Long categoryId);
+
+    // Hangs a detached subtree under its new parent: every ancestor of the parent over every node of the subtree
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "SELECT a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 " +
+                   "FROM category_closure a CROSS JOIN category_closure d " +
+                   "WHERE a.descendant_id = :parentId AND d.ancestor_id = :categoryId",
+           nativeQuery = true)
+    int attachSubtree(@Param("categoryId") Long categoryId, @Param("parentId") Long parentId);
+
+    @Modifying
+    @Query(value = "DELETE FROM category_closure", nativeQuery = true)
+    int deleteAllRows();
+
+    // Whole closure from the parent links, for categories that existed before it was kept
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                   "WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS ( " +
+                   "  SELECT id, id, 0 FROM categories " +
+                   "  UNION ALL " +
+                   "  SELECT t.ancestor_id, c.id, t.depth + 1 FROM tree t JOIN categories c ON c.parent_id = t.descendant_id " +
+                   ") SELECT ancestor_id, descendant_id, depth FROM tree",
+           nativeQuery = true)
+    int insertFromCategories();
+}
@@ -2,9 +2,12 @@ package com.example.HotPOS.repository;
 
 import com.example.HotPOS.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +24,24 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     @Query("SELECT c FROM Category c WHERE c.parent IS NULL AND c.isActive = true")
     List<Category> findActiveRootCategories();
+
+    List<Category> findByUpdatedAtAfter(LocalDateTime since);
+
+    @Query("SELECT MAX(c.updatedAt) FROM Category c")
+    LocalDateTime findMaxUpdatedAt();
+
+    boolean existsByUpdatedAtIsNull();
+
+    // Stamps rows created before categories.updated_at existed, so the delta feed reports them
+    @Modifying
+    @Query("UPDATE Category c SET c.updatedAt = COALESCE(c.createdAt, CURRENT_TIMESTAMP) WHERE c.updatedAt IS NULL")
+    int backfillUpdatedAt();
+
+    // [id, parentId, name, description, isActive] for the in-memory category tree
+    @Query("SELECT c.id, pa.id, c.name, c.description, c.isActive FROM Category c LEFT JOIN c.parent pa ORDER BY c.name, c.id")
+    List<Object[]> findTreeRows();
+
+    // [id, parentId, name] for the catalog snapshot
+    @Query("SELECT c.id, pa.id, c.name FROM Category c LEFT JOIN c.parent pa WHERE c.isActive = true ORDER BY c.id")
+    List<Object[]> findActiveCatalogRows();
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,4 +30,25 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
            "LOWER(c.phone) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(c.email) LIKE LOWER(CONCAT('%', :search, '%')))")
     List<Customer> searchCustomers(@Param("search") String search);
+
+    // Served by the trigram indexes of SearchIndexMigration. Exact name or phone matches come
+    // first, then the closest names, emails and phone numbers
+    @Query(value = "SELECT c.* FROM customers c WHERE c.is_active = true AND (" +
+                   "    :text <% lower(c.name) OR lower(c.name) LIKE :pattern OR lower(c.email) LIKE :pattern " +
+                   "    OR (:digitsPattern <> '' AND c.phone_digits LIKE :digitsPattern)) " +
+                   "ORDER BY (lower(c.name) = :text OR (:digitsPattern <> '' AND c.phone_digits = :digits)) DESC, " +
+                   "    GREATEST(word_similarity(:text, lower(c.name)), " +
+                   "             word_similarity(:text, lower(coalesce(c.email, ''))), " +
+                   "             CASE WHEN :digitsPattern <> '' AND c.phone_digits LIKE :digitsPattern " +
+                   "                  THEN CAST(length(:digits) AS float) / greatest(length(c.phone_digits), 1) ELSE 0 END) DESC, " +
+                   "    c.name, c.id " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<Customer> searchRanked(@Param("text") String text, @Param("pattern") String pattern,
+                                @Param("digits") String digits, @Param("digitsPattern") String digitsPattern,
+                                @Param("limit") int limit);
+
+    List<Customer> findByUpdatedAtAfter(LocalDateTime since);
+
+    @Query("SELECT MAX(c.updatedAt) FROM Customer c")
+    LocalDateTime findMaxUpdatedAt();
 }
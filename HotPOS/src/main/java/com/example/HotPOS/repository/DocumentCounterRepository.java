@@ -0,0 +1,23 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.DocumentCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentCounterRepository extends JpaRepository<DocumentCounter, Long> {
+
+    // Advances the counter by one block in a single statement and returns the new end (exclusive);
+    // a missing counter starts at :seed
+    @Query(value = "INSERT INTO document_counters (branch_id, document_type, next_value, updated_at) " +
+                   "VALUES (:branchId, :documentType, :seed + :blockSize, now()) " +
+                   "ON CONFLICT (branch_id, document_type) DO UPDATE " +
+                   "SET next_value = document_counters.next_value + :blockSize, updated_at = now() " +
+                   "RETURNING next_value", nativeQuery = true)
+    Long reserveBlock(@Param("branchId") Long branchId,
+                      @Param("documentType") String documentType,
+                      @Param("seed") long seed,
+                      @Param("blockSize") int blockSize);
+}
@@ -0,0 +1,50 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.InTransitStockDTO;
+import com.example.HotPOS.entity.InTransitStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InTransitStockRepository extends JpaRepository<InTransitStock, Long>, InTransitStockRepositoryCustom {
+
+    // Adds a transfer's lines to its route in one statement; :sign is 1 when the transfer is sent
+    // and -1 when it is received or rejected
+    @Modifying
+    @Query(value = "INSERT INTO in_transit_stock (from_branch_id, to_branch_id, product_id, quantity, cost_value, updated_at) " +
+                   "SELECT t.from_branch_id, t.to_branch_id, ti.product_id, :sign * SUM(ti.quantity), " +
+                   "       :sign * SUM(ti.quantity * ti.cost_price), now() " +
+                   "FROM transfers t JOIN transfer_items ti ON ti.transfer_id = t.id " +
+                   "WHERE t.id IN (:transferIds) " +
+                   "GROUP BY t.from_branch_id, t.to_branch_id, ti.product_id " +
+                   "ON CONFLICT (from_branch_id, to_branch_id, product_id) DO UPDATE " +
+                   "SET quantity = in_transit_stock.quantity + EXCLUDED.quantity, " +
+                   "    cost_value = in_transit_stock.cost_value + EXCLUDED.cost_value, updated_at = now()",
+           nativeQuery = true)
+    int applyTransfers(@Param("transferIds") List<Long> transferIds, @Param("sign") int sign);
+
+    // Rebuilds the aggregate from the transfers currently IN_TRANSIT
+    @Modifying
+    @Query(value = "INSERT INTO in_transit_stock (from_branch_id, to_branch_id, product_id, quantity, cost_value, updated_at) " +
+                   "SELECT t.from_branch_id, t.to_branch_id, ti.product_id, SUM(ti.quantity), " +
+                   "       SUM(ti.quantity * ti.cost_price), now() " +
+                   "FROM transfers t JOIN transfer_items ti ON ti.transfer_id = t.id " +
+                   "WHERE t.status = 'IN_TRANSIT' " +
+                   "GROUP BY t.from_branch_id, t.to_branch_id, ti.product_id", nativeQuery = true)
+    int insertFromTransfers();
+
+    @Query("SELECT new com.example.HotPOS.dto.InTransitStockDTO(f.id, f.name, t.id, t.name, p.id, p.name, p.sku, " +
+           "s.quantity, s.costValue, s.updatedAt) " +
+           "FROM InTransitStock s JOIN s.fromBranch f JOIN s.toBranch t JOIN s.product p " +
+           "WHERE s.quantity > 0 " +
+           "AND (:fromBranchId IS NULL OR f.id = :fromBranchId) " +
+           "AND (:toBranchId IS NULL OR t.id = :toBranchId) " +
+           "ORDER BY f.id, t.id, p.name")
+    List<InTransitStockDTO> findRoutes(@Param("fromBranchId") Long fromBranchId,
+                                       @Param("toBranchId") Long toBranchId);
+}
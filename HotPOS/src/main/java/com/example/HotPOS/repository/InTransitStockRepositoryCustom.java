@@ -0,0 +1,15 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.StockPositionDTO;
+
+import java.util.List;
+
+public interface InTransitStockRepositoryCustom {
+
+    /**
+     * On-hand and in-transit quantities per product in one query. With a branch, on-hand is that
+     * branch's stock and in-transit is what is on its way to it; without, both are company-wide.
+     * Units sold from shards since the last consolidation are not counted as on hand.
+     */
+    List<StockPositionDTO> findPositions(Long branchId, Long productId);
+}
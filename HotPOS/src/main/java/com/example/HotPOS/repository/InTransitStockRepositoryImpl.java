@@ -0,0 +1,58 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.StockPositionDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class InTransitStockRepositoryImpl implements InTransitStockRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<StockPositionDTO> findPositions(Long branchId, Long productId) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id, p.name, p.sku, COALESCE(s.on_hand, 0), COALESCE(t.in_transit, 0) FROM products p " +
+                "LEFT JOIN (SELECT si.product_id, SUM(si.quantity - COALESCE((SELECT SUM(sh.allocated - sh.quantity) " +
+                "               FROM stock_shards sh WHERE sh.stock_item_id = si.id), 0)) AS on_hand " +
+                "           FROM stock_items si WHERE TRUE");
+        appendFilters(sql, args, "si.branch_id", branchId, "si.product_id", productId);
+        sql.append(" GROUP BY si.product_id) s ON s.product_id = p.id " +
+                "LEFT JOIN (SELECT product_id, SUM(quantity) AS in_transit FROM in_transit_stock " +
+                "           WHERE quantity > 0");
+        appendFilters(sql, args, "to_branch_id", branchId, "product_id", productId);
+        sql.append(" GROUP BY product_id) t ON t.product_id = p.id " +
+                "WHERE (s.on_hand IS NOT NULL OR t.in_transit IS NOT NULL)");
+        appendFilters(sql, args, null, null, "p.id", productId);
+        sql.append(" ORDER BY p.name, p.id");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            long onHand = rs.getLong(4);
+            long inTransit = rs.getLong(5);
+            return StockPositionDTO.builder()
+                    .productId(rs.getLong(1))
+                    .productName(rs.getString(2))
+                    .productSku(rs.getString(3))
+                    .onHand(onHand)
+                    .inTransit(inTransit)
+                    .total(onHand + inTransit)
+                    .build();
+        }, args.toArray());
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> args,
+                                      String branchColumn, Long branchId, String productColumn, Long productId) {
+        if (branchId != null) {
+            sql.append(" AND ").append(branchColumn).append(" = ?");
+            args.add(branchId);
+        }
+        if (productId != null) {
+            sql.append(" AND ").append(productColumn).append(" = ?");
+            args.add(productId);
+        }
+    }
+}
@@ -6,15 +6,27 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     Optional<Product> findBySku(String sku);
     
     boolean existsBySku(String sku);
+
+    List<Product> findBySkuIn(Collection<String> skus);
+
+    // sku, id, requiresSerial for every active product: lookup table for bulk imports
+    @Query("SELECT p.sku, p.id, p.requiresSerial FROM Product p WHERE p.isActive = true")
+    List<Object[]> findActiveSkuIndex();
+
+    // sku, id, stockShards for every active product: lookup table for stock imports
+    @Query("SELECT p.sku, p.id, p.stockShards FROM Product p WHERE p.isActive = true")
+    List<Object[]> findActiveStockImportIndex();
     
     List<Product> findByIsActiveTrue();
     
@@ -24,11 +36,34 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     List<Product> findByRequiresSerialTrue();
     
-    @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%')))")
-    List<Product> searchProducts(@Param("search") String search);
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.sku = :sku")
+    Optional<Product> findWithCategoryBySku(@Param("sku") String sku);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") Long id);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category c WHERE c.id = :categoryId")
+    List<Product> findWithCategoryByCategoryId(@Param("categoryId") Long categoryId);
     
+    // Products of a category and every category below it, through the category closure
+    @Query("SELECT p FROM Product p JOIN FETCH p.category c WHERE c.id IN " +
+           "(SELECT cc.descendant.id FROM CategoryClosure cc WHERE cc.ancestor.id = :categoryId)")
+    List<Product> findWithCategoryInCategoryTree(@Param("categoryId") Long categoryId);
+
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true")
     List<Product> findActiveProductsByCategory(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.isActive = true")
+    List<Product> findActiveWithCategory();
+
+    // [id, categoryId, sku, name, unitOfMeasure, requiresSerial, reorderLevel, sellingPrice] for the catalog snapshot
+    @Query("SELECT p.id, p.category.id, p.sku, p.name, p.unitOfMeasure, p.requiresSerial, p.reorderLevel, p.sellingPrice " +
+           "FROM Product p WHERE p.isActive = true ORDER BY p.id")
+    List<Object[]> findActiveCatalogRows();
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.updatedAt > :since")
+    List<Product> findChangedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT MAX(p.updatedAt) FROM Product p")
+    LocalDateTime findMaxUpdatedAt();
 }
@@ -0,0 +1,21 @@
+package com.example.HotPOS.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    record ImportRow(Long categoryId, String sku, String name, String description, String unitOfMeasure,
+                     boolean requiresSerial, int reorderLevel, BigDecimal sellingPrice, boolean isActive) {
+    }
+
+    /**
+     * Inserts products with one statement, bypassing the persistence context. A product that
+     * already holds the SKU is overwritten when {@code updateExisting} is set and left alone
+     * otherwise; its description is kept when the row has none. An overwritten product's selling
+     * price is copied to its stock rows, as a product update does.
+     *
+     * @return the number of products inserted or updated, not counting those left alone
+     */
+    int upsertImported(List<ImportRow> rows, boolean updateExisting);
+}
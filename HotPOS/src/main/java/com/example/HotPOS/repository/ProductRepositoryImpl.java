@@ -0,0 +1,67 @@
+package com.example.HotPOS.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertImported(List<ImportRow> rows, boolean updateExisting) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String onConflict = updateExisting
+                ? "ON CONFLICT (sku) DO UPDATE SET category_id = EXCLUDED.category_id, name = EXCLUDED.name, " +
+                  "description = COALESCE(EXCLUDED.description, products.description), " +
+                  "unit_of_measure = EXCLUDED.unit_of_measure, requires_serial = EXCLUDED.requires_serial, " +
+                  "reorder_level = EXCLUDED.reorder_level, selling_price = EXCLUDED.selling_price, " +
+                  "is_active = EXCLUDED.is_active, updated_at = EXCLUDED.updated_at"
+                : "ON CONFLICT (sku) DO NOTHING";
+        // One statement per batch, with each column bound as an array. RETURNING lists only the
+        // rows actually written (xmax = 0 for an insert), which a rewritten JDBC batch cannot report,
+        // and updated products pass their price on to the branches' stock rows as updateProduct does
+        Integer written = jdbcTemplate.query(
+                "WITH written AS (" +
+                "INSERT INTO products (category_id, sku, name, description, unit_of_measure, requires_serial, " +
+                "reorder_level, selling_price, is_active, created_at, updated_at) " +
+                "SELECT r.*, ?, ? FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?) AS r " + onConflict + " " +
+                "RETURNING id, selling_price, xmax = 0 AS inserted), " +
+                "synced AS (UPDATE stock_items s SET selling_price = w.selling_price, updated_at = ? FROM written w " +
+                "WHERE NOT w.inserted AND s.product_id = w.id AND s.selling_price IS DISTINCT FROM w.selling_price) " +
+                "SELECT count(*) FROM written",
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setArray(3, array(connection, "bigint", rows, ImportRow::categoryId));
+                    ps.setArray(4, array(connection, "text", rows, ImportRow::sku));
+                    ps.setArray(5, array(connection, "text", rows, ImportRow::name));
+                    ps.setArray(6, array(connection, "text", rows, ImportRow::description));
+                    ps.setArray(7, array(connection, "text", rows, ImportRow::unitOfMeasure));
+                    ps.setArray(8, array(connection, "boolean", rows, ImportRow::requiresSerial));
+                    ps.setArray(9, array(connection, "integer", rows, ImportRow::reorderLevel));
+                    ps.setArray(10, array(connection, "numeric", rows, ImportRow::sellingPrice));
+                    ps.setArray(11, array(connection, "boolean", rows, ImportRow::isActive));
+                    ps.setTimestamp(12, now);
+                },
+                rs -> rs.next() ? rs.getInt(1) : 0);
+        return written != null ? written : 0;
+    }
+
+    private static Array array(Connection connection, String type, List<ImportRow> rows,
+                             Function<ImportRow, Object> column) throws SQLException {
+        return connection.createArrayOf(type, rows.stream().map(column).toArray());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.HotPOS.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface PurchaseRepositoryCustom {
+
+    record ItemRow(Long productId, int quantity, BigDecimal unitCost, BigDecimal totalCost) {
+    }
+
+    /**
+     * Inserts purchase lines with JDBC batches, bypassing the persistence context. The purchase
+     * entity's items collection does not see these rows until it is reloaded.
+     */
+    void insertItems(Long purchaseId, List<ItemRow> items);
+}
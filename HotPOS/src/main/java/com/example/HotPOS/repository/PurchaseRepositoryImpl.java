@@ -0,0 +1,34 @@
+package com.example.HotPOS.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class PurchaseRepositoryImpl implements PurchaseRepositoryCustom {
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertItems(Long purchaseId, List<ItemRow> items) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO purchase_items (purchase_id, product_id, quantity, unit_cost, total_cost, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                items,
+                INSERT_BATCH_SIZE,
+                (ps, item) -> {
+                    ps.setLong(1, purchaseId);
+                    ps.setLong(2, item.productId());
+                    ps.setInt(3, item.quantity());
+                    ps.setBigDecimal(4, item.unitCost());
+                    ps.setBigDecimal(5, item.totalCost());
+                    ps.setTimestamp(6, now);
+                });
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.ReceivingJob;
+import com.example.HotPOS.enums.ReceivingJobStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReceivingJobRepository extends JpaRepository<ReceivingJob, Long> {
+
+    Optional<ReceivingJob> findFirstByPurchaseIdOrderByIdDesc(Long purchaseId);
+
+    // Claims a queued job for one worker and starts a new attempt
+    @Modifying
+    @Query("UPDATE ReceivingJob j SET j.status = com.example.HotPOS.enums.ReceivingJobStatus.RUNNING, " +
+           "j.attempt = j.attempt + 1, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = com.example.HotPOS.enums.ReceivingJobStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Held for the whole chunk, so a requeue waits for the chunk to commit and then sees its
+    // fresh updatedAt
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ReceivingJob j WHERE j.id = :id")
+    Optional<ReceivingJob> lockById(@Param("id") Long id);
+
+    // Puts RUNNING jobs whose worker stopped committing back in the queue
+    @Modifying
+    @Query("UPDATE ReceivingJob j SET j.status = com.example.HotPOS.enums.ReceivingJobStatus.QUEUED, j.updatedAt = :now " +
+           "WHERE j.status = com.example.HotPOS.enums.ReceivingJobStatus.RUNNING AND j.updatedAt < :cutoff")
+    int requeueStalled(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.id FROM ReceivingJob j WHERE j.status = :status AND j.updatedAt < :cutoff ORDER BY j.id")
+    List<Long> findIdsByStatusAndUpdatedAtBefore(@Param("status") ReceivingJobStatus status,
+                                                 @Param("cutoff") LocalDateTime cutoff);
+
+    // The status check Hibernate created before CANCELLED existed; ddl-auto=update never widens it
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'receiving_jobs_status_check' " +
+                   "AND pg_get_constraintdef(oid) NOT LIKE '%CANCELLED%')", nativeQuery = true)
+    boolean hasStaleStatusCheck();
+
+    @Modifying
+    @Query(value = "ALTER TABLE receiving_jobs DROP CONSTRAINT receiving_jobs_status_check, " +
+                   "ADD CONSTRAINT receiving_jobs_status_check " +
+                   "CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED'))", nativeQuery = true)
+    void widenStatusCheck();
+}
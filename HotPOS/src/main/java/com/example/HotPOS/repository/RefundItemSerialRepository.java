@@ -0,0 +1,48 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.RefundItemSerial;
+import com.example.HotPOS.enums.ApprovalStatus;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RefundItemSerialRepository extends JpaRepository<RefundItemSerial, Long> {
+
+    // [refundItemId, serialNumber] for every serial recorded on the given refunds
+    @Query("SELECT ris.refundItem.id, sn.serialNumber FROM RefundItemSerial ris JOIN ris.serialNumber sn " +
+           "WHERE ris.refundItem.refund.id IN :refundIds ORDER BY sn.serialNumber")
+    List<Object[]> findSerialNumbersByRefundIds(@Param("refundIds") Collection<Long> refundIds);
+
+    @Query("SELECT COUNT(ris) FROM RefundItemSerial ris WHERE ris.refundItem.refund.id = :refundId")
+    long countByRefundId(@Param("refundId") Long refundId);
+
+    @Query("SELECT DISTINCT ris.serialNumber.stockItem.id FROM RefundItemSerial ris WHERE ris.refundItem.refund.id = :refundId")
+    List<Long> findStockItemIdsByRefundId(@Param("refundId") Long refundId);
+
+    // [refundId, count] for the given refunds that have serials recorded
+    @Query("SELECT ris.refundItem.refund.id, COUNT(ris) FROM RefundItemSerial ris " +
+           "WHERE ris.refundItem.refund.id IN :refundIds GROUP BY ris.refundItem.refund.id")
+    List<Object[]> countByRefundIds(@Param("refundIds") Collection<Long> refundIds);
+
+    // [refundId, count] of recorded serials that are no longer in the given status
+    @Query("SELECT ris.refundItem.refund.id, COUNT(ris) FROM RefundItemSerial ris " +
+           "WHERE ris.refundItem.refund.id IN :refundIds AND ris.serialNumber.status <> :status " +
+           "GROUP BY ris.refundItem.refund.id")
+    List<Object[]> countNotInStatusByRefundIds(@Param("refundIds") Collection<Long> refundIds,
+                                               @Param("status") SerialNumberStatus status);
+
+    @Query("SELECT DISTINCT ris.serialNumber.stockItem.id FROM RefundItemSerial ris WHERE ris.refundItem.refund.id IN :refundIds")
+    List<Long> findStockItemIdsByRefundIds(@Param("refundIds") Collection<Long> refundIds);
+
+    // Serials among the given ids already held by another refund in the given status
+    @Query("SELECT ris.serialNumber.id FROM RefundItemSerial ris " +
+           "WHERE ris.serialNumber.id IN :serialIds AND ris.refundItem.refund.status = :status")
+    List<Long> findReservedSerialIds(@Param("serialIds") Collection<Long> serialIds,
+                                     @Param("status") ApprovalStatus status);
+}
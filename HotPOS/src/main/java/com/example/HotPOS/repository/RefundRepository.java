@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,17 +30,23 @@ public interface RefundRepository extends JpaRepository<Refund, Long> {
     
     List<Refund> findByStatus(ApprovalStatus status);
 
-    // Get total approved refund amount for a specific sale
-    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM Refund r WHERE r.sale.id = :saleId AND r.status = 'APPROVED'")
-    BigDecimal getTotalApprovedRefundsAmountBySale(@Param("saleId") Long saleId);
+    // [id, branchId] of the given refunds, to split a batch approval by branch
+    @Query("SELECT r.id, r.branch.id FROM Refund r WHERE r.id IN :ids")
+    List<Object[]> findBranchIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT * FROM refunds WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Refund> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT r FROM Refund r LEFT JOIN FETCH r.items WHERE r.id IN :ids")
+    List<Refund> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
 
     // Check if a sale has any approved refunds
     @Query("SELECT COUNT(r) > 0 FROM Refund r WHERE r.sale.id = :saleId AND r.status = 'APPROVED'")
     boolean hasApprovedRefundsBySale(@Param("saleId") Long saleId);
 
-    // Get all sale IDs that have approved refunds (for batch lookup)
-    @Query("SELECT r.sale.id, COALESCE(SUM(r.totalAmount), 0) FROM Refund r WHERE r.sale.id IN :saleIds AND r.status = 'APPROVED' GROUP BY r.sale.id")
-    List<Object[]> getApprovedRefundAmountsBySaleIds(@Param("saleIds") List<Long> saleIds);
+    boolean existsBySaleIsNotNullAndStatus(ApprovalStatus status);
+
+    List<Refund> findBySaleIsNotNullAndStatusOrderById(ApprovalStatus status);
     
     List<Refund> findByBranchIdAndRefundDateBetween(Long branchId, LocalDate startDate, LocalDate endDate);
     
@@ -3,9 +3,12 @@ package com.example.HotPOS.repository;
 import com.example.HotPOS.entity.Return;
 import com.example.HotPOS.enums.ApprovalStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +28,16 @@ public interface ReturnRepository extends JpaRepository<Return, Long> {
     List<Return> findByPurchaseId(Long purchaseId);
     
     List<Return> findByStatus(ApprovalStatus status);
+
+    // [id, branchId] of the given returns, to split a batch approval by branch
+    @Query("SELECT r.id, r.branch.id FROM Return r WHERE r.id IN :ids")
+    List<Object[]> findBranchIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT * FROM returns WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Return> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT r FROM Return r LEFT JOIN FETCH r.items WHERE r.id IN :ids")
+    List<Return> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
     
     List<Return> findByBranchIdAndReturnDateBetween(Long branchId, LocalDate startDate, LocalDate endDate);
 }
@@ -0,0 +1,23 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.SaleItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
+
+    // Locks a sale's lines so concurrent refund approvals on the same sale apply one after the other
+    @Query(value = "SELECT * FROM sale_items WHERE sale_id = :saleId ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<SaleItem> lockBySaleId(@Param("saleId") Long saleId);
+
+    @Query(value = "SELECT * FROM sale_items WHERE sale_id IN (:saleIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<SaleItem> lockBySaleIdIn(@Param("saleIds") Collection<Long> saleIds);
+
+    boolean existsByRefundedQuantityGreaterThan(Integer quantity);
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -80,4 +81,8 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     // Get total cost of goods sold (COGS) for a specific branch
     @Query("SELECT COALESCE(SUM(si.costPrice * si.quantity), 0) FROM Sale s JOIN s.items si WHERE s.branch.id = :branchId AND s.saleDate BETWEEN :startDate AND :endDate")
     BigDecimal getTotalCOGSByBranch(@Param("branchId") Long branchId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Quantity sold per product at a branch since a point in time (used to net sales out of stock counts)
+    @Query("SELECT si.product.id, COALESCE(SUM(si.quantity), 0) FROM SaleItem si WHERE si.sale.branch.id = :branchId AND si.sale.createdAt >= :since GROUP BY si.product.id")
+    List<Object[]> getQuantitySoldByProductSince(@Param("branchId") Long branchId, @Param("since") LocalDateTime since);
 }
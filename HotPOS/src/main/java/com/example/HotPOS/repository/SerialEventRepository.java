@@ -0,0 +1,22 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.SerialEventDTO;
+import com.example.HotPOS.entity.SerialEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SerialEventRepository extends JpaRepository<SerialEvent, Long>, SerialEventRepositoryCustom {
+
+    // Full timeline of one serial via the (serial_number_id, occurred_at) index
+    @Query("SELECT new com.example.HotPOS.dto.SerialEventDTO(" +
+           "e.eventType, e.status, e.branchId, b.name, e.refId, e.userId, u.fullName, e.occurredAt) " +
+           "FROM SerialEvent e LEFT JOIN Branch b ON b.id = e.branchId LEFT JOIN User u ON u.id = e.userId " +
+           "WHERE e.serialNumberId = (SELECT sn.id FROM SerialNumber sn WHERE sn.serialNumber = :serialNumber) " +
+           "ORDER BY e.occurredAt, e.id")
+    List<SerialEventDTO> findTimeline(@Param("serialNumber") String serialNumber);
+}
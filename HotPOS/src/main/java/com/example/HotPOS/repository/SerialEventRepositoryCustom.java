@@ -0,0 +1,42 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.SerialEvent;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SerialEventRepositoryCustom {
+
+    /**
+     * Appends events with batched JDBC statements.
+     */
+    void append(List<SerialEvent> events);
+
+    /**
+     * Appends one event per serial received on a purchase into the given stock row, in one statement.
+     */
+    int appendForPurchase(Long purchaseId, Long stockItemId, Long branchId, Long userId);
+
+    /**
+     * Appends one event per serial recorded on a transfer, in one statement.
+     */
+    int appendForTransfer(Long transferId, SerialEventType type, SerialNumberStatus status, Long branchId, Long userId);
+
+    /**
+     * Appends one event per serial recorded on a refund, in one statement.
+     */
+    int appendForRefund(Long refundId, SerialEventType type, SerialNumberStatus status, Long branchId, Long userId);
+
+    /**
+     * As {@link #appendForTransfer} for several transfers, with each event at the transfer's
+     * destination branch.
+     */
+    int appendForTransfers(Collection<Long> transferIds, SerialEventType type, SerialNumberStatus status, Long userId);
+
+    /**
+     * As {@link #appendForRefund} for several refunds, with each event at the refund's branch.
+     */
+    int appendForRefunds(Collection<Long> refundIds, SerialEventType type, SerialNumberStatus status, Long userId);
+}
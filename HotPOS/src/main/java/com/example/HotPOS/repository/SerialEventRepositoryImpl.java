@@ -0,0 +1,107 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.SerialEvent;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class SerialEventRepositoryImpl implements SerialEventRepositoryCustom {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void append(List<SerialEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                events,
+                INSERT_BATCH_SIZE,
+                (ps, event) -> {
+                    ps.setLong(1, event.getSerialNumberId());
+                    ps.setShort(2, event.getEventType().getCode());
+                    ps.setShort(3, event.getStatus().getCode());
+                    ps.setObject(4, event.getBranchId(), Types.BIGINT);
+                    ps.setObject(5, event.getRefId(), Types.BIGINT);
+                    ps.setObject(6, event.getUserId(), Types.BIGINT);
+                    ps.setTimestamp(7, Timestamp.valueOf(event.getOccurredAt()));
+                });
+    }
+
+    @Override
+    public int appendForPurchase(Long purchaseId, Long stockItemId, Long branchId, Long userId) {
+        return jdbcTemplate.update(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "SELECT id, ?, ?, ?, ?, ?, ? FROM serial_numbers WHERE purchase_id = ? AND stock_item_id = ?",
+                SerialEventType.RECEIVED.getCode(), SerialNumberStatus.IN_STOCK.getCode(), branchId, purchaseId,
+                userId, Timestamp.valueOf(LocalDateTime.now()), purchaseId, stockItemId);
+    }
+
+    @Override
+    public int appendForTransfer(Long transferId, SerialEventType type, SerialNumberStatus status,
+                                 Long branchId, Long userId) {
+        return jdbcTemplate.update(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "SELECT tis.serial_number_id, ?, ?, ?, ?, ?, ? FROM transfer_item_serials tis " +
+                "JOIN transfer_items ti ON ti.id = tis.transfer_item_id WHERE ti.transfer_id = ?",
+                type.getCode(), status.getCode(), branchId, transferId,
+                userId, Timestamp.valueOf(LocalDateTime.now()), transferId);
+    }
+
+    @Override
+    public int appendForRefund(Long refundId, SerialEventType type, SerialNumberStatus status,
+                               Long branchId, Long userId) {
+        return jdbcTemplate.update(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "SELECT ris.serial_number_id, ?, ?, ?, ?, ?, ? FROM refund_item_serials ris " +
+                "JOIN refund_items ri ON ri.id = ris.refund_item_id WHERE ri.refund_id = ?",
+                type.getCode(), status.getCode(), branchId, refundId,
+                userId, Timestamp.valueOf(LocalDateTime.now()), refundId);
+    }
+
+    @Override
+    public int appendForTransfers(Collection<Long> transferIds, SerialEventType type, SerialNumberStatus status,
+                                  Long userId) {
+        return jdbcTemplate.update(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "SELECT tis.serial_number_id, ?, ?, t.to_branch_id, t.id, ?, ? FROM transfer_item_serials tis " +
+                "JOIN transfer_items ti ON ti.id = tis.transfer_item_id " +
+                "JOIN transfers t ON t.id = ti.transfer_id WHERE t.id = ANY(?)",
+                ps -> {
+                    ps.setShort(1, type.getCode());
+                    ps.setShort(2, status.getCode());
+                    ps.setObject(3, userId);
+                    ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                    ps.setArray(5, ps.getConnection().createArrayOf("bigint", transferIds.toArray()));
+                });
+    }
+
+    @Override
+    public int appendForRefunds(Collection<Long> refundIds, SerialEventType type, SerialNumberStatus status,
+                                Long userId) {
+        return jdbcTemplate.update(
+                "INSERT INTO serial_events (serial_number_id, event_type, status, branch_id, ref_id, user_id, occurred_at) " +
+                "SELECT ris.serial_number_id, ?, ?, r.branch_id, r.id, ?, ? FROM refund_item_serials ris " +
+                "JOIN refund_items ri ON ri.id = ris.refund_item_id " +
+                "JOIN refunds r ON r.id = ri.refund_id WHERE r.id = ANY(?)",
+                ps -> {
+                    ps.setShort(1, type.getCode());
+                    ps.setShort(2, status.getCode());
+                    ps.setObject(3, userId);
+                    ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                    ps.setArray(5, ps.getConnection().createArrayOf("bigint", refundIds.toArray()));
+                });
+    }
+}
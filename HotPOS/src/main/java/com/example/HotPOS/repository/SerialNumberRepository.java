@@ -1,17 +1,30 @@
 package com.example.HotPOS.repository;
 
+import com.example.HotPOS.dto.SerialNumberDTO;
 import com.example.HotPOS.entity.SerialNumber;
 import com.example.HotPOS.enums.SerialNumberStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface SerialNumberRepository extends JpaRepository<SerialNumber, Long> {
+public interface SerialNumberRepository extends JpaRepository<SerialNumber, Long>, SerialNumberRepositoryCustom {
+
+    // Listing projection: stock item, product, branch, purchase and sale resolved in the same query
+    String SERIAL_DTO_SELECT = "SELECT new com.example.HotPOS.dto.SerialNumberDTO(" +
+            "sn.id, si.id, p.id, p.name, p.sku, sn.serialNumber, sn.status, pu.id, pu.purchaseNumber, " +
+            "sa.id, sa.saleNumber, b.id, b.name, sn.notes, sn.createdAt, sn.updatedAt) " +
+            "FROM SerialNumber sn JOIN sn.stockItem si JOIN si.product p JOIN si.branch b " +
+            "LEFT JOIN sn.purchase pu LEFT JOIN sn.sale sa";
     
     Optional<SerialNumber> findBySerialNumber(String serialNumber);
     
@@ -37,6 +50,11 @@ public interface SerialNumberRepository extends JpaRepository<SerialNumber, Long
     @Query("SELECT COUNT(sn) FROM SerialNumber sn WHERE sn.stockItem.id = :stockItemId AND sn.status = 'IN_STOCK'")
     Long countInStockByStockItem(@Param("stockItemId") Long stockItemId);
 
+    // [stockItemId, count] of in-stock serial rows, for stock items that have any
+    @Query("SELECT sn.stockItem.id, COUNT(sn) FROM SerialNumber sn WHERE sn.stockItem.id IN :stockItemIds " +
+           "AND sn.status = 'IN_STOCK' GROUP BY sn.stockItem.id")
+    List<Object[]> countInStockByStockItemIds(@Param("stockItemIds") Collection<Long> stockItemIds);
+
     @Query("SELECT sn FROM SerialNumber sn WHERE sn.sale.id = :saleId AND sn.stockItem.product.id = :productId")
     List<SerialNumber> findBySaleIdAndProductId(@Param("saleId") Long saleId, @Param("productId") Long productId);
 
@@ -48,4 +66,117 @@ public interface SerialNumberRepository extends JpaRepository<SerialNumber, Long
 
     @Query("SELECT sn FROM SerialNumber sn WHERE sn.stockItem.branch.id = :branchId ORDER BY sn.updatedAt DESC")
     List<SerialNumber> findAllByBranchOrderByUpdatedAtDesc(@Param("branchId") Long branchId);
+
+    @Query(value = SERIAL_DTO_SELECT + " WHERE b.id = :branchId",
+           countQuery = "SELECT COUNT(sn) FROM SerialNumber sn WHERE sn.stockItem.branch.id = :branchId")
+    Page<SerialNumberDTO> findDTOPageByBranch(@Param("branchId") Long branchId, Pageable pageable);
+
+    @Query(value = SERIAL_DTO_SELECT + " WHERE b.id = :branchId AND sn.status = :status",
+           countQuery = "SELECT COUNT(sn) FROM SerialNumber sn WHERE sn.stockItem.branch.id = :branchId AND sn.status = :status")
+    Page<SerialNumberDTO> findDTOPageByBranchAndStatus(@Param("branchId") Long branchId,
+                                                       @Param("status") SerialNumberStatus status,
+                                                       Pageable pageable);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE b.id = :branchId ORDER BY sn.updatedAt DESC, sn.id DESC")
+    List<SerialNumberDTO> findDTOsByBranch(@Param("branchId") Long branchId);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE b.id = :branchId AND sn.status = :status ORDER BY sn.updatedAt DESC, sn.id DESC")
+    List<SerialNumberDTO> findDTOsByBranchAndStatus(@Param("branchId") Long branchId, @Param("status") SerialNumberStatus status);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE p.id = :productId AND b.id = :branchId AND sn.status = 'IN_STOCK'")
+    List<SerialNumberDTO> findAvailableDTOsByProductAndBranch(@Param("productId") Long productId, @Param("branchId") Long branchId);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE sn.serialNumber = :serialNumber")
+    Optional<SerialNumberDTO> findDTOBySerialNumber(@Param("serialNumber") String serialNumber);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE pu.id = :purchaseId")
+    List<SerialNumberDTO> findDTOsByPurchaseId(@Param("purchaseId") Long purchaseId);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE sa.id = :saleId")
+    List<SerialNumberDTO> findDTOsBySaleId(@Param("saleId") Long saleId);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE si.id = :stockItemId")
+    List<SerialNumberDTO> findDTOsByStockItemId(@Param("stockItemId") Long stockItemId);
+
+    @Query(SERIAL_DTO_SELECT + " WHERE sn.id = :id")
+    Optional<SerialNumberDTO> findDTOById(@Param("id") Long id);
+
+    List<SerialNumber> findBySerialNumberIn(Collection<String> serialNumbers);
+
+    // First N serials in the given status that no pending transfer has claimed yet
+    @Query("SELECT sn FROM SerialNumber sn WHERE sn.stockItem.id = :stockItemId AND sn.status = :status " +
+           "AND NOT EXISTS (SELECT 1 FROM TransferItemSerial tis WHERE tis.serialNumber = sn " +
+           "AND tis.transferItem.transfer.status = com.example.HotPOS.enums.TransferStatus.PENDING) ORDER BY sn.id")
+    List<SerialNumber> findUnclaimedByStockItemIdAndStatus(@Param("stockItemId") Long stockItemId,
+                                                          @Param("status") SerialNumberStatus status,
+                                                          Pageable pageable);
+
+    // Serials sold on a sale with their stock rows, for matching refund lines by product
+    @Query("SELECT sn FROM SerialNumber sn JOIN FETCH sn.stockItem WHERE sn.sale.id = :saleId AND sn.status = :status " +
+           "ORDER BY sn.serialNumber")
+    List<SerialNumber> findWithStockItemBySaleIdAndStatus(@Param("saleId") Long saleId,
+                                                         @Param("status") SerialNumberStatus status);
+
+    // Returns every serial recorded on a refund to stock and detaches it from its sale, in one statement
+    @Modifying
+    @Query("UPDATE SerialNumber sn SET sn.status = :to, sn.sale = null, sn.updatedAt = :now WHERE sn.status = :from " +
+           "AND sn.id IN (SELECT ris.serialNumber.id FROM RefundItemSerial ris WHERE ris.refundItem.refund.id = :refundId)")
+    int updateStatusForRefund(@Param("refundId") Long refundId,
+                              @Param("from") SerialNumberStatus from,
+                              @Param("to") SerialNumberStatus to,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SerialNumber sn SET sn.status = :to, sn.sale = null, sn.updatedAt = :now WHERE sn.status = :from " +
+           "AND sn.id IN (SELECT ris.serialNumber.id FROM RefundItemSerial ris WHERE ris.refundItem.refund.id IN :refundIds)")
+    int updateStatusForRefunds(@Param("refundIds") Collection<Long> refundIds,
+                               @Param("from") SerialNumberStatus from,
+                               @Param("to") SerialNumberStatus to,
+                               @Param("now") LocalDateTime now);
+
+    // Flips the status of every serial recorded on a transfer, in one statement
+    @Modifying
+    @Query("UPDATE SerialNumber sn SET sn.status = :to, sn.updatedAt = :now WHERE sn.status = :from AND sn.id IN " +
+           "(SELECT tis.serialNumber.id FROM TransferItemSerial tis WHERE tis.transferItem.transfer.id = :transferId)")
+    int updateStatusForTransfer(@Param("transferId") Long transferId,
+                                @Param("from") SerialNumberStatus from,
+                                @Param("to") SerialNumberStatus to,
+                                @Param("now") LocalDateTime now);
+
+    // Moves every serial recorded on a transfer to the destination branch's stock row for its product, in one statement
+    @Modifying
+    @Query(value = "UPDATE serial_numbers sn SET stock_item_id = dst.id, status = 'IN_STOCK', updated_at = :now " +
+                   "FROM transfer_item_serials tis " +
+                   "JOIN transfer_items ti ON ti.id = tis.transfer_item_id " +
+                   "JOIN stock_items dst ON dst.product_id = ti.product_id AND dst.branch_id = :toBranchId " +
+                   "WHERE sn.id = tis.serial_number_id AND ti.transfer_id = :transferId AND sn.status = :fromStatus",
+           nativeQuery = true)
+    int moveForTransfer(@Param("transferId") Long transferId,
+                        @Param("toBranchId") Long toBranchId,
+                        @Param("fromStatus") String fromStatus,
+                        @Param("now") LocalDateTime now);
+
+    // As moveForTransfer, for several transfers, each into its own destination branch
+    @Modifying
+    @Query(value = "UPDATE serial_numbers sn SET stock_item_id = dst.id, status = 'IN_STOCK', updated_at = :now " +
+                   "FROM transfer_item_serials tis " +
+                   "JOIN transfer_items ti ON ti.id = tis.transfer_item_id " +
+                   "JOIN transfers t ON t.id = ti.transfer_id " +
+                   "JOIN stock_items dst ON dst.product_id = ti.product_id AND dst.branch_id = t.to_branch_id " +
+                   "WHERE sn.id = tis.serial_number_id AND ti.transfer_id IN (:transferIds) AND sn.status = :fromStatus",
+           nativeQuery = true)
+    int moveForTransfers(@Param("transferIds") Collection<Long> transferIds,
+                         @Param("fromStatus") String fromStatus,
+                         @Param("now") LocalDateTime now);
+
+    // Search index rows: [id, serialNumber, status, stockItemId]
+    @Query("SELECT sn.id, sn.serialNumber, sn.status, sn.stockItem.id FROM SerialNumber sn WHERE sn.stockItem.branch.id = :branchId")
+    List<Object[]> findIndexRowsByBranch(@Param("branchId") Long branchId);
+
+    @Query("SELECT sn.id, sn.serialNumber, sn.status, sn.stockItem.id FROM SerialNumber sn WHERE sn.stockItem.id = :stockItemId")
+    List<Object[]> findIndexRowsByStockItem(@Param("stockItemId") Long stockItemId);
+
+    // [status, count] for every status present in the branch
+    @Query("SELECT sn.status, COUNT(sn) FROM SerialNumber sn WHERE sn.stockItem.branch.id = :branchId GROUP BY sn.status")
+    List<Object[]> countByBranchGroupByStatus(@Param("branchId") Long branchId);
 }
@@ -0,0 +1,38 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.enums.SerialNumberStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface SerialNumberRepositoryCustom {
+
+    /**
+     * Returns which of the given serial numbers are already stored, in one query.
+     */
+    List<String> findExistingSerialNumbers(Collection<String> serialNumbers);
+
+    /**
+     * Returns up to {@code limit} stored serial numbers between {@code first} and {@code last}
+     * that share their length and have only digits after the first {@code prefixLength} characters.
+     */
+    List<String> findExistingInRange(String first, String last, int prefixLength, int limit);
+
+    /**
+     * Inserts IN_STOCK serial numbers for one stock item with batched JDBC statements.
+     */
+    void insertInStock(Long stockItemId, Long purchaseId, List<String> serialNumbers);
+
+    /**
+     * Returns the ids of up to the given number of IN_STOCK serials for each stock item, lowest
+     * ids first, in one query. The ids are keyed by stock item.
+     */
+    Map<Long, List<Long>> findInStockIds(Map<Long, Integer> countsByStockItem);
+
+    /**
+     * Moves the given serials from {@code from} to {@code to} in one statement and returns the
+     * number of rows updated; serials no longer in {@code from} are left alone.
+     */
+    int updateStatus(Collection<Long> ids, SerialNumberStatus from, SerialNumberStatus to);
+}
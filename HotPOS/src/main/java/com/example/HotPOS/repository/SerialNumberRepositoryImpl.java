@@ -0,0 +1,106 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.enums.SerialNumberStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class SerialNumberRepositoryImpl implements SerialNumberRepositoryCustom {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<String> findExistingSerialNumbers(Collection<String> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return List.of();
+        }
+        // One round trip regardless of size: the whole set is bound as a single text[] parameter
+        return jdbcTemplate.query(
+                "SELECT serial_number FROM serial_numbers WHERE serial_number = ANY(?)",
+                ps -> {
+                    Array array = ps.getConnection().createArrayOf("text", serialNumbers.toArray());
+                    ps.setArray(1, array);
+                },
+                (rs, rowNum) -> rs.getString(1));
+    }
+
+    @Override
+    public List<String> findExistingInRange(String first, String last, int prefixLength, int limit) {
+        // Equal-width zero-padded values sort the same as their numbers, so the range is an index range scan
+        return jdbcTemplate.queryForList(
+                "SELECT serial_number FROM serial_numbers WHERE serial_number BETWEEN ? AND ? " +
+                "AND length(serial_number) = ? AND substring(serial_number FROM ?) ~ '^[0-9]+$' " +
+                "ORDER BY serial_number LIMIT ?",
+                String.class,
+                first, last, first.length(), prefixLength + 1, limit);
+    }
+
+    @Override
+    public void insertInStock(Long stockItemId, Long purchaseId, List<String> serialNumbers) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO serial_numbers (stock_item_id, serial_number, status, purchase_id, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                serialNumbers,
+                INSERT_BATCH_SIZE,
+                (ps, serial) -> {
+                    ps.setLong(1, stockItemId);
+                    ps.setString(2, serial);
+                    ps.setString(3, SerialNumberStatus.IN_STOCK.name());
+                    ps.setObject(4, purchaseId);
+                    ps.setTimestamp(5, now);
+                    ps.setTimestamp(6, now);
+                });
+    }
+
+    @Override
+    public Map<Long, List<Long>> findInStockIds(Map<Long, Integer> countsByStockItem) {
+        Map<Long, List<Long>> idsByStockItem = new LinkedHashMap<>();
+        if (countsByStockItem.isEmpty()) {
+            return idsByStockItem;
+        }
+        jdbcTemplate.query(
+                "SELECT s.id, s.stock_item_id FROM (SELECT sn.id, sn.stock_item_id, " +
+                "row_number() OVER (PARTITION BY sn.stock_item_id ORDER BY sn.id) AS n " +
+                "FROM serial_numbers sn WHERE sn.stock_item_id = ANY(?) AND sn.status = ?) s " +
+                "JOIN unnest(?, ?) AS wanted(stock_item_id, count) ON wanted.stock_item_id = s.stock_item_id " +
+                "WHERE s.n <= wanted.count ORDER BY s.id",
+                ps -> {
+                    Array stockItemIds = ps.getConnection().createArrayOf("bigint", countsByStockItem.keySet().toArray());
+                    ps.setArray(1, stockItemIds);
+                    ps.setString(2, SerialNumberStatus.IN_STOCK.name());
+                    ps.setArray(3, stockItemIds);
+                    ps.setArray(4, ps.getConnection().createArrayOf("integer", countsByStockItem.values().toArray()));
+                },
+                rs -> {
+                    idsByStockItem.computeIfAbsent(rs.getLong(2), id -> new ArrayList<>()).add(rs.getLong(1));
+                });
+        return idsByStockItem;
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> ids, SerialNumberStatus from, SerialNumberStatus to) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+                "UPDATE serial_numbers SET status = ?, updated_at = ? WHERE id = ANY(?) AND status = ?",
+                ps -> {
+                    ps.setString(1, to.name());
+                    ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+                    ps.setString(4, from.name());
+                });
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.SerialRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SerialRangeRepository extends JpaRepository<SerialRange, Long> {
+
+    @Query("SELECT r FROM SerialRange r JOIN FETCH r.stockItem si JOIN FETCH si.product JOIN FETCH si.branch " +
+           "LEFT JOIN FETCH r.purchase WHERE r.prefix = :prefix AND r.digits = :digits AND r.rangeStart <= :value AND r.rangeEnd >= :value")
+    Optional<SerialRange> findContaining(@Param("prefix") String prefix,
+                                         @Param("digits") int digits,
+                                         @Param("value") long value);
+
+    // Locks the range that holds a serial so concurrent splits of the same run serialise
+    @Query(value = "SELECT * FROM serial_ranges WHERE prefix = :prefix AND digits = :digits " +
+                   "AND range_start <= :value AND range_end >= :value FOR UPDATE", nativeQuery = true)
+    Optional<SerialRange> lockContaining(@Param("prefix") String prefix,
+                                         @Param("digits") int digits,
+                                         @Param("value") long value);
+
+    // Locks a stock item's ranges, lowest serials first
+    @Query(value = "SELECT * FROM serial_ranges WHERE stock_item_id = :stockItemId " +
+                   "ORDER BY prefix, digits, range_start FOR UPDATE", nativeQuery = true)
+    List<SerialRange> lockByStockItemId(@Param("stockItemId") Long stockItemId);
+
+    // Advisory lock on one serial series (prefix, digits) until the transaction ends, so two
+    // deliveries cannot both pass the conflict checks for the same serials before either inserts
+    @Query(value = "SELECT count(*) FROM pg_advisory_xact_lock(hashtext(:prefix), :digits)", nativeQuery = true)
+    long lockSeries(@Param("prefix") String prefix, @Param("digits") int digits);
+
+    @Query("SELECT r FROM SerialRange r WHERE r.prefix = :prefix AND r.digits = :digits " +
+           "AND r.rangeStart <= :end AND r.rangeEnd >= :start")
+    List<SerialRange> findOverlapping(@Param("prefix") String prefix,
+                                      @Param("digits") int digits,
+                                      @Param("start") long start,
+                                      @Param("end") long end);
+
+    @Query("SELECT r FROM SerialRange r JOIN FETCH r.stockItem si JOIN FETCH si.product LEFT JOIN FETCH r.purchase " +
+           "WHERE si.branch.id = :branchId ORDER BY si.product.name, r.prefix, r.rangeStart")
+    List<SerialRange> findByBranchId(@Param("branchId") Long branchId);
+
+    @Query("SELECT r FROM SerialRange r JOIN FETCH r.stockItem si JOIN FETCH si.product JOIN FETCH si.branch " +
+           "LEFT JOIN FETCH r.purchase WHERE si.product.id = :productId AND si.branch.id = :branchId " +
+           "ORDER BY r.prefix, r.digits, r.rangeStart")
+    List<SerialRange> findByProductIdAndBranchId(@Param("productId") Long productId, @Param("branchId") Long branchId);
+
+    // [prefix, digits, rangeStart, rangeEnd, stockItemId] for the in-memory serial search index
+    @Query("SELECT r.prefix, r.digits, r.rangeStart, r.rangeEnd, r.stockItem.id FROM SerialRange r " +
+           "WHERE r.stockItem.branch.id = :branchId ORDER BY r.prefix, r.digits, r.rangeStart")
+    List<Object[]> findIndexRowsByBranch(@Param("branchId") Long branchId);
+
+    @Query("SELECT COALESCE(SUM(r.rangeEnd - r.rangeStart + 1), 0) FROM SerialRange r WHERE r.stockItem.branch.id = :branchId")
+    long countSerialsByBranchId(@Param("branchId") Long branchId);
+}
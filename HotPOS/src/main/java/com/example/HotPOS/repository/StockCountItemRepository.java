@@ -0,0 +1,19 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.StockCountItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockCountItemRepository extends JpaRepository<StockCountItem, Long>, StockCountItemRepositoryCustom {
+
+    // Snapshot rows with their product in one query (no per-row lazy loads)
+    @Query("SELECT i FROM StockCountItem i JOIN FETCH i.product WHERE i.stockCount.id = :stockCountId")
+    List<StockCountItem> findWithProductByStockCountId(@Param("stockCountId") Long stockCountId);
+
+    long countByStockCountIdAndCountedQuantityIsNotNull(Long stockCountId);
+}
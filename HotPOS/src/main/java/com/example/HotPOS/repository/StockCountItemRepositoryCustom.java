@@ -0,0 +1,12 @@
+package com.example.HotPOS.repository;
+
+import java.util.Map;
+
+public interface StockCountItemRepositoryCustom {
+
+    /**
+     * Adds one scan batch (product id to quantity) to a count's counted quantities in one
+     * statement. Products without a line get one with a zero snapshot.
+     */
+    void addCounts(Long stockCountId, Map<Long, Integer> quantities);
+}
@@ -0,0 +1,30 @@
+package com.example.HotPOS.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StockCountItemRepositoryImpl implements StockCountItemRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addCounts(Long stockCountId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // Both columns are bound as arrays, so a batch of any size is one statement
+        jdbcTemplate.update(
+                "INSERT INTO stock_count_items (stock_count_id, product_id, snapshot_quantity, counted_quantity) " +
+                "SELECT ?, t.product_id, 0, t.quantity FROM unnest(?, ?) AS t(product_id, quantity) " +
+                "ON CONFLICT (stock_count_id, product_id) DO UPDATE " +
+                "SET counted_quantity = COALESCE(stock_count_items.counted_quantity, 0) + EXCLUDED.counted_quantity",
+                ps -> {
+                    ps.setLong(1, stockCountId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", quantities.keySet().toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer", quantities.values().toArray()));
+                });
+    }
+}
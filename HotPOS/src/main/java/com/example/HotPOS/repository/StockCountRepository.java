@@ -0,0 +1,31 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.StockCount;
+import com.example.HotPOS.enums.StockCountStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockCountRepository extends JpaRepository<StockCount, Long> {
+
+    List<StockCount> findByBranchIdOrderByStartedAtDesc(Long branchId);
+
+    List<StockCount> findByStatus(StockCountStatus status);
+
+    // Scan batches share the count row; posting or cancelling takes it exclusively, so no batch
+    // lands after the count has been posted
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT c FROM StockCount c WHERE c.id = :id")
+    Optional<StockCount> findForShareById(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM StockCount c WHERE c.id = :id")
+    Optional<StockCount> lockById(@Param("id") Long id);
+}
@@ -1,16 +1,26 @@
 package com.example.HotPOS.repository;
 
+import com.example.HotPOS.dto.StockItemDTO;
 import com.example.HotPOS.entity.StockItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StockItemRepository extends JpaRepository<StockItem, Long> {
+public interface StockItemRepository extends JpaRepository<StockItem, Long>, StockItemRepositoryCustom {
+
+    // Projection straight into StockItemDTO - one query, no lazy loads of branch/product/category
+    String STOCK_DTO_SELECT = "SELECT new com.example.HotPOS.dto.StockItemDTO(" +
+            "s.id, b.id, b.name, p.id, p.name, p.sku, s.quantity, s.costPrice, " +
+            "COALESCE(p.sellingPrice, s.sellingPrice), p.reorderLevel, s.lastStockDate, c.name, p.requiresSerial) " +
+            "FROM StockItem s JOIN s.branch b JOIN s.product p LEFT JOIN p.category c";
     
     Optional<StockItem> findByProductIdAndBranchId(Long productId, Long branchId);
     
@@ -45,4 +55,68 @@ public interface StockItemRepository extends JpaRepository<StockItem, Long> {
     Long countLowStockItemsByBranch(@Param("branchId") Long branchId);
 
     Long countByBranchId(Long branchId);
+
+    @Query(STOCK_DTO_SELECT + " WHERE b.id = :branchId")
+    List<StockItemDTO> findDTOsByBranchId(@Param("branchId") Long branchId);
+
+    @Query(STOCK_DTO_SELECT + " WHERE b.id = :branchId AND s.quantity <= p.reorderLevel")
+    List<StockItemDTO> findLowStockDTOsByBranchId(@Param("branchId") Long branchId);
+
+    // Product price changes are included because the DTO's selling price comes from the product
+    @Query(STOCK_DTO_SELECT + " WHERE b.id = :branchId AND (s.updatedAt > :since OR p.updatedAt > :since)")
+    List<StockItemDTO> findDTOsChangedSince(@Param("branchId") Long branchId, @Param("since") LocalDateTime since);
+
+    @Query("SELECT MAX(s.updatedAt) FROM StockItem s WHERE s.branch.id = :branchId")
+    LocalDateTime findMaxUpdatedAtByBranch(@Param("branchId") Long branchId);
+
+    // [productId, available quantity, branch selling price] for the catalog snapshot; shard allowances
+    // not yet consolidated are taken off as getAvailableQuantity does
+    @Query("SELECT s.product.id, s.quantity - COALESCE((SELECT SUM(sh.allocated - sh.quantity) FROM StockShard sh " +
+           "WHERE sh.stockItem = s), 0), s.sellingPrice FROM StockItem s WHERE s.branch.id = :branchId ORDER BY s.product.id")
+    List<Object[]> findCatalogRowsByBranchId(@Param("branchId") Long branchId);
+
+    // [stockItemId, branchId, branchName, productId, productName, productSku]
+    @Query("SELECT s.id, b.id, b.name, p.id, p.name, p.sku FROM StockItem s JOIN s.branch b JOIN s.product p WHERE b.id = :branchId")
+    List<Object[]> findRefsByBranchId(@Param("branchId") Long branchId);
+
+    @Query("SELECT s.id, b.id, b.name, p.id, p.name, p.sku FROM StockItem s JOIN s.branch b JOIN s.product p WHERE s.id = :id")
+    List<Object[]> findRefById(@Param("id") Long id);
+
+    // Locks the row and reads the committed quantity, bypassing any managed copy
+    @Query(value = "SELECT quantity FROM stock_items WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Integer lockQuantity(@Param("id") Long id);
+
+    // Reads the committed quantity without locking the row
+    @Query(value = "SELECT quantity FROM stock_items WHERE id = :id", nativeQuery = true)
+    Integer readQuantity(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE StockItem s SET s.quantity = :quantity, s.updatedAt = :now WHERE s.id = :id")
+    int setQuantity(@Param("id") Long id, @Param("quantity") Integer quantity, @Param("now") LocalDateTime now);
+
+    // Folds the units sold from shards into the stock rows, for rows the caller has locked
+    @Modifying
+    @Query(value = "UPDATE stock_items si SET quantity = si.quantity - p.pending, updated_at = :now " +
+                   "FROM (SELECT stock_item_id, SUM(allocated - quantity) AS pending FROM stock_shards " +
+                   "WHERE stock_item_id IN (:ids) GROUP BY stock_item_id) p " +
+                   "WHERE si.id = p.stock_item_id AND p.pending <> 0", nativeQuery = true)
+    int foldPendingShardUnits(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // [stockItemId, shardCount] for every stock row of a sharded product
+    @Query("SELECT s.id, p.stockShards FROM StockItem s JOIN s.product p WHERE p.stockShards > 0")
+    List<Object[]> findShardedStockItems();
+
+    List<StockItem> findByBranchIdAndProductIdIn(Long branchId, Collection<Long> productIds);
+
+    // Locks the rows in id order, so callers touching overlapping rows always acquire them in the same sequence
+    @Query(value = "SELECT * FROM stock_items WHERE branch_id IN (:branchIds) AND product_id IN (:productIds) " +
+                   "ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<StockItem> lockByBranchIdInAndProductIdIn(@Param("branchIds") Collection<Long> branchIds,
+                                                   @Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT s FROM StockItem s JOIN FETCH s.product WHERE s.branch.id = :branchId")
+    List<StockItem> findWithProductByBranchId(@Param("branchId") Long branchId);
+
+    @Query("SELECT s FROM StockItem s JOIN FETCH s.product p WHERE s.branch.id = :branchId AND p.category.id = :categoryId")
+    List<StockItem> findWithProductByBranchIdAndCategoryId(@Param("branchId") Long branchId, @Param("categoryId") Long categoryId);
 }
@@ -0,0 +1,34 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.StockItemDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public interface StockItemRepositoryCustom {
+
+    record ImportRow(Long branchId, Long productId, int quantity, BigDecimal costPrice, BigDecimal sellingPrice) {
+    }
+
+    /**
+     * Keyset page of a branch's stock as DTO projections. Rows strictly after
+     * ({@code afterValue}, {@code afterId}) in the requested order are returned.
+     */
+    List<StockItemDTO> findStockPage(Long branchId, Long categoryId, boolean includeSubcategories,
+                                     String search, boolean lowStockOnly,
+                                     Boolean requiresSerial, String sortField, boolean descending,
+                                     Object afterValue, Long afterId, int limit);
+
+    /**
+     * Creates empty stock rows at a branch for the given products (product id to cost price) in one
+     * statement, skipping products that already have one.
+     */
+    void insertMissing(Long branchId, Map<Long, BigDecimal> costByProduct);
+
+    /**
+     * Sets stock quantities from an import with JDBC batches, creating missing stock rows. A null
+     * cost or selling price keeps the row's current one (a new row gets a cost of zero).
+     */
+    void upsertImported(List<ImportRow> rows);
+}
@@ -0,0 +1,126 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.dto.StockItemDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StockItemRepositoryImpl implements StockItemRepositoryCustom {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "name", "p.name",
+            "sku", "p.sku",
+            "quantity", "s.quantity"
+    );
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<StockItemDTO> findStockPage(Long branchId, Long categoryId, boolean includeSubcategories,
+                                            String search, boolean lowStockOnly,
+                                            Boolean requiresSerial, String sortField, boolean descending,
+                                            Object afterValue, Long afterId, int limit) {
+        String sortColumn = SORT_COLUMNS.getOrDefault(sortField, "p.name");
+        String cmp = descending ? "<" : ">";
+        String dir = descending ? "DESC" : "ASC";
+
+        StringBuilder jpql = new StringBuilder(StockItemRepository.STOCK_DTO_SELECT)
+                .append(" WHERE s.branch.id = :branchId");
+        if (categoryId != null && includeSubcategories) {
+            jpql.append(" AND c.id IN (SELECT cc.descendant.id FROM CategoryClosure cc WHERE cc.ancestor.id = :categoryId)");
+        } else if (categoryId != null) {
+            jpql.append(" AND c.id = :categoryId");
+        }
+        if (search != null) {
+            jpql.append(" AND (LOWER(p.name) LIKE :search OR LOWER(p.sku) LIKE :search)");
+        }
+        if (lowStockOnly) {
+            jpql.append(" AND s.quantity <= p.reorderLevel");
+        }
+        if (requiresSerial != null) {
+            jpql.append(" AND p.requiresSerial = :requiresSerial");
+        }
+        if (afterId != null) {
+            jpql.append(" AND (").append(sortColumn).append(' ').append(cmp).append(" :afterValue OR (")
+                    .append(sortColumn).append(" = :afterValue AND s.id ").append(cmp).append(" :afterId))");
+        }
+        jpql.append(" ORDER BY ").append(sortColumn).append(' ').append(dir).append(", s.id ").append(dir);
+
+        TypedQuery<StockItemDTO> query = entityManager.createQuery(jpql.toString(), StockItemDTO.class)
+                .setParameter("branchId", branchId)
+                .setMaxResults(limit);
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (search != null) {
+            query.setParameter("search", "%" + search.toLowerCase() + "%");
+        }
+        if (requiresSerial != null) {
+            query.setParameter("requiresSerial", requiresSerial);
+        }
+        if (afterId != null) {
+            query.setParameter("afterValue", afterValue);
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public void insertMissing(Long branchId, Map<Long, BigDecimal> costByProduct) {
+        if (costByProduct.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Both columns are bound as arrays, so any number of products is one statement
+        jdbcTemplate.update(
+                "INSERT INTO stock_items (branch_id, product_id, quantity, cost_price, created_at, updated_at) " +
+                "SELECT ?, t.product_id, 0, t.cost_price, ?, ? FROM unnest(?, ?) AS t(product_id, cost_price) " +
+                "ON CONFLICT (product_id, branch_id) DO NOTHING",
+                ps -> {
+                    ps.setLong(1, branchId);
+                    ps.setTimestamp(2, now);
+                    ps.setTimestamp(3, now);
+                    ps.setArray(4, ps.getConnection().createArrayOf("bigint", costByProduct.keySet().toArray()));
+                    ps.setArray(5, ps.getConnection().createArrayOf("numeric", costByProduct.values().toArray()));
+                });
+    }
+
+    @Override
+    public void upsertImported(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_items (branch_id, product_id, quantity, cost_price, selling_price, last_stock_date, " +
+                "created_at, updated_at) VALUES (?, ?, ?, COALESCE(?, 0), ?, ?, ?, ?) " +
+                "ON CONFLICT (product_id, branch_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+                "cost_price = COALESCE(?, stock_items.cost_price), " +
+                "selling_price = COALESCE(EXCLUDED.selling_price, stock_items.selling_price), " +
+                "last_stock_date = EXCLUDED.last_stock_date, updated_at = EXCLUDED.updated_at",
+                rows,
+                INSERT_BATCH_SIZE,
+                (ps, row) -> {
+                    ps.setLong(1, row.branchId());
+                    ps.setLong(2, row.productId());
+                    ps.setInt(3, row.quantity());
+                    ps.setBigDecimal(4, row.costPrice());
+                    ps.setBigDecimal(5, row.sellingPrice());
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                    ps.setTimestamp(8, now);
+                    ps.setBigDecimal(9, row.costPrice());
+                });
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.StockShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockShardRepository extends JpaRepository<StockShard, Long> {
+
+    List<StockShard> findByStockItemIdOrderByShardIndex(Long stockItemId);
+
+    // Takes units from one shard only if it can cover them; returns the number of rows updated
+    @Modifying
+    @Query("UPDATE StockShard s SET s.quantity = s.quantity - :quantity " +
+           "WHERE s.stockItem.id = :stockItemId AND s.shardIndex = :shardIndex AND s.quantity >= :quantity")
+    int take(@Param("stockItemId") Long stockItemId, @Param("shardIndex") Integer shardIndex,
+             @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("UPDATE StockShard s SET s.allocated = :quantity, s.quantity = :quantity " +
+           "WHERE s.stockItem.id = :stockItemId AND s.shardIndex = :shardIndex")
+    int reset(@Param("stockItemId") Long stockItemId, @Param("shardIndex") Integer shardIndex,
+              @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("DELETE FROM StockShard s WHERE s.stockItem.id = :stockItemId AND s.shardIndex >= :shardCount")
+    int deleteExtraShards(@Param("stockItemId") Long stockItemId, @Param("shardCount") Integer shardCount);
+
+    // Locks the shard rows of a stock item in index order
+    @Query(value = "SELECT shard_index FROM stock_shards WHERE stock_item_id = :stockItemId " +
+                   "ORDER BY shard_index FOR UPDATE", nativeQuery = true)
+    List<Integer> lockShardIndexes(@Param("stockItemId") Long stockItemId);
+
+    // [shard_index, allocated, quantity] of every shard of a stock item, locked in index order
+    @Query(value = "SELECT shard_index, allocated, quantity FROM stock_shards WHERE stock_item_id = :stockItemId " +
+                   "ORDER BY shard_index FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockShards(@Param("stockItemId") Long stockItemId);
+
+    @Modifying
+    @Query("UPDATE StockShard s SET s.allocated = :allocated, s.quantity = :quantity " +
+           "WHERE s.stockItem.id = :stockItemId AND s.shardIndex = :shardIndex")
+    int setShard(@Param("stockItemId") Long stockItemId, @Param("shardIndex") Integer shardIndex,
+                 @Param("allocated") Integer allocated, @Param("quantity") Integer quantity);
+
+    // Creates empty shards for a stock row that has none yet (e.g. stock received after sharding was enabled)
+    @Modifying
+    @Query(value = "INSERT INTO stock_shards (stock_item_id, shard_index, allocated, quantity, updated_at) " +
+                   "SELECT :stockItemId, i, 0, 0, now() FROM generate_series(0, :shardCount - 1) i " +
+                   "ON CONFLICT (stock_item_id, shard_index) DO NOTHING", nativeQuery = true)
+    int insertMissing(@Param("stockItemId") Long stockItemId, @Param("shardCount") Integer shardCount);
+
+    @Modifying
+    @Query("UPDATE StockShard s SET s.allocated = 0, s.quantity = 0 WHERE s.stockItem.id IN :stockItemIds")
+    int empty(@Param("stockItemIds") Collection<Long> stockItemIds);
+
+    @Query("SELECT COALESCE(SUM(s.allocated - s.quantity), 0) FROM StockShard s WHERE s.stockItem.id = :stockItemId")
+    Long getPendingQuantity(@Param("stockItemId") Long stockItemId);
+
+    @Query("SELECT COALESCE(SUM(s.allocated), 0) FROM StockShard s WHERE s.stockItem.id = :stockItemId")
+    Long getAllocatedQuantity(@Param("stockItemId") Long stockItemId);
+}
@@ -25,4 +25,19 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
            "LOWER(s.contactPerson) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
            "LOWER(s.phone) LIKE LOWER(CONCAT('%', :search, '%')))")
     List<Supplier> searchSuppliers(@Param("search") String search);
+
+    // Served by the trigram indexes of SearchIndexMigration; ranked as the customer search
+    @Query(value = "SELECT s.* FROM suppliers s WHERE s.is_active = true AND (" +
+                   "    :text <% lower(s.name) OR lower(s.name) LIKE :pattern OR lower(s.contact_person) LIKE :pattern " +
+                   "    OR (:digitsPattern <> '' AND s.phone_digits LIKE :digitsPattern)) " +
+                   "ORDER BY (lower(s.name) = :text OR (:digitsPattern <> '' AND s.phone_digits = :digits)) DESC, " +
+                   "    GREATEST(word_similarity(:text, lower(s.name)), " +
+                   "             word_similarity(:text, lower(coalesce(s.contact_person, ''))), " +
+                   "             CASE WHEN :digitsPattern <> '' AND s.phone_digits LIKE :digitsPattern " +
+                   "                  THEN CAST(length(:digits) AS float) / greatest(length(s.phone_digits), 1) ELSE 0 END) DESC, " +
+                   "    s.name, s.id " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<Supplier> searchRanked(@Param("text") String text, @Param("pattern") String pattern,
+                                @Param("digits") String digits, @Param("digitsPattern") String digitsPattern,
+                                @Param("limit") int limit);
 }
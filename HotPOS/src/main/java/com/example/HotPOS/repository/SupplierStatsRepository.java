@@ -0,0 +1,119 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.SupplierStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SupplierStatsRepository extends JpaRepository<SupplierStats, Long> {
+
+    String STATS_COLUMNS = "supplier_id, purchase_count, purchased_amount, purchased_units, received_count, " +
+            "received_units, lead_time_seconds, return_count, returned_units, returned_amount, priced_lines, " +
+            "price_change_total, updated_at";
+
+    // Suppliers with no stats yet are listed with empty stats
+    @Query("SELECT s, st FROM Supplier s LEFT JOIN SupplierStats st ON st.supplier = s " +
+           "WHERE (:supplierId IS NULL OR s.id = :supplierId) ORDER BY s.name, s.id")
+    List<Object[]> findScorecards(@Param("supplierId") Long supplierId);
+
+    @Modifying
+    @Query(value = "INSERT INTO supplier_stats (" + STATS_COLUMNS + ") " +
+                   "SELECT s.id, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, now() FROM suppliers s WHERE s.id IN (:supplierIds) " +
+                   "ON CONFLICT (supplier_id) DO NOTHING", nativeQuery = true)
+    int insertMissing(@Param("supplierIds") Collection<Long> supplierIds);
+
+    // Adds a new purchase; lines are compared with the supplier's last price for the product
+    // before recordPrices moves it
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE supplier_stats st SET purchase_count = st.purchase_count + 1, " +
+                   "purchased_amount = st.purchased_amount + p.grand_total, " +
+                   "purchased_units = st.purchased_units + x.units, " +
+                   "priced_lines = st.priced_lines + x.priced, " +
+                   "price_change_total = st.price_change_total + x.change, updated_at = now() " +
+                   "FROM purchases p, (SELECT COALESCE(SUM(i.quantity), 0) AS units, COUNT(sp.id) AS priced, " +
+                   "       COALESCE(SUM((i.unit_cost - sp.last_unit_cost) / sp.last_unit_cost), 0) AS change " +
+                   "    FROM purchase_items i JOIN purchases pi ON pi.id = i.purchase_id " +
+                   "    LEFT JOIN supplier_product_prices sp ON sp.supplier_id = pi.supplier_id " +
+                   "        AND sp.product_id = i.product_id AND i.unit_cost > 0 " +
+                   "    WHERE i.purchase_id = :purchaseId) x " +
+                   "WHERE p.id = :purchaseId AND st.supplier_id = p.supplier_id", nativeQuery = true)
+    int recordPurchase(@Param("purchaseId") Long purchaseId);
+
+    @Modifying
+    @Query(value = "INSERT INTO supplier_product_prices (supplier_id, product_id, first_unit_cost, last_unit_cost, updated_at) " +
+                   "SELECT DISTINCT ON (i.product_id) p.supplier_id, i.product_id, i.unit_cost, i.unit_cost, now() " +
+                   "FROM purchase_items i JOIN purchases p ON p.id = i.purchase_id " +
+                   "WHERE i.purchase_id = :purchaseId AND i.unit_cost > 0 " +
+                   "ORDER BY i.product_id, i.id DESC " +
+                   "ON CONFLICT (supplier_id, product_id) DO UPDATE " +
+                   "SET last_unit_cost = EXCLUDED.last_unit_cost, updated_at = now()", nativeQuery = true)
+    int recordPrices(@Param("purchaseId") Long purchaseId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE supplier_stats st SET received_count = st.received_count + 1, " +
+                   "received_units = st.received_units + " +
+                   "    (SELECT COALESCE(SUM(i.quantity), 0) FROM purchase_items i WHERE i.purchase_id = p.id), " +
+                   "lead_time_seconds = st.lead_time_seconds + " +
+                   "    GREATEST(CAST(EXTRACT(EPOCH FROM (:receivedAt - p.created_at)) AS bigint), 0), " +
+                   "updated_at = now() " +
+                   "FROM purchases p WHERE p.id = :purchaseId AND st.supplier_id = p.supplier_id", nativeQuery = true)
+    int recordReceipt(@Param("purchaseId") Long purchaseId, @Param("receivedAt") LocalDateTime receivedAt);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE supplier_stats st SET return_count = st.return_count + r.returns, " +
+                   "returned_units = st.returned_units + r.units, " +
+                   "returned_amount = st.returned_amount + r.amount, updated_at = now() " +
+                   "FROM (SELECT rt.supplier_id, COUNT(*) AS returns, SUM(rt.total_amount) AS amount, " +
+                   "       SUM((SELECT COALESCE(SUM(ri.quantity), 0) FROM return_items ri WHERE ri.return_id = rt.id)) AS units " +
+                   "    FROM returns rt WHERE rt.id IN (:returnIds) GROUP BY rt.supplier_id) r " +
+                   "WHERE st.supplier_id = r.supplier_id", nativeQuery = true)
+    int recordReturns(@Param("returnIds") Collection<Long> returnIds);
+
+    // Rebuilds every supplier's stats from history. Purchases received before the stats existed
+    // have no receipt time, so their last update stands in for it
+    @Modifying
+    @Query(value = "INSERT INTO supplier_stats (" + STATS_COLUMNS + ") " +
+                   "SELECT s.id, COALESCE(pu.purchases, 0), COALESCE(pu.amount, 0), COALESCE(pu.units, 0), " +
+                   "       COALESCE(pu.received, 0), COALESCE(pu.received_units, 0), COALESCE(pu.lead_time, 0), " +
+                   "       COALESCE(rt.returns, 0), COALESCE(rt.units, 0), COALESCE(rt.amount, 0), " +
+                   "       COALESCE(pr.priced, 0), COALESCE(pr.change, 0), now() " +
+                   "FROM suppliers s " +
+                   "LEFT JOIN (SELECT p.supplier_id, COUNT(*) AS purchases, SUM(p.grand_total) AS amount, " +
+                   "       SUM(u.units) AS units, COUNT(*) FILTER (WHERE p.status = 'RECEIVED') AS received, " +
+                   "       SUM(u.units) FILTER (WHERE p.status = 'RECEIVED') AS received_units, " +
+                   "       SUM(GREATEST(CAST(EXTRACT(EPOCH FROM (p.updated_at - p.created_at)) AS bigint), 0)) " +
+                   "           FILTER (WHERE p.status = 'RECEIVED') AS lead_time " +
+                   "    FROM purchases p CROSS JOIN LATERAL (SELECT COALESCE(SUM(i.quantity), 0) AS units " +
+                   "        FROM purchase_items i WHERE i.purchase_id = p.id) u " +
+                   "    GROUP BY p.supplier_id) pu ON pu.supplier_id = s.id " +
+                   "LEFT JOIN (SELECT r.supplier_id, COUNT(*) AS returns, SUM(r.total_amount) AS amount, " +
+                   "       SUM((SELECT COALESCE(SUM(ri.quantity), 0) FROM return_items ri WHERE ri.return_id = r.id)) AS units " +
+                   "    FROM returns r WHERE r.status = 'APPROVED' GROUP BY r.supplier_id) rt ON rt.supplier_id = s.id " +
+                   "LEFT JOIN (SELECT supplier_id, COUNT(previous) AS priced, " +
+                   "       COALESCE(SUM((unit_cost - previous) / previous), 0) AS change " +
+                   "    FROM (SELECT p.supplier_id, i.unit_cost, LAG(i.unit_cost) OVER " +
+                   "            (PARTITION BY p.supplier_id, i.product_id ORDER BY p.created_at, i.id) AS previous " +
+                   "        FROM purchase_items i JOIN purchases p ON p.id = i.purchase_id WHERE i.unit_cost > 0) l " +
+                   "    GROUP BY supplier_id) pr ON pr.supplier_id = s.id", nativeQuery = true)
+    int insertFromHistory();
+
+    @Modifying
+    @Query(value = "INSERT INTO supplier_product_prices (supplier_id, product_id, first_unit_cost, last_unit_cost, updated_at) " +
+                   "SELECT p.supplier_id, i.product_id, " +
+                   "       (ARRAY_AGG(i.unit_cost ORDER BY p.created_at, i.id))[1], " +
+                   "       (ARRAY_AGG(i.unit_cost ORDER BY p.created_at DESC, i.id DESC))[1], now() " +
+                   "FROM purchase_items i JOIN purchases p ON p.id = i.purchase_id WHERE i.unit_cost > 0 " +
+                   "GROUP BY p.supplier_id, i.product_id", nativeQuery = true)
+    int insertPricesFromHistory();
+
+    @Modifying
+    @Query(value = "DELETE FROM supplier_product_prices", nativeQuery = true)
+    int deleteAllPrices();
+}
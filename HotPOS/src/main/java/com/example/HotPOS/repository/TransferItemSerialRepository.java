@@ -0,0 +1,42 @@
+package com.example.HotPOS.repository;
+
+import com.example.HotPOS.entity.TransferItemSerial;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.enums.TransferStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TransferItemSerialRepository extends JpaRepository<TransferItemSerial, Long> {
+
+    // [transferItemId, serialNumber] for every serial recorded on the given transfers
+    @Query("SELECT tis.transferItem.id, sn.serialNumber FROM TransferItemSerial tis JOIN tis.serialNumber sn " +
+           "WHERE tis.transferItem.transfer.id IN :transferIds ORDER BY sn.serialNumber")
+    List<Object[]> findSerialNumbersByTransferIds(@Param("transferIds") Collection<Long> transferIds);
+
+    @Query("SELECT COUNT(tis) FROM TransferItemSerial tis WHERE tis.transferItem.transfer.id = :transferId")
+    long countByTransferId(@Param("transferId") Long transferId);
+
+    // [transferId, count] for the given transfers that have serials recorded
+    @Query("SELECT tis.transferItem.transfer.id, COUNT(tis) FROM TransferItemSerial tis " +
+           "WHERE tis.transferItem.transfer.id IN :transferIds GROUP BY tis.transferItem.transfer.id")
+    List<Object[]> countByTransferIds(@Param("transferIds") Collection<Long> transferIds);
+
+    // [transferId, count] of recorded serials that are no longer in the given status
+    @Query("SELECT tis.transferItem.transfer.id, COUNT(tis) FROM TransferItemSerial tis " +
+           "WHERE tis.transferItem.transfer.id IN :transferIds AND tis.serialNumber.status <> :status " +
+           "GROUP BY tis.transferItem.transfer.id")
+    List<Object[]> countNotInStatusByTransferIds(@Param("transferIds") Collection<Long> transferIds,
+                                                 @Param("status") SerialNumberStatus status);
+
+    // Serials among the given ids already held by another transfer in the given status
+    @Query("SELECT tis.serialNumber.id FROM TransferItemSerial tis " +
+           "WHERE tis.serialNumber.id IN :serialIds AND tis.transferItem.transfer.status = :status")
+    List<Long> findReservedSerialIds(@Param("serialIds") Collection<Long> serialIds,
+                                     @Param("status") TransferStatus status);
+}
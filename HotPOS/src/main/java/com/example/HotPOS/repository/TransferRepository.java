@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +28,17 @@ public interface TransferRepository extends JpaRepository<Transfer, Long> {
     List<Transfer> findByToBranchIdOrderByTransferDateDescCreatedAtDesc(Long toBranchId);
     
     List<Transfer> findByStatus(TransferStatus status);
+
+    boolean existsByStatus(TransferStatus status);
+
+    @Query("SELECT t.id FROM Transfer t WHERE t.id IN :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT * FROM transfers WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Transfer> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT t FROM Transfer t LEFT JOIN FETCH t.items WHERE t.id IN :ids")
+    List<Transfer> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
     
     @Query("SELECT t FROM Transfer t WHERE (t.fromBranch.id = :branchId OR t.toBranch.id = :branchId)")
     List<Transfer> findByBranchId(@Param("branchId") Long branchId);
@@ -0,0 +1,63 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.BatchApprovalResultDTO;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects per-document outcomes for the batch approval endpoints. Ids start as "not found" and
+ * are settled as their documents are processed; the result lists them in request order.
+ */
+class BatchApproval {
+
+    private final Map<Long, BatchApprovalResultDTO.Outcome> outcomes = new LinkedHashMap<>();
+
+    BatchApproval(List<Long> ids) {
+        for (Long id : ids) {
+            outcomes.putIfAbsent(id, new BatchApprovalResultDTO.Outcome(id, null, false, "Document not found"));
+        }
+    }
+
+    Collection<Long> ids() {
+        return outcomes.keySet();
+    }
+
+    void approved(Long id, String documentNumber) {
+        outcomes.put(id, new BatchApprovalResultDTO.Outcome(id, documentNumber, true, null));
+    }
+
+    void failed(Long id, String documentNumber, String message) {
+        outcomes.put(id, new BatchApprovalResultDTO.Outcome(id, documentNumber, false, message));
+    }
+
+    // A group whose transaction rolled back: nothing in it was approved
+    void failedAll(Collection<Long> ids, String message) {
+        for (Long id : ids) {
+            BatchApprovalResultDTO.Outcome outcome = outcomes.get(id);
+            failed(id, outcome != null ? outcome.getDocumentNumber() : null, message);
+        }
+    }
+
+    // [id, count] rows from a grouped count query
+    static Map<Long, Long> countsById(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    BatchApprovalResultDTO result() {
+        List<BatchApprovalResultDTO.Outcome> list = List.copyOf(outcomes.values());
+        int approved = (int) list.stream().filter(BatchApprovalResultDTO.Outcome::getApproved).count();
+        return BatchApprovalResultDTO.builder()
+                .approved(approved)
+                .failed(list.size() - approved)
+                .outcomes(list)
+                .build();
+    }
+}
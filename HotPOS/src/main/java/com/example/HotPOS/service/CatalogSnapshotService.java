@@ -0,0 +1,222 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.CategoryRepository;
+import com.example.HotPOS.repository.ProductRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Whole-catalog snapshot per branch for tills that start up or have fallen too far behind the
+ * change feeds: active categories and products plus the branch's available quantities and
+ * branch prices, as column lists with row arrays rather than one object per row.
+ * <p>
+ * A snapshot is identified by the products, categories and branch stock watermarks it was built
+ * from. Each request only reads those three maxima; when they still match, the stored gzip
+ * bytes are served as they are. Otherwise only the sections whose watermark moved are
+ * re-serialised - the product and category sections are shared by every branch - and the
+ * snapshot is recomposed and compressed once for all the requests that follow.
+ * <p>
+ * A watermark younger than the {@link ChangeFeedWindow} may still have changes stamped before
+ * it committing behind it, so a section read under such a watermark is only used once and read
+ * again by the next request, until its watermark settles.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogSnapshotService {
+
+    private static final List<String> CATEGORY_FIELDS = List.of("id", "parentId", "name");
+    private static final List<String> PRODUCT_FIELDS = List.of(
+            "id", "categoryId", "sku", "name", "unitOfMeasure", "requiresSerial", "reorderLevel", "sellingPrice");
+    // sellingPrice is the branch price; null means the product's own price applies
+    private static final List<String> STOCK_FIELDS = List.of("productId", "quantity", "sellingPrice");
+
+    private final BranchRepository branchRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final StockItemRepository stockItemRepository;
+    private final ObjectMapper objectMapper;
+    private final ChangeFeedWindow changeFeedWindow;
+
+    private volatile Section categories;
+    private volatile Section products;
+    private final Map<Long, Section> stock = new ConcurrentHashMap<>();
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    // complete: the watermark had settled before the rows were read
+    private record Section(LocalDateTime watermark, boolean complete, byte[] json) {}
+
+    private record Watermarks(LocalDateTime categories, LocalDateTime products, LocalDateTime stock) {}
+
+    /**
+     * {@code etag} identifies the identity body and {@code gzipEtag} the compressed one, as the
+     * two are different representations.
+     */
+    public record Snapshot(Watermarks watermarks, boolean complete, String etag, String gzipEtag, byte[] gzip, int size) {
+
+        public byte[] uncompressed() {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public Snapshot getSnapshot(Long branchId) {
+        if (!branchRepository.existsById(branchId)) {
+            throw new ResourceNotFoundException("Branch not found with id: " + branchId);
+        }
+        // Read before the rows, so a change committing mid-build leaves a newer watermark behind
+        // and the next request rebuilds
+        Watermarks current = new Watermarks(
+                categoryRepository.findMaxUpdatedAt(),
+                productRepository.findMaxUpdatedAt(),
+                stockItemRepository.findMaxUpdatedAtByBranch(branchId));
+        return snapshots.compute(branchId, (id, existing) ->
+                existing != null && existing.complete() && existing.watermarks().equals(current)
+                        ? existing : build(id, current));
+    }
+
+    private Snapshot build(Long branchId, Watermarks watermarks) {
+        Section categorySection = categorySection(watermarks.categories());
+        Section productSection = productSection(watermarks.products());
+        Section stockSection = stockSection(branchId, watermarks.stock());
+        byte[] categoryJson = categorySection.json();
+        byte[] productJson = productSection.json();
+        byte[] stockJson = stockSection.json();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream(
+                categoryJson.length + productJson.length + stockJson.length + 128);
+        write(json, "{\"branchId\":" + branchId + ",\"asOf\":");
+        json.writeBytes(toJson(latest(watermarks)));
+        write(json, ",\"categories\":");
+        json.writeBytes(categoryJson);
+        write(json, ",\"products\":");
+        json.writeBytes(productJson);
+        write(json, ",\"stock\":");
+        json.writeBytes(stockJson);
+        write(json, "}");
+        byte[] body = json.toByteArray();
+
+        byte[] gzip = gzip(body);
+        log.info("Built catalog snapshot for branch {}: {} bytes, {} compressed", branchId, body.length, gzip.length);
+        String tag = "catalog-" + branchId + "-" + digest(body);
+        boolean complete = categorySection.complete() && productSection.complete() && stockSection.complete();
+        return new Snapshot(watermarks, complete, "\"" + tag + "\"", "\"" + tag + "-gzip\"", gzip, body.length);
+    }
+
+    private Section categorySection(LocalDateTime watermark) {
+        Section section = categories;
+        if (!isCurrent(section, watermark)) {
+            boolean complete = changeFeedWindow.isSettled(watermark);
+            section = new Section(watermark, complete, table(CATEGORY_FIELDS, categoryRepository.findActiveCatalogRows()));
+            categories = section;
+        }
+        return section;
+    }
+
+    private Section productSection(LocalDateTime watermark) {
+        Section section = products;
+        if (!isCurrent(section, watermark)) {
+            boolean complete = changeFeedWindow.isSettled(watermark);
+            section = new Section(watermark, complete, table(PRODUCT_FIELDS, productRepository.findActiveCatalogRows()));
+            products = section;
+        }
+        return section;
+    }
+
+    private Section stockSection(Long branchId, LocalDateTime watermark) {
+        Section section = stock.get(branchId);
+        if (!isCurrent(section, watermark)) {
+            boolean complete = changeFeedWindow.isSettled(watermark);
+            section = new Section(watermark, complete, table(STOCK_FIELDS, stockItemRepository.findCatalogRowsByBranchId(branchId)));
+            stock.put(branchId, section);
+        }
+        return section;
+    }
+
+    private static boolean isCurrent(Section section, LocalDateTime watermark) {
+        return section != null && section.complete() && Objects.equals(section.watermark(), watermark);
+    }
+
+    private byte[] table(List<String> fields, List<Object[]> rows) {
+        Map<String, Object> table = new LinkedHashMap<>();
+        table.put("fields", fields);
+        table.put("rows", rows);
+        return toJson(table);
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise catalog snapshot", e);
+        }
+    }
+
+    private static LocalDateTime latest(Watermarks watermarks) {
+        LocalDateTime latest = null;
+        for (LocalDateTime value : new LocalDateTime[] {
+                watermarks.categories(), watermarks.products(), watermarks.stock() }) {
+            if (value != null && (latest == null || value.isAfter(latest))) {
+                latest = value;
+            }
+        }
+        return latest;
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Built once per change and served many times, so the slower best-compression level pays off
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Taken from the uncompressed body, so the tag stays the same across restarts and
+    // compression settings for as long as the content does
+    private static String digest(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
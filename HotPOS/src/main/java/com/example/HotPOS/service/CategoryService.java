@@ -1,14 +1,21 @@
 package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.entity.Category;
+import com.example.HotPOS.event.CategoryChangedEvent;
+import com.example.HotPOS.event.ProductChangedEvent;
 import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.CategoryClosureRepository;
 import com.example.HotPOS.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,6 +23,10 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final CategoryTree categoryTree;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeFeedWindow changeFeedWindow;
 
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findAll().stream()
@@ -29,6 +40,33 @@ public class CategoryService {
                 .collect(Collectors.toList());
     }
 
+    public LocalDateTime getCategoriesWatermark() {
+        return categoryRepository.findMaxUpdatedAt();
+    }
+
+    public CategoryTree.Snapshot getCategoryTree() {
+        return categoryTree.get();
+    }
+
+    public ChangesDTO<CategoryDTO> getCategoryChanges(LocalDateTime since) {
+        LocalDateTime watermark = categoryRepository.findMaxUpdatedAt();
+        List<Category> changed = since == null
+                ? categoryRepository.findByIsActiveTrue()
+                : categoryRepository.findByUpdatedAtAfter(changeFeedWindow.since(since));
+
+        return ChangesDTO.<CategoryDTO>builder()
+                .upserts(changed.stream()
+                        .filter(Category::getIsActive)
+                        .map(this::toDTO)
+                        .collect(Collectors.toList()))
+                .deactivatedIds(changed.stream()
+                        .filter(c -> !c.getIsActive())
+                        .map(Category::getId)
+                        .collect(Collectors.toList()))
+                .watermark(watermark != null ? watermark : since)
+                .build();
+    }
+
     public CategoryDTO getCategoryById(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
@@ -37,12 +75,21 @@ public class CategoryService {
 
     @Transactional
     public CategoryDTO createCategory(CategoryDTO dto) {
+        Category parent = null;
+        if (dto.getParentId() != null) {
+            categoryClosureRepository.lockTree();
+            parent = categoryRepository.findById(dto.getParentId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + dto.getParentId()));
+        }
         Category category = Category.builder()
                 .name(dto.getName())
                 .description(dto.getDescription())
+                .parent(parent)
                 .isActive(dto.getIsActive() != null ? dto.getIsActive() : true)
                 .build();
         Category saved = categoryRepository.save(category);
+        categoryClosureRepository.insertCategory(saved.getId(), dto.getParentId());
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId()));
         return toDTO(saved);
     }
 
@@ -58,6 +105,43 @@ public class CategoryService {
         }
         
         Category saved = categoryRepository.save(category);
+        // Product search matches on category names
+        eventPublisher.publishEvent(ProductChangedEvent.category(id));
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+        return toDTO(saved);
+    }
+
+    /**
+     * Moves a category, with everything below it, under another parent, or to the top level when
+     * {@code parentId} is null. Moves run one at a time, so two that would each be valid alone
+     * (A under B and B under A) cannot both pass the cycle check.
+     */
+    @Transactional
+    public CategoryDTO moveCategory(Long id, Long parentId) {
+        categoryClosureRepository.lockTree();
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
+        Category parent = null;
+        if (parentId != null) {
+            parent = categoryRepository.findById(parentId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + parentId));
+            if (categoryClosureRepository.existsByAncestorIdAndDescendantId(id, parentId)) {
+                throw new IllegalStateException(
+                        "Category " + category.getName() + " cannot be moved under itself or one of its subcategories");
+            }
+        }
+        Long currentParentId = category.getParent() != null ? category.getParent().getId() : null;
+        if (Objects.equals(currentParentId, parentId)) {
+            return toDTO(category);
+        }
+
+        category.setParent(parent);
+        Category saved = categoryRepository.save(category);
+        categoryClosureRepository.detachSubtree(id);
+        if (parentId != null) {
+            categoryClosureRepository.attachSubtree(id, parentId);
+        }
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
         return toDTO(saved);
     }
 
@@ -67,6 +151,29 @@ public class CategoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
         category.setIsActive(false);
         categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+    }
+
+    /**
+     * Stamps categories that have no updatedAt with their creation time.
+     *
+     * @return the number of categories stamped
+     */
+    @Transactional
+    public int backfillUpdatedAt() {
+        return categoryRepository.backfillUpdatedAt();
+    }
+
+    /**
+     * Rebuilds the category closure from the parent links.
+     *
+     * @return the number of closure rows written
+     */
+    @Transactional
+    public int rebuildCategoryClosure() {
+        categoryClosureRepository.lockTree();
+        categoryClosureRepository.deleteAllRows();
+        return categoryClosureRepository.insertFromCategories();
     }
 
     private CategoryDTO toDTO(Category category) {
@@ -74,6 +181,7 @@ public class CategoryService {
                 .id(category.getId())
                 .name(category.getName())
                 .description(category.getDescription())
+                .parentId(category.getParent() != null ? category.getParent().getId() : null)
                 .isActive(category.getIsActive())
                 .build();
     }
@@ -0,0 +1,116 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryTreeDTO;
+import com.example.HotPOS.event.CategoryChangedEvent;
+import com.example.HotPOS.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory copy of the active category tree for the frontend's category browser. Categories
+ * are few and change rarely, so the whole tree is rebuilt after every committed
+ * {@link CategoryChangedEvent} and requests in between are served from memory. Changes made on
+ * other nodes raise {@code categories.updated_at} without an event here, so each request also
+ * compares the table's watermark with the tree's and rebuilds when they differ. An inactive
+ * category hides everything below it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryTree {
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * The tree as of {@code watermark}, the latest category change it includes.
+     */
+    public record Snapshot(LocalDateTime watermark, List<CategoryTreeDTO> roots) {}
+
+    public Snapshot get() {
+        LocalDateTime watermark = categoryRepository.findMaxUpdatedAt();
+        Snapshot current = snapshot;
+        return current != null && Objects.equals(current.watermark(), watermark) ? current : refresh(watermark);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        load();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        reload();
+    }
+
+    private synchronized Snapshot load() {
+        return snapshot != null ? snapshot : reload();
+    }
+
+    // Requests that saw the same newer watermark wait here and reuse the first one's rebuild
+    private synchronized Snapshot refresh(LocalDateTime watermark) {
+        Snapshot current = snapshot;
+        return current != null && Objects.equals(current.watermark(), watermark) ? current : reload();
+    }
+
+    private synchronized Snapshot reload() {
+        // Read before the rows, so the watermark never claims a change the tree does not have
+        LocalDateTime watermark = categoryRepository.findMaxUpdatedAt();
+        List<Object[]> rows = categoryRepository.findTreeRows();
+
+        Map<Long, CategoryTreeDTO> nodes = new HashMap<>();
+        for (Object[] row : rows) {
+            if (Boolean.TRUE.equals(row[4])) {
+                Long id = (Long) row[0];
+                nodes.put(id, CategoryTreeDTO.builder()
+                        .id(id)
+                        .parentId((Long) row[1])
+                        .name((String) row[2])
+                        .description((String) row[3])
+                        .build());
+            }
+        }
+        // Rows come sorted by name, so children end up in name order too
+        List<CategoryTreeDTO> roots = new ArrayList<>();
+        for (Object[] row : rows) {
+            CategoryTreeDTO node = nodes.get((Long) row[0]);
+            if (node == null) {
+                continue;
+            }
+            if (node.getParentId() == null) {
+                roots.add(node);
+            } else {
+                CategoryTreeDTO parent = nodes.get(node.getParentId());
+                if (parent != null) {
+                    parent.getChildren().add(node);
+                }
+            }
+        }
+        setDepth(roots, 0);
+
+        Snapshot built = new Snapshot(watermark, roots);
+        snapshot = built;
+        log.info("Loaded category tree: {} active categories under {} roots", nodes.size(), roots.size());
+        return built;
+    }
+
+    // Nodes under an inactive parent are never reached here and stay out of the tree
+    private static void setDepth(List<CategoryTreeDTO> nodes, int depth) {
+        for (CategoryTreeDTO node : nodes) {
+            node.setDepth(depth);
+            setDepth(node.getChildren(), depth + 1);
+        }
+    }
+}
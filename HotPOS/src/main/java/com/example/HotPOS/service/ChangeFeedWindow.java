@@ -0,0 +1,35 @@
+package com.example.HotPOS.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Overlap applied by the delta sync feeds. updated_at is stamped when a row is flushed, not when
+ * its transaction commits, so a change can become visible after rows stamped later than it and
+ * fall behind a watermark a client already holds. The feeds therefore re-send everything stamped
+ * within the window before {@code since} (clients upsert by id, so repeats are harmless), and a
+ * watermark younger than the window is not handed out as an ETag, so a change still committing
+ * behind it cannot later be answered with 304 Not Modified. Those ETags are weak: they name the
+ * watermark a response is current to, not its bytes, which also depend on {@code since}.
+ */
+@Component
+public class ChangeFeedWindow {
+
+    private final Duration overlap;
+
+    public ChangeFeedWindow(@Value("${hotpos.sync.overlap-seconds:60}") long overlapSeconds) {
+        this.overlap = Duration.ofSeconds(overlapSeconds);
+    }
+
+    public LocalDateTime since(LocalDateTime since) {
+        return since != null ? since.minus(overlap) : null;
+    }
+
+    // True once no transaction still in flight can commit a change stamped at or before the watermark
+    public boolean isSettled(LocalDateTime watermark) {
+        return watermark == null || watermark.isBefore(LocalDateTime.now().minus(overlap));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.HotPOS.service;
 
+import com.example.HotPOS.config.SearchIndexMigration;
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.dto.CustomerDTO;
 import com.example.HotPOS.entity.Customer;
 import com.example.HotPOS.exception.ResourceNotFoundException;
@@ -8,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,6 +19,10 @@ import java.util.stream.Collectors;
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final SearchIndexMigration searchIndexMigration;
+    private final ChangeFeedWindow changeFeedWindow;
+
+    private static final int MAX_SEARCH_RESULTS = 100;
 
     public List<CustomerDTO> getAllCustomers() {
         return customerRepository.findAll().stream()
@@ -29,12 +36,43 @@ public class CustomerService {
                 .collect(Collectors.toList());
     }
 
-    public List<CustomerDTO> searchCustomers(String search) {
-        return customerRepository.searchCustomers(search).stream()
+    public List<CustomerDTO> searchCustomers(String search, int limit) {
+        List<Customer> customers;
+        if (searchIndexMigration.isApplied()) {
+            SearchTerm term = SearchTerm.of(search);
+            customers = customerRepository.searchRanked(term.text(), term.pattern(),
+                    term.digits(), term.digitsPattern(), Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS));
+        } else {
+            customers = customerRepository.searchCustomers(search);
+        }
+        return customers.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    public LocalDateTime getCustomersWatermark() {
+        return customerRepository.findMaxUpdatedAt();
+    }
+
+    public ChangesDTO<CustomerDTO> getCustomerChanges(LocalDateTime since) {
+        LocalDateTime watermark = customerRepository.findMaxUpdatedAt();
+        List<Customer> changed = since == null
+                ? customerRepository.findByIsActiveTrue()
+                : customerRepository.findByUpdatedAtAfter(changeFeedWindow.since(since));
+
+        return ChangesDTO.<CustomerDTO>builder()
+                .upserts(changed.stream()
+                        .filter(Customer::getIsActive)
+                        .map(this::toDTO)
+                        .collect(Collectors.toList()))
+                .deactivatedIds(changed.stream()
+                        .filter(c -> !c.getIsActive())
+                        .map(Customer::getId)
+                        .collect(Collectors.toList()))
+                .watermark(watermark != null ? watermark : since)
+                .build();
+    }
+
     public CustomerDTO getCustomerById(Long id) {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found with id: " + id));
@@ -0,0 +1,120 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.enums.DocumentType;
+import com.example.HotPOS.repository.DocumentCounterRepository;
+import com.example.HotPOS.repository.SaleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Document numbers of the form PREFIX-CODE-yyyyMMdd-SEQUENCE, where the sequence comes from a
+ * counter per branch and document type. Each node reserves blocks of sequences from the
+ * document_counters table in its own transaction and hands them out with an atomic increment,
+ * so numbers are unique across restarts and nodes. Unused values of a block are skipped after a
+ * restart, so sequences can have gaps.
+ */
+@Service
+public class DocumentNumberService {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final DocumentCounterRepository documentCounterRepository;
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate reserveTransaction;
+    private final int blockSize;
+
+    private final Map<DocumentType, ConcurrentHashMap<Long, Block>> blocks = new EnumMap<>(DocumentType.class);
+    private volatile DayStamp today = new DayStamp(LocalDate.MIN, "");
+
+    private record Block(AtomicLong next, long end) {
+
+        boolean hasRemaining() {
+            return next.get() < end;
+        }
+    }
+
+    private record DayStamp(LocalDate day, String text) {
+    }
+
+    public DocumentNumberService(DocumentCounterRepository documentCounterRepository,
+                                 SaleRepository saleRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${hotpos.document-numbers.block-size:20}") int blockSize) {
+        this.documentCounterRepository = documentCounterRepository;
+        this.saleRepository = saleRepository;
+        // Reservations commit on their own, so a rolled-back document never returns its block
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        for (DocumentType type : DocumentType.values()) {
+            blocks.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    public long nextSequence(DocumentType type, Long branchId) {
+        ConcurrentHashMap<Long, Block> byBranch = blocks.get(type);
+        while (true) {
+            Block block = byBranch.get(branchId);
+            if (block != null) {
+                long value = block.next().getAndIncrement();
+                if (value < block.end()) {
+                    return value;
+                }
+            }
+            // Exhausted or missing: the first thread through replaces the block, the rest reuse it
+            byBranch.compute(branchId, (id, current) ->
+                    current != null && current.hasRemaining() ? current : reserve(type, id));
+        }
+    }
+
+    public String nextNumber(DocumentType type, Long branchId, String code) {
+        return format(type, code, nextSequence(type, branchId));
+    }
+
+    public String format(DocumentType type, String code, long sequence) {
+        String day = currentDay();
+        String number = Long.toString(sequence);
+        StringBuilder result = new StringBuilder(type.getPrefix().length() + code.length() + day.length()
+                + Math.max(number.length(), type.getDigits()) + 3)
+                .append(type.getPrefix()).append('-')
+                .append(code).append('-')
+                .append(day).append('-');
+        for (int i = number.length(); i < type.getDigits(); i++) {
+            result.append('0');
+        }
+        return result.append(number).toString();
+    }
+
+    private Block reserve(DocumentType type, Long branchId) {
+        Long end = reserveTransaction.execute(status ->
+                documentCounterRepository.reserveBlock(branchId, type.name(), seed(type, branchId), blockSize));
+        return new Block(new AtomicLong(end - blockSize), end);
+    }
+
+    // Sales continue the branch's existing reference sequence; other types start at 1, since the
+    // dated format cannot match numbers issued before counters existed
+    private long seed(DocumentType type, Long branchId) {
+        return type == DocumentType.SALE ? saleRepository.findMaxReferenceSequenceForBranch(branchId) + 1L : 1L;
+    }
+
+    // The formatted day is rebuilt once per day rather than per number
+    private String currentDay() {
+        LocalDate now = LocalDate.now();
+        DayStamp stamp = today;
+        if (!stamp.day().equals(now)) {
+            stamp = new DayStamp(now, now.format(DAY_FORMAT));
+            today = stamp;
+        }
+        return stamp.text();
+    }
+}
@@ -12,10 +12,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.HotPOS.enums.DocumentType;
 import com.example.HotPOS.enums.PaymentMethod;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,6 +26,7 @@ public class ExpenseService {
     private final ExpenseRepository expenseRepository;
     private final BranchRepository branchRepository;
     private final UserRepository userRepository;
+    private final DocumentNumberService documentNumberService;
 
     public List<ExpenseDTO> getExpensesByBranch(Long branchId) {
         return expenseRepository.findByBranchIdOrderByExpenseDateDesc(branchId).stream()
@@ -59,7 +60,7 @@ public class ExpenseService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        String expenseNumber = generateExpenseNumber(branch.getCode());
+        String expenseNumber = documentNumberService.nextNumber(DocumentType.EXPENSE, branch.getId(), branch.getCode());
 
         Expense expense = Expense.builder()
                 .branch(branch)
@@ -102,11 +103,6 @@ public class ExpenseService {
         expenseRepository.deleteById(id);
     }
 
-    private String generateExpenseNumber(String branchCode) {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "EXP-" + branchCode + "-" + dateStr;
-    }
-
     private ExpenseDTO toDTO(Expense expense) {
         return ExpenseDTO.builder()
                 .id(expense.getId())
@@ -0,0 +1,341 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.ProductImportResultDTO;
+import com.example.HotPOS.dto.ProductImportRowDTO;
+import com.example.HotPOS.dto.StockImportRowDTO;
+import com.example.HotPOS.entity.Branch;
+import com.example.HotPOS.entity.Category;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.event.ProductChangedEvent;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.CategoryRepository;
+import com.example.HotPOS.repository.ProductRepository;
+import com.example.HotPOS.repository.ProductRepositoryCustom;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.StockItemRepositoryCustom;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Bulk imports of products and branch stock, in the formats of files/cleaned-products.json and
+ * files/stock-seed.json. The uploaded array is read one item at a time and rows are written in
+ * JDBC batches, so memory grows only with the SKUs seen and the error report. Categories and
+ * SKUs are resolved against maps loaded with one query each. Bad items are reported and skipped
+ * rather than failing the import; each import runs in one transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    private static final int BATCH_ROWS = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String DEFAULT_UNIT = "pcs";
+    private static final int DEFAULT_REORDER_LEVEL = 10;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final BranchRepository branchRepository;
+    private final StockItemRepository stockItemRepository;
+    private final CategoryService categoryService;
+    private final StockShardService stockShardService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private static final class ImportState {
+        final Map<String, Integer> itemByKey = new HashMap<>();
+        final List<ProductImportResultDTO.ItemError> errors = new ArrayList<>();
+        int itemsRead;
+        int itemsValid;
+        int itemsImported;
+        int categoriesCreated;
+        int errorCount;
+
+        void error(int item, String sku, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportResultDTO.ItemError(item, sku, message));
+            }
+        }
+
+        // False, with an error, when the key was already taken by an earlier item
+        boolean claim(String key, int item, String sku) {
+            Integer first = itemByKey.putIfAbsent(key, item);
+            if (first != null) {
+                error(item, sku, "SKU already imported from item " + first);
+                return false;
+            }
+            return true;
+        }
+
+        ProductImportResultDTO toResult() {
+            return ProductImportResultDTO.builder()
+                    .itemsRead(itemsRead)
+                    .itemsImported(itemsImported)
+                    .itemsSkipped(itemsValid - itemsImported)
+                    .categoriesCreated(categoriesCreated)
+                    .errorCount(errorCount)
+                    .errors(errors)
+                    .build();
+        }
+    }
+
+    /**
+     * Creates products from a JSON array, or updates the product holding each SKU when
+     * {@code updateExisting} is set. Categories are matched by name, falling back to
+     * {@code categoryId}, and created when no category has the name.
+     */
+    public ProductImportResultDTO importProducts(InputStream json, boolean updateExisting) {
+        ImportState state = transactionTemplate.execute(status -> {
+            ImportState result = new ImportState();
+            Map<String, Long> categoryByName = new HashMap<>();
+            Set<Long> categoryIds = new HashSet<>();
+            for (Category category : categoryRepository.findAll()) {
+                categoryByName.putIfAbsent(category.getName().trim().toLowerCase(), category.getId());
+                categoryIds.add(category.getId());
+            }
+
+            List<ProductRepositoryCustom.ImportRow> batch = new ArrayList<>(BATCH_ROWS);
+            readArray(json, ProductImportRowDTO.class, "sku", result, (item, row) -> {
+                ProductRepositoryCustom.ImportRow importRow = toProductRow(result, item, row, categoryByName, categoryIds);
+                if (importRow == null) {
+                    return;
+                }
+                batch.add(importRow);
+                if (batch.size() >= BATCH_ROWS) {
+                    result.itemsImported += productRepository.upsertImported(batch, updateExisting);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                result.itemsImported += productRepository.upsertImported(batch, updateExisting);
+            }
+            // Search, SKU cache and the rest re-read the catalog once the import commits
+            eventPublisher.publishEvent(ProductChangedEvent.all());
+            return result;
+        });
+        return state.toResult();
+    }
+
+    /**
+     * Sets branch stock from a JSON array. Quantities replace the current ones, as a stock
+     * correction does; stock rows are created for products the branch has not stocked yet.
+     */
+    public ProductImportResultDTO importStock(InputStream json) {
+        ImportState state = transactionTemplate.execute(status -> {
+            ImportState result = new ImportState();
+            Map<String, Object[]> products = new HashMap<>();
+            Set<Long> shardedProducts = new HashSet<>();
+            for (Object[] row : productRepository.findActiveStockImportIndex()) {
+                products.put((String) row[0], row);
+                if (row[2] != null) {
+                    shardedProducts.add((Long) row[1]);
+                }
+            }
+            Set<Long> branchIds = new HashSet<>();
+            for (Branch branch : branchRepository.findAll()) {
+                branchIds.add(branch.getId());
+            }
+
+            List<StockItemRepositoryCustom.ImportRow> batch = new ArrayList<>(BATCH_ROWS);
+            readArray(json, StockImportRowDTO.class, "productSku", result, (item, row) -> {
+                StockItemRepositoryCustom.ImportRow importRow = toStockRow(result, item, row, products, branchIds);
+                if (importRow == null) {
+                    return;
+                }
+                batch.add(importRow);
+                if (batch.size() >= BATCH_ROWS) {
+                    writeStockBatch(batch, shardedProducts);
+                }
+            });
+            if (!batch.isEmpty()) {
+                writeStockBatch(batch, shardedProducts);
+            }
+            result.itemsImported = result.itemsValid;
+            return result;
+        });
+        return state.toResult();
+    }
+
+    private ProductRepositoryCustom.ImportRow toProductRow(ImportState state, int item, ProductImportRowDTO row,
+                                                           Map<String, Long> categoryByName, Set<Long> categoryIds) {
+        String sku = trimToNull(row.getSku());
+        String name = trimToNull(row.getName());
+        String unit = trimToNull(row.getUnitOfMeasure());
+        int reorderLevel = row.getReorderLevel() != null ? row.getReorderLevel() : DEFAULT_REORDER_LEVEL;
+        if (sku == null) {
+            state.error(item, null, "Missing SKU");
+            return null;
+        }
+        if (sku.length() > 50) {
+            state.error(item, sku, "SKU is longer than 50 characters");
+            return null;
+        }
+        if (name == null || name.length() > 200) {
+            state.error(item, sku, name == null ? "Missing name" : "Name is longer than 200 characters");
+            return null;
+        }
+        if (row.getSellingPrice() == null || row.getSellingPrice().signum() < 0) {
+            state.error(item, sku, "Selling price must be zero or more");
+            return null;
+        }
+        if (unit != null && unit.length() > 20) {
+            state.error(item, sku, "Unit of measure is longer than 20 characters");
+            return null;
+        }
+        if (reorderLevel < 0) {
+            state.error(item, sku, "Reorder level cannot be negative");
+            return null;
+        }
+        Long categoryId = resolveCategory(state, item, sku, row, categoryByName, categoryIds);
+        if (categoryId == null || !state.claim(sku, item, sku)) {
+            return null;
+        }
+
+        state.itemsValid++;
+        return new ProductRepositoryCustom.ImportRow(categoryId, sku, name, trimToNull(row.getDescription()),
+                unit != null ? unit : DEFAULT_UNIT, Boolean.TRUE.equals(row.getRequiresSerial()), reorderLevel,
+                row.getSellingPrice(), !Boolean.FALSE.equals(row.getIsActive()));
+    }
+
+    private Long resolveCategory(ImportState state, int item, String sku, ProductImportRowDTO row,
+                                 Map<String, Long> categoryByName, Set<Long> categoryIds) {
+        String categoryName = trimToNull(row.getCategoryName());
+        if (categoryName == null) {
+            if (row.getCategoryId() == null || !categoryIds.contains(row.getCategoryId())) {
+                state.error(item, sku, row.getCategoryId() == null
+                        ? "Missing category" : "Category not found with id: " + row.getCategoryId());
+                return null;
+            }
+            return row.getCategoryId();
+        }
+        if (categoryName.length() > 100) {
+            state.error(item, sku, "Category name is longer than 100 characters");
+            return null;
+        }
+        String key = categoryName.toLowerCase();
+        Long categoryId = categoryByName.get(key);
+        if (categoryId == null) {
+            // Goes through CategoryService so the category closure and tree pick it up
+            categoryId = categoryService.createCategory(CategoryDTO.builder().name(categoryName).build()).getId();
+            categoryByName.put(key, categoryId);
+            categoryIds.add(categoryId);
+            state.categoriesCreated++;
+        }
+        return categoryId;
+    }
+
+    private StockItemRepositoryCustom.ImportRow toStockRow(ImportState state, int item, StockImportRowDTO row,
+                                                           Map<String, Object[]> products, Set<Long> branchIds) {
+        String sku = trimToNull(row.getProductSku());
+        if (sku == null) {
+            state.error(item, null, "Missing SKU");
+            return null;
+        }
+        Object[] product = products.get(sku);
+        if (product == null) {
+            state.error(item, sku, "Unknown or inactive SKU");
+            return null;
+        }
+        if (row.getBranchId() == null || !branchIds.contains(row.getBranchId())) {
+            state.error(item, sku, row.getBranchId() == null
+                    ? "Missing branch" : "Branch not found with id: " + row.getBranchId());
+            return null;
+        }
+        if (row.getQuantity() == null || row.getQuantity() < 0) {
+            state.error(item, sku, "Quantity must be zero or more");
+            return null;
+        }
+        if ((row.getCostPrice() != null && row.getCostPrice().signum() < 0)
+                || (row.getSellingPrice() != null && row.getSellingPrice().signum() < 0)) {
+            state.error(item, sku, "Prices cannot be negative");
+            return null;
+        }
+        if (!state.claim(row.getBranchId() + "/" + sku, item, sku)) {
+            return null;
+        }
+
+        state.itemsValid++;
+        return new StockItemRepositoryCustom.ImportRow(row.getBranchId(), (Long) product[1], row.getQuantity(),
+                row.getCostPrice(), row.getSellingPrice());
+    }
+
+    private void writeStockBatch(List<StockItemRepositoryCustom.ImportRow> batch, Set<Long> shardedProducts) {
+        // Hot SKUs hand allowances to shards; fold them back first, as a stock correction does.
+        // The chunk's rows are locked with one query rather than looked up one by one
+        Set<Long> branchIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        Set<String> keys = new HashSet<>();
+        for (StockItemRepositoryCustom.ImportRow row : batch) {
+            if (shardedProducts.contains(row.productId())) {
+                branchIds.add(row.branchId());
+                productIds.add(row.productId());
+                keys.add(row.branchId() + "/" + row.productId());
+            }
+        }
+        if (!keys.isEmpty()) {
+            List<Long> stockItemIds = stockItemRepository.lockByBranchIdInAndProductIdIn(branchIds, productIds).stream()
+                    .filter(stockItem -> keys.contains(stockItem.getBranch().getId() + "/" + stockItem.getProduct().getId()))
+                    .map(StockItem::getId)
+                    .toList();
+            stockShardService.drainLocked(stockItemIds);
+        }
+        stockItemRepository.upsertImported(batch);
+        batch.clear();
+    }
+
+    private <T> void readArray(InputStream json, Class<T> type, String skuField, ImportState state,
+                               BiConsumer<Integer, T> accept) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Import JSON must be an array");
+            }
+            int item = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                item++;
+                state.itemsRead++;
+                // One item is materialised at a time, so a bad field only costs that item
+                JsonNode node = parser.readValueAsTree();
+                T row;
+                try {
+                    row = objectMapper.treeToValue(node, type);
+                } catch (JsonProcessingException e) {
+                    state.error(item, node.path(skuField).asText(null), "Invalid item: " + e.getOriginalMessage());
+                    continue;
+                }
+                accept.accept(item, row);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid import JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
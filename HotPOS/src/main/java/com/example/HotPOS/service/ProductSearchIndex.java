@@ -0,0 +1,321 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.entity.Category;
+import com.example.HotPOS.entity.Product;
+import com.example.HotPOS.event.ProductChangedEvent;
+import com.example.HotPOS.repository.CategoryRepository;
+import com.example.HotPOS.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory search over active products by name, SKU and category name, for the POS search
+ * box. Every word is indexed by its trigrams (padded as pg_trgm does, so word starts weigh in)
+ * and in a sorted word map for prefix lookups. A query's candidates are the products sharing
+ * a trigram with it or having a word that starts with one of its words; they are ranked by SKU
+ * match, word prefix match and the share of the query's trigrams they contain, which keeps a
+ * mistyped letter or two from losing the product.
+ * <p>
+ * The index is built when the application is ready and kept current from
+ * {@link ProductChangedEvent}: affected products are re-read after commit and their entries
+ * replaced. Changes made on other nodes raise the product and category watermarks without an
+ * event here; a scheduled refresh compares them with the index's and re-reads the products
+ * changed since, with the delta sync's overlap for changes that commit late.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    // Share of the query's trigrams a product needs when no word or SKU prefix matches
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ChangeFeedWindow changeFeedWindow;
+
+    private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> words = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+    // Latest product and category changes the index is known to include
+    private LocalDateTime productWatermark;
+    private LocalDateTime categoryWatermark;
+
+    private record Doc(ProductDTO product, String sku, Set<String> words, Set<String> trigrams) {}
+
+    private record Hit(Doc doc, double score) {}
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(hit -> hit.doc().product().getName(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(hit -> hit.doc().product().getId());
+
+    public List<ProductDTO> search(String query, int limit) {
+        if (!loaded) {
+            load();
+        }
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String querySku = normalize(query);
+        Set<String> queryTrigrams = new LinkedHashSet<>();
+        for (String word : queryWords) {
+            addTrigrams(word, queryTrigrams);
+        }
+
+        // Trigram overlap per candidate, plus candidates found by word or SKU prefix
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                for (Long id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+        for (String word : queryWords) {
+            for (Set<Long> ids : prefixRange(word).values()) {
+                for (Long id : ids) {
+                    shared.putIfAbsent(id, 0);
+                }
+            }
+        }
+
+        // Worst hit at the head, so the queue keeps the best `limit`
+        PriorityQueue<Hit> top = new PriorityQueue<>(RANKING.reversed());
+        for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+            Doc doc = docs.get(candidate.getKey());
+            if (doc == null) {
+                continue;
+            }
+            double score = score(doc, querySku, queryWords, candidate.getValue(), queryTrigrams.size());
+            if (score <= 0) {
+                continue;
+            }
+            top.add(new Hit(doc, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(RANKING);
+        List<ProductDTO> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            results.add(hit.doc().product());
+        }
+        return results;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        load();
+    }
+
+    // Changes re-read their products under the same lock as loading, so a load that read a row
+    // before a change committed is corrected by that change's event; before the first load
+    // there is nothing to correct
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        if (event.isAll()) {
+            reload();
+        } else if (event.getProductId() != null) {
+            productRepository.findWithCategoryById(event.getProductId())
+                    .ifPresentOrElse(this::put, () -> remove(event.getProductId()));
+        } else {
+            productRepository.findWithCategoryByCategoryId(event.getCategoryId()).forEach(this::put);
+        }
+    }
+
+    /**
+     * Catches up with changes made on other nodes. Nothing is read while both watermarks are
+     * unchanged and old enough that no transaction still in flight can commit behind them.
+     */
+    @Scheduled(fixedDelayString = "${hotpos.products.search-refresh-ms:5000}")
+    public synchronized void refresh() {
+        if (!loaded) {
+            return;
+        }
+        // Read before the rows, so a change committing meanwhile is picked up by the next refresh
+        LocalDateTime products = productRepository.findMaxUpdatedAt();
+        LocalDateTime categories = categoryRepository.findMaxUpdatedAt();
+        if (upToDate(productWatermark, products) && upToDate(categoryWatermark, categories)) {
+            return;
+        }
+        if (productWatermark == null) {
+            reload();
+            return;
+        }
+        List<Product> changed = productRepository.findChangedSince(changeFeedWindow.since(productWatermark));
+        changed.forEach(this::put);
+        // Category names are indexed with their products
+        if (categoryWatermark != null) {
+            for (Category category : categoryRepository.findByUpdatedAtAfter(changeFeedWindow.since(categoryWatermark))) {
+                productRepository.findWithCategoryByCategoryId(category.getId()).forEach(this::put);
+            }
+        }
+        productWatermark = products;
+        categoryWatermark = categories;
+    }
+
+    private boolean upToDate(LocalDateTime watermark, LocalDateTime current) {
+        return Objects.equals(watermark, current) && changeFeedWindow.isSettled(watermark);
+    }
+
+    private synchronized void load() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    private synchronized void reload() {
+        productWatermark = productRepository.findMaxUpdatedAt();
+        categoryWatermark = categoryRepository.findMaxUpdatedAt();
+        List<Product> products = productRepository.findActiveWithCategory();
+        docs.clear();
+        postings.clear();
+        words.clear();
+        products.forEach(this::put);
+        loaded = true;
+        log.info("Indexed {} active products for search", docs.size());
+    }
+
+    private void put(Product product) {
+        remove(product.getId());
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            return;
+        }
+        String sku = normalize(product.getSku());
+        Set<String> docWords = new LinkedHashSet<>(tokenize(product.getName()));
+        docWords.addAll(tokenize(product.getSku()));
+        docWords.addAll(tokenize(product.getCategory().getName()));
+        if (!sku.isEmpty()) {
+            docWords.add(sku);
+        }
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : docWords) {
+            addTrigrams(word, trigrams);
+        }
+
+        Doc doc = new Doc(ProductService.toDTO(product), sku, docWords, trigrams);
+        docs.put(product.getId(), doc);
+        for (String trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(product.getId());
+        }
+        for (String word : docWords) {
+            words.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(product.getId());
+        }
+    }
+
+    private void remove(Long productId) {
+        Doc doc = docs.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String trigram : doc.trigrams()) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+        for (String word : doc.words()) {
+            Set<Long> ids = words.get(word);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    words.remove(word);
+                }
+            }
+        }
+    }
+
+    private static double score(Doc doc, String querySku, List<String> queryWords, int sharedTrigrams,
+                                int queryTrigrams) {
+        double score = 0;
+        if (doc.sku().equals(querySku)) {
+            score += 3;
+        } else if (doc.sku().startsWith(querySku)) {
+            score += 2;
+        }
+        int prefixed = 0;
+        for (String queryWord : queryWords) {
+            for (String word : doc.words()) {
+                if (word.startsWith(queryWord)) {
+                    prefixed++;
+                    break;
+                }
+            }
+        }
+        score += (double) prefixed / queryWords.size();
+
+        double similarity = queryTrigrams == 0 ? 0 : (double) sharedTrigrams / queryTrigrams;
+        if (score == 0 && similarity < MIN_SIMILARITY) {
+            return 0;
+        }
+        return score + similarity;
+    }
+
+    private Map<String, Set<Long>> prefixRange(String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    // Lower-cased runs of letters and digits
+    private static List<String> tokenize(String value) {
+        List<String> tokens = new ArrayList<>();
+        if (value == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    // Two spaces before and one after the word, as pg_trgm pads
+    private static void addTrigrams(String word, Set<String> out) {
+        String padded = "  " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            out.add(padded.substring(i, i + 3));
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package com.example.HotPOS.service;
 
+import com.example.HotPOS.dto.ChangesDTO;
 import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.SkuCacheStatsDTO;
 import com.example.HotPOS.entity.Category;
 import com.example.HotPOS.entity.Product;
 import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.event.ProductChangedEvent;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.CategoryRepository;
 import com.example.HotPOS.repository.ProductRepository;
 import com.example.HotPOS.repository.StockItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,29 +27,64 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final StockItemRepository stockItemRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSkuCache productSkuCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeFeedWindow changeFeedWindow;
+
+    private static final int MAX_SEARCH_RESULTS = 200;
 
     public List<ProductDTO> getAllProducts() {
         return productRepository.findAll().stream()
-                .map(this::toDTO)
+                .map(ProductService::toDTO)
                 .collect(Collectors.toList());
     }
 
     public List<ProductDTO> getActiveProducts() {
         return productRepository.findByIsActiveTrue().stream()
-                .map(this::toDTO)
+                .map(ProductService::toDTO)
                 .collect(Collectors.toList());
     }
 
-    public List<ProductDTO> getProductsByCategory(Long categoryId) {
-        return productRepository.findByCategoryId(categoryId).stream()
-                .map(this::toDTO)
+    public List<ProductDTO> getProductsByCategory(Long categoryId, boolean includeSubcategories) {
+        List<Product> products = includeSubcategories
+                ? productRepository.findWithCategoryInCategoryTree(categoryId)
+                : productRepository.findByCategoryId(categoryId);
+        return products.stream()
+                .map(ProductService::toDTO)
                 .collect(Collectors.toList());
     }
 
-    public List<ProductDTO> searchProducts(String search) {
-        return productRepository.searchProducts(search).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    public List<ProductDTO> searchProducts(String search, int limit) {
+        return productSearchIndex.search(search, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS));
+    }
+
+    public LocalDateTime getProductsWatermark() {
+        return productRepository.findMaxUpdatedAt();
+    }
+
+    /**
+     * Products created, changed or deactivated after {@code since}; the full active catalog when
+     * {@code since} is null. Rows stamped within the {@link ChangeFeedWindow} before {@code since}
+     * are sent again, as they may have committed after the client's last call.
+     */
+    public ChangesDTO<ProductDTO> getProductChanges(LocalDateTime since) {
+        LocalDateTime watermark = productRepository.findMaxUpdatedAt();
+        List<Product> changed = since == null
+                ? productRepository.findActiveWithCategory()
+                : productRepository.findChangedSince(changeFeedWindow.since(since));
+
+        return ChangesDTO.<ProductDTO>builder()
+                .upserts(changed.stream()
+                        .filter(Product::getIsActive)
+                        .map(ProductService::toDTO)
+                        .collect(Collectors.toList()))
+                .deactivatedIds(changed.stream()
+                        .filter(p -> !p.getIsActive())
+                        .map(Product::getId)
+                        .collect(Collectors.toList()))
+                .watermark(watermark != null ? watermark : since)
+                .build();
     }
 
     public ProductDTO getProductById(Long id) {
@@ -54,9 +94,13 @@ public class ProductService {
     }
 
     public ProductDTO getProductBySku(String sku) {
-        Product product = productRepository.findBySku(sku)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with SKU: " + sku));
-        return toDTO(product);
+        return productSkuCache.get(sku, () -> productRepository.findWithCategoryBySku(sku)
+                .map(ProductService::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with SKU: " + sku)));
+    }
+
+    public SkuCacheStatsDTO getSkuCacheStats() {
+        return productSkuCache.getStats();
     }
 
     @Transactional
@@ -77,6 +121,7 @@ public class ProductService {
                 .build();
         
         Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.product(saved.getId()));
         return toDTO(saved);
     }
 
@@ -114,6 +159,7 @@ public class ProductService {
             stockItem.setSellingPrice(dto.getSellingPrice());
         }
         stockItemRepository.saveAll(stockItems);
+        eventPublisher.publishEvent(ProductChangedEvent.product(id));
         
         return toDTO(saved);
     }
@@ -124,9 +170,10 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
         product.setIsActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.product(id));
     }
 
-    private ProductDTO toDTO(Product product) {
+    static ProductDTO toDTO(Product product) {
         return ProductDTO.builder()
                 .id(product.getId())
                 .categoryId(product.getCategory().getId())
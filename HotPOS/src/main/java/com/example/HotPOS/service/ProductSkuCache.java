@@ -0,0 +1,116 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.SkuCacheStatsDTO;
+import com.example.HotPOS.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded SKU -> ProductDTO cache for barcode scans, least recently used first out. Entries are
+ * loaded on a miss and dropped after commit of any change to their product or its category
+ * ({@link ProductChangedEvent}). A load that overlaps such a change is returned but not kept,
+ * so a row read before the change committed never outlives its invalidation. Those events are
+ * local to this node, so entries are also reloaded once older than the TTL; a change committed
+ * on another node is seen within that time.
+ */
+@Component
+public class ProductSkuCache {
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private final Map<Long, String> skuByProduct = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(ProductDTO product, long loadedAt) {}
+
+    public ProductSkuCache(@Value("${hotpos.products.sku-cache-size:5000}") int capacity,
+                           @Value("${hotpos.products.sku-cache-ttl-seconds:30}") long ttlSeconds) {
+        this.capacity = capacity;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= ProductSkuCache.this.capacity) {
+                    return false;
+                }
+                skuByProduct.remove(eldest.getValue().product().getId());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public ProductDTO get(String sku, Supplier<ProductDTO> loader) {
+        synchronized (this) {
+            Entry cached = entries.get(sku);
+            if (cached != null) {
+                if (System.nanoTime() - cached.loadedAt() < ttlNanos) {
+                    hits.incrementAndGet();
+                    return cached.product();
+                }
+                entries.remove(sku);
+                skuByProduct.remove(cached.product().getId());
+            }
+        }
+        misses.incrementAndGet();
+        long before = version.get();
+        long loadedAt = System.nanoTime();
+        ProductDTO loaded = loader.get();
+        synchronized (this) {
+            if (version.get() == before && Boolean.TRUE.equals(loaded.getIsActive())) {
+                entries.put(sku, new Entry(loaded, loadedAt));
+                skuByProduct.put(loaded.getId(), sku);
+            }
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        version.incrementAndGet();
+        if (event.isAll()) {
+            entries.clear();
+            skuByProduct.clear();
+        } else if (event.getProductId() != null) {
+            String sku = skuByProduct.remove(event.getProductId());
+            if (sku != null) {
+                entries.remove(sku);
+            }
+        } else {
+            entries.values().removeIf(entry -> {
+                boolean inCategory = event.getCategoryId().equals(entry.product().getCategoryId());
+                if (inCategory) {
+                    skuByProduct.remove(entry.product().getId());
+                }
+                return inCategory;
+            });
+        }
+    }
+
+    public synchronized SkuCacheStatsDTO getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        return SkuCacheStatsDTO.builder()
+                .size(entries.size())
+                .capacity(capacity)
+                .hits(hitCount)
+                .misses(missCount)
+                .evictions(evictions.get())
+                .hitRate(lookups == 0 ? null : (double) hitCount / lookups)
+                .build();
+    }
+}
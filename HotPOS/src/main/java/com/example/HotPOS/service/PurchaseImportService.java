@@ -0,0 +1,423 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.PurchaseDTO;
+import com.example.HotPOS.dto.PurchaseImportResultDTO;
+import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.dto.SupplierInvoiceLineDTO;
+import com.example.HotPOS.entity.Branch;
+import com.example.HotPOS.entity.Purchase;
+import com.example.HotPOS.entity.Supplier;
+import com.example.HotPOS.entity.User;
+import com.example.HotPOS.enums.DocumentType;
+import com.example.HotPOS.enums.PaymentStatus;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.ProductRepository;
+import com.example.HotPOS.repository.PurchaseRepository;
+import com.example.HotPOS.repository.PurchaseRepositoryCustom.ItemRow;
+import com.example.HotPOS.repository.SupplierRepository;
+import com.example.HotPOS.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports supplier invoices (CSV or JSON) as purchases. The invoice is read one line at a time
+ * and lines are written in JDBC batches, so memory does not grow with the invoice apart from the
+ * error report and any serials kept for receiving. SKUs are resolved against a map of all active
+ * products loaded with one query. Bad lines are reported and skipped rather than failing the
+ * import.
+ *
+ * CSV needs a header row with at least {@code sku} and {@code quantity}; {@code unitCost},
+ * {@code sellingPrice}, {@code serialNumbers} and {@code serialRanges} are optional, with list
+ * values separated by ';'. JSON is either an array of lines or an object with an {@code items}
+ * array. Errors refer to the physical line for CSV and to the 1-based item for JSON.
+ */
+@Service
+@RequiredArgsConstructor
+public class PurchaseImportService {
+
+    private static final int BATCH_LINES = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final PurchaseRepository purchaseRepository;
+    private final BranchRepository branchRepository;
+    private final SupplierRepository supplierRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final PurchaseService purchaseService;
+    private final SupplierStatsService supplierStatsService;
+    private final DocumentNumberService documentNumberService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private record SkuEntry(Long productId, boolean requiresSerial) {
+    }
+
+    private static final class ImportState {
+        final Map<String, SkuEntry> skus;
+        final boolean receive;
+        final Map<String, Integer> lineBySku = new HashMap<>();
+        final List<ItemRow> batch = new ArrayList<>(BATCH_LINES);
+        final List<PurchaseImportResultDTO.LineError> errors = new ArrayList<>();
+        final List<ReceivePurchaseDTO.ReceiveItemDTO> receiveItems = new ArrayList<>();
+        Long purchaseId;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        int linesRead;
+        int linesImported;
+        int errorCount;
+
+        ImportState(Map<String, SkuEntry> skus, boolean receive) {
+            this.skus = skus;
+            this.receive = receive;
+        }
+
+        void error(int line, String sku, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new PurchaseImportResultDTO.LineError(line, sku, message));
+            }
+        }
+    }
+
+    /**
+     * Creates one purchase from the invoice lines that pass validation. When {@code receive} is
+     * set the purchase is then received in a separate transaction, so a receiving failure (a
+     * duplicate serial, say) leaves the imported purchase pending and is returned as
+     * {@code receiveError}.
+     */
+    public PurchaseImportResultDTO importInvoice(InputStream invoice, boolean json, Long branchId, Long supplierId,
+                                                 BigDecimal taxAmount, String notes, boolean receive, Long userId) {
+        ImportState state = transactionTemplate.execute(status -> {
+            ImportState result = new ImportState(loadSkuIndex(), receive);
+            result.purchaseId = createPurchase(branchId, supplierId, userId, taxAmount, notes);
+            if (json) {
+                readJson(invoice, result);
+            } else {
+                readCsv(invoice, result);
+            }
+            flush(result);
+
+            if (result.linesImported == 0) {
+                status.setRollbackOnly();
+                result.purchaseId = null;
+                return result;
+            }
+            Purchase purchase = purchaseRepository.getReferenceById(result.purchaseId);
+            purchase.setTotalAmount(result.totalAmount);
+            purchase.setGrandTotal(result.totalAmount.add(purchase.getTaxAmount()));
+            // The items were inserted behind Hibernate's back; drop the entity so later reads load them
+            entityManager.flush();
+            entityManager.detach(purchase);
+            supplierStatsService.recordPurchase(supplierId, result.purchaseId);
+            return result;
+        });
+
+        PurchaseDTO purchase = null;
+        String receiveError = null;
+        boolean received = false;
+        if (state.purchaseId != null) {
+            if (receive) {
+                try {
+                    purchase = purchaseService.receivePurchase(state.purchaseId, userId,
+                            new ReceivePurchaseDTO(state.receiveItems));
+                    received = true;
+                } catch (RuntimeException e) {
+                    receiveError = e.getMessage();
+                }
+            }
+            if (purchase == null) {
+                purchase = purchaseService.getPurchaseById(state.purchaseId);
+            }
+        }
+
+        return PurchaseImportResultDTO.builder()
+                .purchase(purchase)
+                .linesRead(state.linesRead)
+                .linesImported(state.linesImported)
+                .errorCount(state.errorCount)
+                .errors(state.errors)
+                .received(received)
+                .receiveError(receiveError)
+                .build();
+    }
+
+    private Map<String, SkuEntry> loadSkuIndex() {
+        List<Object[]> rows = productRepository.findActiveSkuIndex();
+        Map<String, SkuEntry> skus = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            skus.put((String) row[0], new SkuEntry((Long) row[1], Boolean.TRUE.equals(row[2])));
+        }
+        return skus;
+    }
+
+    private Long createPurchase(Long branchId, Long supplierId, Long userId, BigDecimal taxAmount, String notes) {
+        Branch branch = branchRepository.findById(branchId)
+                .orElseThrow(() -> new ResourceNotFoundException("Branch not found with id: " + branchId));
+        Supplier supplier = supplierRepository.findById(supplierId)
+                .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id: " + supplierId));
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        Purchase purchase = purchaseRepository.save(Purchase.builder()
+                .branch(branch)
+                .supplier(supplier)
+                .user(user)
+                .purchaseNumber(documentNumberService.nextNumber(DocumentType.PURCHASE, branch.getId(), branch.getCode()))
+                .purchaseDate(LocalDate.now())
+                .paymentStatus(PaymentStatus.PAID)
+                .totalAmount(BigDecimal.ZERO)
+                .taxAmount(taxAmount != null ? taxAmount : BigDecimal.ZERO)
+                .grandTotal(BigDecimal.ZERO)
+                .notes(notes)
+                .build());
+        // The JDBC item inserts need the purchase row to exist
+        entityManager.flush();
+        return purchase.getId();
+    }
+
+    private void accept(ImportState state, int line, SupplierInvoiceLineDTO dto) {
+        state.linesRead++;
+        String sku = dto.getSku() != null ? dto.getSku().trim() : "";
+        if (sku.isEmpty()) {
+            state.error(line, null, "Missing SKU");
+            return;
+        }
+        SkuEntry product = state.skus.get(sku);
+        if (product == null) {
+            state.error(line, sku, "Unknown or inactive SKU");
+            return;
+        }
+        if (dto.getQuantity() == null || dto.getQuantity() <= 0) {
+            state.error(line, sku, "Quantity must be a positive whole number");
+            return;
+        }
+        BigDecimal unitCost = dto.getUnitCost() != null ? dto.getUnitCost() : BigDecimal.ZERO;
+        if (unitCost.signum() < 0) {
+            state.error(line, sku, "Unit cost cannot be negative");
+            return;
+        }
+        Integer firstLine = state.lineBySku.get(sku);
+        if (firstLine != null) {
+            state.error(line, sku, "SKU already imported from line " + firstLine);
+            return;
+        }
+        if (state.receive && !validSerials(state, line, sku, product, dto)) {
+            return;
+        }
+
+        state.lineBySku.put(sku, line);
+        BigDecimal totalCost = unitCost.multiply(BigDecimal.valueOf(dto.getQuantity()));
+        state.batch.add(new ItemRow(product.productId(), dto.getQuantity(), unitCost, totalCost));
+        state.totalAmount = state.totalAmount.add(totalCost);
+        state.linesImported++;
+        if (state.receive && (dto.getSellingPrice() != null || dto.getSerialNumbers() != null
+                || dto.getSerialRanges() != null)) {
+            state.receiveItems.add(new ReceivePurchaseDTO.ReceiveItemDTO(product.productId(),
+                    dto.getSellingPrice(), dto.getSerialNumbers(), dto.getSerialRanges()));
+        }
+        if (state.batch.size() >= BATCH_LINES) {
+            flush(state);
+        }
+    }
+
+    // Serial counts are checked per line here; duplicates against stored serials are left to the receive
+    private boolean validSerials(ImportState state, int line, String sku, SkuEntry product, SupplierInvoiceLineDTO dto) {
+        List<String> serials = dto.getSerialNumbers() != null ? dto.getSerialNumbers() : List.of();
+        List<String> ranges = dto.getSerialRanges() != null ? dto.getSerialRanges() : List.of();
+        if (serials.isEmpty() && ranges.isEmpty()) {
+            return true;
+        }
+        if (!product.requiresSerial()) {
+            state.error(line, sku, "Product does not take serial numbers");
+            return false;
+        }
+        long count = serials.size();
+        try {
+            for (String range : ranges) {
+                count += SerialRangeService.parse(range).size();
+            }
+        } catch (IllegalStateException e) {
+            state.error(line, sku, e.getMessage());
+            return false;
+        }
+        if (count != dto.getQuantity()) {
+            state.error(line, sku, "Serial number count (" + count + ") does not match quantity (" + dto.getQuantity() + ")");
+            return false;
+        }
+        return true;
+    }
+
+    private void flush(ImportState state) {
+        if (!state.batch.isEmpty()) {
+            purchaseRepository.insertItems(state.purchaseId, state.batch);
+            state.batch.clear();
+        }
+    }
+
+    private void readJson(InputStream invoice, ImportState state) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(invoice)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    token = parser.nextToken();
+                    if ("items".equals(field)) {
+                        break;
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Invoice JSON must be an array of lines or an object with an items array");
+            }
+            int line = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                line++;
+                // One line is materialised at a time, so a bad field only costs that line
+                JsonNode node = parser.readValueAsTree();
+                SupplierInvoiceLineDTO dto;
+                try {
+                    dto = objectMapper.treeToValue(node, SupplierInvoiceLineDTO.class);
+                } catch (JsonProcessingException e) {
+                    state.linesRead++;
+                    state.error(line, node.path("sku").asText(null), "Invalid line: " + e.getOriginalMessage());
+                    continue;
+                }
+                accept(state, line, dto);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid invoice JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readCsv(InputStream invoice, ImportState state) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(invoice, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            int lineNumber = 1;
+            while (header != null && header.isBlank()) {
+                header = reader.readLine();
+                lineNumber++;
+            }
+            if (header == null) {
+                throw new IllegalStateException("Invoice CSV is empty");
+            }
+            if (header.startsWith("\uFEFF")) {
+                header = header.substring(1);
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> names = splitCsv(header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().toLowerCase(), i);
+            }
+            if (!columns.containsKey("sku") || !columns.containsKey("quantity")) {
+                throw new IllegalStateException("Invoice CSV header must include sku and quantity columns");
+            }
+
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                List<String> fields = splitCsv(text);
+                String sku = field(fields, columns, "sku");
+                SupplierInvoiceLineDTO dto;
+                try {
+                    String quantity = field(fields, columns, "quantity");
+                    String unitCost = field(fields, columns, "unitcost");
+                    String sellingPrice = field(fields, columns, "sellingprice");
+                    dto = SupplierInvoiceLineDTO.builder()
+                            .sku(sku)
+                            .quantity(quantity != null ? Integer.valueOf(quantity) : null)
+                            .unitCost(unitCost != null ? new BigDecimal(unitCost) : null)
+                            .sellingPrice(sellingPrice != null ? new BigDecimal(sellingPrice) : null)
+                            .serialNumbers(list(field(fields, columns, "serialnumbers")))
+                            .serialRanges(list(field(fields, columns, "serialranges")))
+                            .build();
+                } catch (NumberFormatException e) {
+                    state.linesRead++;
+                    state.error(lineNumber, sku, "Invalid number in quantity, unitCost or sellingPrice");
+                    continue;
+                }
+                accept(state, lineNumber, dto);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> list(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Arrays.stream(value.split(";"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+
+    // RFC 4180 fields on a single line: commas inside double quotes, "" for a literal quote
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -2,20 +2,24 @@ package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.*;
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.DocumentType;
 import com.example.HotPOS.enums.PaymentStatus;
-import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +33,11 @@ public class PurchaseService {
     private final ProductRepository productRepository;
     private final StockItemRepository stockItemRepository;
     private final SerialNumberRepository serialNumberRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SerialEventService serialEventService;
+    private final SerialRangeService serialRangeService;
+    private final DocumentNumberService documentNumberService;
+    private final SupplierStatsService supplierStatsService;
 
     public List<PurchaseDTO> getPurchasesByBranch(Long branchId) {
         return purchaseRepository.findByBranchIdOrderByPurchaseDateDescCreatedAtDesc(branchId).stream()
@@ -59,7 +68,7 @@ public class PurchaseService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        String purchaseNumber = generatePurchaseNumber(branch.getCode());
+        String purchaseNumber = documentNumberService.nextNumber(DocumentType.PURCHASE, branch.getId(), branch.getCode());
 
         Purchase purchase = Purchase.builder()
                 .branch(branch)
@@ -103,6 +112,7 @@ public class PurchaseService {
         purchase.setGrandTotal(grandTotal);
 
         Purchase saved = purchaseRepository.save(purchase);
+        supplierStatsService.recordPurchase(supplier.getId(), saved.getId());
         return toDTO(saved);
     }
 
@@ -111,13 +121,47 @@ public class PurchaseService {
         Purchase purchase = purchaseRepository.findById(purchaseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with id: " + purchaseId));
 
+        requireReceivable(purchase);
+        ReceivePlan plan = planReceive(purchase, receiveDto);
+        // Lines a cancelled background job already put in stock are not received twice
+        List<PurchaseItem> pending = purchase.getItems().stream()
+                .filter(item -> !Boolean.TRUE.equals(item.getReceived()))
+                .collect(Collectors.toList());
+        validateSerialNumbers(pending, plan);
+
+        // Update stock for each item
+        for (PurchaseItem item : pending) {
+            receiveItem(purchase, item, userId, plan);
+        }
+
+        purchase.setStatus("RECEIVED");
+        supplierStatsService.recordReceipt(purchase.getSupplier().getId(), purchaseId);
+        Purchase saved = purchaseRepository.save(purchase);
+        return toDTO(saved);
+    }
+
+    /**
+     * Selling price updates, serials and serial ranges from a receive request, keyed by product id.
+     */
+    record ReceivePlan(java.util.Map<Long, BigDecimal> sellingPrices,
+                       java.util.Map<Long, List<String>> serialNumbers,
+                       java.util.Map<Long, List<SerialRangeService.Run>> serialRanges) {
+    }
+
+    void requireReceivable(Purchase purchase) {
         if ("RECEIVED".equals(purchase.getStatus())) {
             throw new IllegalStateException("Purchase has already been received");
         }
+        if ("RECEIVING".equals(purchase.getStatus())) {
+            throw new IllegalStateException("Purchase is being received by a background job");
+        }
+    }
 
+    ReceivePlan planReceive(Purchase purchase, ReceivePurchaseDTO receiveDto) {
         // Build a map of selling price updates if provided
         java.util.Map<Long, BigDecimal> sellingPriceUpdates = new java.util.HashMap<>();
         java.util.Map<Long, List<String>> serialNumbersMap = new java.util.HashMap<>();
+        java.util.Map<Long, List<SerialRangeService.Run>> serialRangesMap = new java.util.HashMap<>();
         if (receiveDto != null && receiveDto.getItems() != null) {
             for (ReceivePurchaseDTO.ReceiveItemDTO item : receiveDto.getItems()) {
                 if (item.getProductId() != null) {
@@ -127,66 +171,106 @@ public class PurchaseService {
                     if (item.getSerialNumbers() != null && !item.getSerialNumbers().isEmpty()) {
                         serialNumbersMap.put(item.getProductId(), item.getSerialNumbers());
                     }
+                    if (item.getSerialRanges() != null && !item.getSerialRanges().isEmpty()) {
+                        serialRangesMap.put(item.getProductId(), item.getSerialRanges().stream()
+                                .map(SerialRangeService::parse)
+                                .collect(Collectors.toList()));
+                    }
                 }
             }
         }
+        return new ReceivePlan(sellingPriceUpdates, serialNumbersMap, serialRangesMap);
+    }
 
-        // Update stock for each item
-        for (PurchaseItem item : purchase.getItems()) {
-            StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(
-                    purchase.getBranch().getId(), item.getProduct().getId())
-                    .orElse(StockItem.builder()
-                            .branch(purchase.getBranch())
-                            .product(item.getProduct())
-                            .quantity(0)
-                            .build());
-
-            stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
-            stockItem.setCostPrice(item.getUnitCost());
-            stockItem.setLastStockDate(LocalDateTime.now());
-            
-            // Update branch-specific selling price if provided
-            if (sellingPriceUpdates.containsKey(item.getProduct().getId())) {
-                stockItem.setSellingPrice(sellingPriceUpdates.get(item.getProduct().getId()));
+    /**
+     * Adds one purchase line to the branch's stock, stores its serials and serial ranges and marks
+     * the line received.
+     */
+    void receiveItem(Purchase purchase, PurchaseItem item, Long userId, ReceivePlan plan) {
+        StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(
+                purchase.getBranch().getId(), item.getProduct().getId())
+                .orElse(StockItem.builder()
+                        .branch(purchase.getBranch())
+                        .product(item.getProduct())
+                        .quantity(0)
+                        .build());
+
+        stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
+        stockItem.setCostPrice(item.getUnitCost());
+        stockItem.setLastStockDate(LocalDateTime.now());
+
+        // Update branch-specific selling price if provided
+        if (plan.sellingPrices().containsKey(item.getProduct().getId())) {
+            stockItem.setSellingPrice(plan.sellingPrices().get(item.getProduct().getId()));
+        }
+
+        StockItem savedStockItem = stockItemRepository.save(stockItem);
+
+        // Create serial number records for serialized products
+        if (Boolean.TRUE.equals(item.getProduct().getRequiresSerial())) {
+            List<String> serials = plan.serialNumbers().get(item.getProduct().getId());
+            if (serials != null && !serials.isEmpty()) {
+                serialNumberRepository.insertInStock(savedStockItem.getId(), purchase.getId(), serials);
+                serialEventService.recordReceived(purchase.getId(), savedStockItem.getId(),
+                        purchase.getBranch().getId(), userId);
+                eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(savedStockItem.getId()));
             }
-            
-            StockItem savedStockItem = stockItemRepository.save(stockItem);
-
-            // Create serial number records for serialized products
-            if (Boolean.TRUE.equals(item.getProduct().getRequiresSerial())) {
-                List<String> serials = serialNumbersMap.get(item.getProduct().getId());
-                if (serials != null && !serials.isEmpty()) {
-                    if (serials.size() != item.getQuantity()) {
-                        throw new IllegalStateException(
-                            "Serial number count (" + serials.size() + ") does not match quantity (" + 
-                            item.getQuantity() + ") for product: " + item.getProduct().getName()
-                        );
-                    }
-                    for (String serial : serials) {
-                        // Check for duplicate serial numbers
-                        if (serialNumberRepository.existsBySerialNumber(serial)) {
-                            throw new IllegalStateException("Serial number already exists: " + serial);
-                        }
-                        SerialNumber serialNumber = SerialNumber.builder()
-                                .stockItem(savedStockItem)
-                                .serialNumber(serial)
-                                .status(SerialNumberStatus.IN_STOCK)
-                                .purchase(purchase)
-                                .build();
-                        serialNumberRepository.save(serialNumber);
-                    }
+            // Sequential runs are stored as ranges and split into rows only when used
+            List<SerialRangeService.Run> runs = plan.serialRanges().get(item.getProduct().getId());
+            if (runs != null) {
+                serialRangeService.insert(savedStockItem, purchase, runs);
+            }
+        }
+        item.setReceived(true);
+    }
+
+    /**
+     * Checks the serials of the given lines before anything is written: counts (individual serials
+     * plus range sizes) must match the received quantities, and duplicates within the request or
+     * against stored serials and ranges are all reported together. Individual stored serials are
+     * checked with a single query.
+     */
+    void validateSerialNumbers(List<PurchaseItem> items, ReceivePlan plan) {
+        Set<String> seen = new HashSet<>();
+        Set<String> repeated = new LinkedHashSet<>();
+        List<SerialRangeService.Run> allRuns = new ArrayList<>();
+
+        for (PurchaseItem item : items) {
+            if (!Boolean.TRUE.equals(item.getProduct().getRequiresSerial())) continue;
+            List<String> serials = plan.serialNumbers().getOrDefault(item.getProduct().getId(), List.of());
+            List<SerialRangeService.Run> runs = plan.serialRanges().getOrDefault(item.getProduct().getId(), List.of());
+            if (serials.isEmpty() && runs.isEmpty()) continue;
+
+            long count = serials.size() + runs.stream().mapToLong(SerialRangeService.Run::size).sum();
+            if (count != item.getQuantity()) {
+                throw new IllegalStateException(
+                    "Serial number count (" + count + ") does not match quantity (" + 
+                    item.getQuantity() + ") for product: " + item.getProduct().getName()
+                );
+            }
+            allRuns.addAll(runs);
+            for (String serial : serials) {
+                if (!seen.add(serial)) {
+                    repeated.add(serial);
                 }
             }
         }
 
-        purchase.setStatus("RECEIVED");
-        Purchase saved = purchaseRepository.save(purchase);
-        return toDTO(saved);
-    }
+        List<String> existing = serialNumberRepository.findExistingSerialNumbers(seen);
+        List<String> rangeProblems = serialRangeService.findConflicts(allRuns, seen);
+        if (repeated.isEmpty() && existing.isEmpty() && rangeProblems.isEmpty()) {
+            return;
+        }
 
-    private String generatePurchaseNumber(String branchCode) {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "PO-" + branchCode + "-" + dateStr;
+        List<String> problems = new ArrayList<>();
+        if (!repeated.isEmpty()) {
+            problems.add("Serial numbers repeated in this delivery: " + String.join(", ", repeated));
+        }
+        if (!existing.isEmpty()) {
+            problems.add("Serial numbers already exist: " + String.join(", ", existing));
+        }
+        problems.addAll(rangeProblems);
+        throw new IllegalStateException(String.join("; ", problems));
     }
 
     private PurchaseDTO toDTO(Purchase purchase) {
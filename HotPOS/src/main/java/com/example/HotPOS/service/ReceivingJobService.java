@@ -0,0 +1,330 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.dto.ReceivingJobDTO;
+import com.example.HotPOS.entity.Purchase;
+import com.example.HotPOS.entity.PurchaseItem;
+import com.example.HotPOS.entity.ReceivingJob;
+import com.example.HotPOS.entity.User;
+import com.example.HotPOS.enums.ReceivingJobStatus;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.PurchaseRepository;
+import com.example.HotPOS.repository.ReceivingJobRepository;
+import com.example.HotPOS.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Receives purchases in the background. Each chunk of lines commits together with the job's
+ * checkpoint, so stock becomes visible as the job advances and a failed or interrupted job
+ * resumes after the last committed line instead of starting over.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReceivingJobService {
+
+    private static final int WORKERS = 2;
+    // A RUNNING job that has not committed a chunk for this long is assumed to have lost its worker
+    private static final long STALLED_AFTER_MINUTES = 5;
+
+    private final ReceivingJobRepository receivingJobRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final UserRepository userRepository;
+    private final PurchaseService purchaseService;
+    private final SupplierStatsService supplierStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${hotpos.receiving.chunk-lines:50}")
+    private int chunkLines;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(WORKERS,
+            Thread.ofPlatform().name("receiving-job-", 0).daemon(true).factory());
+
+    /**
+     * Validates the request as the synchronous receive does, then queues the job. Nothing is
+     * written to stock before the job runs.
+     */
+    public ReceivingJobDTO start(Long purchaseId, Long userId, ReceivePurchaseDTO receiveDto) {
+        ReceivingJob job = transactionTemplate.execute(status -> {
+            Purchase purchase = purchaseRepository.findById(purchaseId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with id: " + purchaseId));
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+            purchaseService.requireReceivable(purchase);
+            purchaseService.validateSerialNumbers(pendingLines(purchase.getItems()),
+                    purchaseService.planReceive(purchase, receiveDto));
+
+            purchase.setStatus("RECEIVING");
+            ReceivingJob created = receivingJobRepository.save(ReceivingJob.builder()
+                    .purchase(purchase)
+                    .user(user)
+                    .status(ReceivingJobStatus.QUEUED)
+                    .totalLines(purchase.getItems().size())
+                    .request(writeRequest(receiveDto))
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            submitAfterCommit(created.getId());
+            return created;
+        });
+        return getJob(job.getId());
+    }
+
+    public ReceivingJobDTO resume(Long jobId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ReceivingJob job = findJob(jobId);
+            if (job.getStatus() != ReceivingJobStatus.FAILED) {
+                throw new IllegalStateException("Only failed receiving jobs can be resumed; job is " + job.getStatus());
+            }
+            job.setStatus(ReceivingJobStatus.QUEUED);
+            job.setError(null);
+            job.setUpdatedAt(LocalDateTime.now());
+            submitAfterCommit(jobId);
+        });
+        return getJob(jobId);
+    }
+
+    /**
+     * Stops a job for good, e.g. one whose serials another receipt has taken since it was
+     * validated. Lines already committed stay in stock: the purchase goes back to PENDING when
+     * there are none and to PARTIALLY_RECEIVED otherwise, and a later receive applies only the
+     * remaining lines. A worker still running the job stops at its next chunk.
+     */
+    public ReceivingJobDTO cancel(Long jobId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ReceivingJob job = lockJob(jobId);
+            if (job.getStatus() == ReceivingJobStatus.COMPLETED || job.getStatus() == ReceivingJobStatus.CANCELLED) {
+                throw new IllegalStateException("Receiving job is already " + job.getStatus());
+            }
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(ReceivingJobStatus.CANCELLED);
+            job.setUpdatedAt(now);
+            job.setCompletedAt(now);
+            Purchase purchase = job.getPurchase();
+            boolean anyReceived = purchase.getItems().stream()
+                    .anyMatch(item -> Boolean.TRUE.equals(item.getReceived()));
+            purchase.setStatus(anyReceived ? "PARTIALLY_RECEIVED" : "PENDING");
+        });
+        return getJob(jobId);
+    }
+
+    public ReceivingJobDTO getJob(Long jobId) {
+        return transactionTemplate.execute(status -> toDTO(findJob(jobId)));
+    }
+
+    public ReceivingJobDTO getLatestJobForPurchase(Long purchaseId) {
+        return transactionTemplate.execute(status -> receivingJobRepository.findFirstByPurchaseIdOrderByIdDesc(purchaseId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("No receiving job for purchase: " + purchaseId)));
+    }
+
+    /**
+     * Picks up jobs left behind by a restart or a lost node: stalled RUNNING jobs go back to the
+     * queue, and queued jobs nobody has claimed are submitted here.
+     */
+    @Scheduled(fixedDelayString = "${hotpos.receiving.recovery-ms:60000}")
+    public void recoverStalled() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusMinutes(STALLED_AFTER_MINUTES);
+        List<Long> jobIds = transactionTemplate.execute(status -> {
+            // A stalled job that committed a chunk meanwhile is not requeued, and its submit
+            // below finds nothing to claim
+            Set<Long> ids = new LinkedHashSet<>(
+                    receivingJobRepository.findIdsByStatusAndUpdatedAtBefore(ReceivingJobStatus.RUNNING, cutoff));
+            receivingJobRepository.requeueStalled(cutoff, now);
+            ids.addAll(receivingJobRepository.findIdsByStatusAndUpdatedAtBefore(ReceivingJobStatus.QUEUED, cutoff));
+            return new ArrayList<>(ids);
+        });
+        for (Long jobId : jobIds) {
+            log.info("Resuming receiving job {}", jobId);
+            submit(jobId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // A claimed job: the attempt it runs under and its stored request (null: receive as ordered)
+    record Claim(int attempt, ReceivePurchaseDTO request) {}
+
+    enum ChunkResult { MORE, DONE, LOST }
+
+    void run(Long jobId) {
+        // Claim the job; another worker or node may already have it
+        Optional<Claim> claimed = transactionTemplate.execute(status -> {
+            if (receivingJobRepository.claim(jobId, LocalDateTime.now()) == 0) {
+                return Optional.<Claim>empty();
+            }
+            ReceivingJob job = findJob(jobId);
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(LocalDateTime.now());
+            }
+            return Optional.of(new Claim(job.getAttempt(), readRequest(job.getRequest())));
+        });
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Claim claim = claimed.get();
+
+        try {
+            ChunkResult result = ChunkResult.MORE;
+            while (result == ChunkResult.MORE && !Thread.currentThread().isInterrupted()) {
+                result = transactionTemplate.execute(status -> processChunk(jobId, claim));
+            }
+            if (result == ChunkResult.LOST) {
+                log.info("Receiving job {} was requeued or cancelled while attempt {} ran; leaving it",
+                        jobId, claim.attempt());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Receiving job {} failed", jobId, e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            transactionTemplate.executeWithoutResult(status -> {
+                ReceivingJob job = lockJob(jobId);
+                // Only the attempt that still owns the job may fail it
+                if (owns(job, claim)) {
+                    job.setStatus(ReceivingJobStatus.FAILED);
+                    job.setError(message);
+                    job.setUpdatedAt(LocalDateTime.now());
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies the next chunk of lines and advances the checkpoint in the same transaction, with
+     * the job row locked. The chunk's serials are checked again first, since another receipt may
+     * have stored some of them after the job was validated; a conflict rolls the chunk back and
+     * fails the job with the problem. Returns LOST without applying anything when the job was
+     * requeued or cancelled since this attempt started.
+     */
+    ChunkResult processChunk(Long jobId, Claim claim) {
+        ReceivingJob job = lockJob(jobId);
+        if (!owns(job, claim)) {
+            return ChunkResult.LOST;
+        }
+        ReceivePurchaseDTO request = claim.request();
+        Purchase purchase = job.getPurchase();
+        List<PurchaseItem> items = purchase.getItems().stream()
+                .sorted(Comparator.comparing(PurchaseItem::getId))
+                .collect(Collectors.toList());
+        PurchaseService.ReceivePlan plan = purchaseService.planReceive(purchase, request);
+
+        int from = job.getProcessedLines();
+        int to = Math.min(from + chunkLines, items.size());
+        List<PurchaseItem> chunk = pendingLines(items.subList(from, to));
+        purchaseService.validateSerialNumbers(chunk, plan);
+        for (PurchaseItem item : chunk) {
+            purchaseService.receiveItem(purchase, item, job.getUser().getId(), plan);
+        }
+
+        job.setProcessedLines(to);
+        job.setUpdatedAt(LocalDateTime.now());
+        if (to < items.size()) {
+            return ChunkResult.MORE;
+        }
+        purchase.setStatus("RECEIVED");
+        supplierStatsService.recordReceipt(purchase.getSupplier().getId(), purchase.getId());
+        job.setStatus(ReceivingJobStatus.COMPLETED);
+        job.setCompletedAt(LocalDateTime.now());
+        return ChunkResult.DONE;
+    }
+
+    /**
+     * Replaces the status check an older schema created without CANCELLED; see DataInitializer.
+     */
+    public void widenStatusCheck() {
+        transactionTemplate.executeWithoutResult(status -> receivingJobRepository.widenStatusCheck());
+    }
+
+    // Lines a cancelled job already put in stock are skipped by the job that receives the rest
+    private static List<PurchaseItem> pendingLines(List<PurchaseItem> items) {
+        return items.stream()
+                .filter(item -> !Boolean.TRUE.equals(item.getReceived()))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean owns(ReceivingJob job, Claim claim) {
+        return job.getStatus() == ReceivingJobStatus.RUNNING && job.getAttempt() == claim.attempt();
+    }
+
+    private void submitAfterCommit(Long jobId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(jobId);
+            }
+        });
+    }
+
+    private void submit(Long jobId) {
+        executor.execute(() -> run(jobId));
+    }
+
+    private ReceivingJob lockJob(Long jobId) {
+        return receivingJobRepository.lockById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Receiving job not found with id: " + jobId));
+    }
+
+    private ReceivingJob findJob(Long jobId) {
+        return receivingJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Receiving job not found with id: " + jobId));
+    }
+
+    private String writeRequest(ReceivePurchaseDTO receiveDto) {
+        try {
+            return receiveDto != null ? objectMapper.writeValueAsString(receiveDto) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store receive request", e);
+        }
+    }
+
+    private ReceivePurchaseDTO readRequest(String request) {
+        try {
+            return request != null ? objectMapper.readValue(request, ReceivePurchaseDTO.class) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored receive request", e);
+        }
+    }
+
+    private ReceivingJobDTO toDTO(ReceivingJob job) {
+        int total = job.getTotalLines();
+        return ReceivingJobDTO.builder()
+                .id(job.getId())
+                .purchaseId(job.getPurchase().getId())
+                .purchaseNumber(job.getPurchase().getPurchaseNumber())
+                .status(job.getStatus())
+                .totalLines(total)
+                .processedLines(job.getProcessedLines())
+                .percentComplete(total == 0 ? 100 : job.getProcessedLines() * 100 / total)
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
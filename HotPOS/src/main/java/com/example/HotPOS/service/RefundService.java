@@ -2,20 +2,30 @@ package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.*;
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.DocumentType;
 import com.example.HotPOS.enums.ApprovalStatus;
 import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,29 +40,27 @@ public class RefundService {
     private final ProductRepository productRepository;
     private final StockItemRepository stockItemRepository;
     private final SerialNumberRepository serialNumberRepository;
+    private final SerialEventService serialEventService;
+    private final RefundItemSerialRepository refundItemSerialRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentNumberService documentNumberService;
+    private final TransactionTemplate transactionTemplate;
 
     public List<RefundDTO> getAllRefunds() {
-        return refundRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(refundRepository.findAll());
     }
 
     public List<RefundDTO> getRefundsByBranch(Long branchId) {
-        return refundRepository.findByBranchIdOrderByRefundDateDescCreatedAtDesc(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(refundRepository.findByBranchIdOrderByRefundDateDescCreatedAtDesc(branchId));
     }
 
     public List<RefundDTO> getRefundsByCustomer(Long customerId) {
-        return refundRepository.findByCustomerId(customerId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(refundRepository.findByCustomerId(customerId));
     }
 
     public List<RefundDTO> getRefundsBySale(Long saleId) {
-        return refundRepository.findBySaleId(saleId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(refundRepository.findBySaleId(saleId));
     }
 
     public RefundDTO getRefundById(Long id) {
@@ -81,7 +89,7 @@ public class RefundService {
                     .orElseThrow(() -> new ResourceNotFoundException("Customer not found with id: " + dto.getCustomerId()));
         }
 
-        String refundNumber = generateRefundNumber(branch.getCode());
+        String refundNumber = documentNumberService.nextNumber(DocumentType.REFUND, branch.getId(), branch.getCode());
 
         Refund refund = Refund.builder()
                 .branch(branch)
@@ -97,6 +105,7 @@ public class RefundService {
                 .build();
 
         BigDecimal totalAmount = BigDecimal.ZERO;
+        Map<RefundItem, List<String>> requestedSerials = new HashMap<>();
 
         for (CreateRefundItemDTO itemDto : dto.getItems()) {
             Product product = productRepository.findById(itemDto.getProductId())
@@ -114,8 +123,15 @@ public class RefundService {
                     .build();
 
             refund.getItems().add(refundItem);
+            if (itemDto.getSerialNumbers() != null && !itemDto.getSerialNumbers().isEmpty()) {
+                requestedSerials.put(refundItem, itemDto.getSerialNumbers());
+            }
         }
 
+        if (sale != null) {
+            checkRefundable(sale.getItems(), refund.getItems());
+        }
+        assignSerials(refund, requestedSerials);
         refund.setTotalAmount(totalAmount);
 
         Refund saved = refundRepository.save(refund);
@@ -131,39 +147,43 @@ public class RefundService {
             throw new IllegalStateException("Refund is not in pending status");
         }
 
-        // Restore stock for each refunded item
-        for (RefundItem item : refund.getItems()) {
-            StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(
-                    refund.getBranch().getId(), item.getProduct().getId())
-                    .orElse(StockItem.builder()
-                            .branch(refund.getBranch())
-                            .product(item.getProduct())
-                            .quantity(0)
-                            .costPrice(item.getUnitPrice())
-                            .build());
+        // Other refunds on the sale may have been approved since this one was created
+        if (refund.getSale() != null) {
+            List<SaleItem> saleItems = saleItemRepository.lockBySaleId(refund.getSale().getId());
+            checkRefundable(saleItems, refund.getItems());
+            applyToSale(saleItems, refund);
+        }
 
-            // Add stock back (customer returned items)
-            stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
-            stockItem.setLastStockDate(LocalDateTime.now());
-            stockItemRepository.save(stockItem);
-
-            // Update serial numbers if applicable
-            if (item.getProduct().getRequiresSerial()) {
-                // If we have serial numbers linked to the original sale, mark them as returned
-                if (refund.getSale() != null) {
-                    List<SerialNumber> soldSerials = serialNumberRepository.findBySaleId(refund.getSale().getId());
-                    int count = 0;
-                    for (SerialNumber serial : soldSerials) {
-                        if (count >= item.getQuantity()) break;
-                        if (serial.getStockItem().getProduct().getId().equals(item.getProduct().getId()) &&
-                            serial.getStatus() == SerialNumberStatus.SOLD) {
-                            serial.setStatus(SerialNumberStatus.RETURNED);
-                            serial.setSale(null);
-                            serialNumberRepository.save(serial);
-                            count++;
-                        }
-                    }
-                }
+        // Restore stock for each refunded item; the branch's stock rows are locked in id order in
+        // one query, as the batch path does, so sales and shard consolidation cannot write in between
+        Map<Long, StockItem> stockByProduct = new HashMap<>();
+        for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(List.of(refund.getBranch().getId()),
+                refund.getItems().stream().map(item -> item.getProduct().getId()).collect(Collectors.toSet()))) {
+            stockByProduct.put(stockItem.getProduct().getId(), stockItem);
+        }
+        restoreStock(refund, stockByProduct);
+        stockItemRepository.saveAll(stockByProduct.values());
+
+        // Refunds created before serials were recorded on them pick from the sale now
+        long expected = refundItemSerialRepository.countByRefundId(refundId);
+        if (expected == 0) {
+            assignSerials(refund, Map.of());
+            refundRepository.flush();
+            expected = refundItemSerialRepository.countByRefundId(refundId);
+        }
+
+        // Mark the recorded serials as returned in one statement
+        if (expected > 0) {
+            List<Long> stockItemIds = refundItemSerialRepository.findStockItemIdsByRefundId(refundId);
+            int updated = serialNumberRepository.updateStatusForRefund(refundId,
+                    SerialNumberStatus.SOLD, SerialNumberStatus.RETURNED, LocalDateTime.now());
+            if (updated != expected) {
+                throw new IllegalStateException("Only " + updated + " of " + expected +
+                        " serial numbers on this refund are still sold");
+            }
+            serialEventService.recordRefund(refundId, refund.getBranch().getId(), approvedById);
+            for (Long stockItemId : stockItemIds) {
+                eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItemId));
             }
         }
 
@@ -173,6 +193,136 @@ public class RefundService {
         return toDTO(saved);
     }
 
+    /**
+     * Approves several refunds with one transaction per branch. A branch's refunds, stock rows
+     * and sale lines are locked and loaded together, and the refunds are checked in id order
+     * against the running totals; one that fails is reported and left pending while the rest go
+     * ahead. Stock is written in JDBC batches and serials with one update for the branch.
+     */
+    public BatchApprovalResultDTO approveRefunds(List<Long> refundIds, Long approvedById) {
+        BatchApproval batch = new BatchApproval(refundIds);
+        Map<Long, List<Long>> idsByBranch = new TreeMap<>();
+        for (Object[] row : refundRepository.findBranchIdsByIdIn(batch.ids())) {
+            idsByBranch.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add((Long) row[0]);
+        }
+        idsByBranch.forEach((branchId, ids) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> approveRefundGroup(branchId, ids, approvedById, batch));
+            } catch (RuntimeException e) {
+                batch.failedAll(ids, e.getMessage());
+            }
+        });
+        return batch.result();
+    }
+
+    private void approveRefundGroup(Long branchId, List<Long> ids, Long approvedById, BatchApproval batch) {
+        List<Refund> pending = new ArrayList<>();
+        for (Refund refund : refundRepository.lockByIdIn(ids)) {
+            if (refund.getStatus() == ApprovalStatus.PENDING) {
+                pending.add(refund);
+            } else {
+                batch.failed(refund.getId(), refund.getRefundNumber(), "Refund is not in pending status");
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> pendingIds = pending.stream().map(Refund::getId).collect(Collectors.toList());
+        // Initialises the locked refunds' items in one query
+        refundRepository.findWithItemsByIdIn(pendingIds);
+
+        // Refunds created before serials were recorded on them pick from their sale now
+        Map<Long, Long> serialCounts = BatchApproval.countsById(refundItemSerialRepository.countByRefundIds(pendingIds));
+        boolean assigned = false;
+        for (Refund refund : pending) {
+            if (!serialCounts.containsKey(refund.getId()) && refund.getItems().stream()
+                    .anyMatch(item -> Boolean.TRUE.equals(item.getProduct().getRequiresSerial()))) {
+                assignSerials(refund, Map.of());
+                assigned = true;
+            }
+        }
+        if (assigned) {
+            refundRepository.flush();
+            serialCounts = BatchApproval.countsById(refundItemSerialRepository.countByRefundIds(pendingIds));
+        }
+        Map<Long, Long> notSold = BatchApproval.countsById(
+                refundItemSerialRepository.countNotInStatusByRefundIds(pendingIds, SerialNumberStatus.SOLD));
+
+        Set<Long> productIds = pending.stream()
+                .flatMap(refund -> refund.getItems().stream())
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        Map<Long, StockItem> stockByProduct = new HashMap<>();
+        for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(List.of(branchId), productIds)) {
+            stockByProduct.put(stockItem.getProduct().getId(), stockItem);
+        }
+        Set<Long> saleIds = pending.stream()
+                .filter(refund -> refund.getSale() != null)
+                .map(refund -> refund.getSale().getId())
+                .collect(Collectors.toSet());
+        Map<Long, List<SaleItem>> saleLines = new HashMap<>();
+        if (!saleIds.isEmpty()) {
+            for (SaleItem saleItem : saleItemRepository.lockBySaleIdIn(saleIds)) {
+                saleLines.computeIfAbsent(saleItem.getSale().getId(), id -> new ArrayList<>()).add(saleItem);
+            }
+        }
+
+        List<Long> approvedIds = new ArrayList<>();
+        long expectedSerials = 0;
+        for (Refund refund : pending) {
+            if (notSold.containsKey(refund.getId())) {
+                batch.failed(refund.getId(), refund.getRefundNumber(),
+                        notSold.get(refund.getId()) + " serial number(s) on this refund are no longer sold");
+                continue;
+            }
+            if (refund.getSale() != null) {
+                List<SaleItem> lines = saleLines.getOrDefault(refund.getSale().getId(), List.of());
+                try {
+                    checkRefundable(lines, refund.getItems());
+                } catch (IllegalStateException e) {
+                    batch.failed(refund.getId(), refund.getRefundNumber(), e.getMessage());
+                    continue;
+                }
+                applyToSale(lines, refund);
+            }
+            restoreStock(refund, stockByProduct);
+            refund.setStatus(ApprovalStatus.APPROVED);
+            approvedIds.add(refund.getId());
+            expectedSerials += serialCounts.getOrDefault(refund.getId(), 0L);
+            batch.approved(refund.getId(), refund.getRefundNumber());
+        }
+        stockItemRepository.saveAll(stockByProduct.values());
+
+        if (expectedSerials > 0) {
+            int updated = serialNumberRepository.updateStatusForRefunds(approvedIds,
+                    SerialNumberStatus.SOLD, SerialNumberStatus.RETURNED, LocalDateTime.now());
+            if (updated != expectedSerials) {
+                throw new IllegalStateException("Only " + updated + " of " + expectedSerials +
+                        " serial numbers on these refunds are still sold");
+            }
+            serialEventService.recordRefunds(approvedIds, approvedById);
+            for (Long stockItemId : refundItemSerialRepository.findStockItemIdsByRefundIds(approvedIds)) {
+                eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItemId));
+            }
+        }
+    }
+
+    // Adds the refunded quantities back to the branch's stock, creating missing rows
+    private void restoreStock(Refund refund, Map<Long, StockItem> stockByProduct) {
+        for (RefundItem item : refund.getItems()) {
+            StockItem stockItem = stockByProduct.computeIfAbsent(item.getProduct().getId(), id -> StockItem.builder()
+                    .branch(refund.getBranch())
+                    .product(item.getProduct())
+                    .quantity(0)
+                    .costPrice(item.getUnitPrice())
+                    .build());
+
+            // Add stock back (customer returned items)
+            stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
+            stockItem.setLastStockDate(LocalDateTime.now());
+        }
+    }
+
     @Transactional
     public RefundDTO rejectRefund(Long refundId) {
         Refund refund = refundRepository.findById(refundId)
@@ -188,12 +338,167 @@ public class RefundService {
         return toDTO(saved);
     }
 
-    private String generateRefundNumber(String branchCode) {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "REF-" + branchCode + "-" + dateStr;
+    /**
+     * Replays approved refunds onto their sales' lines. Used once, for refunds approved before
+     * sale lines tracked refunded quantities; lines are capped at what was sold.
+     */
+    @Transactional
+    public int backfillSaleRefunds() {
+        List<Refund> refunds = refundRepository.findBySaleIsNotNullAndStatusOrderById(ApprovalStatus.APPROVED);
+        for (Refund refund : refunds) {
+            List<SaleItem> saleItems = refund.getSale().getItems().stream()
+                    .sorted(Comparator.comparing(SaleItem::getId))
+                    .collect(Collectors.toList());
+            applyToSale(saleItems, refund);
+        }
+        return refunds.size();
+    }
+
+    /**
+     * Checks refund lines against the sale: each product must have been sold on it, and the
+     * quantity may not exceed what was sold less what approved refunds already took. Pending
+     * refunds are not counted, so approval checks again with the sale's lines locked.
+     */
+    private void checkRefundable(List<SaleItem> saleItems, List<RefundItem> refundItems) {
+        Map<Long, Integer> refundable = new HashMap<>();
+        for (SaleItem saleItem : saleItems) {
+            refundable.merge(saleItem.getProduct().getId(), saleItem.getRefundableQuantity(), Integer::sum);
+        }
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (RefundItem item : refundItems) {
+            requested.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            names.put(item.getProduct().getId(), item.getProduct().getName());
+        }
+
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Integer available = refundable.get(entry.getKey());
+            if (available == null) {
+                problems.add(names.get(entry.getKey()) + " was not sold on this sale");
+            } else if (entry.getValue() > available) {
+                problems.add("Only " + available + " of " + names.get(entry.getKey()) + " can still be refunded");
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", problems));
+        }
+    }
+
+    // Spreads each refund line over the sale's lines for its product, in the given order
+    private void applyToSale(List<SaleItem> saleItems, Refund refund) {
+        for (RefundItem item : refund.getItems()) {
+            int remaining = item.getQuantity();
+            for (SaleItem saleItem : saleItems) {
+                if (remaining == 0) {
+                    break;
+                }
+                if (!saleItem.getProduct().getId().equals(item.getProduct().getId())) {
+                    continue;
+                }
+                int taken = Math.min(remaining, saleItem.getRefundableQuantity());
+                if (taken > 0) {
+                    saleItem.setRefundedQuantity(saleItem.getRefundedQuantity() + taken);
+                    saleItem.setRefundedAmount(saleItem.getRefundedAmount()
+                            .add(item.getUnitPrice().multiply(BigDecimal.valueOf(taken))));
+                    remaining -= taken;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records which sold serials come back on each serialized line. Requested serials must have
+     * been sold on the refund's sale and not be held by another pending refund; lines without a
+     * list take the sale's remaining serials for that product, up to the line quantity. The
+     * sale's serials are loaded with one query.
+     */
+    private void assignSerials(Refund refund, Map<RefundItem, List<String>> requestedSerials) {
+        List<RefundItem> serialItems = refund.getItems().stream()
+                .filter(item -> Boolean.TRUE.equals(item.getProduct().getRequiresSerial()))
+                .collect(Collectors.toList());
+        if (serialItems.isEmpty()) {
+            return;
+        }
+        if (refund.getSale() == null) {
+            if (!requestedSerials.isEmpty()) {
+                throw new IllegalStateException("Serial numbers can only be refunded against a sale");
+            }
+            return;
+        }
+
+        List<SerialNumber> sold = serialNumberRepository.findWithStockItemBySaleIdAndStatus(
+                refund.getSale().getId(), SerialNumberStatus.SOLD);
+        Set<Long> reserved = sold.isEmpty() ? Set.of() : new HashSet<>(refundItemSerialRepository.findReservedSerialIds(
+                sold.stream().map(SerialNumber::getId).collect(Collectors.toList()), ApprovalStatus.PENDING));
+
+        Map<String, SerialNumber> bySerial = new HashMap<>();
+        Map<Long, List<SerialNumber>> availableByProduct = new HashMap<>();
+        for (SerialNumber serial : sold) {
+            if (!reserved.contains(serial.getId())) {
+                bySerial.put(serial.getSerialNumber(), serial);
+                availableByProduct.computeIfAbsent(serial.getStockItem().getProduct().getId(), id -> new ArrayList<>())
+                        .add(serial);
+            }
+        }
+
+        List<String> problems = new ArrayList<>();
+        for (RefundItem item : serialItems) {
+            Long productId = item.getProduct().getId();
+            List<String> requested = requestedSerials.get(item);
+            List<SerialNumber> chosen = new ArrayList<>();
+
+            if (requested == null) {
+                List<SerialNumber> available = availableByProduct.getOrDefault(productId, List.of());
+                chosen.addAll(available.subList(0, Math.min(item.getQuantity(), available.size())));
+            } else if (new HashSet<>(requested).size() != requested.size() || requested.size() != item.getQuantity()) {
+                problems.add("Serial numbers for " + item.getProduct().getName() +
+                        " must be " + item.getQuantity() + " distinct values");
+            } else {
+                for (String value : requested) {
+                    SerialNumber serial = bySerial.get(value);
+                    if (serial == null || !serial.getStockItem().getProduct().getId().equals(productId)) {
+                        problems.add("Serial number " + value + " was not sold on this sale as " +
+                                item.getProduct().getName() + " or is already being refunded");
+                    } else {
+                        chosen.add(serial);
+                    }
+                }
+            }
+
+            for (SerialNumber serial : chosen) {
+                bySerial.remove(serial.getSerialNumber());
+                availableByProduct.getOrDefault(productId, new ArrayList<>()).remove(serial);
+                item.getSerials().add(RefundItemSerial.builder()
+                        .refundItem(item)
+                        .serialNumber(serial)
+                        .build());
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", problems));
+        }
     }
 
     private RefundDTO toDTO(Refund refund) {
+        return toDTOList(List.of(refund)).get(0);
+    }
+
+    private List<RefundDTO> toDTOList(List<Refund> refunds) {
+        if (refunds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<String>> serialsByItem = new HashMap<>();
+        List<Long> refundIds = refunds.stream().map(Refund::getId).collect(Collectors.toList());
+        for (Object[] row : refundItemSerialRepository.findSerialNumbersByRefundIds(refundIds)) {
+            serialsByItem.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return refunds.stream()
+                .map(refund -> toDTO(refund, serialsByItem))
+                .collect(Collectors.toList());
+    }
+
+    private RefundDTO toDTO(Refund refund, Map<Long, List<String>> serialsByItem) {
         List<RefundItemDTO> items = refund.getItems().stream()
                 .map(item -> RefundItemDTO.builder()
                         .id(item.getId())
@@ -203,6 +508,7 @@ public class RefundService {
                         .quantity(item.getQuantity())
                         .unitPrice(item.getUnitPrice())
                         .totalPrice(item.getTotalPrice())
+                        .serialNumbers(serialsByItem.get(item.getId()))
                         .build())
                 .collect(Collectors.toList());
 
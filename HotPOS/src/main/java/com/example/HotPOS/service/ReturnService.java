@@ -2,20 +2,31 @@ package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.*;
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.DocumentType;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
 import com.example.HotPOS.enums.ApprovalStatus;
+import com.example.HotPOS.enums.SerialEventType;
 import com.example.HotPOS.enums.SerialNumberStatus;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +41,13 @@ public class ReturnService {
     private final ProductRepository productRepository;
     private final StockItemRepository stockItemRepository;
     private final SerialNumberRepository serialNumberRepository;
+    private final StockShardService stockShardService;
+    private final SerialEventService serialEventService;
+    private final SupplierStatsService supplierStatsService;
+    private final SerialRangeService serialRangeService;
+    private final DocumentNumberService documentNumberService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<ReturnDTO> getAllReturns() {
         return returnRepository.findAll().stream()
@@ -78,7 +96,7 @@ public class ReturnService {
                     .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with id: " + dto.getPurchaseId()));
         }
 
-        String returnNumber = generateReturnNumber(branch.getCode());
+        String returnNumber = documentNumberService.nextNumber(DocumentType.RETURN, branch.getId(), branch.getCode());
 
         Return returnEntity = Return.builder()
                 .branch(branch)
@@ -138,12 +156,15 @@ public class ReturnService {
             throw new IllegalStateException("Return is not in pending status");
         }
 
+        List<SerialNumber> returnedSerials = new ArrayList<>();
+
         // Reduce stock for each returned item (going back to supplier)
         for (ReturnItem item : returnEntity.getItems()) {
             StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(
                     returnEntity.getBranch().getId(), item.getProduct().getId())
                     .orElseThrow(() -> new ResourceNotFoundException(
                             "Stock item not found for product: " + item.getProduct().getName()));
+            stockShardService.drain(stockItem);
 
             // Reduce stock (items going to supplier)
             if (stockItem.getQuantity() < item.getQuantity()) {
@@ -157,6 +178,11 @@ public class ReturnService {
 
             // Update serial numbers if applicable
             if (item.getProduct().getRequiresSerial()) {
+                // Serials that already have rows go first; only the shortfall is split out of ranges
+                int shortfall = item.getQuantity() - serialNumberRepository.countInStockByStockItem(stockItem.getId()).intValue();
+                if (shortfall > 0) {
+                    serialRangeService.claimFirst(stockItem, shortfall);
+                }
                 // Find serial numbers that belong to this purchase and mark them as returned
                 List<SerialNumber> serials = serialNumberRepository.findByStockItemId(stockItem.getId());
                 int count = 0;
@@ -165,18 +191,160 @@ public class ReturnService {
                     if (serial.getStatus() == SerialNumberStatus.IN_STOCK) {
                         serial.setStatus(SerialNumberStatus.RETURNED);
                         serialNumberRepository.save(serial);
+                        returnedSerials.add(serial);
                         count++;
                     }
                 }
             }
         }
 
+        serialEventService.record(SerialEventType.RETURNED_TO_SUPPLIER, returnedSerials,
+                returnEntity.getBranch().getId(), returnEntity.getId(), approvedById);
+
         returnEntity.setStatus(ApprovalStatus.APPROVED);
+        supplierStatsService.recordReturns(Set.of(returnEntity.getSupplier().getId()), List.of(returnId));
 
         Return saved = returnRepository.save(returnEntity);
         return toDTO(saved);
     }
 
+    /**
+     * Approves several supplier returns with one transaction per branch. A branch's returns and
+     * stock rows are locked and loaded together and the returns are checked in id order against
+     * the running stock; one that fails is reported and left pending while the rest go ahead.
+     * Serials to mark are picked for all returns with one query.
+     */
+    public BatchApprovalResultDTO approveReturns(List<Long> returnIds, Long approvedById) {
+        BatchApproval batch = new BatchApproval(returnIds);
+        Map<Long, List<Long>> idsByBranch = new TreeMap<>();
+        for (Object[] row : returnRepository.findBranchIdsByIdIn(batch.ids())) {
+            idsByBranch.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add((Long) row[0]);
+        }
+        idsByBranch.forEach((branchId, ids) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> approveReturnGroup(branchId, ids, approvedById, batch));
+            } catch (RuntimeException e) {
+                batch.failedAll(ids, e.getMessage());
+            }
+        });
+        return batch.result();
+    }
+
+    private void approveReturnGroup(Long branchId, List<Long> ids, Long approvedById, BatchApproval batch) {
+        List<Return> pending = new ArrayList<>();
+        for (Return returnEntity : returnRepository.lockByIdIn(ids)) {
+            if (returnEntity.getStatus() == ApprovalStatus.PENDING) {
+                pending.add(returnEntity);
+            } else {
+                batch.failed(returnEntity.getId(), returnEntity.getReturnNumber(), "Return is not in pending status");
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Initialises the locked returns' items and their products in two queries
+        returnRepository.findWithItemsByIdIn(pending.stream().map(Return::getId).collect(Collectors.toList()));
+        Set<Long> productIds = pending.stream()
+                .flatMap(returnEntity -> returnEntity.getItems().stream())
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        productRepository.findAllById(productIds);
+
+        Map<Long, StockItem> stockByProduct = new HashMap<>();
+        for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(List.of(branchId), productIds)) {
+            stockShardService.drain(stockItem);
+            stockByProduct.put(stockItem.getProduct().getId(), stockItem);
+        }
+
+        List<Return> approved = new ArrayList<>();
+        Map<Long, Integer> serialsNeeded = new LinkedHashMap<>();
+        for (Return returnEntity : pending) {
+            Map<Long, Integer> requested = new LinkedHashMap<>();
+            for (ReturnItem item : returnEntity.getItems()) {
+                requested.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+            List<String> problems = new ArrayList<>();
+            for (ReturnItem item : returnEntity.getItems()) {
+                StockItem stockItem = stockByProduct.get(item.getProduct().getId());
+                if (stockItem == null) {
+                    problems.add("Stock item not found for product: " + item.getProduct().getName());
+                } else if (stockItem.getQuantity() < requested.get(item.getProduct().getId())) {
+                    problems.add("Insufficient stock to return for " + item.getProduct().getName());
+                }
+            }
+            if (!problems.isEmpty()) {
+                batch.failed(returnEntity.getId(), returnEntity.getReturnNumber(), String.join("; ", problems));
+                continue;
+            }
+
+            for (ReturnItem item : returnEntity.getItems()) {
+                StockItem stockItem = stockByProduct.get(item.getProduct().getId());
+                stockItem.setQuantity(stockItem.getQuantity() - item.getQuantity());
+                stockItem.setLastStockDate(LocalDateTime.now());
+                if (item.getProduct().getRequiresSerial()) {
+                    serialsNeeded.merge(stockItem.getId(), item.getQuantity(), Integer::sum);
+                }
+            }
+            returnEntity.setStatus(ApprovalStatus.APPROVED);
+            approved.add(returnEntity);
+            batch.approved(returnEntity.getId(), returnEntity.getReturnNumber());
+        }
+        stockItemRepository.saveAll(stockByProduct.values());
+        supplierStatsService.recordReturns(
+                approved.stream().map(r -> r.getSupplier().getId()).collect(Collectors.toSet()),
+                approved.stream().map(Return::getId).collect(Collectors.toList()));
+        if (serialsNeeded.isEmpty()) {
+            return;
+        }
+
+        // Split only what the existing rows cannot cover out of stored ranges, then pick every
+        // return's serials at once
+        Map<Long, Long> inStock = BatchApproval.countsById(
+                serialNumberRepository.countInStockByStockItemIds(serialsNeeded.keySet()));
+        for (StockItem stockItem : stockByProduct.values()) {
+            Integer count = serialsNeeded.get(stockItem.getId());
+            long shortfall = count != null ? count - inStock.getOrDefault(stockItem.getId(), 0L) : 0;
+            if (shortfall > 0) {
+                serialRangeService.claimFirst(stockItem, (int) shortfall);
+            }
+        }
+        serialNumberRepository.flush();
+        Map<Long, Deque<Long>> available = new HashMap<>();
+        serialNumberRepository.findInStockIds(serialsNeeded)
+                .forEach((stockItemId, serialIds) -> available.put(stockItemId, new ArrayDeque<>(serialIds)));
+
+        Map<Long, List<Long>> serialsByReturn = new LinkedHashMap<>();
+        List<Long> returnedSerials = new ArrayList<>();
+        for (Return returnEntity : approved) {
+            List<Long> serialIds = new ArrayList<>();
+            for (ReturnItem item : returnEntity.getItems()) {
+                if (!item.getProduct().getRequiresSerial()) continue;
+                Deque<Long> serials = available.getOrDefault(
+                        stockByProduct.get(item.getProduct().getId()).getId(), new ArrayDeque<>());
+                for (int i = 0; i < item.getQuantity() && !serials.isEmpty(); i++) {
+                    serialIds.add(serials.poll());
+                }
+            }
+            serialsByReturn.put(returnEntity.getId(), serialIds);
+            returnedSerials.addAll(serialIds);
+        }
+
+        // Mark every picked serial as returned in one statement
+        int expected = serialsNeeded.values().stream().mapToInt(Integer::intValue).sum();
+        int updated = serialNumberRepository.updateStatus(returnedSerials,
+                SerialNumberStatus.IN_STOCK, SerialNumberStatus.RETURNED);
+        if (updated != expected) {
+            throw new IllegalStateException("Only " + updated + " of " + expected +
+                    " serial numbers on these returns are still in stock");
+        }
+        serialsByReturn.forEach((returnId, serialIds) -> serialEventService.record(
+                SerialEventType.RETURNED_TO_SUPPLIER, SerialNumberStatus.RETURNED, serialIds,
+                branchId, returnId, approvedById));
+        for (Long stockItemId : serialsNeeded.keySet()) {
+            eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItemId));
+        }
+    }
+
     @Transactional
     public ReturnDTO rejectReturn(Long returnId) {
         Return returnEntity = returnRepository.findById(returnId)
@@ -192,11 +360,6 @@ public class ReturnService {
         return toDTO(saved);
     }
 
-    private String generateReturnNumber(String branchCode) {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "RET-" + branchCode + "-" + dateStr;
-    }
-
     private ReturnDTO toDTO(Return returnEntity) {
         List<ReturnItemDTO> items = returnEntity.getItems().stream()
                 .map(item -> ReturnItemDTO.builder()
@@ -2,7 +2,9 @@ package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.*;
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.DocumentType;
 import com.example.HotPOS.enums.PaymentStatus;
+import com.example.HotPOS.enums.SerialEventType;
 import com.example.HotPOS.enums.SerialNumberStatus;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.*;
@@ -13,9 +15,13 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,7 +35,10 @@ public class SaleService {
     private final ProductRepository productRepository;
     private final StockItemRepository stockItemRepository;
     private final SerialNumberRepository serialNumberRepository;
-    private final RefundRepository refundRepository;
+    private final StockShardService stockShardService;
+    private final SerialEventService serialEventService;
+    private final SerialRangeService serialRangeService;
+    private final DocumentNumberService documentNumberService;
 
     public List<SaleDTO> getSalesByBranch(Long branchId) {
         List<Sale> sales = saleRepository.findByBranchIdOrderBySaleDateDesc(branchId);
@@ -50,13 +59,13 @@ public class SaleService {
     public SaleDTO getSaleById(Long id) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Sale not found with id: " + id));
-        return toDTOWithRefundStatus(sale);
+        return toDTO(sale);
     }
 
     public SaleDTO getSaleBySaleNumber(String saleNumber) {
         Sale sale = saleRepository.findBySaleNumber(saleNumber)
                 .orElseThrow(() -> new ResourceNotFoundException("Sale not found with number: " + saleNumber));
-        return toDTOWithRefundStatus(sale);
+        return toDTO(sale);
     }
 
     @Transactional
@@ -75,9 +84,9 @@ public class SaleService {
 
         // Generate identifiers
         LocalDate saleDate = LocalDate.now();
-        Integer nextRefSeq = saleRepository.findMaxReferenceSequenceForBranch(branch.getId()) + 1;
-        String saleNumber = generateSaleNumber(branch.getCode(), saleDate, nextRefSeq);
-        String referenceNumber = generateReferenceNumber(nextRefSeq);
+        Integer nextRefSeq = (int) documentNumberService.nextSequence(DocumentType.SALE, branch.getId());
+        String saleNumber = documentNumberService.format(DocumentType.SALE, branch.getCode(), nextRefSeq);
+        String referenceNumber = generateReferenceNumber(branch.getCode(), nextRefSeq);
 
         Sale sale = Sale.builder()
                 .branch(branch)
@@ -96,17 +105,43 @@ public class SaleService {
                 .build();
 
         BigDecimal totalAmount = BigDecimal.ZERO;
+        List<SerialNumber> soldSerials = new ArrayList<>();
+        // Units to take from shards per sharded stock row, in stock item id order
+        Map<Long, Integer> shardTakes = new TreeMap<>();
+        Map<Long, StockItem> shardedStock = new HashMap<>();
 
+        Map<Long, Product> products = new HashMap<>();
         for (CreateSaleItemDTO itemDto : dto.getItems()) {
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + itemDto.getProductId()));
+            products.computeIfAbsent(itemDto.getProductId(), id -> productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id)));
+        }
+        // Plain rows are locked together in id order before any line is checked, so concurrent
+        // sales cannot both decrement the same quantity nor deadlock over lines listed in a
+        // different order; sharded rows are left unlocked for the shards
+        Set<Long> plainProductIds = products.values().stream()
+                .filter(product -> !stockShardService.isSharded(product))
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+        Map<Long, StockItem> lockedStock = new HashMap<>();
+        if (!plainProductIds.isEmpty()) {
+            for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(
+                    List.of(branch.getId()), plainProductIds)) {
+                lockedStock.put(stockItem.getProduct().getId(), stockItem);
+            }
+        }
+
+        for (CreateSaleItemDTO itemDto : dto.getItems()) {
+            Product product = products.get(itemDto.getProductId());
 
             // Check stock availability
-            StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(branch.getId(), product.getId())
+            boolean sharded = stockShardService.isSharded(product);
+            StockItem stockItem = (sharded
+                    ? stockItemRepository.findByBranchIdAndProductId(branch.getId(), product.getId())
+                    : Optional.ofNullable(lockedStock.get(product.getId())))
                     .orElseThrow(() -> new ResourceNotFoundException(
                             "Product " + product.getName() + " not available in this branch"));
 
-            if (stockItem.getQuantity() < itemDto.getQuantity()) {
+            if (!sharded && stockItem.getQuantity() < itemDto.getQuantity()) {
                 throw new IllegalStateException(
                         "Insufficient stock for " + product.getName() + 
                         ". Available: " + stockItem.getQuantity() + ", Requested: " + itemDto.getQuantity());
@@ -136,23 +171,29 @@ public class SaleService {
             sale.getItems().add(saleItem);
             totalAmount = totalAmount.add(itemTotal);
 
-            // Reduce stock
-            stockItem.setQuantity(stockItem.getQuantity() - itemDto.getQuantity());
-            stockItemRepository.save(stockItem);
+            // Reduce stock (hot SKUs take from a shard instead of locking the stock row)
+            if (sharded) {
+                shardTakes.merge(stockItem.getId(), itemDto.getQuantity(), Integer::sum);
+                shardedStock.put(stockItem.getId(), stockItem);
+            } else {
+                stockItem.setQuantity(stockItem.getQuantity() - itemDto.getQuantity());
+                stockItemRepository.save(stockItem);
+            }
 
             // Update serial numbers if applicable
             if (product.getRequiresSerial() && itemDto.getSerialNumbers() != null) {
                 for (String serialNum : itemDto.getSerialNumbers()) {
                     SerialNumber serial = serialNumberRepository.findBySerialNumber(serialNum)
+                            .or(() -> serialRangeService.claim(serialNum))
                             .orElseThrow(() -> new ResourceNotFoundException("Serial number not found: " + serialNum));
                     
                     if (serial.getStatus() != SerialNumberStatus.IN_STOCK) {
                         throw new IllegalStateException("Serial number " + serialNum + " is not available for sale");
                     }
                     
+                    // Linked to the sale once it is saved; a later lookup may flush this serial first
                     serial.setStatus(SerialNumberStatus.SOLD);
-                    serial.setSale(sale);
-                    serialNumberRepository.save(serial);
+                    soldSerials.add(serial);
                 }
             }
         }
@@ -164,18 +205,24 @@ public class SaleService {
         sale.setGrandTotal(grandTotal);
 
         Sale saved = saleRepository.save(sale);
-        return toDTO(saved);
-    }
+        for (SerialNumber serial : soldSerials) {
+            serial.setSale(saved);
+        }
+        serialEventService.record(SerialEventType.SOLD, soldSerials, branch.getId(), saved.getId(), userId);
 
-    private String generateSaleNumber(String branchCode, LocalDate saleDate, Integer sequence) {
-        String dateTimeStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String seqPart = String.format("%05d", sequence);
-        return "SL-" + branchCode + "-" + dateTimeStr + "-" + seqPart;
+        // Shards last, once per row: a till holding a shard must not wait for a lock another
+        // transaction may hold while it waits for that shard (see StockShardService)
+        if (!shardTakes.isEmpty()) {
+            saleRepository.flush();
+            shardTakes.forEach((stockItemId, quantity) -> stockShardService.take(shardedStock.get(stockItemId), quantity));
+        }
+        return toDTO(saved);
     }
 
-    private String generateReferenceNumber(Integer sequence) {
+    // The sequence is per branch and the column is unique across branches, so the code goes in too
+    private String generateReferenceNumber(String branchCode, Integer sequence) {
         String seqPart = String.format("%05d", sequence);
-        return "REF-" + seqPart;
+        return "REF-" + branchCode + "-" + seqPart;
     }
 
     private SaleDTO toDTO(Sale sale) {
@@ -199,6 +246,8 @@ public class SaleService {
                             .discount(BigDecimal.ZERO)
                             .totalPrice(item.getTotalPrice())
                             .serialNumbers(serials != null && !serials.isEmpty() ? serials : null)
+                            .refundedQuantity(item.getRefundedQuantity())
+                            .refundedAmount(item.getRefundedAmount())
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -228,65 +277,32 @@ public class SaleService {
                 .notes(sale.getNotes())
                 .items(items)
                 .createdAt(sale.getCreatedAt())
-                .refundStatus("NONE")
-                .refundedAmount(BigDecimal.ZERO)
+                .refundStatus(refundStatus(sale))
+                .refundedAmount(sale.getItems().stream()
+                        .map(SaleItem::getRefundedAmount)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
                 .build();
     }
 
-    /**
-     * Convert a single sale to DTO with refund status lookup.
-     */
-    private SaleDTO toDTOWithRefundStatus(Sale sale) {
-        SaleDTO dto = toDTO(sale);
-        BigDecimal refundedAmount = refundRepository.getTotalApprovedRefundsAmountBySale(sale.getId());
-        if (refundedAmount.compareTo(BigDecimal.ZERO) > 0) {
-            dto.setRefundedAmount(refundedAmount);
-            if (refundedAmount.compareTo(dto.getGrandTotal()) >= 0) {
-                dto.setRefundStatus("FULL");
-            } else {
-                dto.setRefundStatus("PARTIAL");
-            }
+    // Read from the refunded quantities and amounts kept on the sale's lines
+    private String refundStatus(Sale sale) {
+        int sold = 0;
+        int refunded = 0;
+        BigDecimal refundedAmount = BigDecimal.ZERO;
+        for (SaleItem item : sale.getItems()) {
+            sold += item.getQuantity();
+            refunded += item.getRefundedQuantity();
+            refundedAmount = refundedAmount.add(item.getRefundedAmount());
         }
-        return dto;
+        if (refunded == 0 && refundedAmount.signum() == 0) {
+            return "NONE";
+        }
+        return refunded >= sold || refundedAmount.compareTo(sale.getGrandTotal()) >= 0 ? "FULL" : "PARTIAL";
     }
 
-    /**
-     * Convert a list of sales to DTOs with batch refund status lookup.
-     */
     private List<SaleDTO> toDTOList(List<Sale> sales) {
-        List<SaleDTO> dtos = sales.stream()
+        return sales.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
-
-        // Batch lookup of refund amounts for all sales
-        List<Long> saleIds = sales.stream().map(Sale::getId).collect(Collectors.toList());
-        if (!saleIds.isEmpty()) {
-            List<Object[]> refundData = refundRepository.getApprovedRefundAmountsBySaleIds(saleIds);
-            java.util.Map<Long, BigDecimal> refundMap = new java.util.HashMap<>();
-            for (Object[] row : refundData) {
-                refundMap.put((Long) row[0], (BigDecimal) row[1]);
-            }
-
-            // Create a map from saleId to DTO for quick lookup
-            java.util.Map<Long, SaleDTO> dtoMap = new java.util.HashMap<>();
-            for (SaleDTO dto : dtos) {
-                dtoMap.put(dto.getId(), dto);
-            }
-
-            for (java.util.Map.Entry<Long, BigDecimal> entry : refundMap.entrySet()) {
-                SaleDTO dto = dtoMap.get(entry.getKey());
-                if (dto != null) {
-                    BigDecimal refundedAmount = entry.getValue();
-                    dto.setRefundedAmount(refundedAmount);
-                    if (refundedAmount.compareTo(dto.getGrandTotal()) >= 0) {
-                        dto.setRefundStatus("FULL");
-                    } else {
-                        dto.setRefundStatus("PARTIAL");
-                    }
-                }
-            }
-        }
-
-        return dtos;
     }
 }
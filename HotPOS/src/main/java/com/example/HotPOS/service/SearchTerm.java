@@ -0,0 +1,24 @@
+package com.example.HotPOS.service;
+
+/**
+ * A search box entry prepared for the trigram search queries: the lower-cased text, a LIKE
+ * pattern for it with wildcards escaped, and its digits with their LIKE pattern, both empty
+ * unless there are enough digits to be part of a phone number.
+ */
+record SearchTerm(String text, String pattern, String digits, String digitsPattern) {
+
+    private static final int MIN_PHONE_DIGITS = 3;
+
+    static SearchTerm of(String query) {
+        String text = query == null ? "" : query.trim().toLowerCase();
+        String digits = text.replaceAll("[^0-9]", "");
+        if (digits.length() < MIN_PHONE_DIGITS) {
+            digits = "";
+        }
+        return new SearchTerm(text, "%" + escapeLike(text) + "%", digits, digits.isEmpty() ? "" : "%" + digits + "%");
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.SerialEventDTO;
+import com.example.HotPOS.entity.SerialEvent;
+import com.example.HotPOS.entity.SerialNumber;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.repository.SerialEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only serial number history. Callers collect the serials a document touched and
+ * record them in one batch; set-based serial moves record with a matching INSERT ... SELECT.
+ */
+@Service
+@RequiredArgsConstructor
+public class SerialEventService {
+
+    private final SerialEventRepository serialEventRepository;
+
+    /**
+     * Records one event per serial, using each serial's current status as the status after the event.
+     */
+    public void record(SerialEventType type, Collection<SerialNumber> serials, Long branchId, Long refId, Long userId) {
+        record(type, serials, branchId, refId, userId, LocalDateTime.now());
+    }
+
+    /**
+     * As {@link #record}, for events that happened earlier, e.g. the receipt of a serial that
+     * was stored inside a range until now.
+     */
+    public void record(SerialEventType type, Collection<SerialNumber> serials, Long branchId, Long refId,
+                       Long userId, LocalDateTime occurredAt) {
+        if (serials.isEmpty()) {
+            return;
+        }
+        serialEventRepository.append(serials.stream()
+                .map(serial -> SerialEvent.builder()
+                        .serialNumberId(serial.getId())
+                        .eventType(type)
+                        .status(serial.getStatus())
+                        .branchId(branchId)
+                        .refId(refId)
+                        .userId(userId)
+                        .occurredAt(occurredAt)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * As {@link #record}, for serials whose status was changed with a set-based update: each
+     * serial is recorded with {@code status}.
+     */
+    public void record(SerialEventType type, SerialNumberStatus status, Collection<Long> serialIds,
+                       Long branchId, Long refId, Long userId) {
+        if (serialIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime occurredAt = LocalDateTime.now();
+        serialEventRepository.append(serialIds.stream()
+                .map(serialId -> SerialEvent.builder()
+                        .serialNumberId(serialId)
+                        .eventType(type)
+                        .status(status)
+                        .branchId(branchId)
+                        .refId(refId)
+                        .userId(userId)
+                        .occurredAt(occurredAt)
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    public void recordReceived(Long purchaseId, Long stockItemId, Long branchId, Long userId) {
+        serialEventRepository.appendForPurchase(purchaseId, stockItemId, branchId, userId);
+    }
+
+    public void recordTransfer(Long transferId, SerialEventType type, SerialNumberStatus status,
+                               Long branchId, Long userId) {
+        serialEventRepository.appendForTransfer(transferId, type, status, branchId, userId);
+    }
+
+    public void recordRefund(Long refundId, Long branchId, Long userId) {
+        serialEventRepository.appendForRefund(refundId, SerialEventType.REFUNDED, SerialNumberStatus.RETURNED,
+                branchId, userId);
+    }
+
+    public void recordTransfers(Collection<Long> transferIds, SerialEventType type, SerialNumberStatus status,
+                                Long userId) {
+        serialEventRepository.appendForTransfers(transferIds, type, status, userId);
+    }
+
+    public void recordRefunds(Collection<Long> refundIds, Long userId) {
+        serialEventRepository.appendForRefunds(refundIds, SerialEventType.REFUNDED, SerialNumberStatus.RETURNED, userId);
+    }
+
+    public List<SerialEventDTO> getTimeline(String serialNumber) {
+        return serialEventRepository.findTimeline(serialNumber);
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.SerialNumberDTO;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.repository.SerialRangeRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory prefix/suffix index over the serial numbers of each branch, for partial IMEI entry
+ * and damaged labels. A branch is loaded on its first search. Each branch keeps two sorted
+ * arrays, the serials and the reversed serials, so both prefix and suffix matches are a binary
+ * search plus a short scan. Committed serial changes are applied from
+ * {@link SerialNumberChangedEvent}: status changes only replace the entry, while inserts, moves
+ * between branches and removals mark the branch's arrays for rebuild on the next search.
+ * <p>
+ * Serials still held in serial_ranges are matched arithmetically against each range's prefix and
+ * numeric bounds instead of being expanded. A branch's ranges are re-read on the first search
+ * after any serial change in the branch, as ranges only shrink when serials are split out of them.
+ * <p>
+ * Those events are local to this node, so a branch loaded longer ago than the TTL is loaded again
+ * on its next search; serials received, sold or moved on another node are seen within that time.
+ */
+@Component
+public class SerialNumberIndex {
+
+    private final SerialNumberRepository serialNumberRepository;
+    private final SerialRangeRepository serialRangeRepository;
+    private final StockItemRepository stockItemRepository;
+    private final long ttlNanos;
+
+    private final Map<Long, BranchIndex> branches = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entriesById = new ConcurrentHashMap<>();
+    private final Map<Long, StockRef> stockRefs = new ConcurrentHashMap<>();
+    private final AtomicLong changeVersion = new AtomicLong();
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public SerialNumberIndex(SerialNumberRepository serialNumberRepository,
+                             SerialRangeRepository serialRangeRepository,
+                             StockItemRepository stockItemRepository,
+                             @Value("${hotpos.serials.index-ttl-seconds:60}") long ttlSeconds) {
+        this.serialNumberRepository = serialNumberRepository;
+        this.serialRangeRepository = serialRangeRepository;
+        this.stockItemRepository = stockItemRepository;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public enum Mode { PREFIX, SUFFIX, ANY }
+
+    private record Entry(Long id, String serial, Long stockItemId, SerialNumberStatus status) {}
+
+    private record RangeEntry(String prefix, int digits, long start, long end, Long stockItemId) {}
+
+    private record StockRef(Long branchId, String branchName, Long productId, String productName, String productSku) {}
+
+    public List<SerialNumberDTO> search(Long branchId, String query, Mode mode, int limit) {
+        BranchIndex index = branches.get(branchId);
+        if (index == null || System.nanoTime() - index.loadedAt >= ttlNanos) {
+            index = load(branchId, index);
+        }
+
+        List<RangeEntry> ranges = rangesOf(branchId, index);
+
+        // Suffix matches first: typing the last digits of an IMEI is the common case
+        Set<String> matches = new LinkedHashSet<>();
+        Map<String, RangeEntry> fromRanges = new HashMap<>();
+        if (mode != Mode.PREFIX) {
+            index.collectSuffix(query, limit, matches);
+            for (RangeEntry range : ranges) {
+                collectSuffix(range, query, limit, matches, fromRanges);
+            }
+        }
+        if (mode != Mode.SUFFIX) {
+            index.collectPrefix(query, limit, matches);
+            for (RangeEntry range : ranges) {
+                collectPrefix(range, query, limit, matches, fromRanges);
+            }
+        }
+
+        List<SerialNumberDTO> results = new ArrayList<>(matches.size());
+        for (String serial : matches) {
+            Entry entry = index.bySerial.get(serial);
+            if (entry != null) {
+                results.add(toDTO(entry));
+            } else if (fromRanges.containsKey(serial)) {
+                results.add(toDTO(new Entry(null, serial, fromRanges.get(serial).stockItemId(), SerialNumberStatus.IN_STOCK)));
+            }
+        }
+        return results;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSerialNumberChanged(SerialNumberChangedEvent event) {
+        changeVersion.incrementAndGet();
+        if (branches.isEmpty()) return;
+        StockRef changed = event.getStockItemId() != null ? stockRef(event.getStockItemId()) : null;
+        BranchIndex changedIndex = changed != null ? branches.get(changed.branchId()) : null;
+        if (changedIndex != null) {
+            changedIndex.ranges = null;
+        }
+        if (event.isBulk()) {
+            StockRef ref = stockRef(event.getStockItemId());
+            if (ref == null || !branches.containsKey(ref.branchId())) return;
+            for (Object[] row : serialNumberRepository.findIndexRowsByStockItem(event.getStockItemId())) {
+                apply(toEntry(row), false);
+            }
+        } else {
+            apply(new Entry(event.getSerialNumberId(), event.getSerialNumber(),
+                    event.getStockItemId(), event.getStatus()), event.isRemoved());
+        }
+    }
+
+    // Replaces `expired` (null when the branch is not loaded) unless another search already did
+    private synchronized BranchIndex load(Long branchId, BranchIndex expired) {
+        BranchIndex existing = branches.get(branchId);
+        if (existing != null && existing != expired) {
+            return existing;
+        }
+        if (existing != null) {
+            branches.remove(branchId);
+            for (Entry entry : existing.bySerial.values()) {
+                entriesById.remove(entry.id(), entry);
+            }
+        }
+        for (Object[] row : stockItemRepository.findRefsByBranchId(branchId)) {
+            stockRefs.put((Long) row[0], toStockRef(row));
+        }
+
+        long version = changeVersion.get();
+        BranchIndex index = new BranchIndex(System.nanoTime());
+        for (Object[] row : serialNumberRepository.findIndexRowsByBranch(branchId)) {
+            Entry entry = toEntry(row);
+            index.bySerial.put(entry.serial(), entry);
+        }
+        // A change committed while loading may be missing from the rows; serve this search
+        // from them but let the next one load again
+        if (changeVersion.get() != version) {
+            return index;
+        }
+        for (Entry entry : index.bySerial.values()) {
+            entriesById.put(entry.id(), entry);
+        }
+        branches.put(branchId, index);
+        return index;
+    }
+
+    private List<RangeEntry> rangesOf(Long branchId, BranchIndex index) {
+        List<RangeEntry> current = index.ranges;
+        if (current != null) {
+            return current;
+        }
+        long version = changeVersion.get();
+        List<RangeEntry> loaded = new ArrayList<>();
+        for (Object[] row : serialRangeRepository.findIndexRowsByBranch(branchId)) {
+            loaded.add(new RangeEntry((String) row[0], (Integer) row[1], (Long) row[2], (Long) row[3], (Long) row[4]));
+            stockRef((Long) row[4]);
+        }
+        // As in load: a change committed meanwhile means the next search reads them again
+        if (changeVersion.get() == version) {
+            index.ranges = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * Serials of the range ending in {@code query}: the query's trailing digits fix the value
+     * modulo a power of ten, or, when it is longer than the digits, the whole value.
+     */
+    private static void collectSuffix(RangeEntry range, String query, int limit, Set<String> out,
+                                      Map<String, RangeEntry> fromRanges) {
+        if (out.size() >= limit) return;
+        if (query.length() <= range.digits()) {
+            if (!isDigits(query)) return;
+            long step = POWERS_OF_TEN[query.length()];
+            long remainder = Long.parseLong(query);
+            long value = range.start() - range.start() % step + remainder;
+            if (value < range.start()) {
+                value += step;
+            }
+            for (; value <= range.end() && out.size() < limit; value += step) {
+                add(range, value, out, fromRanges);
+            }
+        } else {
+            int split = query.length() - range.digits();
+            String digits = query.substring(split);
+            if (isDigits(digits) && range.prefix().endsWith(query.substring(0, split))) {
+                long value = Long.parseLong(digits);
+                if (value >= range.start() && value <= range.end()) {
+                    add(range, value, out, fromRanges);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serials of the range starting with {@code query}: all of them when the query is part of the
+     * prefix, otherwise the block of values whose leading digits the query spells out.
+     */
+    private static void collectPrefix(RangeEntry range, String query, int limit, Set<String> out,
+                                      Map<String, RangeEntry> fromRanges) {
+        long low;
+        long high;
+        if (range.prefix().startsWith(query)) {
+            low = range.start();
+            high = range.end();
+        } else if (query.startsWith(range.prefix())) {
+            String digits = query.substring(range.prefix().length());
+            if (digits.length() > range.digits() || !isDigits(digits)) return;
+            long block = POWERS_OF_TEN[range.digits() - digits.length()];
+            long lead = digits.isEmpty() ? 0 : Long.parseLong(digits);
+            low = Math.max(range.start(), lead * block);
+            high = Math.min(range.end(), lead * block + block - 1);
+        } else {
+            return;
+        }
+        for (long value = low; value <= high && out.size() < limit; value++) {
+            add(range, value, out, fromRanges);
+        }
+    }
+
+    private static void add(RangeEntry range, long value, Set<String> out, Map<String, RangeEntry> fromRanges) {
+        String serial = SerialRangeService.format(range.prefix(), range.digits(), value);
+        if (out.add(serial)) {
+            fromRanges.put(serial, range);
+        }
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private synchronized void apply(Entry entry, boolean removed) {
+        Entry previous = entriesById.get(entry.id());
+        if (previous != null) {
+            BranchIndex previousIndex = branchOf(previous);
+            if (previousIndex != null) {
+                previousIndex.remove(previous);
+            }
+            entriesById.remove(entry.id());
+        }
+        if (removed) return;
+
+        BranchIndex index = branchOf(entry);
+        if (index != null) {
+            index.put(entry);
+            entriesById.put(entry.id(), entry);
+        }
+    }
+
+    private BranchIndex branchOf(Entry entry) {
+        StockRef ref = stockRef(entry.stockItemId());
+        return ref != null ? branches.get(ref.branchId()) : null;
+    }
+
+    private StockRef stockRef(Long stockItemId) {
+        StockRef ref = stockRefs.get(stockItemId);
+        if (ref == null) {
+            List<Object[]> rows = stockItemRepository.findRefById(stockItemId);
+            if (rows.isEmpty()) return null;
+            ref = toStockRef(rows.get(0));
+            stockRefs.put(stockItemId, ref);
+        }
+        return ref;
+    }
+
+    private Entry toEntry(Object[] row) {
+        return new Entry((Long) row[0], (String) row[1], (Long) row[3], (SerialNumberStatus) row[2]);
+    }
+
+    private StockRef toStockRef(Object[] row) {
+        return new StockRef((Long) row[1], (String) row[2], (Long) row[3], (String) row[4], (String) row[5]);
+    }
+
+    private SerialNumberDTO toDTO(Entry entry) {
+        StockRef ref = stockRefs.get(entry.stockItemId());
+        return SerialNumberDTO.builder()
+                .id(entry.id())
+                .stockItemId(entry.stockItemId())
+                .serialNumber(entry.serial())
+                .status(entry.status())
+                .productId(ref != null ? ref.productId() : null)
+                .productName(ref != null ? ref.productName() : null)
+                .productSku(ref != null ? ref.productSku() : null)
+                .branchId(ref != null ? ref.branchId() : null)
+                .branchName(ref != null ? ref.branchName() : null)
+                .build();
+    }
+
+    private static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    private static final class BranchIndex {
+        private final long loadedAt; // System.nanoTime() before the rows were read
+        private final Map<String, Entry> bySerial = new ConcurrentHashMap<>();
+        private volatile Keys keys;
+        private volatile List<RangeEntry> ranges; // Null until read, and again after a change in the branch
+
+        // Serials and reversed serials, each sorted; rebuilt together and swapped atomically
+        private record Keys(String[] forward, String[] backward) {}
+
+        BranchIndex(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        synchronized void put(Entry entry) {
+            // Same serial already indexed: only its status changed, the arrays stay valid
+            if (bySerial.put(entry.serial(), entry) == null) {
+                keys = null;
+            }
+        }
+
+        synchronized void remove(Entry entry) {
+            if (bySerial.remove(entry.serial()) != null) {
+                keys = null;
+            }
+        }
+
+        void collectPrefix(String query, int limit, Set<String> out) {
+            String[] forward = keys().forward();
+            for (int i = lowerBound(forward, query); i < forward.length && out.size() < limit; i++) {
+                if (!forward[i].startsWith(query)) break;
+                out.add(forward[i]);
+            }
+        }
+
+        void collectSuffix(String query, int limit, Set<String> out) {
+            String[] backward = keys().backward();
+            String reversedQuery = reverse(query);
+            for (int i = lowerBound(backward, reversedQuery); i < backward.length && out.size() < limit; i++) {
+                if (!backward[i].startsWith(reversedQuery)) break;
+                out.add(reverse(backward[i]));
+            }
+        }
+
+        private Keys keys() {
+            Keys current = keys;
+            return current != null ? current : rebuild();
+        }
+
+        private synchronized Keys rebuild() {
+            if (keys != null) {
+                return keys;
+            }
+            String[] forward = bySerial.keySet().toArray(new String[0]);
+            String[] backward = new String[forward.length];
+            for (int i = 0; i < forward.length; i++) {
+                backward[i] = reverse(forward[i]);
+            }
+            Arrays.sort(forward);
+            Arrays.sort(backward);
+            keys = new Keys(forward, backward);
+            return keys;
+        }
+
+        private static int lowerBound(String[] keys, String query) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(query) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.SerialNumberDTO;
+import com.example.HotPOS.dto.SerialNumberPageDTO;
+import com.example.HotPOS.dto.SerialRangeDTO;
+import com.example.HotPOS.entity.SerialNumber;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serial number queries. Listings are single projection queries that resolve product,
+ * branch, purchase and sale in the same statement; branch stats come from one GROUP BY
+ * and are cached until a serial number changes on this node, or for the TTL at most, so
+ * other nodes' changes are seen within that time.
+ */
+@Service
+@RequiredArgsConstructor
+public class SerialNumberService {
+
+    private final SerialNumberRepository serialNumberRepository;
+    private final SerialNumberIndex serialNumberIndex;
+    private final SerialEventService serialEventService;
+    private final SerialRangeService serialRangeService;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_AVAILABLE_FROM_RANGES = 500;
+
+    private final Map<Long, CachedStats> statsCache = new ConcurrentHashMap<>();
+    private final AtomicLong statsVersion = new AtomicLong();
+
+    @Value("${hotpos.serials.stats-ttl-seconds:30}")
+    private long statsTtlSeconds;
+
+    private record CachedStats(Map<String, Object> stats, long loadedAt) {}
+
+    public List<SerialNumberDTO> getInStockByBranch(Long branchId) {
+        return serialNumberRepository.findDTOsByBranchAndStatus(branchId, SerialNumberStatus.IN_STOCK);
+    }
+
+    public List<SerialNumberDTO> getAllByBranch(Long branchId, SerialNumberStatus status) {
+        return status != null
+                ? serialNumberRepository.findDTOsByBranchAndStatus(branchId, status)
+                : serialNumberRepository.findDTOsByBranch(branchId);
+    }
+
+    public SerialNumberPageDTO getPageByBranch(Long branchId, SerialNumberStatus status, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalStateException("Page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        PageRequest pageable = PageRequest.of(page, size,
+                Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("id")));
+
+        Page<SerialNumberDTO> result = status != null
+                ? serialNumberRepository.findDTOPageByBranchAndStatus(branchId, status, pageable)
+                : serialNumberRepository.findDTOPageByBranch(branchId, pageable);
+
+        return SerialNumberPageDTO.builder()
+                .items(result.getContent())
+                .page(page)
+                .size(size)
+                .totalElements(result.getTotalElements())
+                .totalPages(result.getTotalPages())
+                .build();
+    }
+
+    /**
+     * Individual in-stock serials, followed by serials still held in ranges (capped, lowest first).
+     */
+    public List<SerialNumberDTO> getAvailable(Long productId, Long branchId) {
+        List<SerialNumberDTO> available = new ArrayList<>(
+                serialNumberRepository.findAvailableDTOsByProductAndBranch(productId, branchId));
+        available.addAll(serialRangeService.getAvailable(productId, branchId, MAX_AVAILABLE_FROM_RANGES));
+        return available;
+    }
+
+    public Optional<SerialNumberDTO> lookup(String serialNumber) {
+        return serialNumberRepository.findDTOBySerialNumber(serialNumber)
+                .or(() -> serialRangeService.lookup(serialNumber));
+    }
+
+    public List<SerialRangeDTO> getRangesByBranch(Long branchId) {
+        return serialRangeService.getByBranch(branchId);
+    }
+
+    /**
+     * Prefix/suffix match against the branch's in-memory serial index; no database query once
+     * the branch is loaded.
+     */
+    public List<SerialNumberDTO> search(Long branchId, String query, SerialNumberIndex.Mode mode, int limit) {
+        String term = query != null ? query.trim() : "";
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        return serialNumberIndex.search(branchId, term, mode, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
+    public List<SerialNumberDTO> getByPurchase(Long purchaseId) {
+        return serialNumberRepository.findDTOsByPurchaseId(purchaseId);
+    }
+
+    public List<SerialNumberDTO> getBySale(Long saleId) {
+        return serialNumberRepository.findDTOsBySaleId(saleId);
+    }
+
+    public List<SerialNumberDTO> getByStockItem(Long stockItemId) {
+        return serialNumberRepository.findDTOsByStockItemId(stockItemId);
+    }
+
+    @Transactional
+    public SerialNumberDTO updateStatus(Long id, SerialNumberStatus status, String notes, Long userId) {
+        SerialNumber serialNumber = serialNumberRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Serial number not found with id: " + id));
+        serialNumber.setStatus(status);
+        if (notes != null) {
+            serialNumber.setNotes(notes);
+        }
+        serialNumberRepository.saveAndFlush(serialNumber);
+        serialEventService.record(SerialEventType.STATUS_CHANGED, List.of(serialNumber),
+                serialNumber.getStockItem().getBranch().getId(), null, userId);
+        return serialNumberRepository.findDTOById(id).orElseThrow();
+    }
+
+    public Map<String, Object> getStats(Long branchId) {
+        CachedStats cached = statsCache.get(branchId);
+        if (cached != null && System.nanoTime() - cached.loadedAt() < TimeUnit.SECONDS.toNanos(statsTtlSeconds)) {
+            return cached.stats();
+        }
+        // Only cache if no change was committed while loading, otherwise the result may be stale
+        long version = statsVersion.get();
+        long loadedAt = System.nanoTime();
+        Map<String, Object> stats = loadStats(branchId);
+        if (statsVersion.get() == version) {
+            statsCache.put(branchId, new CachedStats(stats, loadedAt));
+        }
+        return stats;
+    }
+
+    /**
+     * Stats are cheap to rebuild, so any committed serial change drops the whole cache rather
+     * than resolving which branch the serial belongs to.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSerialNumberChanged(SerialNumberChangedEvent event) {
+        evictStats();
+    }
+
+    /**
+     * For bulk JPQL updates, which bypass entity listeners.
+     */
+    public void evictStats() {
+        statsVersion.incrementAndGet();
+        statsCache.clear();
+    }
+
+    private Map<String, Object> loadStats(Long branchId) {
+        Map<SerialNumberStatus, Long> counts = new EnumMap<>(SerialNumberStatus.class);
+        long total = 0;
+        for (Object[] row : serialNumberRepository.countByBranchGroupByStatus(branchId)) {
+            long count = (Long) row[1];
+            counts.put((SerialNumberStatus) row[0], count);
+            total += count;
+        }
+        // Serials still held in ranges are all in stock
+        long inRanges = serialRangeService.countInStockByBranch(branchId);
+        counts.merge(SerialNumberStatus.IN_STOCK, inRanges, Long::sum);
+        total += inRanges;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total);
+        stats.put("inStock", counts.getOrDefault(SerialNumberStatus.IN_STOCK, 0L));
+        stats.put("sold", counts.getOrDefault(SerialNumberStatus.SOLD, 0L));
+        stats.put("transferred", counts.getOrDefault(SerialNumberStatus.TRANSFERRED, 0L));
+        stats.put("returned", counts.getOrDefault(SerialNumberStatus.RETURNED, 0L));
+        stats.put("defective", counts.getOrDefault(SerialNumberStatus.DEFECTIVE, 0L));
+        return Map.copyOf(stats);
+    }
+}
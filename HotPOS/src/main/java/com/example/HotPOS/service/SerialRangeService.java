@@ -0,0 +1,403 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.SerialNumberDTO;
+import com.example.HotPOS.dto.SerialRangeDTO;
+import com.example.HotPOS.entity.Purchase;
+import com.example.HotPOS.entity.SerialNumber;
+import com.example.HotPOS.entity.SerialRange;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.repository.SerialRangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Compact storage for sequential serials. A received START..END run is kept as one
+ * serial_ranges row; a serial is split out into its own serial_numbers row only when a sale,
+ * transfer or return needs it. Callers run inside their own transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class SerialRangeService {
+
+    private static final String SEPARATOR = "..";
+    // Values are held in a long, so at most 18 digits
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_CLASHES_REPORTED = 20;
+
+    private final SerialRangeRepository serialRangeRepository;
+    private final SerialNumberRepository serialNumberRepository;
+    private final SerialEventService serialEventService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Every serial prefix + value zero-padded to {@code digits}, for value in [start, end].
+     */
+    public record Run(String prefix, int digits, long start, long end) {
+
+        public long size() {
+            return end - start + 1;
+        }
+
+        String first() {
+            return format(prefix, digits, start);
+        }
+
+        String last() {
+            return format(prefix, digits, end);
+        }
+
+        boolean sameSeries(Run other) {
+            return prefix.equals(other.prefix) && digits == other.digits;
+        }
+
+        boolean overlaps(Run other) {
+            return sameSeries(other) && start <= other.end && end >= other.start;
+        }
+
+        @Override
+        public String toString() {
+            return first() + SEPARATOR + last();
+        }
+    }
+
+    /**
+     * Parses "IMEI-000100..IMEI-000199": both ends share a prefix and an equal-width run of
+     * trailing digits.
+     */
+    public static Run parse(String range) {
+        int separator = range != null ? range.indexOf(SEPARATOR) : -1;
+        if (separator < 0) {
+            throw new IllegalStateException("Invalid serial range '" + range + "': expected START" + SEPARATOR + "END");
+        }
+        Run first = split(range.substring(0, separator).trim());
+        Run last = split(range.substring(separator + SEPARATOR.length()).trim());
+        if (first == null || last == null || !first.sameSeries(last)) {
+            throw new IllegalStateException("Invalid serial range '" + range +
+                    "': both ends need the same prefix followed by the same number of digits (at most " +
+                    MAX_DIGITS + ")");
+        }
+        if (first.start() > last.start()) {
+            throw new IllegalStateException("Invalid serial range '" + range + "': start is after end");
+        }
+        return new Run(first.prefix(), first.digits(), first.start(), last.start());
+    }
+
+    /**
+     * Splits a serial into prefix and trailing digits as a one-serial run, or null if it has no
+     * usable numeric tail.
+     */
+    static Run split(String serial) {
+        int digitsStart = serial.length();
+        while (digitsStart > 0 && Character.isDigit(serial.charAt(digitsStart - 1))) {
+            digitsStart--;
+        }
+        int digits = serial.length() - digitsStart;
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return null;
+        }
+        long value = Long.parseLong(serial.substring(digitsStart));
+        return new Run(serial.substring(0, digitsStart), digits, value, value);
+    }
+
+    static String format(String prefix, int digits, long value) {
+        String number = Long.toString(value);
+        StringBuilder serial = new StringBuilder(prefix.length() + digits).append(prefix);
+        for (int i = number.length(); i < digits; i++) {
+            serial.append('0');
+        }
+        return serial.append(number).toString();
+    }
+
+    /**
+     * Clashes between the runs and individual serials of one delivery, and against everything
+     * already stored: overlapping runs, serials inside a run, and stored rows or ranges that
+     * cover any of them. Costs one query per run plus one per serial series.
+     * <p>
+     * Every series involved is locked first until the caller's transaction ends, so the caller
+     * must insert in that same transaction; a concurrent delivery of the same series then checks
+     * only after these serials are committed.
+     */
+    public List<String> findConflicts(List<Run> runs, Collection<String> serials) {
+        lockSeries(runs, serials);
+        List<String> problems = new ArrayList<>();
+
+        List<Run> sorted = new ArrayList<>(runs);
+        sorted.sort(Comparator.comparing(Run::prefix).thenComparingInt(Run::digits).thenComparingLong(Run::start));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).overlaps(sorted.get(i - 1))) {
+                problems.add("Serial ranges overlap in this delivery: " + sorted.get(i - 1) + ", " + sorted.get(i));
+            }
+        }
+
+        for (Run run : runs) {
+            List<String> stored = serialNumberRepository.findExistingInRange(
+                    run.first(), run.last(), run.prefix().length(), MAX_CLASHES_REPORTED);
+            if (!stored.isEmpty()) {
+                problems.add("Serial numbers in range " + run + " already exist: " + String.join(", ", stored));
+            }
+            for (SerialRange range : serialRangeRepository.findOverlapping(
+                    run.prefix(), run.digits(), run.start(), run.end())) {
+                problems.add("Serial range " + run + " overlaps stored range " + toRun(range));
+            }
+        }
+
+        // Individual serials: group by series so each series needs one range query
+        Map<Run, List<Run>> bySeries = new HashMap<>();
+        for (String serial : serials) {
+            Run single = split(serial);
+            if (single != null) {
+                bySeries.computeIfAbsent(new Run(single.prefix(), single.digits(), 0, 0), k -> new ArrayList<>())
+                        .add(single);
+            }
+        }
+        List<String> covered = new ArrayList<>();
+        for (List<Run> series : bySeries.values()) {
+            Run sample = series.get(0);
+            long min = series.stream().mapToLong(Run::start).min().orElseThrow();
+            long max = series.stream().mapToLong(Run::start).max().orElseThrow();
+            List<Run> ranges = new ArrayList<>();
+            serialRangeRepository.findOverlapping(sample.prefix(), sample.digits(), min, max)
+                    .forEach(range -> ranges.add(toRun(range)));
+            runs.stream().filter(run -> run.sameSeries(sample)).forEach(ranges::add);
+            for (Run single : series) {
+                if (ranges.stream().anyMatch(single::overlaps) && covered.size() < MAX_CLASHES_REPORTED) {
+                    covered.add(single.first());
+                }
+            }
+        }
+        if (!covered.isEmpty()) {
+            problems.add("Serial numbers already covered by a range: " + String.join(", ", covered));
+        }
+        return problems;
+    }
+
+    // Sorted, so deliveries sharing several series take their locks in the same order
+    private void lockSeries(List<Run> runs, Collection<String> serials) {
+        Set<Run> series = new TreeSet<>(Comparator.comparing(Run::prefix).thenComparingInt(Run::digits));
+        runs.forEach(series::add);
+        for (String serial : serials) {
+            Run single = split(serial);
+            if (single != null) {
+                series.add(single);
+            }
+        }
+        for (Run run : series) {
+            serialRangeRepository.lockSeries(run.prefix(), run.digits());
+        }
+    }
+
+    /**
+     * Stores the runs of one purchase line. The caller checked them with
+     * {@link #findConflicts} earlier in the same transaction.
+     */
+    public void insert(StockItem stockItem, Purchase purchase, List<Run> runs) {
+        if (runs.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        serialRangeRepository.saveAll(runs.stream()
+                .map(run -> SerialRange.builder()
+                        .stockItem(stockItem)
+                        .purchase(purchase)
+                        .prefix(run.prefix())
+                        .digits(run.digits())
+                        .rangeStart(run.start())
+                        .rangeEnd(run.end())
+                        .receivedAt(now)
+                        .build())
+                .collect(Collectors.toList()));
+        eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItem.getId()));
+    }
+
+    /**
+     * Splits one serial out of its stored range into an IN_STOCK serial_numbers row, or empty if
+     * no range holds it.
+     */
+    public Optional<SerialNumber> claim(String serial) {
+        Run single = split(serial);
+        if (single == null) {
+            return Optional.empty();
+        }
+        Optional<SerialRange> found = serialRangeRepository.lockContaining(
+                single.prefix(), single.digits(), single.start());
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        SerialRange range = found.get();
+        remove(range, single.start(), single.start());
+
+        SerialNumber claimed = serialNumberRepository.save(SerialNumber.builder()
+                .stockItem(range.getStockItem())
+                .purchase(range.getPurchase())
+                .serialNumber(serial)
+                .status(SerialNumberStatus.IN_STOCK)
+                .build());
+        recordReceived(range, List.of(claimed));
+        return Optional.of(claimed);
+    }
+
+    /**
+     * Splits the lowest {@code count} serials of a stock item out of its ranges, or fewer if the
+     * ranges run out.
+     */
+    public List<SerialNumber> claimFirst(StockItem stockItem, int count) {
+        List<SerialNumber> claimed = new ArrayList<>();
+        int remaining = count;
+        for (SerialRange range : serialRangeRepository.lockByStockItemId(stockItem.getId())) {
+            if (remaining == 0) {
+                break;
+            }
+            int take = (int) Math.min(remaining, range.size());
+            long start = range.getRangeStart();
+            List<String> serials = new ArrayList<>(take);
+            for (long value = start; value < start + take; value++) {
+                serials.add(format(range.getPrefix(), range.getDigits(), value));
+            }
+            remove(range, start, start + take - 1);
+
+            Long purchaseId = range.getPurchase() != null ? range.getPurchase().getId() : null;
+            serialNumberRepository.insertInStock(stockItem.getId(), purchaseId, serials);
+            List<SerialNumber> rows = serialNumberRepository.findBySerialNumberIn(serials);
+            recordReceived(range, rows);
+            claimed.addAll(rows);
+            remaining -= take;
+        }
+        if (!claimed.isEmpty()) {
+            eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItem.getId()));
+        }
+        return claimed;
+    }
+
+    /**
+     * Resolves a serial held inside a range without splitting it; the result has no id.
+     */
+    public Optional<SerialNumberDTO> lookup(String serial) {
+        Run single = split(serial);
+        if (single == null) {
+            return Optional.empty();
+        }
+        return serialRangeRepository.findContaining(single.prefix(), single.digits(), single.start())
+                .map(range -> toSerialDTO(range, serial));
+    }
+
+    /**
+     * Up to {@code limit} in-stock serials still held in ranges, lowest first.
+     */
+    public List<SerialNumberDTO> getAvailable(Long productId, Long branchId, int limit) {
+        List<SerialNumberDTO> available = new ArrayList<>();
+        for (SerialRange range : serialRangeRepository.findByProductIdAndBranchId(productId, branchId)) {
+            for (long value = range.getRangeStart(); value <= range.getRangeEnd(); value++) {
+                if (available.size() >= limit) {
+                    return available;
+                }
+                available.add(toSerialDTO(range, format(range.getPrefix(), range.getDigits(), value)));
+            }
+        }
+        return available;
+    }
+
+    public List<SerialRangeDTO> getByBranch(Long branchId) {
+        return serialRangeRepository.findByBranchId(branchId).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    public long countInStockByBranch(Long branchId) {
+        return serialRangeRepository.countSerialsByBranchId(branchId);
+    }
+
+    /**
+     * Removes [from, to] from the range: trims an end, or splits it in two when the values sit
+     * in the middle.
+     */
+    private void remove(SerialRange range, long from, long to) {
+        boolean atStart = from == range.getRangeStart();
+        boolean atEnd = to == range.getRangeEnd();
+        if (atStart && atEnd) {
+            serialRangeRepository.delete(range);
+        } else if (atStart) {
+            range.setRangeStart(to + 1);
+        } else if (atEnd) {
+            range.setRangeEnd(from - 1);
+        } else {
+            serialRangeRepository.save(SerialRange.builder()
+                    .stockItem(range.getStockItem())
+                    .purchase(range.getPurchase())
+                    .prefix(range.getPrefix())
+                    .digits(range.getDigits())
+                    .rangeStart(to + 1)
+                    .rangeEnd(range.getRangeEnd())
+                    .receivedAt(range.getReceivedAt())
+                    .build());
+            range.setRangeEnd(from - 1);
+        }
+    }
+
+    // Claimed serials get their receipt event, dated when the range was received
+    private void recordReceived(SerialRange range, List<SerialNumber> serials) {
+        Purchase purchase = range.getPurchase();
+        serialEventService.record(SerialEventType.RECEIVED, serials,
+                range.getStockItem().getBranch().getId(),
+                purchase != null ? purchase.getId() : null,
+                purchase != null && purchase.getUser() != null ? purchase.getUser().getId() : null,
+                range.getReceivedAt());
+    }
+
+    private Run toRun(SerialRange range) {
+        return new Run(range.getPrefix(), range.getDigits(), range.getRangeStart(), range.getRangeEnd());
+    }
+
+    private SerialNumberDTO toSerialDTO(SerialRange range, String serial) {
+        StockItem stockItem = range.getStockItem();
+        Purchase purchase = range.getPurchase();
+        return SerialNumberDTO.builder()
+                .stockItemId(stockItem.getId())
+                .productId(stockItem.getProduct().getId())
+                .productName(stockItem.getProduct().getName())
+                .productSku(stockItem.getProduct().getSku())
+                .serialNumber(serial)
+                .status(SerialNumberStatus.IN_STOCK)
+                .purchaseId(purchase != null ? purchase.getId() : null)
+                .purchaseNumber(purchase != null ? purchase.getPurchaseNumber() : null)
+                .branchId(stockItem.getBranch().getId())
+                .branchName(stockItem.getBranch().getName())
+                .createdAt(range.getReceivedAt())
+                .updatedAt(range.getUpdatedAt())
+                .build();
+    }
+
+    private SerialRangeDTO toDTO(SerialRange range) {
+        StockItem stockItem = range.getStockItem();
+        Purchase purchase = range.getPurchase();
+        return SerialRangeDTO.builder()
+                .id(range.getId())
+                .stockItemId(stockItem.getId())
+                .productId(stockItem.getProduct().getId())
+                .productName(stockItem.getProduct().getName())
+                .productSku(stockItem.getProduct().getSku())
+                .purchaseId(purchase != null ? purchase.getId() : null)
+                .purchaseNumber(purchase != null ? purchase.getPurchaseNumber() : null)
+                .firstSerial(format(range.getPrefix(), range.getDigits(), range.getRangeStart()))
+                .lastSerial(format(range.getPrefix(), range.getDigits(), range.getRangeEnd()))
+                .count(range.size())
+                .receivedAt(range.getReceivedAt())
+                .build();
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.*;
+import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.StockCountStatus;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Cycle counts. Opening a session snapshots the book quantities of the branch (or one category);
+ * handhelds then stream scan batches whose quantities are added to the count's lines, and posting
+ * sets every counted product to its counted quantity in a single transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockCountService {
+
+    private final StockCountRepository stockCountRepository;
+    private final StockCountItemRepository stockCountItemRepository;
+    private final StockItemRepository stockItemRepository;
+    private final BranchRepository branchRepository;
+    private final CategoryRepository categoryRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final SaleRepository saleRepository;
+    private final StockShardService stockShardService;
+
+    // SKU index per open session, so scan batches resolve barcodes without a query per scan
+    private final Map<Long, CountSession> sessions = new ConcurrentHashMap<>();
+
+    public List<StockCountDTO> getCountsByBranch(Long branchId) {
+        return stockCountRepository.findByBranchIdOrderByStartedAtDesc(branchId).stream()
+                .map(count -> toDTO(count, null))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public StockCountDTO openCount(CreateStockCountDTO dto, Long userId) {
+        Branch branch = branchRepository.findById(dto.getBranchId())
+                .orElseThrow(() -> new ResourceNotFoundException("Branch not found with id: " + dto.getBranchId()));
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        Category category = null;
+        if (dto.getCategoryId() != null) {
+            category = categoryRepository.findById(dto.getCategoryId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + dto.getCategoryId()));
+        }
+
+        StockCount count = StockCount.builder()
+                .branch(branch)
+                .category(category)
+                .user(user)
+                .status(StockCountStatus.OPEN)
+                .startedAt(LocalDateTime.now())
+                .notes(dto.getNotes())
+                .items(new ArrayList<>())
+                .build();
+
+        // Snapshot book quantities (product fetched in the same query)
+        List<StockItem> stock = category != null
+                ? stockItemRepository.findWithProductByBranchIdAndCategoryId(branch.getId(), category.getId())
+                : stockItemRepository.findWithProductByBranchId(branch.getId());
+
+        for (StockItem stockItem : stock) {
+            count.getItems().add(StockCountItem.builder()
+                    .stockCount(count)
+                    .product(stockItem.getProduct())
+                    .snapshotQuantity(stockShardService.getAvailableQuantity(stockItem))
+                    .build());
+        }
+
+        StockCount saved = stockCountRepository.save(count);
+        sessions.put(saved.getId(), CountSession.of(saved.getItems()));
+        return toDTO(saved, null);
+    }
+
+    /**
+     * Adds one batch of scans from a handheld. Barcodes are resolved against the session's
+     * in-memory SKU index; unknown barcodes are looked up together in one query. The counted
+     * quantities are written with the batch, so nothing scanned depends on this node staying up.
+     */
+    @Transactional
+    public StockCountScanResultDTO addScans(Long stockCountId, StockCountScanBatchDTO batch) {
+        StockCount count = getOpenCount(stockCountRepository.findForShareById(stockCountId), stockCountId);
+        CountSession session = getSession(count);
+
+        Set<String> unknownSkus = new HashSet<>();
+        for (StockCountScanBatchDTO.ScanDTO scan : batch.getScans()) {
+            if (!session.skuIndex.containsKey(scan.getSku())) {
+                unknownSkus.add(scan.getSku());
+            }
+        }
+        if (!unknownSkus.isEmpty()) {
+            // Products found on the shelf without a stock row - counted against a zero snapshot
+            Long categoryId = count.getCategory() != null ? count.getCategory().getId() : null;
+            for (Product product : productRepository.findBySkuIn(unknownSkus)) {
+                if (categoryId == null || categoryId.equals(product.getCategory().getId())) {
+                    session.skuIndex.putIfAbsent(product.getSku(), product.getId());
+                }
+            }
+        }
+
+        int accepted = 0;
+        List<String> rejected = new ArrayList<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (StockCountScanBatchDTO.ScanDTO scan : batch.getScans()) {
+            Long productId = session.skuIndex.get(scan.getSku());
+            if (productId == null) {
+                rejected.add(scan.getSku());
+                continue;
+            }
+            int quantity = scan.getQuantity() != null ? scan.getQuantity() : 1;
+            quantities.merge(productId, quantity, Integer::sum);
+            accepted++;
+        }
+        stockCountItemRepository.addCounts(stockCountId, quantities);
+
+        return StockCountScanResultDTO.builder()
+                .stockCountId(stockCountId)
+                .accepted(accepted)
+                .rejectedSkus(rejected)
+                .distinctProductsCounted((int) stockCountItemRepository.countByStockCountIdAndCountedQuantityIsNotNull(stockCountId))
+                .build();
+    }
+
+    /**
+     * Current variances for an open session without posting anything.
+     */
+    @Transactional(readOnly = true)
+    public StockCountDTO getVariances(Long stockCountId) {
+        StockCount count = stockCountRepository.findById(stockCountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock count not found with id: " + stockCountId));
+        List<StockCountItem> countItems = stockCountItemRepository.findWithProductByStockCountId(stockCountId);
+        if (count.getStatus() != StockCountStatus.OPEN) {
+            return toDTO(count, countItems.stream()
+                    .map(this::toItemDTO)
+                    .collect(Collectors.toList()));
+        }
+
+        Map<Long, Integer> sold = getSoldSince(count);
+        Map<Long, Integer> available = new HashMap<>();
+        Set<Long> productIds = countItems.stream().map(item -> item.getProduct().getId()).collect(Collectors.toSet());
+        if (!productIds.isEmpty()) {
+            for (StockItem stockItem : stockItemRepository.findByBranchIdAndProductIdIn(count.getBranch().getId(), productIds)) {
+                available.put(stockItem.getProduct().getId(), stockShardService.getAvailableQuantity(stockItem));
+            }
+        }
+
+        List<StockCountItemDTO> items = new ArrayList<>();
+        for (StockCountItem item : countItems) {
+            Long productId = item.getProduct().getId();
+            items.add(computeItem(item.getProduct(), item.getSnapshotQuantity(), sold.getOrDefault(productId, 0),
+                    available.getOrDefault(productId, 0), item.getCountedQuantity()));
+        }
+        return toDTO(count, items);
+    }
+
+    /**
+     * Apply all variances in one transaction. Stock rows are locked with a single IN query and
+     * written back together; items that were never scanned are left untouched unless
+     * {@code zeroUncounted} is set, in which case they are counted as zero.
+     * <p>
+     * The expected quantity is the live one: the snapshot less sales, plus every other movement
+     * since the snapshot (receipts, refunds, transfers, corrections). The shelf is assumed to
+     * have been counted with those movements already on it, so posting leaves each counted
+     * product at its counted quantity instead of applying those movements a second time.
+     */
+    @Transactional
+    public StockCountDTO postCount(Long stockCountId, Long userId, boolean zeroUncounted) {
+        StockCount count = getOpenCount(stockCountRepository.lockById(stockCountId), stockCountId);
+
+        User postedBy = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        Long branchId = count.getBranch().getId();
+        Map<Long, Integer> sold = getSoldSince(count);
+
+        Map<Long, StockCountItem> itemsByProduct = new HashMap<>();
+        for (StockCountItem item : stockCountItemRepository.findWithProductByStockCountId(stockCountId)) {
+            itemsByProduct.put(item.getProduct().getId(), item);
+        }
+
+        Map<Long, StockItem> stockByProduct = new HashMap<>();
+        if (!itemsByProduct.isEmpty()) {
+            for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(
+                    List.of(branchId), itemsByProduct.keySet())) {
+                stockByProduct.put(stockItem.getProduct().getId(), stockItem);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockItem> changed = new ArrayList<>();
+
+        for (StockCountItem item : itemsByProduct.values()) {
+            Long productId = item.getProduct().getId();
+            Integer counted = item.getCountedQuantity();
+            if (counted == null) {
+                if (!zeroUncounted) continue;
+                counted = 0;
+            }
+
+            StockItem stockItem = stockByProduct.get(productId);
+            int available = stockItem != null ? stockShardService.getAvailableQuantity(stockItem) : 0;
+            int soldDuringCount = sold.getOrDefault(productId, 0);
+            int otherMovements = available - item.getSnapshotQuantity() + soldDuringCount;
+            int variance = counted - available;
+
+            item.setCountedQuantity(counted);
+            item.setSoldDuringCount(soldDuringCount);
+            item.setOtherMovements(otherMovements);
+            item.setVariance(variance);
+
+            if (variance == 0) continue;
+
+            if (stockItem == null) {
+                stockItem = StockItem.builder()
+                        .branch(count.getBranch())
+                        .product(item.getProduct())
+                        .quantity(0)
+                        .costPrice(BigDecimal.ZERO)
+                        .build();
+            }
+            // Folding the shards back leaves the row at the available quantity the variance is against
+            stockShardService.drain(stockItem);
+            stockItem.setQuantity(Math.max(0, stockItem.getQuantity() + variance));
+            stockItem.setLastStockDate(now);
+            changed.add(stockItem);
+        }
+
+        stockItemRepository.saveAll(changed);
+
+        count.setStatus(StockCountStatus.POSTED);
+        count.setPostedAt(now);
+        count.setPostedBy(postedBy);
+        StockCount saved = stockCountRepository.save(count);
+        sessions.remove(stockCountId);
+
+        return toDTO(saved, itemsByProduct.values().stream()
+                .map(this::toItemDTO)
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional
+    public StockCountDTO cancelCount(Long stockCountId) {
+        StockCount count = getOpenCount(stockCountRepository.lockById(stockCountId), stockCountId);
+        count.setStatus(StockCountStatus.CANCELLED);
+        StockCount saved = stockCountRepository.save(count);
+        sessions.remove(stockCountId);
+        return toDTO(saved, null);
+    }
+
+    private StockCount getOpenCount(Optional<StockCount> found, Long stockCountId) {
+        StockCount count = found
+                .orElseThrow(() -> new ResourceNotFoundException("Stock count not found with id: " + stockCountId));
+        if (count.getStatus() != StockCountStatus.OPEN) {
+            throw new IllegalStateException("Stock count is not open");
+        }
+        return count;
+    }
+
+    // The SKU index is only a cache of the count's lines; another node or a restart rebuilds it
+    private CountSession getSession(StockCount count) {
+        return sessions.computeIfAbsent(count.getId(),
+                id -> CountSession.of(stockCountItemRepository.findWithProductByStockCountId(id)));
+    }
+
+    private Map<Long, Integer> getSoldSince(StockCount count) {
+        Map<Long, Integer> sold = new HashMap<>();
+        for (Object[] row : saleRepository.getQuantitySoldByProductSince(count.getBranch().getId(), count.getStartedAt())) {
+            sold.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return sold;
+    }
+
+    private StockCountItemDTO computeItem(Product product, int snapshot, int soldDuringCount, int available,
+                                         Integer counted) {
+        int expected = available;
+        return StockCountItemDTO.builder()
+                .productId(product.getId())
+                .productName(product.getName())
+                .productSku(product.getSku())
+                .snapshotQuantity(snapshot)
+                .soldDuringCount(soldDuringCount)
+                .otherMovements(available - snapshot + soldDuringCount)
+                .expectedQuantity(expected)
+                .countedQuantity(counted)
+                .variance(counted != null ? counted - expected : null)
+                .build();
+    }
+
+    private StockCountItemDTO toItemDTO(StockCountItem item) {
+        Integer sold = item.getSoldDuringCount();
+        int other = item.getOtherMovements() != null ? item.getOtherMovements() : 0;
+        return StockCountItemDTO.builder()
+                .productId(item.getProduct().getId())
+                .productName(item.getProduct().getName())
+                .productSku(item.getProduct().getSku())
+                .snapshotQuantity(item.getSnapshotQuantity())
+                .soldDuringCount(sold)
+                .otherMovements(item.getOtherMovements())
+                .expectedQuantity(sold != null ? item.getSnapshotQuantity() - sold + other : null)
+                .countedQuantity(item.getCountedQuantity())
+                .variance(item.getVariance())
+                .build();
+    }
+
+    private StockCountDTO toDTO(StockCount count, List<StockCountItemDTO> items) {
+        return StockCountDTO.builder()
+                .id(count.getId())
+                .branchId(count.getBranch().getId())
+                .branchName(count.getBranch().getName())
+                .categoryId(count.getCategory() != null ? count.getCategory().getId() : null)
+                .categoryName(count.getCategory() != null ? count.getCategory().getName() : null)
+                .userId(count.getUser().getId())
+                .userName(count.getUser().getFullName())
+                .status(count.getStatus())
+                .startedAt(count.getStartedAt())
+                .postedAt(count.getPostedAt())
+                .notes(count.getNotes())
+                .totalProducts(items != null ? items.size() : null)
+                .countedProducts(items != null
+                        ? (int) items.stream().filter(i -> i.getCountedQuantity() != null).count()
+                        : null)
+                .items(items)
+                .build();
+    }
+
+    private static class CountSession {
+        private final Map<String, Long> skuIndex = new ConcurrentHashMap<>();
+
+        private static CountSession of(List<StockCountItem> items) {
+            CountSession session = new CountSession();
+            for (StockCountItem item : items) {
+                session.skuIndex.put(item.getProduct().getSku(), item.getProduct().getId());
+            }
+            return session;
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.HotPOS.service;
 
+import com.example.HotPOS.dto.ChangesDTO;
+import com.example.HotPOS.dto.InTransitStockDTO;
+import com.example.HotPOS.dto.StockFilterDTO;
 import com.example.HotPOS.dto.StockItemDTO;
+import com.example.HotPOS.dto.StockPageDTO;
+import com.example.HotPOS.dto.StockPositionDTO;
 import com.example.HotPOS.entity.Branch;
 import com.example.HotPOS.entity.Product;
 import com.example.HotPOS.entity.StockItem;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.InTransitStockRepository;
 import com.example.HotPOS.repository.ProductRepository;
 import com.example.HotPOS.repository.StockItemRepository;
 import lombok.RequiredArgsConstructor;
@@ -13,7 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,17 +32,124 @@ public class StockService {
     private final StockItemRepository stockItemRepository;
     private final BranchRepository branchRepository;
     private final ProductRepository productRepository;
+    private final StockShardService stockShardService;
+    private final InTransitStockRepository inTransitStockRepository;
+    private final ChangeFeedWindow changeFeedWindow;
+
+    private static final int MAX_PAGE_SIZE = 500;
 
     public List<StockItemDTO> getStockByBranch(Long branchId) {
-        return stockItemRepository.findByBranchId(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return stockItemRepository.findDTOsByBranchId(branchId);
     }
 
     public List<StockItemDTO> getLowStock(Long branchId) {
-        return stockItemRepository.findLowStockItems(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return stockItemRepository.findLowStockDTOsByBranchId(branchId);
+    }
+
+    public List<InTransitStockDTO> getInTransitStock(Long fromBranchId, Long toBranchId) {
+        return inTransitStockRepository.findRoutes(fromBranchId, toBranchId);
+    }
+
+    public List<StockPositionDTO> getStockPositions(Long branchId, Long productId) {
+        return inTransitStockRepository.findPositions(branchId, productId);
+    }
+
+    /**
+     * Rebuilds the in-transit aggregate from the transfers currently IN_TRANSIT, for data sent
+     * before the aggregate existed. Returns the number of route and product rows written.
+     */
+    @Transactional
+    public int rebuildInTransitStock() {
+        inTransitStockRepository.deleteAllInBatch();
+        return inTransitStockRepository.insertFromTransfers();
+    }
+
+    /**
+     * Filtered, sorted stock listing with keyset pagination. The cursor encodes the sort value
+     * and id of the last row returned, so each page is a single index-friendly query.
+     */
+    public StockPageDTO getStockPage(Long branchId, StockFilterDTO filter) {
+        String sort = filter.getSort() != null ? filter.getSort() : "name";
+        if (!sort.equals("name") && !sort.equals("sku") && !sort.equals("quantity")) {
+            throw new IllegalStateException("Unsupported sort field: " + sort);
+        }
+        boolean descending = "desc".equalsIgnoreCase(filter.getDirection());
+        int size = filter.getSize() != null ? Math.min(Math.max(filter.getSize(), 1), MAX_PAGE_SIZE) : 50;
+        String search = filter.getSearch() != null && !filter.getSearch().isBlank() ? filter.getSearch().trim() : null;
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(filter.getCursor()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid cursor");
+            }
+            int sep = decoded.indexOf(':');
+            if (sep < 0) {
+                throw new IllegalStateException("Invalid cursor");
+            }
+            afterId = Long.valueOf(decoded.substring(0, sep));
+            String value = decoded.substring(sep + 1);
+            afterValue = sort.equals("quantity") ? Integer.valueOf(value) : value;
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<StockItemDTO> rows = stockItemRepository.findStockPage(branchId, filter.getCategoryId(),
+                Boolean.TRUE.equals(filter.getIncludeSubcategories()), search,
+                Boolean.TRUE.equals(filter.getLowStockOnly()), filter.getRequiresSerial(),
+                sort, descending, afterValue, afterId, size + 1);
+
+        boolean hasMore = rows.size() > size;
+        List<StockItemDTO> items = hasMore ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            StockItemDTO last = items.get(items.size() - 1);
+            Object lastValue = switch (sort) {
+                case "sku" -> last.getProductSku();
+                case "quantity" -> last.getQuantity();
+                default -> last.getProductName();
+            };
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getId() + ":" + lastValue).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return StockPageDTO.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Latest change affecting a branch's stock listing: its own rows or any product (prices live on the product).
+     */
+    public LocalDateTime getStockWatermark(Long branchId) {
+        LocalDateTime stockMax = stockItemRepository.findMaxUpdatedAtByBranch(branchId);
+        LocalDateTime productMax = productRepository.findMaxUpdatedAt();
+        if (stockMax == null) return productMax;
+        if (productMax == null) return stockMax;
+        return stockMax.isAfter(productMax) ? stockMax : productMax;
+    }
+
+    /**
+     * Stock rows changed since {@code since}, re-sending the {@link ChangeFeedWindow} before it.
+     * Stock rows are never deleted; deactivated products
+     * are reported through the product changes feed.
+     */
+    public ChangesDTO<StockItemDTO> getStockChanges(Long branchId, LocalDateTime since) {
+        LocalDateTime watermark = getStockWatermark(branchId);
+        List<StockItemDTO> changed = since == null
+                ? stockItemRepository.findDTOsByBranchId(branchId)
+                : stockItemRepository.findDTOsChangedSince(branchId, changeFeedWindow.since(since));
+
+        return ChangesDTO.<StockItemDTO>builder()
+                .upserts(changed)
+                .deactivatedIds(List.of())
+                .watermark(watermark != null ? watermark : since)
+                .build();
     }
 
     public StockItemDTO getStockItem(Long branchId, Long productId) {
@@ -45,7 +160,9 @@ public class StockService {
     }
 
     public Integer getAvailableQuantity(Long branchId, Long productId) {
-        return stockItemRepository.getAvailableQuantity(branchId, productId);
+        return stockItemRepository.findByBranchIdAndProductId(branchId, productId)
+                .map(stockShardService::getAvailableQuantity)
+                .orElse(null);
     }
 
     @Transactional
@@ -80,6 +197,7 @@ public class StockService {
     public StockItemDTO updateStock(Long id, StockItemDTO dto) {
         StockItem stockItem = stockItemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Stock item not found with id: " + id));
+        stockShardService.drain(stockItem);
 
         stockItem.setQuantity(dto.getQuantity());
         stockItem.setCostPrice(dto.getCostPrice());
@@ -94,6 +212,7 @@ public class StockService {
         StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(branchId, productId)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Stock item not found for branch: " + branchId + " and product: " + productId));
+        stockShardService.drain(stockItem);
         
         if (stockItem.getQuantity() < quantity) {
             throw new IllegalStateException("Insufficient stock. Available: " + stockItem.getQuantity());
@@ -116,7 +235,7 @@ public class StockService {
                 .productId(stockItem.getProduct().getId())
                 .productName(stockItem.getProduct().getName())
                 .productSku(stockItem.getProduct().getSku())
-                .quantity(stockItem.getQuantity())
+                .quantity(stockShardService.getAvailableQuantity(stockItem))
                 .costPrice(stockItem.getCostPrice())
                 .sellingPrice(effectiveSellingPrice)
                 .reorderLevel(stockItem.getProduct().getReorderLevel())
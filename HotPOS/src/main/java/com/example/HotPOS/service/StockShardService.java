@@ -0,0 +1,222 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.StockShardDTO;
+import com.example.HotPOS.entity.Product;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.entity.StockShard;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.ProductRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.StockShardRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Sharded stock for hot SKUs. While a product is sharded, StockItem.quantity is the book
+ * quantity as of the last consolidation and the sellable units are split across
+ * {@code Product.stockShards} sub-counter rows. Tills take from a random shard with a
+ * conditional UPDATE, so concurrent checkouts only contend when they pick the same shard.
+ * Consolidation folds the units sold from shards back into StockItem.quantity and re-splits
+ * the remainder; it runs periodically, and other stock movements that decrease the row drain
+ * the shards first so units are never sold twice.
+ * <p>
+ * Lock order: a stock row is always locked before its shards, and tills never lock the stock
+ * row at all. When no single shard can cover a line the till locks all shards of the item and
+ * re-splits the units still sellable among them, leaving the row untouched. SaleService takes
+ * from shards after every other write of the sale and one item at a time in stock item id
+ * order, so a till holding a shard only ever waits for shards of later items.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockShardService {
+
+    private final StockShardRepository stockShardRepository;
+    private final StockItemRepository stockItemRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    private static final int MAX_SHARDS = 64;
+
+    public boolean isSharded(Product product) {
+        return product.getStockShards() != null && product.getStockShards() > 0;
+    }
+
+    /**
+     * Sellable quantity: the consolidated row minus units already sold from shards.
+     */
+    public int getAvailableQuantity(StockItem stockItem) {
+        if (!isSharded(stockItem.getProduct())) {
+            return stockItem.getQuantity();
+        }
+        return stockItem.getQuantity() - stockShardRepository.getPendingQuantity(stockItem.getId()).intValue();
+    }
+
+    public List<StockShardDTO> getShards(Long stockItemId) {
+        return stockShardRepository.findByStockItemIdOrderByShardIndex(stockItemId).stream()
+                .map(shard -> StockShardDTO.builder()
+                        .id(shard.getId())
+                        .stockItemId(stockItemId)
+                        .shardIndex(shard.getShardIndex())
+                        .allocated(shard.getAllocated())
+                        .quantity(shard.getQuantity())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes units for a sale without touching the stock row. Probes the shards starting at a
+     * random index; if none can cover the line on its own, re-splits the item's shards and takes
+     * the units from them together. Call at most once per stock item in a transaction.
+     */
+    @Transactional
+    public void take(StockItem stockItem, int quantity) {
+        Product product = stockItem.getProduct();
+        int shardCount = product.getStockShards();
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+
+        for (int i = 0; i < shardCount; i++) {
+            if (stockShardRepository.take(stockItem.getId(), (start + i) % shardCount, quantity) == 1) {
+                return;
+            }
+        }
+
+        List<Object[]> shards = stockShardRepository.lockShards(stockItem.getId());
+        if (shards.isEmpty()) {
+            stockShardRepository.insertMissing(stockItem.getId(), shardCount);
+            shards = stockShardRepository.lockShards(stockItem.getId());
+        }
+        int pending = 0;
+        for (Object[] shard : shards) {
+            pending += ((Number) shard[1]).intValue() - ((Number) shard[2]).intValue();
+        }
+        // Every decrease of the row drains the shards under their locks, which this till now holds,
+        // so the committed quantity cannot drop below what is still sellable from it
+        int available = stockItemRepository.readQuantity(stockItem.getId()) - pending;
+        if (available < quantity) {
+            throw new IllegalStateException(
+                    "Insufficient stock for " + product.getName() +
+                    ". Available: " + available + ", Requested: " + quantity);
+        }
+
+        // Each shard keeps its own sold units; the sale is booked on the first one
+        int remainder = available - quantity;
+        for (int i = 0; i < shards.size(); i++) {
+            Object[] shard = shards.get(i);
+            int sold = ((Number) shard[1]).intValue() - ((Number) shard[2]).intValue() + (i == 0 ? quantity : 0);
+            int share = remainder / shards.size() + (i < remainder % shards.size() ? 1 : 0);
+            stockShardRepository.setShard(stockItem.getId(), ((Number) shard[0]).intValue(), sold + share, share);
+        }
+    }
+
+    /**
+     * Folds all shards back into the stock row and leaves them empty, then reloads the row.
+     * Call before any movement that decreases StockItem.quantity directly; tills refill the
+     * shards on their next sale.
+     */
+    @Transactional
+    public void drain(StockItem stockItem) {
+        if (stockItem.getId() == null || !isSharded(stockItem.getProduct())) {
+            return;
+        }
+        consolidate(stockItem.getId(), stockItem.getProduct().getStockShards(), false);
+        entityManager.refresh(stockItem);
+    }
+
+    /**
+     * {@link #drain} for many stock rows in two statements. The caller must already hold the locks
+     * on the stock rows; managed copies of them are not refreshed.
+     */
+    @Transactional
+    public void drainLocked(Collection<Long> stockItemIds) {
+        if (stockItemIds.isEmpty()) {
+            return;
+        }
+        stockItemRepository.foldPendingShardUnits(stockItemIds, LocalDateTime.now());
+        stockShardRepository.empty(stockItemIds);
+    }
+
+    /**
+     * Enables sharding with the given number of shards, or disables it when {@code shards} is 0.
+     */
+    @Transactional
+    public void setShardCount(Long productId, int shards) {
+        if (shards < 0 || shards > MAX_SHARDS) {
+            throw new IllegalStateException("Shard count must be between 0 and " + MAX_SHARDS);
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+
+        product.setStockShards(shards > 0 ? shards : null);
+        productRepository.save(product);
+
+        for (StockItem stockItem : stockItemRepository.findByProductId(productId)) {
+            consolidate(stockItem.getId(), shards, true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hotpos.stock.shard-consolidation-ms:10000}")
+    public void consolidateAll() {
+        for (Object[] row : stockItemRepository.findShardedStockItems()) {
+            Long stockItemId = (Long) row[0];
+            int shardCount = (Integer) row[1];
+            try {
+                transactionTemplate.executeWithoutResult(status -> consolidate(stockItemId, shardCount, true));
+            } catch (RuntimeException e) {
+                log.warn("Stock shard consolidation failed for stock item {}: {}", stockItemId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Locks the stock row then its shards, subtracts the units sold from shards and hands the remainder back out evenly ({@code redistribute}) or leaves the shards
+     * empty. Shards beyond {@code shardCount} are removed. Returns the consolidated quantity.
+     */
+    private int consolidate(Long stockItemId, int shardCount, boolean redistribute) {
+        int current = stockItemRepository.lockQuantity(stockItemId);
+        List<Integer> existing = stockShardRepository.lockShardIndexes(stockItemId);
+        int pending = stockShardRepository.getPendingQuantity(stockItemId).intValue();
+        int total = current - pending;
+        int shareable = redistribute && shardCount > 0 ? Math.max(total, 0) : 0;
+
+        if (pending == 0 && existing.size() == shardCount
+                && stockShardRepository.getAllocatedQuantity(stockItemId).intValue() == shareable) {
+            return total; // Nothing sold and the split is already current
+        }
+
+        if (pending != 0) {
+            stockItemRepository.setQuantity(stockItemId, total, LocalDateTime.now());
+        }
+        stockShardRepository.deleteExtraShards(stockItemId, shardCount);
+
+        Set<Integer> present = new HashSet<>(existing);
+        for (int i = 0; i < shardCount; i++) {
+            int share = shareable / shardCount + (i < shareable % shardCount ? 1 : 0);
+            if (present.contains(i)) {
+                stockShardRepository.reset(stockItemId, i, share);
+            } else {
+                stockShardRepository.save(StockShard.builder()
+                        .stockItem(stockItemRepository.getReferenceById(stockItemId))
+                        .shardIndex(i)
+                        .allocated(share)
+                        .quantity(share)
+                        .build());
+            }
+        }
+        return total;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.HotPOS.service;
 
+import com.example.HotPOS.config.SearchIndexMigration;
 import com.example.HotPOS.dto.SupplierDTO;
 import com.example.HotPOS.entity.Supplier;
 import com.example.HotPOS.exception.ResourceNotFoundException;
@@ -16,6 +17,9 @@ import java.util.stream.Collectors;
 public class SupplierService {
 
     private final SupplierRepository supplierRepository;
+    private final SearchIndexMigration searchIndexMigration;
+
+    private static final int MAX_SEARCH_RESULTS = 100;
 
     public List<SupplierDTO> getAllSuppliers() {
         return supplierRepository.findAll().stream()
@@ -29,8 +33,16 @@ public class SupplierService {
                 .collect(Collectors.toList());
     }
 
-    public List<SupplierDTO> searchSuppliers(String search) {
-        return supplierRepository.searchSuppliers(search).stream()
+    public List<SupplierDTO> searchSuppliers(String search, int limit) {
+        List<Supplier> suppliers;
+        if (searchIndexMigration.isApplied()) {
+            SearchTerm term = SearchTerm.of(search);
+            suppliers = supplierRepository.searchRanked(term.text(), term.pattern(),
+                    term.digits(), term.digitsPattern(), Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS));
+        } else {
+            suppliers = supplierRepository.searchSuppliers(search);
+        }
+        return suppliers.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,109 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.SupplierScorecardDTO;
+import com.example.HotPOS.entity.Supplier;
+import com.example.HotPOS.entity.SupplierStats;
+import com.example.HotPOS.exception.ResourceNotFoundException;
+import com.example.HotPOS.repository.SupplierStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Supplier scorecards from running per-supplier totals. The purchase, receiving and return
+ * workflows call in here inside their own transactions, so the totals commit with the change
+ * that caused them.
+ */
+@Service
+@RequiredArgsConstructor
+public class SupplierStatsService {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal SECONDS_PER_HOUR = BigDecimal.valueOf(3600);
+
+    private final SupplierStatsRepository supplierStatsRepository;
+
+    public List<SupplierScorecardDTO> getScorecards() {
+        return supplierStatsRepository.findScorecards(null).stream()
+                .map(row -> toDTO((Supplier) row[0], (SupplierStats) row[1]))
+                .collect(Collectors.toList());
+    }
+
+    public SupplierScorecardDTO getScorecard(Long supplierId) {
+        return supplierStatsRepository.findScorecards(supplierId).stream()
+                .findFirst()
+                .map(row -> toDTO((Supplier) row[0], (SupplierStats) row[1]))
+                .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id: " + supplierId));
+    }
+
+    // Must run after the purchase's lines are written and before any later purchase's prices move
+    void recordPurchase(Long supplierId, Long purchaseId) {
+        supplierStatsRepository.insertMissing(Set.of(supplierId));
+        supplierStatsRepository.recordPurchase(purchaseId);
+        supplierStatsRepository.recordPrices(purchaseId);
+    }
+
+    void recordReceipt(Long supplierId, Long purchaseId) {
+        supplierStatsRepository.insertMissing(Set.of(supplierId));
+        supplierStatsRepository.recordReceipt(purchaseId, LocalDateTime.now());
+    }
+
+    void recordReturns(Collection<Long> supplierIds, Collection<Long> returnIds) {
+        if (returnIds.isEmpty()) {
+            return;
+        }
+        supplierStatsRepository.insertMissing(supplierIds);
+        supplierStatsRepository.recordReturns(returnIds);
+    }
+
+    /**
+     * Rebuilds every supplier's totals and last prices from purchase and return history.
+     * Returns the number of suppliers written.
+     */
+    @Transactional
+    public int rebuild() {
+        supplierStatsRepository.deleteAllInBatch();
+        supplierStatsRepository.deleteAllPrices();
+        supplierStatsRepository.insertPricesFromHistory();
+        return supplierStatsRepository.insertFromHistory();
+    }
+
+    private SupplierScorecardDTO toDTO(Supplier supplier, SupplierStats stats) {
+        if (stats == null) {
+            stats = SupplierStats.builder().build();
+        }
+        return SupplierScorecardDTO.builder()
+                .supplierId(supplier.getId())
+                .supplierName(supplier.getName())
+                .isActive(supplier.getIsActive())
+                .purchaseCount(stats.getPurchaseCount())
+                .purchasedAmount(stats.getPurchasedAmount())
+                .purchasedUnits(stats.getPurchasedUnits())
+                .receivedCount(stats.getReceivedCount())
+                .receivedUnits(stats.getReceivedUnits())
+                .averageLeadTimeHours(stats.getReceivedCount() == 0 ? null
+                        : BigDecimal.valueOf(stats.getLeadTimeSeconds())
+                                .divide(SECONDS_PER_HOUR.multiply(BigDecimal.valueOf(stats.getReceivedCount())),
+                                        2, RoundingMode.HALF_UP))
+                .returnCount(stats.getReturnCount())
+                .returnedUnits(stats.getReturnedUnits())
+                .returnedAmount(stats.getReturnedAmount())
+                .returnRate(stats.getReceivedUnits() == 0 ? null
+                        : BigDecimal.valueOf(stats.getReturnedUnits()).multiply(HUNDRED)
+                                .divide(BigDecimal.valueOf(stats.getReceivedUnits()), 2, RoundingMode.HALF_UP))
+                .pricedLines(stats.getPricedLines())
+                .averagePriceChange(stats.getPricedLines() == 0 ? null
+                        : stats.getPriceChangeTotal().multiply(HUNDRED)
+                                .divide(BigDecimal.valueOf(stats.getPricedLines()), 2, RoundingMode.HALF_UP))
+                .updatedAt(stats.getUpdatedAt())
+                .build();
+    }
+}
@@ -2,19 +2,32 @@ package com.example.HotPOS.service;
 
 import com.example.HotPOS.dto.*;
 import com.example.HotPOS.entity.*;
+import com.example.HotPOS.enums.DocumentType;
+import com.example.HotPOS.enums.SerialEventType;
 import com.example.HotPOS.enums.SerialNumberStatus;
 import com.example.HotPOS.enums.TransferStatus;
+import com.example.HotPOS.event.SerialNumberChangedEvent;
 import com.example.HotPOS.exception.ResourceNotFoundException;
 import com.example.HotPOS.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,23 +40,25 @@ public class TransferService {
     private final ProductRepository productRepository;
     private final StockItemRepository stockItemRepository;
     private final SerialNumberRepository serialNumberRepository;
+    private final StockShardService stockShardService;
+    private final TransferItemSerialRepository transferItemSerialRepository;
+    private final InTransitStockRepository inTransitStockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SerialEventService serialEventService;
+    private final SerialRangeService serialRangeService;
+    private final DocumentNumberService documentNumberService;
+    private final TransactionTemplate transactionTemplate;
 
     public List<TransferDTO> getTransfersByFromBranch(Long branchId) {
-        return transferRepository.findByFromBranchIdOrderByTransferDateDescCreatedAtDesc(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(transferRepository.findByFromBranchIdOrderByTransferDateDescCreatedAtDesc(branchId));
     }
 
     public List<TransferDTO> getTransfersByToBranch(Long branchId) {
-        return transferRepository.findByToBranchIdOrderByTransferDateDescCreatedAtDesc(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(transferRepository.findByToBranchIdOrderByTransferDateDescCreatedAtDesc(branchId));
     }
 
     public List<TransferDTO> getPendingTransfers(Long branchId) {
-        return transferRepository.findPendingTransfers(branchId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOList(transferRepository.findPendingTransfers(branchId));
     }
 
     public TransferDTO getTransferById(Long id) {
@@ -67,7 +82,8 @@ public class TransferService {
             throw new IllegalStateException("Source and destination branch cannot be the same");
         }
 
-        String transferNumber = generateTransferNumber(fromBranch.getCode(), toBranch.getCode());
+        String transferNumber = documentNumberService.nextNumber(DocumentType.TRANSFER, fromBranch.getId(),
+                fromBranch.getCode() + "-" + toBranch.getCode());
 
         Transfer transfer = Transfer.builder()
                 .fromBranch(fromBranch)
@@ -80,14 +96,30 @@ public class TransferService {
                 .items(new ArrayList<>())
                 .build();
 
+        // Products and source stock rows for the whole basket, one query each
+        Set<Long> productIds = dto.getItems().stream()
+                .map(CreateTransferItemDTO::getProductId)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        Map<Long, StockItem> sourceStock = new HashMap<>();
+        for (StockItem stockItem : stockItemRepository.findByBranchIdAndProductIdIn(fromBranch.getId(), productIds)) {
+            sourceStock.put(stockItem.getProduct().getId(), stockItem);
+        }
+
         for (CreateTransferItemDTO itemDto : dto.getItems()) {
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + itemDto.getProductId()));
+            Product product = products.get(itemDto.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + itemDto.getProductId());
+            }
 
             // Check stock availability
-            StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(fromBranch.getId(), product.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Product " + product.getName() + " not available in source branch"));
+            StockItem stockItem = sourceStock.get(product.getId());
+            if (stockItem == null) {
+                throw new ResourceNotFoundException("Product " + product.getName() + " not available in source branch");
+            }
 
             if (stockItem.getQuantity() < itemDto.getQuantity()) {
                 throw new IllegalStateException(
@@ -102,6 +134,16 @@ public class TransferService {
                     .costPrice(stockItem.getCostPrice())
                     .build();
 
+            // Record exactly which serials travel with this item
+            if (Boolean.TRUE.equals(product.getRequiresSerial())) {
+                for (SerialNumber serial : selectSerials(stockItem, product, itemDto)) {
+                    transferItem.getSerials().add(TransferItemSerial.builder()
+                            .transferItem(transferItem)
+                            .serialNumber(serial)
+                            .build());
+                }
+            }
+
             transfer.getItems().add(transferItem);
         }
 
@@ -121,11 +163,14 @@ public class TransferService {
             throw new IllegalStateException("Transfer must be in PENDING status to send");
         }
 
+        Set<Long> serialStockIds = new HashSet<>();
+        Long fromBranchId = transfer.getFromBranch().getId();
+        Map<Long, Map<Long, StockItem>> stock = lockStock(transfer, List.of(fromBranchId));
+        stock.get(fromBranchId).values().forEach(stockShardService::drain);
+
         // Deduct stock from source branch
         for (TransferItem item : transfer.getItems()) {
-            StockItem fromStock = stockItemRepository.findByBranchIdAndProductId(
-                    transfer.getFromBranch().getId(), item.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
+            StockItem fromStock = requireStock(stock.get(fromBranchId), item);
 
             if (fromStock.getQuantity() < item.getQuantity()) {
                 throw new IllegalStateException(
@@ -134,22 +179,25 @@ public class TransferService {
             }
 
             fromStock.setQuantity(fromStock.getQuantity() - item.getQuantity());
-            stockItemRepository.save(fromStock);
 
-            // Update serial numbers to TRANSFERRED status
             if (item.getProduct().getRequiresSerial()) {
-                List<SerialNumber> serials = serialNumberRepository.findByStockItemIdAndStatus(
-                        fromStock.getId(), SerialNumberStatus.IN_STOCK);
-                int count = 0;
-                for (SerialNumber serial : serials) {
-                    if (count >= item.getQuantity()) break;
-                    serial.setStatus(SerialNumberStatus.TRANSFERRED);
-                    serialNumberRepository.save(serial);
-                    count++;
-                }
+                serialStockIds.add(fromStock.getId());
             }
         }
+        stockItemRepository.saveAll(stock.get(fromBranchId).values());
+
+        // Mark the recorded serials TRANSFERRED in one statement
+        int expected = (int) transferItemSerialRepository.countByTransferId(transferId);
+        if (expected > 0) {
+            int updated = serialNumberRepository.updateStatusForTransfer(transferId,
+                    SerialNumberStatus.IN_STOCK, SerialNumberStatus.TRANSFERRED, LocalDateTime.now());
+            requireAllSerialsMoved(expected, updated, "in stock at the source branch");
+            publishSerialChanges(serialStockIds);
+            serialEventService.recordTransfer(transferId, SerialEventType.TRANSFER_SENT,
+                    SerialNumberStatus.TRANSFERRED, transfer.getFromBranch().getId(), sentById);
+        }
 
+        inTransitStockRepository.applyTransfers(List.of(transferId), 1);
         transfer.setStatus(TransferStatus.IN_TRANSIT);
         transfer.setSentAt(LocalDateTime.now());
 
@@ -172,42 +220,27 @@ public class TransferService {
         User receivedBy = userRepository.findById(receivedById)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + receivedById));
 
+        Set<Long> serialStockIds = new HashSet<>();
+        Long toBranchId = transfer.getToBranch().getId();
+        Map<Long, Map<Long, StockItem>> stock = lockStock(transfer, List.of(toBranchId));
+        createMissingStock(transfer, stock.get(toBranchId), TransferItem::getCostPrice);
+
         // Add stock to destination branch
         for (TransferItem item : transfer.getItems()) {
-            StockItem toStock = stockItemRepository.findByBranchIdAndProductId(
-                    transfer.getToBranch().getId(), item.getProduct().getId())
-                    .orElse(StockItem.builder()
-                            .branch(transfer.getToBranch())
-                            .product(item.getProduct())
-                            .quantity(0)
-                            .costPrice(item.getCostPrice())
-                            .build());
-
+            StockItem toStock = stock.get(toBranchId).get(item.getProduct().getId());
             toStock.setQuantity(toStock.getQuantity() + item.getQuantity());
             toStock.setLastStockDate(LocalDateTime.now());
-            StockItem savedToStock = stockItemRepository.save(toStock);
 
-            // Update serial numbers - move to new branch and set to IN_STOCK
             if (item.getProduct().getRequiresSerial()) {
-                StockItem fromStock = stockItemRepository.findByBranchIdAndProductId(
-                        transfer.getFromBranch().getId(), item.getProduct().getId())
-                        .orElse(null);
-                
-                if (fromStock != null) {
-                    List<SerialNumber> serials = serialNumberRepository.findByStockItemIdAndStatus(
-                            fromStock.getId(), SerialNumberStatus.TRANSFERRED);
-                    int count = 0;
-                    for (SerialNumber serial : serials) {
-                        if (count >= item.getQuantity()) break;
-                        serial.setStockItem(savedToStock);
-                        serial.setStatus(SerialNumberStatus.IN_STOCK);
-                        serialNumberRepository.save(serial);
-                        count++;
-                    }
-                }
+                serialStockIds.add(toStock.getId());
             }
         }
+        stockItemRepository.saveAll(stock.get(toBranchId).values());
+
+        // Move the recorded serials to the destination stock rows in one statement
+        moveSerials(transfer, SerialNumberStatus.TRANSFERRED, serialStockIds, receivedById);
 
+        inTransitStockRepository.applyTransfers(List.of(transferId), -1);
         transfer.setStatus(TransferStatus.RECEIVED);
         transfer.setReceivedBy(receivedBy);
         transfer.setReceivedAt(LocalDateTime.now());
@@ -228,45 +261,46 @@ public class TransferService {
         User receivedBy = userRepository.findById(approvedById)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + approvedById));
 
-        // Process the transfer - move stock
+        Set<Long> serialStockIds = new HashSet<>();
+        Long fromBranchId = transfer.getFromBranch().getId();
+        Long toBranchId = transfer.getToBranch().getId();
+
+        // Both branches' rows are locked by one statement, in id order
+        Map<Long, Map<Long, StockItem>> stock = lockStock(transfer, List.of(fromBranchId, toBranchId));
+        Map<Long, StockItem> fromRows = stock.get(fromBranchId);
+        Map<Long, StockItem> toRows = stock.get(toBranchId);
         for (TransferItem item : transfer.getItems()) {
-            // Reduce from source branch
-            StockItem fromStock = stockItemRepository.findByBranchIdAndProductId(
-                    transfer.getFromBranch().getId(), item.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
+            requireStock(fromRows, item);
+        }
+        fromRows.values().forEach(stockShardService::drain);
+        createMissingStock(transfer, toRows, item -> fromRows.get(item.getProduct().getId()).getCostPrice());
 
+        // Process the transfer - move stock
+        for (TransferItem item : transfer.getItems()) {
+            // Reduce from source branch; drained above, so the quantity already counts shard sales
+            StockItem fromStock = fromRows.get(item.getProduct().getId());
+            if (fromStock.getQuantity() < item.getQuantity()) {
+                throw new IllegalStateException(
+                        "Insufficient stock for " + item.getProduct().getName() +
+                        ". Available: " + fromStock.getQuantity() + ", Requested: " + item.getQuantity());
+            }
             fromStock.setQuantity(fromStock.getQuantity() - item.getQuantity());
-            stockItemRepository.save(fromStock);
 
             // Add to destination branch
-            StockItem toStock = stockItemRepository.findByBranchIdAndProductId(
-                    transfer.getToBranch().getId(), item.getProduct().getId())
-                    .orElse(StockItem.builder()
-                            .branch(transfer.getToBranch())
-                            .product(item.getProduct())
-                            .quantity(0)
-                            .costPrice(fromStock.getCostPrice())
-                            .build());
-
+            StockItem toStock = toRows.get(item.getProduct().getId());
             toStock.setQuantity(toStock.getQuantity() + item.getQuantity());
             toStock.setLastStockDate(LocalDateTime.now());
-            StockItem savedToStock = stockItemRepository.save(toStock);
 
-            // Update serial numbers if applicable
             if (item.getProduct().getRequiresSerial()) {
-                List<SerialNumber> serials = serialNumberRepository.findByStockItemId(fromStock.getId());
-                int count = 0;
-                for (SerialNumber serial : serials) {
-                    if (count >= item.getQuantity()) break;
-                    if (serial.getStatus() == SerialNumberStatus.IN_STOCK) {
-                        serial.setStockItem(savedToStock);
-                        serial.setStatus(SerialNumberStatus.IN_STOCK); // Keep as IN_STOCK at new branch
-                        serialNumberRepository.save(serial);
-                        count++;
-                    }
-                }
+                serialStockIds.add(fromStock.getId());
+                serialStockIds.add(toStock.getId());
             }
         }
+        stockItemRepository.saveAll(fromRows.values());
+        stockItemRepository.saveAll(toRows.values());
+
+        // Move the recorded serials straight from the source to the destination stock rows
+        moveSerials(transfer, SerialNumberStatus.IN_STOCK, serialStockIds, approvedById);
 
         transfer.setStatus(TransferStatus.RECEIVED);
         transfer.setReceivedBy(receivedBy);
@@ -276,6 +310,135 @@ public class TransferService {
         return toDTO(saved);
     }
 
+    /**
+     * Approves several pending transfers in one transaction, as each touches two branches. Every
+     * affected stock row is locked by one statement, missing destination rows are created with
+     * one statement per branch, and transfers are checked in id order against the running stock;
+     * one that fails is reported and left pending while the rest go ahead. Serials for the whole
+     * batch move with one update.
+     */
+    public BatchApprovalResultDTO approveTransfers(List<Long> transferIds, Long approvedById) {
+        BatchApproval batch = new BatchApproval(transferIds);
+        List<Long> found = transferRepository.findIdsByIdIn(batch.ids());
+        if (found.isEmpty()) {
+            return batch.result();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> approveTransferBatch(found, approvedById, batch));
+        } catch (RuntimeException e) {
+            batch.failedAll(found, e.getMessage());
+        }
+        return batch.result();
+    }
+
+    private void approveTransferBatch(List<Long> ids, Long approvedById, BatchApproval batch) {
+        User receivedBy = userRepository.findById(approvedById)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + approvedById));
+
+        List<Transfer> pending = new ArrayList<>();
+        for (Transfer transfer : transferRepository.lockByIdIn(ids)) {
+            if (transfer.getStatus() == TransferStatus.PENDING) {
+                pending.add(transfer);
+            } else {
+                batch.failed(transfer.getId(), transfer.getTransferNumber(), "Transfer is not in pending status");
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> pendingIds = pending.stream().map(Transfer::getId).collect(Collectors.toList());
+        // Initialises the locked transfers' items in one query
+        transferRepository.findWithItemsByIdIn(pendingIds);
+
+        Set<Long> branchIds = new HashSet<>();
+        for (Transfer transfer : pending) {
+            branchIds.add(transfer.getFromBranch().getId());
+            branchIds.add(transfer.getToBranch().getId());
+        }
+        Map<Long, Map<Long, StockItem>> stock = lockStock(pending, branchIds);
+
+        // Drain each source row once and create every destination row the batch may need up front
+        Set<StockItem> drained = new HashSet<>();
+        Map<Long, List<TransferItem>> itemsByDestination = new HashMap<>();
+        for (Transfer transfer : pending) {
+            for (TransferItem item : transfer.getItems()) {
+                StockItem fromStock = stock.get(transfer.getFromBranch().getId()).get(item.getProduct().getId());
+                if (fromStock != null && drained.add(fromStock)) {
+                    stockShardService.drain(fromStock);
+                }
+                itemsByDestination.computeIfAbsent(transfer.getToBranch().getId(), id -> new ArrayList<>()).add(item);
+            }
+        }
+        itemsByDestination.forEach((branchId, items) -> createMissingStock(branchId, items, stock.get(branchId), item -> {
+            StockItem fromStock = stock.get(item.getTransfer().getFromBranch().getId()).get(item.getProduct().getId());
+            return fromStock != null ? fromStock.getCostPrice() : item.getCostPrice();
+        }));
+
+        Map<Long, Long> notInStock = BatchApproval.countsById(transferItemSerialRepository
+                .countNotInStatusByTransferIds(pendingIds, SerialNumberStatus.IN_STOCK));
+        Map<Long, Long> serialCounts = BatchApproval.countsById(transferItemSerialRepository.countByTransferIds(pendingIds));
+        List<Long> approvedIds = new ArrayList<>();
+        Set<Long> serialStockIds = new HashSet<>();
+        long expectedSerials = 0;
+        for (Transfer transfer : pending) {
+            if (notInStock.containsKey(transfer.getId())) {
+                batch.failed(transfer.getId(), transfer.getTransferNumber(), notInStock.get(transfer.getId()) +
+                        " serial number(s) on this transfer are no longer in stock at the source branch");
+                continue;
+            }
+            Map<Long, StockItem> fromRows = stock.get(transfer.getFromBranch().getId());
+            Map<Long, StockItem> toRows = stock.get(transfer.getToBranch().getId());
+            Map<Long, Integer> requested = new HashMap<>();
+            for (TransferItem item : transfer.getItems()) {
+                requested.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+            List<String> problems = new ArrayList<>();
+            for (TransferItem item : transfer.getItems()) {
+                StockItem fromStock = fromRows.get(item.getProduct().getId());
+                if (fromStock == null) {
+                    problems.add("Stock item not found for product: " + item.getProduct().getName());
+                } else if (fromStock.getQuantity() < requested.get(item.getProduct().getId())) {
+                    problems.add("Insufficient stock for " + item.getProduct().getName() +
+                            ". Available: " + fromStock.getQuantity() + ", Requested: " + requested.get(item.getProduct().getId()));
+                }
+            }
+            if (!problems.isEmpty()) {
+                batch.failed(transfer.getId(), transfer.getTransferNumber(), String.join("; ", problems));
+                continue;
+            }
+
+            for (TransferItem item : transfer.getItems()) {
+                StockItem fromStock = fromRows.get(item.getProduct().getId());
+                StockItem toStock = toRows.get(item.getProduct().getId());
+                fromStock.setQuantity(fromStock.getQuantity() - item.getQuantity());
+                toStock.setQuantity(toStock.getQuantity() + item.getQuantity());
+                toStock.setLastStockDate(LocalDateTime.now());
+                if (item.getProduct().getRequiresSerial()) {
+                    serialStockIds.add(fromStock.getId());
+                    serialStockIds.add(toStock.getId());
+                }
+            }
+            transfer.setStatus(TransferStatus.RECEIVED);
+            transfer.setReceivedBy(receivedBy);
+            transfer.setReceivedAt(LocalDateTime.now());
+            approvedIds.add(transfer.getId());
+            expectedSerials += serialCounts.getOrDefault(transfer.getId(), 0L);
+            batch.approved(transfer.getId(), transfer.getTransferNumber());
+        }
+        stock.values().forEach(rows -> stockItemRepository.saveAll(rows.values()));
+
+        if (expectedSerials > 0) {
+            // Destination stock rows created above must exist before the native UPDATE joins on them
+            stockItemRepository.flush();
+            int updated = serialNumberRepository.moveForTransfers(approvedIds,
+                    SerialNumberStatus.IN_STOCK.name(), LocalDateTime.now());
+            requireAllSerialsMoved((int) expectedSerials, updated, "in stock at the source branch");
+            publishSerialChanges(serialStockIds);
+            serialEventService.recordTransfers(approvedIds, SerialEventType.TRANSFER_RECEIVED,
+                    SerialNumberStatus.IN_STOCK, approvedById);
+        }
+    }
+
     @Transactional
     public TransferDTO rejectTransfer(Long transferId, Long userId) {
         Transfer transfer = transferRepository.findById(transferId)
@@ -287,27 +450,28 @@ public class TransferService {
 
         // If IN_TRANSIT, restore stock to source branch
         if (transfer.getStatus() == TransferStatus.IN_TRANSIT) {
+            Set<Long> serialStockIds = new HashSet<>();
+            Long fromBranchId = transfer.getFromBranch().getId();
+            Map<Long, Map<Long, StockItem>> stock = lockStock(transfer, List.of(fromBranchId));
             for (TransferItem item : transfer.getItems()) {
-                StockItem fromStock = stockItemRepository.findByBranchIdAndProductId(
-                        transfer.getFromBranch().getId(), item.getProduct().getId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Stock item not found"));
-
+                StockItem fromStock = requireStock(stock.get(fromBranchId), item);
                 fromStock.setQuantity(fromStock.getQuantity() + item.getQuantity());
-                stockItemRepository.save(fromStock);
 
-                // Restore serial numbers to IN_STOCK
                 if (item.getProduct().getRequiresSerial()) {
-                    List<SerialNumber> serials = serialNumberRepository.findByStockItemIdAndStatus(
-                            fromStock.getId(), SerialNumberStatus.TRANSFERRED);
-                    int count = 0;
-                    for (SerialNumber serial : serials) {
-                        if (count >= item.getQuantity()) break;
-                        serial.setStatus(SerialNumberStatus.IN_STOCK);
-                        serialNumberRepository.save(serial);
-                        count++;
-                    }
+                    serialStockIds.add(fromStock.getId());
                 }
             }
+            stockItemRepository.saveAll(stock.get(fromBranchId).values());
+
+            // Restore the recorded serials to IN_STOCK in one statement
+            if (!serialStockIds.isEmpty()) {
+                serialNumberRepository.updateStatusForTransfer(transferId,
+                        SerialNumberStatus.TRANSFERRED, SerialNumberStatus.IN_STOCK, LocalDateTime.now());
+                publishSerialChanges(serialStockIds);
+                serialEventService.recordTransfer(transferId, SerialEventType.TRANSFER_REJECTED,
+                        SerialNumberStatus.IN_STOCK, transfer.getFromBranch().getId(), userId);
+            }
+            inTransitStockRepository.applyTransfers(List.of(transferId), -1);
         }
 
         transfer.setStatus(TransferStatus.REJECTED);
@@ -316,12 +480,190 @@ public class TransferService {
         return toDTO(saved);
     }
 
-    private String generateTransferNumber(String fromCode, String toCode) {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "TR-" + fromCode + "-" + toCode + "-" + dateStr;
+    /**
+     * Serials that travel with an item: the ones given in the request, validated in one query,
+     * or the lowest-id unclaimed IN_STOCK serials of the source stock row when none were given.
+     */
+    private List<SerialNumber> selectSerials(StockItem stockItem, Product product, CreateTransferItemDTO itemDto) {
+        int quantity = itemDto.getQuantity();
+        List<String> requested = itemDto.getSerialNumbers();
+
+        if (requested == null || requested.isEmpty()) {
+            List<SerialNumber> picked = new ArrayList<>(serialNumberRepository.findUnclaimedByStockItemIdAndStatus(
+                    stockItem.getId(), SerialNumberStatus.IN_STOCK, PageRequest.of(0, quantity)));
+            if (picked.size() < quantity) {
+                picked.addAll(serialRangeService.claimFirst(stockItem, quantity - picked.size()));
+            }
+            if (picked.size() < quantity) {
+                throw new IllegalStateException(
+                        "Insufficient serial numbers for " + product.getName() +
+                        ". Available: " + picked.size() + ", Requested: " + quantity);
+            }
+            return picked;
+        }
+
+        Set<String> unique = new LinkedHashSet<>(requested);
+        if (unique.size() != requested.size()) {
+            throw new IllegalStateException("Duplicate serial numbers for product: " + product.getName());
+        }
+        if (unique.size() != quantity) {
+            throw new IllegalStateException(
+                    "Serial number count (" + unique.size() + ") does not match quantity (" +
+                    quantity + ") for product: " + product.getName());
+        }
+
+        List<SerialNumber> found = new ArrayList<>(serialNumberRepository.findBySerialNumberIn(unique));
+        Map<String, SerialNumber> bySerial = new HashMap<>();
+        for (SerialNumber serial : found) {
+            bySerial.put(serial.getSerialNumber(), serial);
+        }
+        // Serials still held in a received range are split out into rows first
+        for (String value : unique) {
+            if (!bySerial.containsKey(value)) {
+                serialRangeService.claim(value).ifPresent(serial -> {
+                    bySerial.put(value, serial);
+                    found.add(serial);
+                });
+            }
+        }
+
+        List<String> problems = new ArrayList<>();
+        for (String value : unique) {
+            SerialNumber serial = bySerial.get(value);
+            if (serial == null) {
+                problems.add("Serial number not found: " + value);
+            } else if (!serial.getStockItem().getId().equals(stockItem.getId())
+                    || serial.getStatus() != SerialNumberStatus.IN_STOCK) {
+                problems.add("Serial number " + value + " is not in stock at the source branch");
+            }
+        }
+        if (problems.isEmpty()) {
+            Set<Long> reserved = new HashSet<>(transferItemSerialRepository.findReservedSerialIds(
+                    found.stream().map(SerialNumber::getId).collect(Collectors.toList()), TransferStatus.PENDING));
+            for (SerialNumber serial : found) {
+                if (reserved.contains(serial.getId())) {
+                    problems.add("Serial number " + serial.getSerialNumber() + " is already on a pending transfer");
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException(String.join("; ", problems));
+        }
+        return found;
+    }
+
+    /**
+     * Loads the transfer's products and locks their stock rows at the given branches with one
+     * query each, keyed by branch id and then product id. Rows are locked in id order so
+     * concurrent transfers over the same rows cannot deadlock.
+     */
+    private Map<Long, Map<Long, StockItem>> lockStock(Transfer transfer, List<Long> branchIds) {
+        return lockStock(List.of(transfer), branchIds);
+    }
+
+    private Map<Long, Map<Long, StockItem>> lockStock(Collection<Transfer> transfers, Collection<Long> branchIds) {
+        Set<Long> productIds = transfers.stream()
+                .flatMap(transfer -> transfer.getItems().stream())
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        // Initialises the items' product proxies in one query
+        productRepository.findAllById(productIds);
+
+        Map<Long, Map<Long, StockItem>> stock = new HashMap<>();
+        for (Long branchId : branchIds) {
+            stock.put(branchId, new HashMap<>());
+        }
+        for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(branchIds, productIds)) {
+            stock.get(stockItem.getBranch().getId()).put(stockItem.getProduct().getId(), stockItem);
+        }
+        return stock;
+    }
+
+    private StockItem requireStock(Map<Long, StockItem> rows, TransferItem item) {
+        StockItem stockItem = rows.get(item.getProduct().getId());
+        if (stockItem == null) {
+            throw new ResourceNotFoundException("Stock item not found for product: " + item.getProduct().getName());
+        }
+        return stockItem;
+    }
+
+    /**
+     * Creates the destination rows the transfer needs in one statement and adds them to
+     * {@code rows}, locked. A row another transaction created in the meantime is skipped by the
+     * insert, so every row is locked again here rather than relying on the insert.
+     */
+    private void createMissingStock(Transfer transfer, Map<Long, StockItem> rows,
+                                    Function<TransferItem, BigDecimal> costPrice) {
+        createMissingStock(transfer.getToBranch().getId(), transfer.getItems(), rows, costPrice);
+    }
+
+    private void createMissingStock(Long branchId, Collection<TransferItem> items, Map<Long, StockItem> rows,
+                                    Function<TransferItem, BigDecimal> costPrice) {
+        Map<Long, BigDecimal> missing = new HashMap<>();
+        for (TransferItem item : items) {
+            if (!rows.containsKey(item.getProduct().getId())) {
+                missing.putIfAbsent(item.getProduct().getId(), costPrice.apply(item));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        stockItemRepository.insertMissing(branchId, missing);
+        for (StockItem stockItem : stockItemRepository.lockByBranchIdInAndProductIdIn(List.of(branchId), missing.keySet())) {
+            rows.put(stockItem.getProduct().getId(), stockItem);
+        }
+    }
+
+    private void moveSerials(Transfer transfer, SerialNumberStatus fromStatus, Set<Long> serialStockIds, Long userId) {
+        int expected = (int) transferItemSerialRepository.countByTransferId(transfer.getId());
+        if (expected == 0) {
+            return;
+        }
+        // Destination stock rows created above must exist before the native UPDATE joins on them
+        stockItemRepository.flush();
+        int updated = serialNumberRepository.moveForTransfer(transfer.getId(), transfer.getToBranch().getId(),
+                fromStatus.name(), LocalDateTime.now());
+        requireAllSerialsMoved(expected, updated,
+                fromStatus == SerialNumberStatus.IN_STOCK ? "in stock at the source branch" : "in transit");
+        publishSerialChanges(serialStockIds);
+        serialEventService.recordTransfer(transfer.getId(), SerialEventType.TRANSFER_RECEIVED,
+                SerialNumberStatus.IN_STOCK, transfer.getToBranch().getId(), userId);
+    }
+
+    private void requireAllSerialsMoved(int expected, int updated, String expectedState) {
+        if (updated != expected) {
+            throw new IllegalStateException(
+                    (expected - updated) + " serial number(s) on this transfer are no longer " + expectedState);
+        }
+    }
+
+    // Set-based updates bypass the entity listener, so announce the touched stock rows
+    private void publishSerialChanges(Set<Long> stockItemIds) {
+        for (Long stockItemId : stockItemIds) {
+            eventPublisher.publishEvent(SerialNumberChangedEvent.bulk(stockItemId));
+        }
     }
 
     private TransferDTO toDTO(Transfer transfer) {
+        return toDTOList(List.of(transfer)).get(0);
+    }
+
+    // Serials for all transfers are read in one query
+    private List<TransferDTO> toDTOList(List<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<String>> serialsByItem = new HashMap<>();
+        List<Long> transferIds = transfers.stream().map(Transfer::getId).collect(Collectors.toList());
+        for (Object[] row : transferItemSerialRepository.findSerialNumbersByTransferIds(transferIds)) {
+            serialsByItem.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return transfers.stream()
+                .map(transfer -> toDTO(transfer, serialsByItem))
+                .collect(Collectors.toList());
+    }
+
+    private TransferDTO toDTO(Transfer transfer, Map<Long, List<String>> serialsByItem) {
         List<TransferItemDTO> items = transfer.getItems().stream()
                 .map(item -> TransferItemDTO.builder()
                         .id(item.getId())
@@ -329,6 +671,7 @@ public class TransferService {
                         .productName(item.getProduct().getName())
                         .productSku(item.getProduct().getSku())
                         .quantity(item.getQuantity())
+                        .serialNumbers(serialsByItem.getOrDefault(item.getId(), List.of()))
                         .build())
                 .collect(Collectors.toList());
 
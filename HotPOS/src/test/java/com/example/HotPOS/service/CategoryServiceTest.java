@@ -0,0 +1,78 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CategoryTreeDTO;
+import com.example.HotPOS.repository.CategoryClosureRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CategoryServiceTest {
+
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private CategoryClosureRepository categoryClosureRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void oppositeConcurrentMovesCannotBothPass() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        Long a = categoryService.createCategory(CategoryDTO.builder().name("Move test A " + suffix).build()).getId();
+        Long b = categoryService.createCategory(CategoryDTO.builder().name("Move test B " + suffix).build()).getId();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> moves = new ArrayList<>();
+        try {
+            moves.add(pool.submit(() -> { start.await(); return categoryService.moveCategory(a, b); }));
+            moves.add(pool.submit(() -> { start.await(); return categoryService.moveCategory(b, a); }));
+            start.countDown();
+
+            int failed = 0;
+            for (Future<?> move : moves) {
+                try {
+                    move.get();
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                    failed++;
+                }
+            }
+            assertThat(failed).isEqualTo(1);
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(categoryClosureRepository.existsByAncestorIdAndDescendantId(a, b)
+                && categoryClosureRepository.existsByAncestorIdAndDescendantId(b, a)).isFalse();
+    }
+
+    @Test
+    void treePicksUpChangesMadeWithoutAnEvent() {
+        String suffix = String.valueOf(System.nanoTime());
+        Long id = categoryService.createCategory(CategoryDTO.builder().name("Tree test " + suffix).build()).getId();
+        assertThat(rootNames()).contains("Tree test " + suffix);
+
+        // As another node's rename: the row changes but no event reaches this node's tree
+        jdbcTemplate.update("UPDATE categories SET name = ?, updated_at = now() WHERE id = ?",
+                "Tree test renamed " + suffix, id);
+
+        assertThat(rootNames()).contains("Tree test renamed " + suffix).doesNotContain("Tree test " + suffix);
+    }
+
+    private List<String> rootNames() {
+        return categoryService.getCategoryTree().roots().stream().map(CategoryTreeDTO::getName).toList();
+    }
+}
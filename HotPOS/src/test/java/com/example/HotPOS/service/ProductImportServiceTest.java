@@ -0,0 +1,193 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateSaleDTO;
+import com.example.HotPOS.dto.CreateSaleItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.ProductImportResultDTO;
+import com.example.HotPOS.dto.StockShardDTO;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.ProductRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private StockShardService stockShardService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long branchId;
+    private Long categoryId;
+    private Long userId;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "PI" + System.nanoTime() + "-";
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        categoryId = categoryService.createCategory(CategoryDTO.builder().name("Import test " + prefix).build()).getId();
+    }
+
+    @Test
+    void stockImportReplacesShardedStockAndEmptiesShards() {
+        Long sharded = createProduct(prefix + "HOT");
+        Long plain = createProduct(prefix + "PLAIN");
+        stockService.createOrUpdateStock(branchId, sharded, 10, BigDecimal.ONE, null);
+        stockService.createOrUpdateStock(branchId, plain, 10, BigDecimal.ONE, null);
+        stockShardService.setShardCount(sharded, 4);
+        sell(sharded, 3);
+
+        ProductImportResultDTO result = productImportService.importStock(json("["
+                + stockRow(prefix + "HOT", 20) + ","
+                + stockRow(prefix + "PLAIN", 7) + "]"));
+
+        assertThat(result.getErrorCount()).isZero();
+        assertThat(available(sharded)).isEqualTo(20);
+        assertThat(available(plain)).isEqualTo(7);
+        Long stockItemId = stockItemRepository.findByBranchIdAndProductId(branchId, sharded).map(StockItem::getId).orElseThrow();
+        assertThat(stockShardService.getShards(stockItemId))
+                .allSatisfy(shard -> assertThat(shard.getAllocated()).isZero());
+        // The next consolidation hands the imported quantity back out without counting the old sale again
+        stockShardService.consolidateAll();
+        assertThat(available(sharded)).isEqualTo(20);
+        assertThat(stockShardService.getShards(stockItemId).stream().mapToInt(StockShardDTO::getAllocated).sum())
+                .isEqualTo(20);
+    }
+
+    @Test
+    void reimportWithoutUpdateSkipsExistingSkus() {
+        productImportService.importProducts(json("[" + productRow(prefix + "A", "5.00") + ","
+                + productRow(prefix + "B", "5.00") + "]"), false);
+
+        ProductImportResultDTO result = productImportService.importProducts(json("["
+                + productRow(prefix + "A", "6.00") + ","
+                + productRow(prefix + "B", "6.00") + ","
+                + productRow(prefix + "C", "6.00") + "]"), false);
+
+        assertThat(result.getItemsImported()).isEqualTo(1);
+        assertThat(result.getItemsSkipped()).isEqualTo(2);
+        assertThat(productRepository.findBySku(prefix + "A").orElseThrow().getSellingPrice()).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void updatedSellingPriceReachesStockRows() {
+        productImportService.importProducts(json("[" + productRow(prefix + "A", "5.00") + "]"), false);
+        Long productId = productRepository.findBySku(prefix + "A").orElseThrow().getId();
+        stockService.createOrUpdateStock(branchId, productId, 3, BigDecimal.ONE, new BigDecimal("5.00"));
+
+        ProductImportResultDTO result = productImportService.importProducts(
+                json("[" + productRow(prefix + "A", "7.50") + "]"), true);
+
+        assertThat(result.getItemsImported()).isEqualTo(1);
+        assertThat(stockItemRepository.findByBranchIdAndProductId(branchId, productId).orElseThrow().getSellingPrice())
+                .isEqualByComparingTo("7.50");
+    }
+
+    /**
+     * Catalog import at the size of a full product file: 50,000 products in the test's category,
+     * then a stock row for each at the first branch. Run with {@code -Dhotpos.benchmark=true};
+     * both import times are printed and together they must stay under a minute. Both imports
+     * join the test transaction, which is rolled back so the shared database keeps its size.
+     */
+    @Test
+    @Transactional
+    @EnabledIfSystemProperty(named = "hotpos.benchmark", matches = "true")
+    void importFiftyThousandProducts() {
+        int count = Integer.getInteger("hotpos.benchmark.products", 50_000);
+        StringBuilder products = new StringBuilder("[");
+        StringBuilder stock = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            String separator = i > 0 ? "," : "";
+            products.append(separator).append(productRow(prefix + i, "9.99"));
+            stock.append(separator).append(stockRow(prefix + i, i % 100));
+        }
+
+        long start = System.nanoTime();
+        ProductImportResultDTO productResult = productImportService.importProducts(json(products.append("]").toString()), true);
+        long productsMs = (System.nanoTime() - start) / 1_000_000;
+        ProductImportResultDTO stockResult = productImportService.importStock(json(stock.append("]").toString()));
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Imported %d products in %d ms and their stock in %d ms%n",
+                count, productsMs, totalMs - productsMs);
+        assertThat(productResult.getItemsImported()).isEqualTo(count);
+        assertThat(stockResult.getItemsImported()).isEqualTo(count);
+        assertThat(totalMs).isLessThan(60_000);
+    }
+
+    private String productRow(String sku, String sellingPrice) {
+        return "{\"sku\":\"" + sku + "\",\"name\":\"Import test product\",\"categoryName\":\"Import test "
+                + prefix + "\",\"sellingPrice\":" + sellingPrice + ",\"reorderLevel\":5}";
+    }
+
+    private String stockRow(String sku, int quantity) {
+        return "{\"branchId\":" + branchId + ",\"productSku\":\"" + sku + "\",\"quantity\":" + quantity
+                + ",\"costPrice\":1.00}";
+    }
+
+    private static ByteArrayInputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sell(Long productId, int quantity) {
+        saleService.createSale(CreateSaleDTO.builder()
+                .branchId(branchId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(CreateSaleItemDTO.builder().productId(productId).quantity(quantity).build()))
+                .build(), userId);
+    }
+
+    private Integer available(Long productId) {
+        return transactionTemplate.execute(tx -> stockService.getAvailableQuantity(branchId, productId));
+    }
+
+    private Long createProduct(String sku) {
+        return productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku(sku)
+                .name("Import test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void refreshPicksUpChangesMadeWithoutAnEvent() {
+        String suffix = String.valueOf(System.nanoTime());
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Search test " + suffix).build()).getId();
+        Long productId = productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku("ST-" + suffix)
+                .name("Quokka charger")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+        assertThat(ids(productSearchIndex.search("ST-" + suffix, 5))).contains(productId);
+
+        // As another node's rename: the row changes but no event reaches this node's index
+        jdbcTemplate.update("UPDATE products SET name = ?, updated_at = now() WHERE id = ?",
+                "Wombat cable " + suffix, productId);
+        productSearchIndex.refresh();
+
+        assertThat(ids(productSearchIndex.search("wombat " + suffix, 5))).contains(productId);
+        assertThat(productSearchIndex.search("ST-" + suffix, 5).get(0).getName()).isEqualTo("Wombat cable " + suffix);
+    }
+
+    private static List<Long> ids(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getId).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.event.ProductChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSkuCacheTest {
+
+    @Test
+    void entryIsReloadedOnceOlderThanTheTtl() throws InterruptedException {
+        ProductSkuCache cache = new ProductSkuCache(10, 1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<ProductDTO> loader = () -> ProductDTO.builder()
+                .id(1L)
+                .sku("SKU-1")
+                .name("Load " + loads.incrementAndGet())
+                .isActive(true)
+                .build();
+
+        assertThat(cache.get("SKU-1", loader).getName()).isEqualTo("Load 1");
+        assertThat(cache.get("SKU-1", loader).getName()).isEqualTo("Load 1");
+
+        // As when another node changed the product: no event reaches this cache
+        Thread.sleep(1_100);
+
+        assertThat(cache.get("SKU-1", loader).getName()).isEqualTo("Load 2");
+        assertThat(cache.getStats().getHits()).isEqualTo(1);
+        assertThat(cache.getStats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void categoryChangeDropsOnlyThatCategorysEntries() {
+        ProductSkuCache cache = new ProductSkuCache(10, 30);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("SKU-1", () -> product(1L, 10L, loads));
+        cache.get("SKU-2", () -> product(2L, 20L, loads));
+
+        cache.onProductChanged(ProductChangedEvent.category(10L));
+
+        assertThat(cache.get("SKU-1", () -> product(1L, 10L, loads)).getName()).isEqualTo("Load 3");
+        assertThat(cache.get("SKU-2", () -> product(2L, 20L, loads)).getName()).isEqualTo("Load 2");
+    }
+
+    private static ProductDTO product(Long id, Long categoryId, AtomicInteger loads) {
+        return ProductDTO.builder()
+                .id(id)
+                .categoryId(categoryId)
+                .name("Load " + loads.incrementAndGet())
+                .isActive(true)
+                .build();
+    }
+}
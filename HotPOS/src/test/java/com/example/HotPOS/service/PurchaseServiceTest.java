@@ -0,0 +1,184 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreatePurchaseDTO;
+import com.example.HotPOS.dto.CreatePurchaseItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.PurchaseDTO;
+import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.entity.Supplier;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.PurchaseRepository;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.SupplierRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class PurchaseServiceTest {
+
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private SerialNumberRepository serialNumberRepository;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private SupplierRepository supplierRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long branchId;
+    private Long supplierId;
+    private Long categoryId;
+    private Long userId;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "PS" + System.nanoTime() + "-";
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        supplierId = supplierRepository.save(Supplier.builder().name("Purchase test " + prefix).build()).getId();
+        categoryId = categoryService.createCategory(CategoryDTO.builder().name("Purchase test " + prefix).build()).getId();
+    }
+
+    @Test
+    void repeatedSerialRejectsTheWholeReceipt() {
+        Long productId = createSerialProduct();
+        PurchaseDTO purchase = createPurchase(productId, 3);
+
+        assertThatThrownBy(() -> receive(purchase.getId(), productId, List.of(prefix + "1", prefix + "2", prefix + "1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(prefix + "1");
+
+        assertThat(purchaseRepository.findById(purchase.getId()).orElseThrow().getStatus()).isNotEqualTo("RECEIVED");
+        assertThat(serialNumberRepository.findBySerialNumber(prefix + "2")).isEmpty();
+    }
+
+    @Test
+    void concurrentOverlappingRangesCannotBothBeReceived() throws Exception {
+        Long productId = createSerialProduct();
+        List<PurchaseDTO> purchases = List.of(createPurchase(productId, 100), createPurchase(productId, 100));
+        List<String> ranges = List.of(prefix + "0001.." + prefix + "0100", prefix + "0051.." + prefix + "0150");
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> receipts = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Long purchaseId = purchases.get(i).getId();
+                String range = ranges.get(i);
+                receipts.add(pool.submit(() -> {
+                    start.await();
+                    return purchaseService.receivePurchase(purchaseId, userId, ReceivePurchaseDTO.builder()
+                            .items(List.of(ReceivePurchaseDTO.ReceiveItemDTO.builder()
+                                    .productId(productId)
+                                    .serialRanges(List.of(range))
+                                    .build()))
+                            .build());
+                }));
+            }
+            start.countDown();
+
+            int failed = 0;
+            for (Future<?> receipt : receipts) {
+                try {
+                    receipt.get();
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class)
+                            .hasMessageContaining("overlaps stored range");
+                    failed++;
+                }
+            }
+            assertThat(failed).isEqualTo(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Receiving one purchase line with 10,000 individual serials. Run with
+     * {@code -Dhotpos.benchmark=true}; the time of the receive call is printed and every serial
+     * must be stored in stock.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "hotpos.benchmark", matches = "true")
+    void receiveTenThousandSerials() {
+        int count = Integer.getInteger("hotpos.benchmark.serials", 10_000);
+        Long productId = createSerialProduct();
+        PurchaseDTO purchase = createPurchase(productId, count);
+        List<String> serials = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            serials.add(prefix + i);
+        }
+
+        long start = System.nanoTime();
+        receive(purchase.getId(), productId, serials);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Received %d serials in %d ms%n", count, elapsedMs);
+        Long stockItemId = stockItemRepository.findByBranchIdAndProductId(branchId, productId).orElseThrow().getId();
+        assertThat(serialNumberRepository.countInStockByStockItem(stockItemId)).isEqualTo(count);
+    }
+
+    private void receive(Long purchaseId, Long productId, List<String> serials) {
+        purchaseService.receivePurchase(purchaseId, userId, ReceivePurchaseDTO.builder()
+                .items(List.of(ReceivePurchaseDTO.ReceiveItemDTO.builder()
+                        .productId(productId)
+                        .serialNumbers(serials)
+                        .build()))
+                .build());
+    }
+
+    private Long createSerialProduct() {
+        return productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku(prefix + "SKU")
+                .name("Purchase test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(true)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+    }
+
+    private PurchaseDTO createPurchase(Long productId, int quantity) {
+        return purchaseService.createPurchase(CreatePurchaseDTO.builder()
+                .branchId(branchId)
+                .supplierId(supplierId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(CreatePurchaseItemDTO.builder()
+                        .productId(productId)
+                        .quantity(quantity)
+                        .unitCost(BigDecimal.ONE)
+                        .build()))
+                .build(), userId);
+    }
+}
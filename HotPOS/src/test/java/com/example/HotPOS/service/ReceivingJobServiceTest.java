@@ -0,0 +1,272 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreatePurchaseDTO;
+import com.example.HotPOS.dto.CreatePurchaseItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.PurchaseDTO;
+import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.entity.Purchase;
+import com.example.HotPOS.entity.ReceivingJob;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.entity.Supplier;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.enums.ReceivingJobStatus;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.PurchaseRepository;
+import com.example.HotPOS.repository.ReceivingJobRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.SupplierRepository;
+import com.example.HotPOS.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = "hotpos.receiving.chunk-lines=1")
+class ReceivingJobServiceTest {
+
+    @Autowired
+    private ReceivingJobService receivingJobService;
+    @Autowired
+    private ReceivingJobRepository receivingJobRepository;
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private SupplierRepository supplierRepository;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long branchId;
+    private Long supplierId;
+    private Long categoryId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        supplierId = supplierRepository.save(Supplier.builder().name("Receiving test " + suffix).build()).getId();
+        categoryId = categoryService.createCategory(CategoryDTO.builder().name("Receiving test " + suffix).build()).getId();
+    }
+
+    @Test
+    void receivesAsOrderedWhenStartedWithoutBody() throws InterruptedException {
+        List<Long> products = createProducts(2);
+        PurchaseDTO purchase = createPurchase(products, 3);
+
+        Long jobId = receivingJobService.start(purchase.getId(), userId, null).getId();
+
+        assertThat(awaitStatus(jobId, ReceivingJobStatus.COMPLETED)).isTrue();
+        assertThat(purchaseRepository.findById(purchase.getId()).orElseThrow().getStatus()).isEqualTo("RECEIVED");
+        for (Long productId : products) {
+            assertThat(quantity(productId)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void resumeContinuesAfterLastCommittedLine() throws InterruptedException {
+        List<Long> products = createProducts(3);
+        PurchaseDTO purchase = createPurchase(products, 2);
+        // As left by a job that committed its first line and then failed
+        Long jobId = saveJob(purchase.getId(), ReceivingJobStatus.FAILED, 1, 1, LocalDateTime.now());
+
+        receivingJobService.resume(jobId);
+
+        assertThat(awaitStatus(jobId, ReceivingJobStatus.COMPLETED)).isTrue();
+        assertThat(quantity(products.get(0))).isZero();
+        assertThat(quantity(products.get(1))).isEqualTo(2);
+        assertThat(quantity(products.get(2))).isEqualTo(2);
+    }
+
+    @Test
+    void stalledJobIsRequeuedAndAppliedOnce() throws InterruptedException {
+        List<Long> products = createProducts(2);
+        PurchaseDTO purchase = createPurchase(products, 4);
+        Long jobId = saveJob(purchase.getId(), ReceivingJobStatus.RUNNING, 0, 1, LocalDateTime.now().minusMinutes(10));
+
+        receivingJobService.recoverStalled();
+
+        assertThat(awaitStatus(jobId, ReceivingJobStatus.COMPLETED)).isTrue();
+        assertThat(receivingJobRepository.findById(jobId).orElseThrow().getAttempt()).isEqualTo(2);
+        for (Long productId : products) {
+            assertThat(quantity(productId)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void workerThatLostItsJobAppliesNothing() {
+        List<Long> products = createProducts(2);
+        PurchaseDTO purchase = createPurchase(products, 5);
+        // Requeued and claimed again by another worker since attempt 1 started
+        Long jobId = saveJob(purchase.getId(), ReceivingJobStatus.RUNNING, 0, 2, LocalDateTime.now());
+
+        ReceivingJobService.ChunkResult result = transactionTemplate.execute(status ->
+                receivingJobService.processChunk(jobId, new ReceivingJobService.Claim(1, null)));
+
+        assertThat(result).isEqualTo(ReceivingJobService.ChunkResult.LOST);
+        assertThat(receivingJobRepository.findById(jobId).orElseThrow().getProcessedLines()).isZero();
+        assertThat(quantity(products.get(0))).isZero();
+    }
+
+    @Test
+    void chunkFailsWithTheProblemWhenItsSerialWasTakenAfterValidation() throws Exception {
+        List<Long> products = createProducts(2, true);
+        PurchaseDTO purchase = createPurchase(products, 1);
+        String suffix = String.valueOf(System.nanoTime());
+        ReceivePurchaseDTO request = serials(products, "RJ-A-" + suffix, "RJ-B-" + suffix);
+        Long jobId = saveJob(purchase.getId(), ReceivingJobStatus.QUEUED, 0, 0, LocalDateTime.now(),
+                objectMapper.writeValueAsString(request));
+        // Another delivery stores the second line's serial after the job was validated
+        PurchaseDTO other = createPurchase(List.of(products.get(1)), 1);
+        purchaseService.receivePurchase(other.getId(), userId, serials(List.of(products.get(1)), "RJ-B-" + suffix));
+
+        receivingJobService.run(jobId);
+
+        ReceivingJob job = receivingJobRepository.findById(jobId).orElseThrow();
+        assertThat(job.getStatus()).isEqualTo(ReceivingJobStatus.FAILED);
+        assertThat(job.getProcessedLines()).isEqualTo(1);
+        assertThat(job.getError()).isEqualTo("Serial numbers already exist: RJ-B-" + suffix);
+        assertThat(quantity(products.get(0))).isEqualTo(1);
+        assertThat(quantity(products.get(1))).isEqualTo(1);
+    }
+
+    @Test
+    void cancelKeepsCommittedLinesAndReceiveAppliesTheRest() {
+        List<Long> products = createProducts(3);
+        PurchaseDTO purchase = createPurchase(products, 2);
+        Long jobId = saveJob(purchase.getId(), ReceivingJobStatus.RUNNING, 0, 1, LocalDateTime.now());
+        ReceivingJobService.Claim claim = new ReceivingJobService.Claim(1, null);
+        transactionTemplate.execute(status -> receivingJobService.processChunk(jobId, claim));
+
+        receivingJobService.cancel(jobId);
+
+        assertThat(receivingJobRepository.findById(jobId).orElseThrow().getStatus())
+                .isEqualTo(ReceivingJobStatus.CANCELLED);
+        assertThat(purchaseRepository.findById(purchase.getId()).orElseThrow().getStatus())
+                .isEqualTo("PARTIALLY_RECEIVED");
+        ReceivingJobService.ChunkResult afterCancel = transactionTemplate.execute(status ->
+                receivingJobService.processChunk(jobId, claim));
+        assertThat(afterCancel).isEqualTo(ReceivingJobService.ChunkResult.LOST);
+
+        purchaseService.receivePurchase(purchase.getId(), userId, null);
+
+        assertThat(purchaseRepository.findById(purchase.getId()).orElseThrow().getStatus()).isEqualTo("RECEIVED");
+        for (Long productId : products) {
+            assertThat(quantity(productId)).isEqualTo(2);
+        }
+    }
+
+    private List<Long> createProducts(int count) {
+        return createProducts(count, false);
+    }
+
+    private List<Long> createProducts(int count, boolean requiresSerial) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(productService.createProduct(ProductDTO.builder()
+                    .categoryId(categoryId)
+                    .sku("RJ-" + System.nanoTime() + "-" + i)
+                    .name("Receiving test product " + i)
+                    .unitOfMeasure("pcs")
+                    .requiresSerial(requiresSerial)
+                    .reorderLevel(1)
+                    .sellingPrice(BigDecimal.TEN)
+                    .build()).getId());
+        }
+        return ids;
+    }
+
+    private PurchaseDTO createPurchase(List<Long> products, int quantity) {
+        List<CreatePurchaseItemDTO> items = products.stream()
+                .map(productId -> CreatePurchaseItemDTO.builder()
+                        .productId(productId)
+                        .quantity(quantity)
+                        .unitCost(BigDecimal.ONE)
+                        .build())
+                .toList();
+        return purchaseService.createPurchase(CreatePurchaseDTO.builder()
+                .branchId(branchId)
+                .supplierId(supplierId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(items)
+                .build(), userId);
+    }
+
+    // One serial per product, in order
+    private ReceivePurchaseDTO serials(List<Long> products, String... serials) {
+        List<ReceivePurchaseDTO.ReceiveItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            items.add(ReceivePurchaseDTO.ReceiveItemDTO.builder()
+                    .productId(products.get(i))
+                    .serialNumbers(List.of(serials[i]))
+                    .build());
+        }
+        return ReceivePurchaseDTO.builder().items(items).build();
+    }
+
+    private Long saveJob(Long purchaseId, ReceivingJobStatus status, int processedLines, int attempt,
+                         LocalDateTime updatedAt) {
+        return saveJob(purchaseId, status, processedLines, attempt, updatedAt, null);
+    }
+
+    private Long saveJob(Long purchaseId, ReceivingJobStatus status, int processedLines, int attempt,
+                         LocalDateTime updatedAt, String request) {
+        return transactionTemplate.execute(tx -> {
+            Purchase purchase = purchaseRepository.findById(purchaseId).orElseThrow();
+            purchase.setStatus("RECEIVING");
+            return receivingJobRepository.save(ReceivingJob.builder()
+                    .purchase(purchase)
+                    .user(userRepository.getReferenceById(userId))
+                    .status(status)
+                    .totalLines(purchase.getItems().size())
+                    .processedLines(processedLines)
+                    .attempt(attempt)
+                    .request(request)
+                    .updatedAt(updatedAt)
+                    .build()).getId();
+        });
+    }
+
+    private int quantity(Long productId) {
+        return stockItemRepository.findByBranchIdAndProductId(branchId, productId)
+                .map(StockItem::getQuantity)
+                .orElse(0);
+    }
+
+    private boolean awaitStatus(Long jobId, ReceivingJobStatus expected) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (receivingJobRepository.findById(jobId).orElseThrow().getStatus() == expected) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateRefundDTO;
+import com.example.HotPOS.dto.CreateRefundItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class RefundServiceTest {
+
+    @Autowired
+    private RefundService refundService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long branchId;
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Refund test " + suffix).build()).getId();
+        productId = productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku("RF-" + suffix)
+                .name("Refund test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+        stockService.createOrUpdateStock(branchId, productId, 10, BigDecimal.ONE, null);
+    }
+
+    @Test
+    void approvalKeepsADecrementCommittedWhileItWaited() throws Exception {
+        Long refundId = refundService.createRefund(CreateRefundDTO.builder()
+                .branchId(branchId)
+                .reason("Refund test")
+                .refundMethod(PaymentMethod.CASH)
+                .items(List.of(CreateRefundItemDTO.builder()
+                        .productId(productId)
+                        .quantity(1)
+                        .unitPrice(BigDecimal.TEN)
+                        .build()))
+                .build(), userId).getId();
+
+        // Stands in for a sale holding the stock row while the refund is approved
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> sale = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                StockItem stockItem = stockItemRepository
+                        .lockByBranchIdInAndProductIdIn(List.of(branchId), List.of(productId)).get(0);
+                locked.countDown();
+                sleep(500);
+                stockItemRepository.setQuantity(stockItem.getId(), stockItem.getQuantity() - 1, LocalDateTime.now());
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            refundService.approveRefund(refundId, userId);
+            sale.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(stockItemRepository.findByBranchIdAndProductId(branchId, productId).orElseThrow().getQuantity())
+                .isEqualTo(10);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
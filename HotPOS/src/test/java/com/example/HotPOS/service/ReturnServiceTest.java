@@ -0,0 +1,152 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.BatchApprovalResultDTO;
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreatePurchaseDTO;
+import com.example.HotPOS.dto.CreatePurchaseItemDTO;
+import com.example.HotPOS.dto.CreateReturnDTO;
+import com.example.HotPOS.dto.CreateReturnItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.ReceivePurchaseDTO;
+import com.example.HotPOS.dto.SerialEventDTO;
+import com.example.HotPOS.entity.Supplier;
+import com.example.HotPOS.enums.ApprovalStatus;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.enums.SerialEventType;
+import com.example.HotPOS.enums.SerialNumberStatus;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.ReturnRepository;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.repository.SupplierRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ReturnServiceTest {
+
+    @Autowired
+    private ReturnService returnService;
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private SerialEventService serialEventService;
+    @Autowired
+    private ReturnRepository returnRepository;
+    @Autowired
+    private SerialNumberRepository serialNumberRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private SupplierRepository supplierRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long branchId;
+    private Long supplierId;
+    private Long userId;
+    private Long productId;
+    private List<String> serials;
+
+    @BeforeEach
+    void setUp() {
+        String prefix = "RT" + System.nanoTime() + "-";
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        supplierId = supplierRepository.save(Supplier.builder().name("Return test " + prefix).build()).getId();
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Return test " + prefix).build()).getId();
+        productId = productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku(prefix + "SKU")
+                .name("Return test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(true)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+
+        serials = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            serials.add(prefix + i);
+        }
+        Long purchaseId = purchaseService.createPurchase(CreatePurchaseDTO.builder()
+                .branchId(branchId)
+                .supplierId(supplierId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(CreatePurchaseItemDTO.builder()
+                        .productId(productId)
+                        .quantity(serials.size())
+                        .unitCost(BigDecimal.ONE)
+                        .build()))
+                .build(), userId).getId();
+        purchaseService.receivePurchase(purchaseId, userId, ReceivePurchaseDTO.builder()
+                .items(List.of(ReceivePurchaseDTO.ReceiveItemDTO.builder()
+                        .productId(productId)
+                        .serialNumbers(serials)
+                        .build()))
+                .build());
+    }
+
+    @Test
+    void batchApprovalMarksEverySerialOfEveryReturn() {
+        Long first = createReturn(2);
+        Long second = createReturn(2);
+
+        BatchApprovalResultDTO result = returnService.approveReturns(List.of(first, second), userId);
+
+        assertThat(result.getApproved()).isEqualTo(2);
+        assertThat(statuses()).containsExactly(SerialNumberStatus.RETURNED, SerialNumberStatus.RETURNED,
+                SerialNumberStatus.RETURNED, SerialNumberStatus.RETURNED, SerialNumberStatus.IN_STOCK);
+        List<SerialEventDTO> timeline = serialEventService.getTimeline(serials.get(2));
+        assertThat(timeline.get(timeline.size() - 1).getEventType()).isEqualTo(SerialEventType.RETURNED_TO_SUPPLIER);
+        assertThat(timeline.get(timeline.size() - 1).getStatus()).isEqualTo(SerialNumberStatus.RETURNED);
+        assertThat(timeline.get(timeline.size() - 1).getRefId()).isEqualTo(second);
+    }
+
+    @Test
+    void batchApprovalShortOfSerialsChangesNothing() {
+        // The stock row still counts five units, but one serial is no longer in stock
+        Long defective = serialNumberRepository.findBySerialNumber(serials.get(0)).orElseThrow().getId();
+        serialNumberRepository.updateStatus(List.of(defective), SerialNumberStatus.IN_STOCK, SerialNumberStatus.DEFECTIVE);
+        Long returnId = createReturn(5);
+
+        BatchApprovalResultDTO result = returnService.approveReturns(List.of(returnId), userId);
+
+        assertThat(result.getApproved()).isZero();
+        assertThat(result.getOutcomes().get(0).getMessage()).contains("Only 4 of 5");
+        assertThat(returnRepository.findById(returnId).orElseThrow().getStatus()).isEqualTo(ApprovalStatus.PENDING);
+        assertThat(statuses()).containsExactly(SerialNumberStatus.DEFECTIVE, SerialNumberStatus.IN_STOCK,
+                SerialNumberStatus.IN_STOCK, SerialNumberStatus.IN_STOCK, SerialNumberStatus.IN_STOCK);
+    }
+
+    private Long createReturn(int quantity) {
+        return returnService.createReturn(CreateReturnDTO.builder()
+                .branchId(branchId)
+                .supplierId(supplierId)
+                .reason("Return test")
+                .items(List.of(CreateReturnItemDTO.builder()
+                        .productId(productId)
+                        .quantity(quantity)
+                        .unitCost(BigDecimal.ONE)
+                        .build()))
+                .build(), userId).getId();
+    }
+
+    private List<SerialNumberStatus> statuses() {
+        return serials.stream()
+                .map(serial -> serialNumberRepository.findBySerialNumber(serial).orElseThrow().getStatus())
+                .toList();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateSaleDTO;
+import com.example.HotPOS.dto.CreateSaleItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.SaleDTO;
+import com.example.HotPOS.entity.Branch;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SaleServiceTest {
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+    private Long productId;
+    private Long otherProductId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Sale test " + suffix).build()).getId();
+        productId = createProduct(categoryId, "SL-" + suffix);
+        otherProductId = createProduct(categoryId, "SL-" + suffix + "-B");
+    }
+
+    @Test
+    void referenceNumbersOfBranchesAtTheSameSequenceDiffer() {
+        Branch existing = branchRepository.findAll().get(0);
+        // A new branch starts its sequence at 1, which every older branch has already used
+        String code = "T" + System.nanoTime() % 1_000_000_000L;
+        Branch created = branchRepository.save(Branch.builder().name("Sale test branch " + code).code(code).build());
+
+        SaleDTO first = sell(created.getId());
+        SaleDTO other = sell(existing.getId());
+
+        assertThat(first.getReferenceNumber()).isEqualTo("REF-" + code + "-00001");
+        assertThat(other.getReferenceNumber()).startsWith("REF-" + existing.getCode() + "-");
+    }
+
+    @Test
+    void concurrentSalesWithLinesInOppositeOrderBothComplete() throws Exception {
+        Long branchId = branchRepository.findAll().get(0).getId();
+        int salesPerTill = 20;
+        stockService.createOrUpdateStock(branchId, productId, 100, BigDecimal.ONE, null);
+        stockService.createOrUpdateStock(branchId, otherProductId, 100, BigDecimal.ONE, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            Future<?> forward = pool.submit(() -> sellRepeatedly(barrier, salesPerTill, branchId, productId, otherProductId));
+            Future<?> reversed = pool.submit(() -> sellRepeatedly(barrier, salesPerTill, branchId, otherProductId, productId));
+            forward.get();
+            reversed.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(available(branchId, productId)).isEqualTo(100 - 2 * salesPerTill);
+        assertThat(available(branchId, otherProductId)).isEqualTo(100 - 2 * salesPerTill);
+    }
+
+    private Void sellRepeatedly(CyclicBarrier barrier, int sales, Long branchId, Long... lineProducts) throws Exception {
+        for (int i = 0; i < sales; i++) {
+            // Both tills start each sale together, so their first line locks overlap
+            barrier.await(10, TimeUnit.SECONDS);
+            saleService.createSale(CreateSaleDTO.builder()
+                    .branchId(branchId)
+                    .paymentMethod(PaymentMethod.CASH)
+                    .items(Arrays.stream(lineProducts)
+                            .map(id -> CreateSaleItemDTO.builder().productId(id).quantity(1).build())
+                            .toList())
+                    .build(), userId);
+        }
+        return null;
+    }
+
+    private SaleDTO sell(Long branchId) {
+        stockService.createOrUpdateStock(branchId, productId, 5, BigDecimal.ONE, null);
+        return saleService.createSale(CreateSaleDTO.builder()
+                .branchId(branchId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(CreateSaleItemDTO.builder().productId(productId).quantity(1).build()))
+                .build(), userId);
+    }
+
+    private Integer available(Long branchId, Long productId) {
+        return transactionTemplate.execute(tx -> stockService.getAvailableQuantity(branchId, productId));
+    }
+
+    private Long createProduct(Long categoryId, String sku) {
+        return productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku(sku)
+                .name("Sale test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+    }
+}
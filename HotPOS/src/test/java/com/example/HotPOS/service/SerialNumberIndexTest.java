@@ -0,0 +1,127 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.SerialNumberDTO;
+import com.example.HotPOS.entity.StockItem;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.SerialNumberRepository;
+import com.example.HotPOS.repository.SerialRangeRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SerialNumberIndexTest {
+
+    @Autowired
+    private SerialNumberIndex serialNumberIndex;
+    @Autowired
+    private SerialRangeService serialRangeService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private SerialNumberRepository serialNumberRepository;
+    @Autowired
+    private SerialRangeRepository serialRangeRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long branchId;
+    private Long productId;
+    private String prefix;
+    private long base; // Differs per run, so bare digit suffixes only match this run's range
+
+    @BeforeEach
+    void setUp() {
+        branchId = branchRepository.findAll().get(0).getId();
+        prefix = "IX" + System.nanoTime() + "-";
+        base = System.nanoTime() % 1_000_000_000L * 1000;
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Index test " + prefix).build()).getId();
+        productId = productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku(prefix + "SKU")
+                .name("Index test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(true)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+        stockService.createOrUpdateStock(branchId, productId, 151, BigDecimal.ONE, null);
+        // Loaded before the range exists, so the range has to arrive through the change event
+        serialNumberIndex.search(branchId, prefix, SerialNumberIndex.Mode.PREFIX, 1);
+        transactionTemplate.executeWithoutResult(tx -> {
+            StockItem stockItem = stockItemRepository.findByBranchIdAndProductId(branchId, productId).orElseThrow();
+            serialRangeService.insert(stockItem, null, List.of(SerialRangeService.parse(serial(100) + ".." + serial(250))));
+        });
+    }
+
+    @Test
+    void suffixMatchesSerialsInsideRanges() {
+        String digits = serial(123).substring(prefix.length());
+        assertThat(serials(prefix.substring(2) + digits, SerialNumberIndex.Mode.SUFFIX)).containsExactly(serial(123));
+        assertThat(serials(digits.substring(3), SerialNumberIndex.Mode.SUFFIX)).containsExactly(serial(123));
+        assertThat(serials(serial(99).substring(prefix.length() + 3), SerialNumberIndex.Mode.SUFFIX)).isEmpty();
+    }
+
+    @Test
+    void prefixMatchesSerialsInsideRanges() {
+        List<String> found = serials(serial(200).substring(0, serial(200).length() - 2), SerialNumberIndex.Mode.PREFIX);
+        assertThat(found).hasSize(20).startsWith(serial(200));
+        assertThat(serials(serial(250), SerialNumberIndex.Mode.PREFIX)).containsExactly(serial(250));
+    }
+
+    @Test
+    void claimedSerialIsReportedByItsRow() {
+        transactionTemplate.executeWithoutResult(tx -> serialRangeService.claim(serial(123)));
+
+        List<SerialNumberDTO> found = serialNumberIndex.search(branchId, serial(123), SerialNumberIndex.Mode.ANY, 20);
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getId()).isNotNull();
+    }
+
+    @Test
+    void branchIsLoadedAgainOnceOlderThanTheTtl() throws InterruptedException {
+        // Not the application's index, so no change event reaches it, as on another node
+        SerialNumberIndex index = new SerialNumberIndex(serialNumberRepository, serialRangeRepository,
+                stockItemRepository, 1);
+        String received = prefix + "NEW";
+        assertThat(index.search(branchId, received, SerialNumberIndex.Mode.PREFIX, 5)).isEmpty();
+        transactionTemplate.executeWithoutResult(tx -> serialNumberRepository.insertInStock(
+                stockItemRepository.findByBranchIdAndProductId(branchId, productId).orElseThrow().getId(),
+                null, List.of(received)));
+        assertThat(index.search(branchId, received, SerialNumberIndex.Mode.PREFIX, 5)).isEmpty();
+
+        Thread.sleep(1_100);
+
+        assertThat(index.search(branchId, received, SerialNumberIndex.Mode.PREFIX, 5))
+                .extracting(SerialNumberDTO::getSerialNumber).containsExactly(received);
+    }
+
+    private String serial(int offset) {
+        return SerialRangeService.format(prefix, 12, base + offset);
+    }
+
+    private List<String> serials(String query, SerialNumberIndex.Mode mode) {
+        return serialNumberIndex.search(branchId, query, mode, 20).stream()
+                .map(SerialNumberDTO::getSerialNumber)
+                .filter(serial -> serial.startsWith(prefix))
+                .toList();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateStockCountDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.dto.StockCountDTO;
+import com.example.HotPOS.dto.StockCountItemDTO;
+import com.example.HotPOS.dto.StockCountScanBatchDTO;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StockCountServiceTest {
+
+    @Autowired
+    private StockCountService stockCountService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long branchId;
+    private Long categoryId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        categoryId = categoryService.createCategory(CategoryDTO.builder()
+                .name("Count test " + System.nanoTime()).build()).getId();
+    }
+
+    @Test
+    void scansSurviveLostSessionAndReceiptsAreNotCountedTwice() {
+        ProductDTO counted = createProduct("counted");
+        ProductDTO untouched = createProduct("untouched");
+        stockService.createOrUpdateStock(branchId, counted.getId(), 5, BigDecimal.ONE, null);
+        stockService.createOrUpdateStock(branchId, untouched.getId(), 2, BigDecimal.ONE, null);
+
+        Long countId = stockCountService.openCount(CreateStockCountDTO.builder()
+                .branchId(branchId)
+                .categoryId(categoryId)
+                .build(), userId).getId();
+        scan(countId, counted.getSku(), 3);
+
+        // As after a restart, or a batch landing on another node
+        ((Map<?, ?>) ReflectionTestUtils.getField(stockCountService, "sessions")).clear();
+
+        // Received while the count is running and shelved before the rest was counted
+        stockService.createOrUpdateStock(branchId, counted.getId(), 4, BigDecimal.ONE, null);
+        scan(countId, counted.getSku(), 6);
+
+        StockCountDTO posted = stockCountService.postCount(countId, userId, false);
+
+        StockCountItemDTO item = posted.getItems().stream()
+                .filter(i -> i.getProductId().equals(counted.getId()))
+                .findFirst().orElseThrow();
+        assertThat(item.getCountedQuantity()).isEqualTo(9);
+        assertThat(item.getOtherMovements()).isEqualTo(4);
+        assertThat(item.getVariance()).isZero();
+        assertThat(available(counted.getId())).isEqualTo(9);
+        assertThat(available(untouched.getId())).isEqualTo(2);
+    }
+
+    private Integer available(Long productId) {
+        return transactionTemplate.execute(tx -> stockService.getAvailableQuantity(branchId, productId));
+    }
+
+    private void scan(Long countId, String sku, int quantity) {
+        stockCountService.addScans(countId, StockCountScanBatchDTO.builder()
+                .scans(List.of(StockCountScanBatchDTO.ScanDTO.builder().sku(sku).quantity(quantity).build()))
+                .build());
+    }
+
+    private ProductDTO createProduct(String name) {
+        return productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku("SC-" + System.nanoTime())
+                .name("Count test " + name)
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateSaleDTO;
+import com.example.HotPOS.dto.CreateSaleItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StockShardServiceTest {
+
+    @Autowired
+    private StockShardService stockShardService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long branchId;
+    private Long categoryId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        branchId = branchRepository.findAll().get(0).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        categoryId = categoryService.createCategory(CategoryDTO.builder()
+                .name("Shard test " + System.nanoTime()).build()).getId();
+    }
+
+    @Test
+    void lineLargerThanAnyShardIsTakenAcrossShards() {
+        Long productId = createProduct();
+        stockService.createOrUpdateStock(branchId, productId, 10, BigDecimal.ONE, null);
+        stockShardService.setShardCount(productId, 4);
+
+        // Two sale lines of the same product are taken together
+        sell(productId, 4, 3);
+
+        assertThat(available(productId)).isEqualTo(3);
+        stockShardService.consolidateAll();
+        assertThat(available(productId)).isEqualTo(3);
+    }
+
+    @Test
+    void lineLargerThanAvailableIsRejected() {
+        Long productId = createProduct();
+        stockService.createOrUpdateStock(branchId, productId, 5, BigDecimal.ONE, null);
+        stockShardService.setShardCount(productId, 4);
+
+        try {
+            sell(productId, 6);
+        } catch (IllegalStateException expected) {
+            // Insufficient stock
+        }
+
+        assertThat(available(productId)).isEqualTo(5);
+    }
+
+    /**
+     * Hot-SKU checkout throughput: concurrent tills selling one product, first on the single
+     * stock row and then sharded. Run with {@code -Dhotpos.benchmark=true}; the sales per second
+     * of each run are printed and the stock left must match the units sold in both.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "hotpos.benchmark", matches = "true")
+    void hotSkuCheckoutThroughput() throws Exception {
+        int tills = Integer.getInteger("hotpos.benchmark.tills", 8);
+        int salesPerTill = Integer.getInteger("hotpos.benchmark.sales", 100);
+
+        Long single = createProduct();
+        stockService.createOrUpdateStock(branchId, single, 1_000_000, BigDecimal.ONE, null);
+        double unsharded = checkoutRate(single, tills, salesPerTill);
+
+        Long sharded = createProduct();
+        stockService.createOrUpdateStock(branchId, sharded, 1_000_000, BigDecimal.ONE, null);
+        stockShardService.setShardCount(sharded, tills * 2);
+        double withShards = checkoutRate(sharded, tills, salesPerTill);
+
+        System.out.printf("Hot-SKU checkout, %d tills x %d sales: %.0f sales/s unsharded, %.0f sales/s with %d shards%n",
+                tills, salesPerTill, unsharded, withShards, tills * 2);
+        assertThat(available(single)).isEqualTo(1_000_000 - tills * salesPerTill);
+        assertThat(available(sharded)).isEqualTo(1_000_000 - tills * salesPerTill);
+    }
+
+    private double checkoutRate(Long productId, int tills, int salesPerTill) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tills);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < tills; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < salesPerTill; i++) {
+                        sell(productId, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return tills * salesPerTill / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void sell(Long productId, int... quantities) {
+        List<CreateSaleItemDTO> items = new ArrayList<>();
+        for (int quantity : quantities) {
+            items.add(CreateSaleItemDTO.builder().productId(productId).quantity(quantity).build());
+        }
+        saleService.createSale(CreateSaleDTO.builder()
+                .branchId(branchId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(items)
+                .build(), userId);
+    }
+
+    private Integer available(Long productId) {
+        return transactionTemplate.execute(tx -> stockService.getAvailableQuantity(branchId, productId));
+    }
+
+    private Long createProduct() {
+        return productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku("SH-" + System.nanoTime())
+                .name("Shard test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.HotPOS.service;
+
+import com.example.HotPOS.dto.CategoryDTO;
+import com.example.HotPOS.dto.CreateSaleDTO;
+import com.example.HotPOS.dto.CreateSaleItemDTO;
+import com.example.HotPOS.dto.CreateTransferDTO;
+import com.example.HotPOS.dto.CreateTransferItemDTO;
+import com.example.HotPOS.dto.ProductDTO;
+import com.example.HotPOS.entity.Branch;
+import com.example.HotPOS.enums.PaymentMethod;
+import com.example.HotPOS.enums.TransferStatus;
+import com.example.HotPOS.repository.BranchRepository;
+import com.example.HotPOS.repository.StockItemRepository;
+import com.example.HotPOS.repository.TransferRepository;
+import com.example.HotPOS.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TransferServiceTest {
+
+    @Autowired
+    private TransferService transferService;
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private TransferRepository transferRepository;
+    @Autowired
+    private StockItemRepository stockItemRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long fromBranchId;
+    private Long toBranchId;
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        fromBranchId = branchRepository.findAll().get(0).getId();
+        String code = "X" + System.nanoTime() % 1_000_000_000L;
+        toBranchId = branchRepository.save(Branch.builder().name("Transfer test branch " + code).code(code).build()).getId();
+        userId = userRepository.findByUsername("admin").orElseThrow().getId();
+        Long categoryId = categoryService.createCategory(CategoryDTO.builder().name("Transfer test " + suffix).build()).getId();
+        productId = productService.createProduct(ProductDTO.builder()
+                .categoryId(categoryId)
+                .sku("TR-" + suffix)
+                .name("Transfer test product")
+                .unitOfMeasure("pcs")
+                .requiresSerial(false)
+                .reorderLevel(1)
+                .sellingPrice(BigDecimal.TEN)
+                .build()).getId();
+    }
+
+    @Test
+    void approvalRejectsTransferLargerThanSourceStock() {
+        stockService.createOrUpdateStock(fromBranchId, productId, 5, BigDecimal.ONE, null);
+        Long transferId = transferService.createTransfer(CreateTransferDTO.builder()
+                .fromBranchId(fromBranchId)
+                .toBranchId(toBranchId)
+                .items(List.of(CreateTransferItemDTO.builder().productId(productId).quantity(5).build()))
+                .build(), userId).getId();
+        // Sold after the transfer was requested, leaving two units
+        saleService.createSale(CreateSaleDTO.builder()
+                .branchId(fromBranchId)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(CreateSaleItemDTO.builder().productId(productId).quantity(3).build()))
+                .build(), userId);
+
+        assertThatThrownBy(() -> transferService.approveTransfer(transferId, userId))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Insufficient stock");
+
+        assertThat(stockItemRepository.findByBranchIdAndProductId(fromBranchId, productId).orElseThrow().getQuantity())
+                .isEqualTo(2);
+        assertThat(transferRepository.findById(transferId).orElseThrow().getStatus()).isEqualTo(TransferStatus.PENDING);
+    }
+}